@@ -0,0 +1,334 @@
+package ru.yandex.practicum.filmorate.buffer;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.dal.FilmRepository;
+import ru.yandex.practicum.filmorate.dal.UserRepository;
+import ru.yandex.practicum.filmorate.exception.OverloadedException;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.changes.LikeChange;
+import ru.yandex.practicum.filmorate.model.events.Operation;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+// Буфер отложенной записи лайков (write-behind). Лайк принимается в память и подтверждается сразу,
+// в film_likes лайки пишутся пачками раз в flush-interval-ms или при накоплении max-pending лайков.
+// Для каждой пары (фильм, пользователь) хранится только последнее состояние, поэтому лайк и его отмена
+// до записи схлопываются. Буфер разбит на сегменты, чтобы одновременные лайки одного фильма
+// не ждали друг друга. Когда в буфере max-buffered лайков, писатель сам ждёт записи буфера,
+// а если запись не удаётся — получает отказ. При аварийной остановке теряются лайки, принятые
+// после последней записи. Включается настройкой filmorate.like-buffer.enabled
+@Component
+public class LikeWriteBuffer {
+    private static final Logger logger = LoggerFactory.getLogger(LikeWriteBuffer.class);
+
+    private final FilmRepository filmRepository;
+    private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final TaskExecutor taskExecutor;
+    private final boolean enabled;
+    private final int maxPending;
+    private final int maxBuffered;
+    // Сегменты: последнее состояние лайка (true — поставлен, false — убран)
+    private final Shard[] shards;
+    private final AtomicInteger pending = new AtomicInteger();
+    // Лайки, которые уже забраны из сегментов, но ещё не записаны: видны при чтении до конца записи
+    private volatile Map<FilmLike, Boolean> inFlight = Map.of();
+    // Запись выполняется одним потоком за раз
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    @Autowired
+    public LikeWriteBuffer(FilmRepository filmRepository,
+                           UserRepository userRepository,
+                           ApplicationEventPublisher eventPublisher,
+                           PlatformTransactionManager transactionManager,
+                           @Qualifier("applicationTaskExecutor") TaskExecutor taskExecutor,
+                           @Value("${filmorate.like-buffer.enabled:false}") boolean enabled,
+                           @Value("${filmorate.like-buffer.shards:16}") int shardCount,
+                           @Value("${filmorate.like-buffer.max-pending:10000}") int maxPending,
+                           @Value("${filmorate.like-buffer.max-buffered:100000}") int maxBuffered) {
+        this.filmRepository = filmRepository;
+        this.userRepository = userRepository;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Буфер может записываться из accept() внутри транзакции писателя: его ошибка не должна её откатывать
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.taskExecutor = taskExecutor;
+        this.enabled = enabled;
+        this.maxPending = maxPending;
+        this.maxBuffered = maxBuffered;
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Принять лайк (liked = true) или его отмену (liked = false)
+    public void accept(int filmId, int userId, boolean liked) {
+        if (pending.get() >= maxBuffered) {
+            // Запись не успевает за приёмом: писатель ждёт записи буфера, иначе буфер растёт без ограничений
+            flush();
+            if (pending.get() >= maxBuffered) {
+                logger.warn("Буфер лайков заполнен ({} шт.) и не записывается, лайк отклонён", pending.get());
+                throw new OverloadedException("Лайки временно не принимаются, повторите запрос позже");
+            }
+        }
+        FilmLike like = new FilmLike(filmId, userId);
+        Shard shard = shardOf(like);
+        synchronized (shard) {
+            if (shard.states.put(like, liked) == null) {
+                pending.incrementAndGet();
+            }
+        }
+        if (pending.get() >= maxPending && flushScheduled.compareAndSet(false, true)) {
+            taskExecutor.execute(() -> {
+                flushScheduled.set(false);
+                flush();
+            });
+        }
+    }
+
+    // Состояние лайка, ещё не записанного в БД
+    public Optional<Boolean> getPending(int filmId, int userId) {
+        FilmLike like = new FilmLike(filmId, userId);
+        Shard shard = shardOf(like);
+        synchronized (shard) {
+            Boolean liked = shard.states.get(like);
+            if (liked != null) {
+                return Optional.of(liked);
+            }
+        }
+        return Optional.ofNullable(inFlight.get(like));
+    }
+
+    // Дополнить список фильмов, которым пользователь поставил лайк по данным БД, незаписанными изменениями
+    public List<Integer> applyPending(int userId, List<Integer> filmIds) {
+        if (!enabled) {
+            return filmIds;
+        }
+        // Сегменты читаются раньше записываемой пачки: лайк, перенесённый в пачку после чтения сегмента,
+        // уже опубликован в inFlight. Более новое состояние из сегмента важнее состояния из пачки
+        Map<Integer, Boolean> buffered = new HashMap<>();
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                shard.states.forEach((like, liked) -> {
+                    if (like.userId() == userId) {
+                        buffered.put(like.filmId(), liked);
+                    }
+                });
+            }
+        }
+        Map<Integer, Boolean> changes = new HashMap<>();
+        inFlight.forEach((like, liked) -> {
+            if (like.userId() == userId) {
+                changes.put(like.filmId(), liked);
+            }
+        });
+        changes.putAll(buffered);
+        if (changes.isEmpty()) {
+            return filmIds;
+        }
+        Set<Integer> result = new LinkedHashSet<>(filmIds);
+        changes.forEach((filmId, liked) -> {
+            if (liked) {
+                result.add(filmId);
+            } else {
+                result.remove(filmId);
+            }
+        });
+        return new ArrayList<>(result);
+    }
+
+    // Записать накопленные лайки одной транзакцией
+    @Scheduled(fixedDelayString = "${filmorate.like-buffer.flush-interval-ms:200}")
+    public void flush() {
+        if (!enabled) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            Map<FilmLike, Boolean> batch = drain();
+            if (batch.isEmpty()) {
+                inFlight = Map.of();
+                return;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> write(batch));
+                logger.debug("Из буфера записано лайков: {}", batch.size());
+            } catch (RuntimeException e) {
+                retryWithoutMissing(batch, e);
+            } finally {
+                inFlight = Map.of();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // Забыть незаписанные лайки фильма; вызывается при удалении фильма
+    public void dropFilm(int filmId) {
+        drop(like -> like.filmId() == filmId);
+    }
+
+    // Забыть незаписанные лайки пользователя; вызывается при удалении пользователя
+    public void dropUser(int userId) {
+        drop(like -> like.userId() == userId);
+    }
+
+    // При штатной остановке буфер записывается полностью
+    @PreDestroy
+    public void close() {
+        flush();
+    }
+
+    private void write(Map<FilmLike, Boolean> batch) {
+        List<FilmLike> added = new ArrayList<>();
+        List<FilmLike> removed = new ArrayList<>();
+        batch.forEach((like, liked) -> (liked ? added : removed).add(like));
+
+        // Время лайка нужно индексам, чтобы уменьшить счётчик того интервала, в котором лайк был поставлен
+        List<Optional<Instant>> likedAt = removed.stream()
+                .map(like -> filmRepository.getLikeTime(like.filmId(), like.userId()))
+                .toList();
+        boolean[] removedFlags = filmRepository.removeLikes(removed);
+        boolean[] addedFlags = filmRepository.putLikes(added);
+
+        // События доставляются слушателям после фиксации транзакции
+        Instant now = Instant.now();
+        for (int i = 0; i < removed.size(); i++) {
+            FilmLike like = removed.get(i);
+            if (removedFlags[i] && likedAt.get(i).isPresent()) {
+                eventPublisher.publishEvent(new LikeChange(like.filmId(), like.userId(), Operation.REMOVE,
+                        likedAt.get(i).get()));
+            }
+        }
+        for (int i = 0; i < added.size(); i++) {
+            FilmLike like = added.get(i);
+            if (addedFlags[i]) {
+                eventPublisher.publishEvent(new LikeChange(like.filmId(), like.userId(), Operation.ADD, now));
+            }
+        }
+    }
+
+    // Пачка публикуется в inFlight до того, как лайки покидают сегменты, поэтому при чтении
+    // лайк всегда виден либо в сегменте, либо в пачке
+    private Map<FilmLike, Boolean> drain() {
+        Map<FilmLike, Boolean> batch = new ConcurrentHashMap<>();
+        inFlight = batch;
+        for (Shard shard : shards) {
+            int drained;
+            synchronized (shard) {
+                batch.putAll(shard.states);
+                drained = shard.states.size();
+                shard.states = new HashMap<>();
+            }
+            pending.addAndGet(-drained);
+        }
+        return batch;
+    }
+
+    // Пачка не записалась. Если в ней есть лайки фильмов или пользователей, удалённых после приёма лайка,
+    // они отбрасываются и пачка записывается снова: иначе такой лайк возвращался бы в буфер и срывал
+    // каждую следующую запись. Остальные ошибки (например, недоступность БД) — повтор при следующей записи
+    private void retryWithoutMissing(Map<FilmLike, Boolean> batch, RuntimeException error) {
+        Map<FilmLike, Boolean> valid;
+        try {
+            Set<Integer> filmIds = new HashSet<>(filmRepository.getExistingIds(
+                    batch.keySet().stream().map(FilmLike::filmId).collect(Collectors.toSet())));
+            Set<Integer> userIds = new HashSet<>(userRepository.getExistingIds(
+                    batch.keySet().stream().map(FilmLike::userId).collect(Collectors.toSet())));
+            valid = new HashMap<>();
+            batch.forEach((like, liked) -> {
+                if (filmIds.contains(like.filmId()) && userIds.contains(like.userId())) {
+                    valid.put(like, liked);
+                }
+            });
+        } catch (RuntimeException e) {
+            logger.error("Не удалось записать лайки из буфера, повтор при следующей записи", error);
+            restore(batch);
+            return;
+        }
+        if (valid.size() == batch.size()) {
+            logger.error("Не удалось записать лайки из буфера, повтор при следующей записи", error);
+            restore(batch);
+            return;
+        }
+        logger.warn("Отброшено лайков удалённых фильмов и пользователей: {}", batch.size() - valid.size());
+        if (valid.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> write(valid));
+            logger.debug("Из буфера записано лайков: {}", valid.size());
+        } catch (RuntimeException e) {
+            logger.error("Не удалось записать лайки из буфера, повтор при следующей записи", e);
+            restore(valid);
+        }
+    }
+
+    private void drop(Predicate<FilmLike> filter) {
+        int dropped = 0;
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                int before = shard.states.size();
+                shard.states.keySet().removeIf(filter);
+                dropped += before - shard.states.size();
+            }
+        }
+        pending.addAndGet(-dropped);
+        if (dropped > 0) {
+            logger.debug("Из буфера удалено незаписанных лайков: {}", dropped);
+        }
+    }
+
+    // Вернуть незаписанные лайки в буфер; более новое состояние, принятое во время записи, сохраняется
+    private void restore(Map<FilmLike, Boolean> batch) {
+        batch.forEach((like, liked) -> {
+            Shard shard = shardOf(like);
+            synchronized (shard) {
+                if (shard.states.putIfAbsent(like, liked) == null) {
+                    pending.incrementAndGet();
+                }
+            }
+        });
+    }
+
+    private Shard shardOf(FilmLike like) {
+        return shards[Math.floorMod(like.hashCode(), shards.length)];
+    }
+
+    private static final class Shard {
+        private Map<FilmLike, Boolean> states = new HashMap<>();
+    }
+}
@@ -0,0 +1,69 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.util.function.Supplier;
+
+// Ответы на условные GET-запросы: при совпадении If-None-Match с текущим ETag
+// возвращается 304 без вызова supplier, то есть без обращения к сервисам и репозиториям
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class ConditionalResponses {
+    // Клиент может хранить ответ, но обязан перепроверять его по ETag перед использованием
+    private static final CacheControl CACHE_CONTROL = CacheControl.noCache().cachePrivate();
+
+    public static <T> ResponseEntity<T> ifNoneMatch(String ifNoneMatch, String eTag, Supplier<T> supplier) {
+        if (matches(ifNoneMatch, eTag)) {
+            return notModified(eTag);
+        }
+        return ResponseEntity.ok()
+                .eTag(eTag)
+                .cacheControl(CACHE_CONTROL)
+                .body(supplier.get());
+    }
+
+    // Готовое JSON-представление: массив байт записывается в ответ как есть, без Jackson
+    public static ResponseEntity<byte[]> ifNoneMatchJson(String ifNoneMatch, String eTag, byte[] json) {
+        if (matches(ifNoneMatch, eTag)) {
+            return notModified(eTag);
+        }
+        return ResponseEntity.ok()
+                .eTag(eTag)
+                .cacheControl(CACHE_CONTROL)
+                .contentType(MediaType.APPLICATION_JSON)
+                .contentLength(json.length)
+                .body(json);
+    }
+
+    private static <T> ResponseEntity<T> notModified(String eTag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag(eTag)
+                .cacheControl(CACHE_CONTROL)
+                .build();
+    }
+
+    // Сравнение по правилам If-None-Match: список тегов через запятую или "*".
+    // Слабые теги (W/) сравниваются по значению, как требует RFC 9110 для GET
+    static boolean matches(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,139 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.service.FilmService;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Кэш готовых ответов GET /films/popular: для каждой комбинации (count, genreId, year) хранится
+// уже сериализованный в UTF-8 JSON, поэтому повторный запрос не выполняет ни маппинг в FilmDto, ни Jackson.
+// Изменение лайков или фильмов ничего не пересобирает: запись помечается устаревшей тем, что её ETag
+// больше не совпадает с текущей версией данных, и пересобирается лениво при обращении к ней.
+// Устаревшая запись отдаётся, пока она не старше max-staleness-ms; фоновая пересборка ключа
+// запускается не чаще раза в половину этого интервала, а старше интервала — пересборка в потоке запроса
+@Component
+public class PopularResponseCache {
+    private static final Logger logger = LoggerFactory.getLogger(PopularResponseCache.class);
+
+    // Ключ кэша — параметры запроса
+    private record Key(int count, Integer genreId, Integer year) {
+    }
+
+    // Готовый ответ и ETag версии данных, из которой он построен
+    public record Entry(byte[] body, String eTag, long builtAtNanos) {
+    }
+
+    private final FilmService filmService;
+    private final ResourceVersions resourceVersions;
+    private final ObjectMapper objectMapper;
+    private final TaskExecutor taskExecutor;
+    // Включён ли кэш
+    private final boolean enabled;
+    // Сколько можно отдавать устаревший ответ, пока идёт фоновое обновление
+    private final long maxStalenessNanos;
+    // Ограничение числа комбинаций параметров, чтобы произвольные count не раздували кэш
+    private final int maxEntries;
+
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+    // Ключи, для которых фоновое обновление уже запланировано
+    private final Set<Key> refreshing = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public PopularResponseCache(FilmService filmService, ResourceVersions resourceVersions, ObjectMapper objectMapper,
+                                @Qualifier("applicationTaskExecutor") TaskExecutor taskExecutor,
+                                @Value("${filmorate.popular-cache.enabled:true}") boolean enabled,
+                                @Value("${filmorate.popular-cache.max-staleness-ms:1000}") long maxStalenessMs,
+                                @Value("${filmorate.popular-cache.max-entries:256}") int maxEntries) {
+        this.filmService = filmService;
+        this.resourceVersions = resourceVersions;
+        this.objectMapper = objectMapper;
+        this.taskExecutor = taskExecutor;
+        this.enabled = enabled;
+        this.maxStalenessNanos = TimeUnit.MILLISECONDS.toNanos(maxStalenessMs);
+        this.maxEntries = maxEntries;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Ответ для комбинации параметров. Ошибки валидации параметров пробрасываются как есть и не кэшируются
+    public Entry get(int count, Integer genreId, Integer year) {
+        Key key = new Key(count, genreId, year);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return build(key);
+        }
+        if (entry.eTag().equals(currentETag(key))) {
+            return entry;
+        }
+        long age = System.nanoTime() - entry.builtAtNanos();
+        if (age <= maxStalenessNanos) {
+            if (age >= maxStalenessNanos / 2) {
+                scheduleRefresh(key);
+            }
+            return entry;
+        }
+        logger.debug("Ответ для {} устарел сильнее допустимого, пересборка в потоке запроса", key);
+        return build(key);
+    }
+
+    // Параллельные обращения к устаревшему ключу приводят к одной пересборке
+    private void scheduleRefresh(Key key) {
+        if (!refreshing.add(key)) {
+            return;
+        }
+        taskExecutor.execute(() -> {
+            try {
+                build(key);
+            } catch (RuntimeException e) {
+                logger.warn("Не удалось обновить ответ для {}: {}", key, e.getMessage());
+                entries.remove(key);
+            } finally {
+                refreshing.remove(key);
+            }
+        });
+    }
+
+    private Entry build(Key key) {
+        // Версия читается до данных: если запись произойдёт между ними, ответ получит старый ETag
+        // и будет пересобран при следующем обращении
+        long builtAt = System.nanoTime();
+        String eTag = currentETag(key);
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(filmService.getPopular(key.count(), key.genreId(), key.year()));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось сериализовать популярные фильмы", e);
+        }
+
+        Entry entry = new Entry(body, eTag, builtAt);
+        if (entries.containsKey(key) || entries.size() < maxEntries) {
+            // Параллельные сборки не должны затирать более свежий ответ более старым
+            entries.merge(key, entry, (current, built) -> current.builtAtNanos() > built.builtAtNanos() ? current : built);
+        }
+        logger.debug("Собран ответ для {}: {} байт", key, body.length);
+        return entry;
+    }
+
+    private String currentETag(Key key) {
+        return resourceVersions.eTag(scope(key.count(), key.genreId(), key.year()),
+                ResourceVersions.Resource.FILMS, ResourceVersions.Resource.LIKES);
+    }
+
+    // Область ETag для популярных фильмов; используется и контроллером без кэша
+    public static String scope(int count, Integer genreId, Integer year) {
+        return "popular-" + count + "-" + genreId + "-" + year;
+    }
+}
@@ -0,0 +1,83 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Счётчики версий ресурсов. Операции записи увеличивают версию, а контроллеры строят из версий ETag,
+// поэтому проверка If-None-Match не требует обращения к БД
+@Component
+public class ResourceVersions {
+    private static final Logger logger = LoggerFactory.getLogger(ResourceVersions.class);
+
+    // Ресурсы, версии которых отслеживаются
+    public enum Resource {
+        // Справочник жанров
+        GENRES,
+        // Справочник MPA-рейтингов
+        MPA,
+        // Режиссёры
+        DIRECTORS,
+        // Содержимое фильмов (включая жанры и режиссёров фильма)
+        FILMS,
+        // Лайки фильмов (порядок популярных фильмов)
+        LIKES
+    }
+
+    // Идентификатор запуска приложения: после перезапуска счётчики начинаются заново,
+    // и ETag предыдущего запуска не должен совпасть с новым
+    private final String bootId = Long.toString(System.currentTimeMillis(), 36);
+    private final Map<Resource, AtomicLong> versions = new EnumMap<>(Resource.class);
+
+    public ResourceVersions() {
+        for (Resource resource : Resource.values()) {
+            versions.put(resource, new AtomicLong());
+        }
+    }
+
+    // Текущая версия ресурса
+    public long get(Resource resource) {
+        return versions.get(resource).get();
+    }
+
+    // Отметить изменение ресурсов. Внутри транзакции версия увеличивается только после коммита:
+    // иначе параллельный запрос мог бы прочитать старые данные и пометить их уже новой версией.
+    // Увеличение выполняется последним шагом завершения транзакции, после обработчиков событий AFTER_COMMIT
+    // (у них меньший порядок): к этому моменту модели чтения и индексы уже содержат новые данные
+    public void bump(Resource... resources) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        increment(resources);
+                    }
+                }
+            });
+        } else {
+            increment(resources);
+        }
+    }
+
+    // Сильный ETag для представления scope, зависящего от перечисленных ресурсов
+    public String eTag(String scope, Resource... resources) {
+        StringBuilder tag = new StringBuilder("\"").append(bootId).append('-').append(scope);
+        for (Resource resource : resources) {
+            tag.append('-').append(get(resource));
+        }
+        return tag.append('"').toString();
+    }
+
+    private void increment(Resource... resources) {
+        for (Resource resource : resources) {
+            long version = versions.get(resource).incrementAndGet();
+            logger.debug("Версия ресурса {} увеличена до {}", resource, version);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package ru.yandex.practicum.filmorate.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+
+// Ограничитель параллельных обращений к БД.
+// Включается вместе с режимом виртуальных потоков: тысячи одновременных запросов
+// не должны выбирать все соединения пула и блокировать потоки-носители
+@Configuration
+@ConditionalOnProperty(name = "filmorate.datasource.limiter.enabled", havingValue = "true")
+public class ConnectionLimiterConfig {
+    private static final Logger logger = LoggerFactory.getLogger(ConnectionLimiterConfig.class);
+
+    @Bean
+    public static BeanPostProcessor connectionLimiterPostProcessor(Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource dataSource) || bean instanceof ConcurrencyLimitedDataSource) {
+                    return bean;
+                }
+
+                int maxConcurrency = environment.getProperty("filmorate.datasource.limiter.max-concurrency",
+                        Integer.class, 0);
+                if (maxConcurrency <= 0) {
+                    // По умолчанию лимит равен размеру пула соединений
+                    maxConcurrency = bean instanceof HikariDataSource hikari ? hikari.getMaximumPoolSize() : 10;
+                }
+                long acquireTimeout = environment.getProperty("filmorate.datasource.limiter.acquire-timeout-ms",
+                        Long.class, 5000L);
+
+                logger.info("Включён ограничитель соединений для {}: не более {} одновременных соединений",
+                        beanName, maxConcurrency);
+                return new ConcurrencyLimitedDataSource(dataSource, maxConcurrency, acquireTimeout);
+            }
+        };
+    }
+}
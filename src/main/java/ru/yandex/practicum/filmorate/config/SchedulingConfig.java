@@ -0,0 +1,10 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// Включение фоновых задач по расписанию (@Scheduled)
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -0,0 +1,40 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import jakarta.validation.constraints.Positive;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import ru.yandex.practicum.filmorate.dto.DeletionJobDto;
+import ru.yandex.practicum.filmorate.service.DeletionService;
+
+import java.util.List;
+
+// Ход фонового удаления пользователей и фильмов
+@Validated
+@RestController
+@RequestMapping("/deletions")
+public class DeletionController {
+    private final DeletionService deletionService;
+    private static final Logger logger = LoggerFactory.getLogger(DeletionController.class);
+
+    @Autowired
+    public DeletionController(DeletionService deletionService) {
+        this.deletionService = deletionService;
+    }
+
+    // Эндпоинт GET /deletions?count={count} — последние задания удаления
+    @GetMapping
+    public List<DeletionJobDto> getRecent(@RequestParam(defaultValue = "10") @Positive int count) {
+        logger.debug("Вызов эндпоинта GET /deletions");
+        return deletionService.getRecentJobs(count);
+    }
+
+    // Эндпоинт GET /deletions/{jobId}
+    @GetMapping("/{jobId}")
+    public DeletionJobDto getById(@PathVariable @Positive int jobId) {
+        logger.debug("Вызов эндпоинта GET /deletions/{}", jobId);
+        return deletionService.getJob(jobId);
+    }
+}
@@ -5,9 +5,13 @@ import jakarta.validation.constraints.Positive;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import ru.yandex.practicum.filmorate.cache.ConditionalResponses;
+import ru.yandex.practicum.filmorate.cache.ResourceVersions;
 import ru.yandex.practicum.filmorate.dto.NewDirectorRequest;
 import ru.yandex.practicum.filmorate.dto.UpdateDirectorRequest;
 import ru.yandex.practicum.filmorate.model.Director;
@@ -20,25 +24,30 @@ import java.util.List;
 @RequestMapping("/directors")
 public class DirectorController {
     private final DirectorService directorService;
+    private final ResourceVersions resourceVersions;
     private static final Logger logger = LoggerFactory.getLogger(DirectorController.class);
 
     @Autowired
-    public DirectorController(DirectorService directorService) {
+    public DirectorController(DirectorService directorService, ResourceVersions resourceVersions) {
         this.directorService = directorService;
+        this.resourceVersions = resourceVersions;
     }
 
     // Эндпоинт GET /directors
     @GetMapping
-    public List<Director> getAll() {
+    public ResponseEntity<List<Director>> getAll(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         logger.debug("Вызов эндпоинта GET /directors");
-        return directorService.getAll();
+        String eTag = resourceVersions.eTag("directors", ResourceVersions.Resource.DIRECTORS);
+        return ConditionalResponses.ifNoneMatch(ifNoneMatch, eTag, directorService::getAll);
     }
 
     // Эндпоинт GET /directors/{id}
     @GetMapping("/{id}")
-    public Director getById(@PathVariable @Positive int id) {
+    public ResponseEntity<Director> getById(@PathVariable @Positive int id,
+                                            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         logger.debug("Вызов эндпоинта GET /directors/{id}");
-        return directorService.getById(id);
+        String eTag = resourceVersions.eTag("directors-" + id, ResourceVersions.Resource.DIRECTORS);
+        return ConditionalResponses.ifNoneMatch(ifNoneMatch, eTag, () -> directorService.getById(id));
     }
 
     // Эндпоинт POST /directors
@@ -4,14 +4,20 @@ import jakarta.validation.ConstraintViolationException;
 import org.springframework.context.support.DefaultMessageSourceResolvable;
 import org.springframework.dao.DataAccessException;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import ru.yandex.practicum.filmorate.exception.ConflictException;
 import ru.yandex.practicum.filmorate.exception.ErrorMessage;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.OverloadedException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 
+import java.sql.SQLTransientConnectionException;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -30,6 +36,35 @@ public class ErrorHandler {
         return new ErrorMessage(ex.getMessage());
     }
 
+    // Объект не удалось изменить после всех повторных попыток: его одновременно изменяют другие запросы
+    @ExceptionHandler(ConflictException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public ErrorMessage handleConflictException(final ConflictException ex) {
+        return new ErrorMessage(ex.getMessage());
+    }
+
+    // Запрос временно не может быть принят: клиент повторяет его позже
+    @ExceptionHandler(OverloadedException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ErrorMessage handleOverloadedException(final OverloadedException ex) {
+        return new ErrorMessage(ex.getMessage());
+    }
+
+    // Соединение с БД не выдано за отведённое время (ограничитель соединений или пул заняты) — это сброс
+    // нагрузки, и клиент получает тот же ответ, что и при OverloadedException. Прочие ошибки соединения — 500
+    @ExceptionHandler({CannotGetJdbcConnectionException.class, CannotCreateTransactionException.class})
+    public ResponseEntity<ErrorMessage> handleConnectionException(final Exception ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLTransientConnectionException) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .body(handleOverloadedException(new OverloadedException(
+                                "Сервер перегружен, повторите запрос позже")));
+            }
+        }
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(new ErrorMessage(ex.getMessage()));
+    }
+
     // Обработчик MethodArgumentNotValidException (ошибки при проверке аннотацией @Valid)
     @ExceptionHandler(MethodArgumentNotValidException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
@@ -1,15 +1,26 @@
 package ru.yandex.practicum.filmorate.controller;
 
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import ru.yandex.practicum.filmorate.cache.ConditionalResponses;
+import ru.yandex.practicum.filmorate.cache.PopularResponseCache;
+import ru.yandex.practicum.filmorate.cache.ResourceVersions;
+import ru.yandex.practicum.filmorate.dto.DeletionJobDto;
+import ru.yandex.practicum.filmorate.dto.EstimatedPopularFilmsDto;
 import ru.yandex.practicum.filmorate.dto.FilmDto;
 import ru.yandex.practicum.filmorate.dto.NewFilmRequest;
+import ru.yandex.practicum.filmorate.dto.NewFilmsBatchRequest;
 import ru.yandex.practicum.filmorate.dto.UpdateFilmRequest;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.service.FilmService;
@@ -21,27 +32,41 @@ import java.util.List;
 @RequestMapping("/films")
 public class FilmController {
     private final FilmService filmService;
+    private final ResourceVersions resourceVersions;
+    private final PopularResponseCache popularResponseCache;
     private static final Logger logger = LoggerFactory.getLogger(FilmController.class);
+    // Заголовки с метаданными приблизительного режима популярности
+    private static final String POPULARITY_MODE_HEADER = "X-Popularity-Mode";
+    private static final String POPULARITY_ERROR_BOUND_HEADER = "X-Popularity-Error-Bound";
+    private static final String POPULARITY_CONFIDENCE_HEADER = "X-Popularity-Confidence";
+    private static final String POPULARITY_TOTAL_LIKES_HEADER = "X-Popularity-Total-Likes";
     // Параметры сортировки
     private final List<String> sortParameters = List.of("year", "likes");
 
     @Autowired
-    public FilmController(FilmService filmService) {
+    public FilmController(FilmService filmService, ResourceVersions resourceVersions,
+                          PopularResponseCache popularResponseCache) {
         this.filmService = filmService;
+        this.resourceVersions = resourceVersions;
+        this.popularResponseCache = popularResponseCache;
     }
 
-    // Эндпоинт GET /films
+    // Эндпоинт GET /films?withLikes=true&viewerId={viewerId}
     @GetMapping
-    public List<FilmDto> getAll() {
+    public List<FilmDto> getAll(@RequestParam(defaultValue = "false") boolean withLikes,
+                                @RequestParam(required = false) @Positive Integer viewerId) {
         logger.debug("Вызов эндпоинта GET /films");
-        return filmService.getAll();
+        checkViewer(withLikes, viewerId);
+        return withLikes ? filmService.withLikes(filmService.getAll(), viewerId) : filmService.getAll();
     }
 
     // Эндпоинт GET /films/{id}
     @GetMapping("/{id}")
-    public FilmDto getById(@PathVariable @Positive int id) {
+    public ResponseEntity<FilmDto> getById(@PathVariable @Positive int id,
+                                           @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         logger.debug("Вызов эндпоинта GET /films/{id}");
-        return filmService.getById(id);
+        String eTag = resourceVersions.eTag("films-" + id, ResourceVersions.Resource.FILMS);
+        return ConditionalResponses.ifNoneMatch(ifNoneMatch, eTag, () -> filmService.getById(id));
     }
 
     // Эндпоинт POST /films
@@ -52,6 +77,14 @@ public class FilmController {
         return filmService.create(request);
     }
 
+    // Эндпоинт POST /films/batch — создать несколько фильмов одним запросом
+    @PostMapping("/batch")
+    @ResponseStatus(HttpStatus.CREATED)
+    public List<FilmDto> createAll(@Valid @RequestBody NewFilmsBatchRequest request) {
+        logger.debug("Вызов эндпоинта POST /films/batch, фильмов: {}", request.getFilms().size());
+        return filmService.createAll(request.getFilms());
+    }
+
     // Эндпоинт PUT /films
     @PutMapping
     public FilmDto update(@Valid @RequestBody UpdateFilmRequest request) {
@@ -77,39 +110,92 @@ public class FilmController {
 
     // Эндпоинт GET /films/popular/
     @GetMapping("/popular")
-    public List<FilmDto> getPopular(@RequestParam(defaultValue = "10") @Positive int count,
-                                    @RequestParam(required = false) @Positive Integer genreId,
-                                    @RequestParam(required = false) Integer year) {
+    public ResponseEntity<?> getPopular(@RequestParam(defaultValue = "10") @Positive int count,
+                                        @RequestParam(required = false) @Positive Integer genreId,
+                                        @RequestParam(required = false) @Min(1895) @Max(9999) Integer year,
+                                        @RequestParam(defaultValue = "false") boolean withLikes,
+                                        @RequestParam(required = false) @Positive Integer viewerId,
+                                        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         logger.debug("Вызов эндпоинта GET /films/popular/");
-        return filmService.getPopular(count, genreId, year);
+        checkViewer(withLikes, viewerId);
+        if (filmService.isPopularEstimated(genreId, year)) {
+            // Тело ответа прежнего формата, границы погрешности — в заголовках
+            EstimatedPopularFilmsDto estimate = filmService.getPopularEstimated(count);
+            return ResponseEntity.ok()
+                    .header(POPULARITY_MODE_HEADER, "approximate")
+                    .header(POPULARITY_ERROR_BOUND_HEADER, String.valueOf(estimate.getErrorBound()))
+                    .header(POPULARITY_CONFIDENCE_HEADER, String.valueOf(estimate.getConfidence()))
+                    .header(POPULARITY_TOTAL_LIKES_HEADER, String.valueOf(estimate.getTotalLikes()))
+                    .body(withLikes ? filmService.withLikes(estimate.getFilms(), viewerId) : estimate.getFilms());
+        }
+        if (withLikes) {
+            // Ответ зависит от зрителя, поэтому общий кэш ответов не используется; зритель входит в ETag
+            String eTag = resourceVersions.eTag(PopularResponseCache.scope(count, genreId, year) + "-likes-" + viewerId,
+                    ResourceVersions.Resource.FILMS, ResourceVersions.Resource.LIKES);
+            return ConditionalResponses.ifNoneMatch(ifNoneMatch, eTag,
+                    () -> filmService.withLikes(filmService.getPopular(count, genreId, year), viewerId));
+        }
+        if (popularResponseCache.isEnabled()) {
+            // ETag берётся из записи кэша: он соответствует данным, из которых собран ответ
+            PopularResponseCache.Entry entry = popularResponseCache.get(count, genreId, year);
+            return ConditionalResponses.ifNoneMatchJson(ifNoneMatch, entry.eTag(), entry.body());
+        }
+        // Параметры входят в ETag: разные выборки не должны подтверждать друг друга
+        String eTag = resourceVersions.eTag(PopularResponseCache.scope(count, genreId, year),
+                ResourceVersions.Resource.FILMS, ResourceVersions.Resource.LIKES);
+        return ConditionalResponses.ifNoneMatch(ifNoneMatch, eTag, () -> filmService.getPopular(count, genreId, year));
+    }
+
+    // Эндпоинт GET /films/trending?window=[hour,day,week]&count={count}
+    @GetMapping("/trending")
+    public List<FilmDto> getTrending(@RequestParam(defaultValue = "day") String window,
+                                     @RequestParam(defaultValue = "10") @Positive int count) {
+        logger.debug("Вызов эндпоинта GET /films/trending");
+        return filmService.getTrending(window, count);
     }
 
-    // Эндпоинт DELETE /films/{filmId}
+    // Эндпоинт DELETE /films/{filmId}. При фоновом удалении — 202 и задание удаления
     @DeleteMapping("/{filmId}")
-    @ResponseStatus(HttpStatus.NO_CONTENT)
-    public void deleteFilm(@PathVariable @Positive int filmId) {
+    public ResponseEntity<DeletionJobDto> deleteFilm(@PathVariable @Positive int filmId) {
         logger.debug("Вызов эндпоинта DELETE /films/{filmId}");
-        filmService.removeFilmById(filmId);
+        return filmService.removeFilmById(filmId)
+                .map(job -> ResponseEntity.accepted().body(job))
+                .orElseGet(() -> ResponseEntity.noContent().build());
+    }
+
+    // Эндпоинт POST /films/rebuild — пересборка проекции film_summary и индексов в памяти
+    // после загрузки данных в обход приложения
+    @PostMapping("/rebuild")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void rebuildCatalogue() {
+        logger.debug("Вызов эндпоинта POST /films/rebuild");
+        filmService.rebuildCatalogue();
     }
 
-    // Эндпоинт GET /films/director/{directorId}?sortBy=[year,likes]
+    // Эндпоинт GET /films/director/{directorId}?sortBy=[year,likes]&offset={offset}&limit={limit}
     @GetMapping("/director/{directorId}")
     public List<FilmDto> getDirectorsFilm(@PathVariable @Positive int directorId,
-                                          @RequestParam String sortBy) {
+                                          @RequestParam String sortBy,
+                                          @RequestParam(defaultValue = "0") @PositiveOrZero int offset,
+                                          @RequestParam(required = false) @Positive Integer limit) {
         logger.debug("Вызов эндпоинта GET /films/director/{directorId}?sortBy=[year,likes]");
         if (!sortParameters.contains(sortBy)) {
             logger.warn("Переданный параметр сортировки sortBy = {} не поддерживается", sortBy);
             throw new ValidationException("Переданный параметр сортировки sortBy = " + sortBy + " не поддерживается");
         }
-        return filmService.search(directorId, sortBy);
+        return filmService.search(directorId, sortBy, offset, limit);
     }
 
     // Эндпоинт GET /films/search?query=...&by=director,title — поиск по подстроке, сортировка по популярности
     @GetMapping("/search")
     public List<FilmDto> search(@RequestParam String query,
-                                @RequestParam String by) {
+                                @RequestParam String by,
+                                @RequestParam(defaultValue = "false") boolean withLikes,
+                                @RequestParam(required = false) @Positive Integer viewerId) {
         logger.debug("Вызов эндпоинта GET /films/search");
-        return filmService.search(query, by);
+        checkViewer(withLikes, viewerId);
+        List<FilmDto> films = filmService.search(query, by);
+        return withLikes ? filmService.withLikes(films, viewerId) : films;
     }
 
     // Эндпоинт GET /films/common?userId={userId}&friendId={friendId}
@@ -119,4 +205,12 @@ public class FilmController {
         logger.debug("Вызов эндпоинта GET /films/common?userId={}&friendId={}", userId, friendId);
         return filmService.getCommon(userId, friendId);
     }
+
+    // Признак лайка зрителя отдаётся только вместе с количеством лайков
+    private void checkViewer(boolean withLikes, Integer viewerId) {
+        if (viewerId != null && !withLikes) {
+            logger.warn("Параметр viewerId указан без withLikes=true");
+            throw new ValidationException("Параметр viewerId используется только вместе с withLikes=true");
+        }
+    }
 }
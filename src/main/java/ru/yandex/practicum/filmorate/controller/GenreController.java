@@ -4,11 +4,12 @@ import jakarta.validation.constraints.Positive;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
-import org.springframework.web.bind.annotation.GetMapping;
-import org.springframework.web.bind.annotation.PathVariable;
-import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.bind.annotation.*;
+import ru.yandex.practicum.filmorate.cache.ConditionalResponses;
+import ru.yandex.practicum.filmorate.cache.ResourceVersions;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.service.GenreService;
 
@@ -19,24 +20,29 @@ import java.util.List;
 @RequestMapping("/genres")
 public class GenreController {
     private final GenreService genreService;
+    private final ResourceVersions resourceVersions;
     private static final Logger logger = LoggerFactory.getLogger(GenreController.class);
 
     @Autowired
-    public GenreController(GenreService genreService) {
+    public GenreController(GenreService genreService, ResourceVersions resourceVersions) {
         this.genreService = genreService;
+        this.resourceVersions = resourceVersions;
     }
 
     // Эндпоинт GET /genres
     @GetMapping
-    public List<Genre> getAll() {
+    public ResponseEntity<List<Genre>> getAll(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         logger.debug("Вызов эндпоинта GET /genres");
-        return genreService.getAll();
+        String eTag = resourceVersions.eTag("genres", ResourceVersions.Resource.GENRES);
+        return ConditionalResponses.ifNoneMatch(ifNoneMatch, eTag, genreService::getAll);
     }
 
     // Эндпоинт GET /genres/{id}
     @GetMapping("/{id}")
-    public Genre getById(@PathVariable @Positive int id) {
+    public ResponseEntity<Genre> getById(@PathVariable @Positive int id,
+                                         @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         logger.debug("Вызов эндпоинта GET /genres/{id}");
-        return genreService.getById(id);
+        String eTag = resourceVersions.eTag("genres-" + id, ResourceVersions.Resource.GENRES);
+        return ConditionalResponses.ifNoneMatch(ifNoneMatch, eTag, () -> genreService.getById(id));
     }
 }
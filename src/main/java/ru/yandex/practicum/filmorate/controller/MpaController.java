@@ -4,11 +4,12 @@ import jakarta.validation.constraints.Positive;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
-import org.springframework.web.bind.annotation.GetMapping;
-import org.springframework.web.bind.annotation.PathVariable;
-import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.bind.annotation.*;
+import ru.yandex.practicum.filmorate.cache.ConditionalResponses;
+import ru.yandex.practicum.filmorate.cache.ResourceVersions;
 import ru.yandex.practicum.filmorate.model.MpaRating;
 import ru.yandex.practicum.filmorate.service.MpaService;
 
@@ -19,24 +20,29 @@ import java.util.List;
 @RequestMapping("/mpa")
 public class MpaController {
     private final MpaService mpaService;
+    private final ResourceVersions resourceVersions;
     private static final Logger logger = LoggerFactory.getLogger(MpaController.class);
 
     @Autowired
-    public MpaController(MpaService mpaService) {
+    public MpaController(MpaService mpaService, ResourceVersions resourceVersions) {
         this.mpaService = mpaService;
+        this.resourceVersions = resourceVersions;
     }
 
     // Эндпоинт GET /mpa
     @GetMapping
-    public List<MpaRating> getAll() {
+    public ResponseEntity<List<MpaRating>> getAll(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         logger.debug("Вызов эндпоинта GET /mpa");
-        return mpaService.getAll();
+        String eTag = resourceVersions.eTag("mpa", ResourceVersions.Resource.MPA);
+        return ConditionalResponses.ifNoneMatch(ifNoneMatch, eTag, mpaService::getAll);
     }
 
     // Эндпоинт GET /mpa/{id}
     @GetMapping("/{id}")
-    public MpaRating getById(@PathVariable @Positive int id) {
+    public ResponseEntity<MpaRating> getById(@PathVariable @Positive int id,
+                                             @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         logger.debug("Вызов эндпоинта GET /mpa/{id}");
-        return mpaService.getById(id);
+        String eTag = resourceVersions.eTag("mpa-" + id, ResourceVersions.Resource.MPA);
+        return ConditionalResponses.ifNoneMatch(ifNoneMatch, eTag, () -> mpaService.getById(id));
     }
 }
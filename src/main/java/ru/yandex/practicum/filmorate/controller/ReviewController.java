@@ -9,9 +9,12 @@ import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import ru.yandex.practicum.filmorate.dto.NewReviewRequest;
 import ru.yandex.practicum.filmorate.dto.ReviewDto;
+import ru.yandex.practicum.filmorate.dto.ReviewReactionsBatchRequest;
 import ru.yandex.practicum.filmorate.dto.UpdateReviewRequest;
 import ru.yandex.practicum.filmorate.mapper.ReviewMapper;
 import ru.yandex.practicum.filmorate.model.Review;
+import ru.yandex.practicum.filmorate.model.ReviewSort;
+import ru.yandex.practicum.filmorate.model.ReviewView;
 import ru.yandex.practicum.filmorate.service.ReviewService;
 
 import java.util.List;
@@ -58,16 +61,31 @@ public class ReviewController {
         return ReviewMapper.mapToReviewDto(reviewService.getById(id));
     }
 
-    // Эндпоинт GET /reviews?filmId={filmId}&count={count}
+    // Эндпоинт GET /reviews?filmId={filmId}&count={count}&view=[full,preview,summary]&sort=[useful,best].
+    // preview отдаёт начало текста, summary — отзыв без текста; полный текст — GET /reviews/{id}.
+    // best учитывает долю лайков и возраст отзыва
     @GetMapping
     public List<ReviewDto> getAll(@RequestParam(value = "filmId", required = false) @Positive Integer filmId,
-                                  @RequestParam(value = "count", defaultValue = "10") @Positive int count) {
-        log.debug("Вызов эндпоинта GET /reviews c параметрами filmId={}, count={}", filmId, count);
-        return reviewService.getAllByFilm(filmId, count).stream()
-                .map(ReviewMapper::mapToReviewDto)
+                                  @RequestParam(value = "count", defaultValue = "10") @Positive int count,
+                                  @RequestParam(value = "view", defaultValue = "full") String view,
+                                  @RequestParam(value = "sort", defaultValue = "useful") String sort) {
+        log.debug("Вызов эндпоинта GET /reviews c параметрами filmId={}, count={}, view={}, sort={}",
+                filmId, count, view, sort);
+        ReviewView reviewView = ReviewService.parseView(view);
+        ReviewSort reviewSort = ReviewService.parseSort(sort);
+        return reviewService.getAllByFilm(filmId, count, reviewView, reviewSort).stream()
+                .map(review -> ReviewMapper.mapToReviewDto(review, reviewView))
                 .collect(Collectors.toList());
     }
 
+    // Эндпоинт POST /reviews/reactions/batch — применить пачку реакций
+    @PostMapping("/reactions/batch")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void applyReactions(@Valid @RequestBody ReviewReactionsBatchRequest request) {
+        log.debug("Вызов эндпоинта POST /reviews/reactions/batch, реакций: {}", request.getReactions().size());
+        reviewService.applyReactions(request.getReactions());
+    }
+
     // Эндпоинт PUT /reviews/{id}/like/{userId} — поставить лайк отзыву
     @PutMapping("/{id}/like/{userId}")
     public void putLike(@PathVariable @Positive int id,
@@ -0,0 +1,62 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import jakarta.validation.constraints.Positive;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import ru.yandex.practicum.filmorate.dto.CatalogueStatsDto;
+import ru.yandex.practicum.filmorate.dto.DirectorLikesDto;
+import ru.yandex.practicum.filmorate.dto.GenreYearLikesDto;
+import ru.yandex.practicum.filmorate.service.StatsService;
+
+import java.util.List;
+
+@Validated
+@RestController
+@RequestMapping("/stats")
+public class StatsController {
+    private final StatsService statsService;
+    private static final Logger logger = LoggerFactory.getLogger(StatsController.class);
+
+    @Autowired
+    public StatsController(StatsService statsService) {
+        this.statsService = statsService;
+    }
+
+    // Эндпоинт GET /stats/genres
+    @GetMapping("/genres")
+    public List<CatalogueStatsDto> getGenreStats() {
+        logger.debug("Вызов эндпоинта GET /stats/genres");
+        return statsService.getGenreStats();
+    }
+
+    // Эндпоинт GET /stats/mpa
+    @GetMapping("/mpa")
+    public List<CatalogueStatsDto> getMpaStats() {
+        logger.debug("Вызов эндпоинта GET /stats/mpa");
+        return statsService.getMpaStats();
+    }
+
+    // Эндпоинт GET /stats/directors
+    @GetMapping("/directors")
+    public List<CatalogueStatsDto> getDirectorStats() {
+        logger.debug("Вызов эндпоинта GET /stats/directors");
+        return statsService.getDirectorStats();
+    }
+
+    // Эндпоинт GET /stats/genres/likes-by-year
+    @GetMapping("/genres/likes-by-year")
+    public List<GenreYearLikesDto> getLikesByGenreAndYear() {
+        logger.debug("Вызов эндпоинта GET /stats/genres/likes-by-year");
+        return statsService.getLikesByGenreAndYear();
+    }
+
+    // Эндпоинт GET /stats/directors/top?count={count}
+    @GetMapping("/directors/top")
+    public List<DirectorLikesDto> getTopDirectors(@RequestParam(defaultValue = "10") @Positive int count) {
+        logger.debug("Вызов эндпоинта GET /stats/directors/top");
+        return statsService.getTopDirectors(count);
+    }
+}
@@ -6,6 +6,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import ru.yandex.practicum.filmorate.dto.*;
@@ -94,16 +95,26 @@ public class UserController {
         return userService.getFeed(id);
     }
 
+    // Эндпоинт GET /users/{id}/likes?filmIds={filmIds}
+    @GetMapping("/{id}/likes")
+    public List<FilmLikedDto> getLikedFlags(@PathVariable @Positive int id,
+                                            @RequestParam List<Integer> filmIds) {
+        logger.debug("Вызов эндпоинта GET /users/{id}/likes");
+        return userService.getLikedFlags(id, filmIds);
+    }
+
     @GetMapping("/{id}/recommendations")
     public List<FilmDto> getRecommendations(@PathVariable @Positive int id) {
         logger.debug("Вызов эндпоинта GET /users/{id}/recommendations");
         return userService.getRecommendations(id);
     }
 
+    // Эндпоинт DELETE /users/{userId}. При фоновом удалении — 202 и задание удаления
     @DeleteMapping("/{userId}")
-    @ResponseStatus(HttpStatus.NO_CONTENT)
-    public void deleteUser(@PathVariable @Positive int userId) {
+    public ResponseEntity<DeletionJobDto> deleteUser(@PathVariable @Positive int userId) {
         logger.debug("Вызов эндпоинта DELETE /users/{userId}");
-        userService.removeUserById(userId);
+        return userService.removeUserById(userId)
+                .map(job -> ResponseEntity.accepted().body(job))
+                .orElseGet(() -> ResponseEntity.noContent().build());
     }
 }
@@ -11,6 +11,7 @@ import org.springframework.jdbc.support.GeneratedKeyHolder;
 
 import java.sql.PreparedStatement;
 import java.sql.Statement;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -34,11 +35,13 @@ public class BaseRepository<T> {
         return jdbcTemplate.query(query, rowMapper, params);
     }
 
-    protected void update(String query, Object... params) {
+    // Возвращает количество изменённых строк
+    protected int update(String query, Object... params) {
         int rowsUpdated = jdbcTemplate.update(query, params);
         if (rowsUpdated == 0) {
             logger.warn("Не было обновлено ни одной строки");
         }
+        return rowsUpdated;
     }
 
     protected int insert(String query, Object... params) {
@@ -69,10 +72,24 @@ public class BaseRepository<T> {
         }
     }
 
+    // Пакетное выполнение одного и того же запроса с разными параметрами.
+    // Возвращает количество изменённых строк для каждого набора параметров
+    protected int[] batchUpdate(String query, List<Object[]> batchArgs) {
+        if (batchArgs.isEmpty()) {
+            return new int[0];
+        }
+        return jdbcTemplate.batchUpdate(query, batchArgs);
+    }
+
     protected List<Integer> findManyInts(String query, Object... params) {
         return jdbcTemplate.query(query, (rs, rowNum) -> rs.getInt(1), params);
     }
 
+    // Выборка значений, для которых у репозитория нет собственного RowMapper
+    protected <R> List<R> findManyMapped(String query, RowMapper<R> mapper, Object... params) {
+        return jdbcTemplate.query(query, mapper, params);
+    }
+
     protected List<T> findMany(String query, ResultSetExtractor<List<T>> resultSetExtractor, Object... params) {
         return jdbcTemplate.query(query, resultSetExtractor, params);
     }
@@ -86,4 +103,10 @@ public class BaseRepository<T> {
             return Optional.ofNullable(result.getFirst());
         }
     }
+
+    // Преобразовать набор id в массив для параметра вида "column = ANY(?)".
+    // Текст запроса не зависит от количества id, поэтому план запроса переиспользуется
+    protected static Integer[] toArrayParam(Collection<Integer> ids) {
+        return ids.toArray(new Integer[0]);
+    }
 }
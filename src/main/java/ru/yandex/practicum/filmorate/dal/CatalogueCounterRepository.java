@@ -0,0 +1,199 @@
+package ru.yandex.practicum.filmorate.dal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.model.CatalogueCounter;
+
+import java.util.Collection;
+import java.util.List;
+
+// Репозиторий счётчиков каталога (catalogue_counters). Счётчики меняются репозиториями фильмов, отзывов
+// и режиссёров в тех же транзакциях, что и исходные таблицы, и периодически сверяются с ними
+@Repository
+public class CatalogueCounterRepository extends BaseRepository<CatalogueCounter> {
+    // Ключи счётчиков одного фильма: его рейтинг, жанры и режиссёры. Удалённый фильм (deleted_at)
+    // уже исключён из счётчиков, поэтому ключей не имеет
+    private static final String FILM_KEYS_FRAGMENT = """
+            SELECT CAST('MPA' AS varchar(16)) AS dimension, rating_id AS item_id, film_id FROM films
+            WHERE film_id = ? AND rating_id IS NOT NULL AND deleted_at IS NULL
+            UNION ALL
+            SELECT 'GENRE', fg.genre_id, fg.film_id FROM film_genres fg JOIN films f ON f.film_id = fg.film_id
+            WHERE fg.film_id = ? AND f.deleted_at IS NULL
+            UNION ALL
+            SELECT 'DIRECTOR', fd.director_id, fd.film_id FROM film_directors fd JOIN films f ON f.film_id = fd.film_id
+            WHERE fd.film_id = ? AND f.deleted_at IS NULL
+            """;
+    // Прибавить (sign = 1) или вычесть (sign = -1) вклад фильма: сам фильм, его лайки и отзывы
+    private static final String ADJUST_FILM_QUERY = """
+            MERGE INTO catalogue_counters c
+            USING (
+                SELECT
+                    k.dimension,
+                    k.item_id,
+                    p.sign,
+                    (SELECT COUNT(*) FROM film_likes l WHERE l.film_id = k.film_id) AS likes,
+                    (SELECT COUNT(*) FROM reviews r WHERE r.film_id = k.film_id) AS reviews
+                FROM (""" + FILM_KEYS_FRAGMENT + """
+                ) k
+                CROSS JOIN (SELECT CAST(? AS INTEGER) AS sign) p
+            ) s ON c.dimension = s.dimension AND c.item_id = s.item_id
+            WHEN MATCHED THEN UPDATE SET
+                films = c.films + s.sign,
+                likes = c.likes + s.sign * s.likes,
+                reviews = c.reviews + s.sign * s.reviews
+            WHEN NOT MATCHED THEN INSERT (dimension, item_id, films, likes, reviews)
+                VALUES (s.dimension, s.item_id, s.sign, s.sign * s.likes, s.sign * s.reviews)
+            """;
+    // Изменить количество лайков и отзывов фильма на likes и reviews
+    private static final String ADJUST_ACTIVITY_QUERY = """
+            MERGE INTO catalogue_counters c
+            USING (
+                SELECT k.dimension, k.item_id, p.likes, p.reviews
+                FROM (""" + FILM_KEYS_FRAGMENT + """
+                ) k
+                CROSS JOIN (SELECT CAST(? AS BIGINT) AS likes, CAST(? AS BIGINT) AS reviews) p
+            ) s ON c.dimension = s.dimension AND c.item_id = s.item_id
+            WHEN MATCHED THEN UPDATE SET
+                likes = c.likes + s.likes,
+                reviews = c.reviews + s.reviews
+            WHEN NOT MATCHED THEN INSERT (dimension, item_id, films, likes, reviews)
+                VALUES (s.dimension, s.item_id, 0, s.likes, s.reviews)
+            """;
+    private static final String DELETE_QUERY = "DELETE FROM catalogue_counters WHERE dimension = ? AND item_id = ?";
+    // Счётчики отдаются для всех жанров, рейтингов и режиссёров, в том числе без фильмов
+    private static final String FIND_GENRES_QUERY = """
+            SELECT 'GENRE' AS dimension, g.genre_id AS item_id, g.name,
+                COALESCE(c.films, 0) AS films, COALESCE(c.likes, 0) AS likes, COALESCE(c.reviews, 0) AS reviews
+            FROM genres g
+            LEFT JOIN catalogue_counters c ON c.dimension = 'GENRE' AND c.item_id = g.genre_id
+            ORDER BY g.genre_id
+            """;
+    private static final String FIND_MPA_QUERY = """
+            SELECT 'MPA' AS dimension, r.rating_id AS item_id, r.name,
+                COALESCE(c.films, 0) AS films, COALESCE(c.likes, 0) AS likes, COALESCE(c.reviews, 0) AS reviews
+            FROM ratings r
+            LEFT JOIN catalogue_counters c ON c.dimension = 'MPA' AND c.item_id = r.rating_id
+            ORDER BY r.rating_id
+            """;
+    private static final String FIND_DIRECTORS_QUERY = """
+            SELECT 'DIRECTOR' AS dimension, d.director_id AS item_id, d.name,
+                COALESCE(c.films, 0) AS films, COALESCE(c.likes, 0) AS likes, COALESCE(c.reviews, 0) AS reviews
+            FROM directors d
+            LEFT JOIN catalogue_counters c ON c.dimension = 'DIRECTOR' AND c.item_id = d.director_id
+            ORDER BY d.director_id
+            """;
+    // Расхождения счётчиков с исходными таблицами: пересчитанное значение минус сохранённое.
+    // Пересчёт и сохранённые счётчики читаются одним запросом, то есть из одного согласованного состояния,
+    // поэтому разница не включает изменения, которые писатели вносят в счётчики сами
+    private static final String FIND_DRIFT_QUERY = """
+            SELECT d.dimension, d.item_id, NULL AS name,
+                SUM(d.films) AS films, SUM(d.likes) AS likes, SUM(d.reviews) AS reviews
+            FROM (
+                SELECT k.dimension, k.item_id, COUNT(*) AS films,
+                    COALESCE(SUM(l.likes), 0) AS likes, COALESCE(SUM(r.reviews), 0) AS reviews
+                FROM (
+                    SELECT CAST('MPA' AS varchar(16)) AS dimension, rating_id AS item_id, film_id FROM films
+                    WHERE rating_id IS NOT NULL AND deleted_at IS NULL
+                    UNION ALL
+                    SELECT 'GENRE', fg.genre_id, fg.film_id FROM film_genres fg JOIN films f ON f.film_id = fg.film_id
+                    WHERE f.deleted_at IS NULL
+                    UNION ALL
+                    SELECT 'DIRECTOR', fd.director_id, fd.film_id FROM film_directors fd
+                    JOIN films f ON f.film_id = fd.film_id
+                    WHERE f.deleted_at IS NULL
+                ) k
+                LEFT JOIN (SELECT film_id, COUNT(*) AS likes FROM film_likes GROUP BY film_id) l
+                    ON l.film_id = k.film_id
+                LEFT JOIN (SELECT film_id, COUNT(*) AS reviews FROM reviews GROUP BY film_id) r
+                    ON r.film_id = k.film_id
+                GROUP BY k.dimension, k.item_id
+                UNION ALL
+                SELECT dimension, item_id, -films, -likes, -reviews FROM catalogue_counters
+            ) d
+            GROUP BY d.dimension, d.item_id
+            HAVING SUM(d.films) <> 0 OR SUM(d.likes) <> 0 OR SUM(d.reviews) <> 0
+            """;
+    // Прибавить к счётчикам найденное расхождение
+    private static final String ADJUST_COUNTER_QUERY = """
+            MERGE INTO catalogue_counters c
+            USING (
+                SELECT CAST(? AS varchar(16)) AS dimension, CAST(? AS INTEGER) AS item_id,
+                    CAST(? AS BIGINT) AS films, CAST(? AS BIGINT) AS likes, CAST(? AS BIGINT) AS reviews
+            ) s ON c.dimension = s.dimension AND c.item_id = s.item_id
+            WHEN MATCHED THEN UPDATE SET
+                films = c.films + s.films,
+                likes = c.likes + s.likes,
+                reviews = c.reviews + s.reviews
+            WHEN NOT MATCHED THEN INSERT (dimension, item_id, films, likes, reviews)
+                VALUES (s.dimension, s.item_id, s.films, s.likes, s.reviews)
+            """;
+    // Счётчик без фильмов, лайков и отзывов не нужен: при чтении отсутствие строки означает нули
+    private static final String DELETE_EMPTY_QUERY = "DELETE FROM catalogue_counters " +
+            "WHERE dimension = ? AND item_id = ? AND films = 0 AND likes = 0 AND reviews = 0";
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogueCounterRepository.class);
+
+    @Autowired
+    public CatalogueCounterRepository(JdbcTemplate jdbcTemplate, RowMapper<CatalogueCounter> rowMapper) {
+        super(jdbcTemplate, rowMapper);
+    }
+
+    // Учесть фильмы в счётчиках; вызывается после записи фильмов и их жанров и режиссёров
+    public void addFilms(Collection<Integer> filmIds) {
+        logger.debug("Запрос на добавление в счётчики каталога фильмов с id = {}", filmIds);
+        batchUpdate(ADJUST_FILM_QUERY, filmIds.stream()
+                .map(filmId -> new Object[]{filmId, filmId, filmId, 1})
+                .toList());
+    }
+
+    // Исключить фильм из счётчиков; вызывается до изменения или удаления фильма
+    public void removeFilm(int filmId) {
+        logger.debug("Запрос на исключение из счётчиков каталога фильма с id = {}", filmId);
+        update(ADJUST_FILM_QUERY, filmId, filmId, filmId, -1);
+    }
+
+    public void adjustLikes(int filmId, long delta) {
+        logger.debug("Запрос на изменение счётчиков лайков фильма с id = {} на {}", filmId, delta);
+        update(ADJUST_ACTIVITY_QUERY, filmId, filmId, filmId, delta, 0L);
+    }
+
+    public void adjustReviews(int filmId, long delta) {
+        logger.debug("Запрос на изменение счётчиков отзывов фильма с id = {} на {}", filmId, delta);
+        update(ADJUST_ACTIVITY_QUERY, filmId, filmId, filmId, 0L, delta);
+    }
+
+    // Удалить счётчики жанра, рейтинга или режиссёра
+    public void remove(CatalogueCounter.Dimension dimension, int itemId) {
+        logger.debug("Запрос на удаление счётчиков {} с id = {}", dimension, itemId);
+        update(DELETE_QUERY, dimension.name(), itemId);
+    }
+
+    public List<CatalogueCounter> getByDimension(CatalogueCounter.Dimension dimension) {
+        logger.debug("Запрос на получение счётчиков каталога {}", dimension);
+        return switch (dimension) {
+            case GENRE -> findMany(FIND_GENRES_QUERY);
+            case MPA -> findMany(FIND_MPA_QUERY);
+            case DIRECTOR -> findMany(FIND_DIRECTORS_QUERY);
+        };
+    }
+
+    // Сверить счётчики с исходными таблицами и исправить расхождения; возвращает число исправленных счётчиков.
+    // Исправление прибавляется к текущему значению, поэтому изменения, записанные во время сверки, сохраняются
+    public int reconcile() {
+        logger.debug("Запрос на сверку счётчиков каталога");
+        List<Object[]> drift = findMany(FIND_DRIFT_QUERY).stream()
+                .map(counter -> new Object[]{counter.getDimension().name(), counter.getItemId(),
+                        counter.getFilms(), counter.getLikes(), counter.getReviews()})
+                .toList();
+
+        batchUpdate(ADJUST_COUNTER_QUERY, drift);
+        batchUpdate(DELETE_EMPTY_QUERY, drift.stream()
+                .map(counter -> new Object[]{counter[0], counter[1]})
+                .toList());
+        return drift.size();
+    }
+}
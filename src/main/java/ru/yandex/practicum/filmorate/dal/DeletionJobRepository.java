@@ -0,0 +1,167 @@
+package ru.yandex.practicum.filmorate.dal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.model.DeletionJob;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+// Репозиторий заданий фонового удаления (deletion_jobs) и запросов, которые удаляют зависимые строки
+// пользователей и фильмов частями. Каждая часть выбирается по индексу и ограничена limit строками,
+// поэтому одна транзакция блокирует немного строк
+@Repository
+public class DeletionJobRepository extends BaseRepository<DeletionJob> {
+    // Запросы
+    private static final String COLUMNS_FRAGMENT = "SELECT job_id, entity, entity_id, status, step, deleted_rows, " +
+            "created_at, finished_at FROM deletion_jobs ";
+    private static final String INSERT_QUERY = "INSERT INTO deletion_jobs (entity, entity_id, status) " +
+            "VALUES (?, ?, 'PENDING')";
+    private static final String FIND_BY_ID_QUERY = COLUMNS_FRAGMENT + "WHERE job_id = ?";
+    private static final String FIND_RECENT_QUERY = COLUMNS_FRAGMENT + "ORDER BY job_id DESC LIMIT ?";
+    private static final String FIND_PENDING_QUERY = COLUMNS_FRAGMENT + "WHERE status = 'PENDING' ORDER BY job_id";
+    private static final String ADD_PROGRESS_QUERY = "UPDATE deletion_jobs SET step = ?, " +
+            "deleted_rows = deleted_rows + ? WHERE job_id = ?";
+    private static final String FINISH_QUERY = "UPDATE deletion_jobs SET status = 'DONE', step = NULL, " +
+            "finished_at = LOCALTIMESTAMP WHERE job_id = ?";
+    // Лайки пользователя фильмам, которые не удаляются сами: только их нужно вычесть из счётчиков
+    private static final String FIND_USER_LIKES_QUERY = "SELECT fl.film_id, fl.created_at FROM film_likes fl " +
+            "JOIN films f ON f.film_id = fl.film_id WHERE fl.user_id = ? AND f.deleted_at IS NULL LIMIT ?";
+    private static final String DELETE_USER_LIKES_QUERY = "DELETE FROM film_likes WHERE user_id = ? AND film_id = ANY(?)";
+    private static final String FIND_FILM_LIKES_QUERY = "SELECT user_id FROM film_likes WHERE film_id = ? LIMIT ?";
+    private static final String DELETE_FILM_LIKES_QUERY = "DELETE FROM film_likes WHERE film_id = ? AND user_id = ANY(?)";
+    private static final String FIND_USER_REACTIONS_QUERY = "SELECT review_id FROM review_likes WHERE user_id = ? LIMIT ?";
+    private static final String DELETE_USER_REACTIONS_QUERY = "DELETE FROM review_likes " +
+            "WHERE user_id = ? AND review_id = ANY(?)";
+    private static final String FIND_USER_REVIEWS_QUERY = "SELECT review_id FROM reviews WHERE user_id = ? LIMIT ?";
+    private static final String FIND_FILM_REVIEWS_QUERY = "SELECT review_id FROM reviews WHERE film_id = ? LIMIT ?";
+    private static final String FIND_FRIENDSHIPS_QUERY = "SELECT id FROM friendships WHERE user_id = ? LIMIT ?";
+    private static final String FIND_FRIENDSHIPS_BY_FRIEND_QUERY = "SELECT id FROM friendships WHERE friend_id = ? LIMIT ?";
+    private static final String DELETE_FRIENDSHIPS_QUERY = "DELETE FROM friendships WHERE id = ANY(?)";
+    private static final String FIND_EVENTS_QUERY = "SELECT event_id FROM events WHERE user_id = ? LIMIT ?";
+    private static final String DELETE_EVENTS_QUERY = "DELETE FROM events WHERE event_id = ANY(?)";
+    private static final String FIND_FILM_GENRES_QUERY = "SELECT id FROM film_genres WHERE film_id = ? LIMIT ?";
+    private static final String DELETE_FILM_GENRES_QUERY = "DELETE FROM film_genres WHERE id = ANY(?)";
+    private static final String FIND_FILM_DIRECTORS_QUERY = "SELECT id FROM film_directors WHERE film_id = ? LIMIT ?";
+    private static final String DELETE_FILM_DIRECTORS_QUERY = "DELETE FROM film_directors WHERE id = ANY(?)";
+    // Почасовых счётчиков у фильма не больше, чем часов в окне трендов
+    private static final String DELETE_LIKE_BUCKETS_QUERY = "DELETE FROM film_like_buckets WHERE film_id = ?";
+
+    private static final Logger logger = LoggerFactory.getLogger(DeletionJobRepository.class);
+
+    @Autowired
+    public DeletionJobRepository(JdbcTemplate jdbcTemplate, RowMapper<DeletionJob> rowMapper) {
+        super(jdbcTemplate, rowMapper);
+    }
+
+    public DeletionJob create(DeletionJob.Entity entity, int entityId) {
+        logger.debug("Запрос на создание задания удаления {} с id = {}", entity, entityId);
+        int jobId = insert(INSERT_QUERY, entity.name(), entityId);
+        return getById(jobId).orElseThrow();
+    }
+
+    public Optional<DeletionJob> getById(int jobId) {
+        logger.debug("Запрос на получение задания удаления с id = {}", jobId);
+        return findOne(FIND_BY_ID_QUERY, jobId);
+    }
+
+    // Последние count заданий, начиная с новых
+    public List<DeletionJob> getRecent(int count) {
+        logger.debug("Запрос на получение последних заданий удаления: {}", count);
+        return findMany(FIND_RECENT_QUERY, count);
+    }
+
+    public List<DeletionJob> getPending() {
+        return findMany(FIND_PENDING_QUERY);
+    }
+
+    // Учесть удалённые строки таблицы step
+    public void addProgress(int jobId, String step, int deletedRows) {
+        update(ADD_PROGRESS_QUERY, step, deletedRows, jobId);
+    }
+
+    public void finish(int jobId) {
+        logger.debug("Задание удаления с id = {} завершено", jobId);
+        update(FINISH_QUERY, jobId);
+    }
+
+    // До limit лайков пользователя фильмам, которые не помечены удалёнными: id фильма -> время лайка
+    public Map<Integer, Instant> findUserLikes(int userId, int limit) {
+        Map<Integer, Instant> likes = new LinkedHashMap<>();
+        findManyMapped(FIND_USER_LIKES_QUERY, (rs, rowNum) -> Map.entry(rs.getInt("film_id"),
+                rs.getTimestamp("created_at").toInstant()), userId, limit)
+                .forEach(like -> likes.put(like.getKey(), like.getValue()));
+        return likes;
+    }
+
+    public void deleteUserLikes(int userId, Collection<Integer> filmIds) {
+        update(DELETE_USER_LIKES_QUERY, userId, toArrayParam(filmIds));
+    }
+
+    public int deleteFilmLikes(int filmId, int limit) {
+        List<Integer> userIds = findManyInts(FIND_FILM_LIKES_QUERY, filmId, limit);
+        if (userIds.isEmpty()) {
+            return 0;
+        }
+        return update(DELETE_FILM_LIKES_QUERY, filmId, toArrayParam(userIds));
+    }
+
+    // Удалить до limit реакций пользователя на отзывы; возвращает отзывы, с которых сняты реакции
+    public List<Integer> deleteUserReactions(int userId, int limit) {
+        List<Integer> reviewIds = findManyInts(FIND_USER_REACTIONS_QUERY, userId, limit);
+        if (!reviewIds.isEmpty()) {
+            update(DELETE_USER_REACTIONS_QUERY, userId, toArrayParam(reviewIds));
+        }
+        return reviewIds;
+    }
+
+    public List<Integer> findUserReviews(int userId, int limit) {
+        return findManyInts(FIND_USER_REVIEWS_QUERY, userId, limit);
+    }
+
+    public List<Integer> findFilmReviews(int filmId, int limit) {
+        return findManyInts(FIND_FILM_REVIEWS_QUERY, filmId, limit);
+    }
+
+    // Удалить до limit дружб, в которых пользователь — инициатор или друг
+    public int deleteFriendships(int userId, int limit) {
+        int deleted = deleteByIds(FIND_FRIENDSHIPS_QUERY, DELETE_FRIENDSHIPS_QUERY, userId, limit);
+        if (deleted < limit) {
+            deleted += deleteByIds(FIND_FRIENDSHIPS_BY_FRIEND_QUERY, DELETE_FRIENDSHIPS_QUERY, userId, limit - deleted);
+        }
+        return deleted;
+    }
+
+    public int deleteEvents(int userId, int limit) {
+        return deleteByIds(FIND_EVENTS_QUERY, DELETE_EVENTS_QUERY, userId, limit);
+    }
+
+    public int deleteFilmGenres(int filmId, int limit) {
+        return deleteByIds(FIND_FILM_GENRES_QUERY, DELETE_FILM_GENRES_QUERY, filmId, limit);
+    }
+
+    public int deleteFilmDirectors(int filmId, int limit) {
+        return deleteByIds(FIND_FILM_DIRECTORS_QUERY, DELETE_FILM_DIRECTORS_QUERY, filmId, limit);
+    }
+
+    public int deleteLikeBuckets(int filmId) {
+        return update(DELETE_LIKE_BUCKETS_QUERY, filmId);
+    }
+
+    // Выбрать до limit id строк запросом findQuery и удалить их запросом deleteQuery
+    private int deleteByIds(String findQuery, String deleteQuery, int ownerId, int limit) {
+        List<Integer> ids = findManyInts(findQuery, ownerId, limit);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return update(deleteQuery, (Object) toArrayParam(ids));
+    }
+}
@@ -6,8 +6,10 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.model.CatalogueCounter;
 import ru.yandex.practicum.filmorate.model.Director;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -17,13 +19,23 @@ public class DirectorRepository extends BaseRepository<Director> {
     // Запросы
     private static final String FIND_ALL_QUERY = "SELECT director_id, name FROM directors";
     private static final String FIND_BY_ID_QUERY = "SELECT director_id, name FROM directors WHERE director_id = ?";
-    private static final String INSERT_QUERY = "INSERT INTO directors(name) VALUES(?)";
+    private static final String FIND_BY_IDS_QUERY = "SELECT director_id, name FROM directors " +
+            "WHERE director_id = ANY(?)";
+    private static final String INSERT_QUERY = "INSERT INTO directors(director_id, name) VALUES(?, ?)";
     private static final String UPDATE_QUERY = "UPDATE directors SET name = ? WHERE director_id = ?";
     private static final String DELETE_QUERY = "DELETE FROM directors WHERE director_id = ?";
 
+    // Выдача идентификаторов новых режиссёров
+    private final IdAllocator idAllocator;
+    // Счётчики каталога по жанрам, рейтингам и режиссёрам
+    private final CatalogueCounterRepository catalogueCounterRepository;
+
     @Autowired
-    public DirectorRepository(JdbcTemplate jdbcTemplate, RowMapper<Director> rowMapper) {
+    public DirectorRepository(JdbcTemplate jdbcTemplate, RowMapper<Director> rowMapper, IdAllocator idAllocator,
+                              CatalogueCounterRepository catalogueCounterRepository) {
         super(jdbcTemplate, rowMapper);
+        this.idAllocator = idAllocator;
+        this.catalogueCounterRepository = catalogueCounterRepository;
     }
 
     public List<Director> getAll() {
@@ -36,9 +48,15 @@ public class DirectorRepository extends BaseRepository<Director> {
         return findOne(FIND_BY_ID_QUERY, directorId);
     }
 
+    public List<Director> getByIds(Collection<Integer> directorIds) {
+        logger.debug("Запрос на получение строк таблицы directors с id = {}", directorIds);
+        return findMany(FIND_BY_IDS_QUERY, (Object) toArrayParam(directorIds));
+    }
+
     public Director create(Director director) {
         logger.debug("Запрос на вставку в таблицу directors");
-        int id = insert(INSERT_QUERY, director.getName());
+        int id = idAllocator.next(IdAllocator.Sequence.DIRECTORS);
+        insertWithoutKey(INSERT_QUERY, id, director.getName());
         logger.debug("Получен новый id = {}", id);
         director.setId(id);
         logger.debug("Добавлена строка в таблицу directors с id = {}", id);
@@ -55,6 +73,8 @@ public class DirectorRepository extends BaseRepository<Director> {
     public void removeById(int directorId) {
         logger.debug("Запрос на удаление строки в таблице directors с id = {}", directorId);
         update(DELETE_QUERY, directorId);
+        // Связи с фильмами удаляются каскадно, счётчики режиссёра больше не нужны
+        catalogueCounterRepository.remove(CatalogueCounter.Dimension.DIRECTOR, directorId);
         logger.debug("Удалена строка в таблице directors с id = {}", directorId);
     }
 }
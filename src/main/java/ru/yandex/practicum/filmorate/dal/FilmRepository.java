@@ -3,14 +3,26 @@ package ru.yandex.practicum.filmorate.dal;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.cache.ResourceVersions;
 import ru.yandex.practicum.filmorate.dal.mappers.FilmResultSetExtractor;
+import ru.yandex.practicum.filmorate.exception.ConflictException;
 import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.DirectorFilmEntry;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
 import ru.yandex.practicum.filmorate.model.Genre;
-
+import ru.yandex.practicum.filmorate.model.MpaRating;
+
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -36,8 +48,30 @@ public class FilmRepository extends BaseRepository<Film> {
                 LEFT JOIN genres AS g ON fg.genre_id = g.genre_id
                 LEFT JOIN film_directors AS fd ON f.film_id = fd.film_id
                 LEFT JOIN directors AS d ON fd.director_id = d.director_id
+                WHERE f.deleted_at IS NULL
                 ORDER BY f.film_id""";
     private static final String FIND_BY_ID_QUERY = """
+            SELECT
+                f.film_id AS film_id,
+                f.name AS film_name,
+                f.description AS film_description,
+                f.release_date AS film_release_date,
+                f.duration AS film_duration,
+                r.rating_id AS rating_id,
+                r.name AS rating_name,
+                g.genre_id AS genre_id,
+                g.name AS genre_name,
+                d.director_id AS director_id,
+                d.name AS director_name,
+                f.version AS film_version
+            FROM films AS f
+            LEFT JOIN ratings AS r ON f.rating_id = r.rating_id
+            LEFT JOIN film_genres AS fg ON f.film_id = fg.film_id
+            LEFT JOIN genres AS g ON fg.genre_id = g.genre_id
+            LEFT JOIN film_directors AS fd ON f.film_id = fd.film_id
+            LEFT JOIN directors AS d ON fd.director_id = d.director_id
+            WHERE f.film_id = ? AND f.deleted_at IS NULL""";
+    private static final String FIND_BY_IDS_QUERY = """
             SELECT
                 f.film_id AS film_id,
                 f.name AS film_name,
@@ -56,30 +90,28 @@ public class FilmRepository extends BaseRepository<Film> {
             LEFT JOIN genres AS g ON fg.genre_id = g.genre_id
             LEFT JOIN film_directors AS fd ON f.film_id = fd.film_id
             LEFT JOIN directors AS d ON fd.director_id = d.director_id
-            WHERE f.film_id = ?""";
+            WHERE f.film_id = ANY(?) AND f.deleted_at IS NULL""";
     private static final String INSERT_FILM_QUERY = "INSERT INTO films" +
-            "(name, description, release_date, duration, rating_id) " +
-            "VALUES(?, ?, ?, ?, ?)";
+            "(film_id, name, description, release_date, duration, rating_id) " +
+            "VALUES(?, ?, ?, ?, ?, ?)";
+    // Изменение начинается с проверки и увеличения версии: при конфликте ни счётчики, ни связи ещё не тронуты,
+    // а после успешной проверки строка заблокирована до конца транзакции
+    private static final String BUMP_VERSION_QUERY = "UPDATE films SET version = version + 1 " +
+            "WHERE film_id = ? AND version = ? AND deleted_at IS NULL";
     private static final String UPDATE_QUERY = "UPDATE films " +
             "SET name = ?, description = ?, release_date = ?, duration = ?, rating_id = ? WHERE film_id = ?";
-    private static final String INSERT_FILM_LIKES_QUERY = "INSERT INTO film_likes(film_id, user_id) " +
-            "VALUES(?, ?)";
+    // Лайк вставляется, только если его ещё нет: MERGE без ветки WHEN MATCHED не меняет существующую строку,
+    // поэтому количество изменённых строк показывает, новый ли лайк
+    private static final String MERGE_FILM_LIKE_QUERY = """
+            MERGE INTO film_likes AS l
+            USING (VALUES (CAST(? AS INTEGER), CAST(? AS INTEGER))) AS s(film_id, user_id)
+            ON l.film_id = s.film_id AND l.user_id = s.user_id
+            WHEN NOT MATCHED THEN INSERT (film_id, user_id) VALUES (s.film_id, s.user_id)
+            """;
     private static final String DELETE_FROM_FILM_LIKES_QUERY = "DELETE FROM film_likes " +
             "WHERE film_id = ? AND user_id = ?";
-    private static final String GET_POPULAR_WITH_FILTERS_QUERY = """
-            WITH popular AS (
-              SELECT
-                f.film_id,
-                COUNT(fl.user_id) AS likes
-              FROM films f
-              LEFT JOIN film_likes fl ON f.film_id = fl.film_id
-              LEFT JOIN film_genres fg ON f.film_id = fg.film_id
-              WHERE ( ? IS NULL OR fg.genre_id = ? )
-                AND ( ? IS NULL OR EXTRACT(YEAR FROM f.release_date) = ? )
-              GROUP BY f.film_id
-              ORDER BY likes DESC
-              LIMIT ?
-            )
+    // Общая часть популярных запросов: фильмы из CTE popular с жанрами и режиссёрами
+    private static final String POPULAR_FILMS_FRAGMENT = """
             SELECT
               f.film_id AS film_id,
               f.name AS film_name,
@@ -102,8 +134,71 @@ public class FilmRepository extends BaseRepository<Film> {
             JOIN popular p ON f.film_id = p.film_id
             ORDER BY p.likes DESC
             """;
+    // Варианты для каждой комбинации фильтров, чтобы планировщик мог выбрать индекс по жанру и дате выхода
+    private static final String GET_POPULAR_QUERY = """
+            WITH popular AS (
+              SELECT
+                f.film_id,
+                COUNT(fl.user_id) AS likes
+              FROM films f
+              LEFT JOIN film_likes fl ON f.film_id = fl.film_id
+              WHERE f.deleted_at IS NULL
+              GROUP BY f.film_id
+              ORDER BY likes DESC
+              LIMIT ?
+            )
+            """ + POPULAR_FILMS_FRAGMENT;
+    private static final String GET_POPULAR_BY_GENRE_QUERY = """
+            WITH popular AS (
+              SELECT
+                f.film_id,
+                COUNT(fl.user_id) AS likes
+              FROM film_genres fg
+              JOIN films f ON fg.film_id = f.film_id
+              LEFT JOIN film_likes fl ON f.film_id = fl.film_id
+              WHERE fg.genre_id = ? AND f.deleted_at IS NULL
+              GROUP BY f.film_id
+              ORDER BY likes DESC
+              LIMIT ?
+            )
+            """ + POPULAR_FILMS_FRAGMENT;
+    private static final String GET_POPULAR_BY_YEAR_QUERY = """
+            WITH popular AS (
+              SELECT
+                f.film_id,
+                COUNT(fl.user_id) AS likes
+              FROM films f
+              LEFT JOIN film_likes fl ON f.film_id = fl.film_id
+              WHERE f.release_date >= ? AND f.release_date < ? AND f.deleted_at IS NULL
+              GROUP BY f.film_id
+              ORDER BY likes DESC
+              LIMIT ?
+            )
+            """ + POPULAR_FILMS_FRAGMENT;
+    private static final String GET_POPULAR_BY_GENRE_AND_YEAR_QUERY = """
+            WITH popular AS (
+              SELECT
+                f.film_id,
+                COUNT(fl.user_id) AS likes
+              FROM film_genres fg
+              JOIN films f ON fg.film_id = f.film_id
+              LEFT JOIN film_likes fl ON f.film_id = fl.film_id
+              WHERE fg.genre_id = ?
+                AND f.release_date >= ? AND f.release_date < ?
+                AND f.deleted_at IS NULL
+              GROUP BY f.film_id
+              ORDER BY likes DESC
+              LIMIT ?
+            )
+            """ + POPULAR_FILMS_FRAGMENT;
     private static final String GET_FILM_LIKES_QUERY = "SELECT user_id FROM film_likes WHERE film_id = ?";
     private static final String DELETE_FILM_QUERY = "DELETE FROM films WHERE film_id = ?";
+    private static final String FIND_EXISTING_IDS_QUERY = "SELECT film_id FROM films " +
+            "WHERE film_id = ANY(?) AND deleted_at IS NULL";
+    // Удалённый фильм скрывается из чтения сразу, строка удаляется после зависимых строк
+    private static final String TOMBSTONE_FILM_QUERY = "UPDATE films SET deleted_at = LOCALTIMESTAMP " +
+            "WHERE film_id = ? AND deleted_at IS NULL";
+    private static final String DELETE_SUMMARY_QUERY = "DELETE FROM film_summary WHERE film_id = ?";
     private static final String GET_FILM_DIRECTORS_QUERY = "SELECT director_id FROM film_directors " +
             "WHERE film_id = ?";
     private static final String GET_DIRECTORS_FILMS_ORDERED_BY_YEAR = """
@@ -125,10 +220,11 @@ public class FilmRepository extends BaseRepository<Film> {
             LEFT JOIN ratings AS r ON f.rating_id = r.rating_id
             LEFT JOIN film_genres AS fg ON f.film_id = fg.film_id
             LEFT JOIN genres AS g ON fg.genre_id = g.genre_id
-            WHERE d.director_id = ?
+            WHERE d.director_id = ? AND f.deleted_at IS NULL
             GROUP BY film_id, genre_id, director_id
-            ORDER BY EXTRACT(YEAR FROM CAST(f.release_date AS date))
+            ORDER BY f.release_date
             """;
+    // Лайки считаются подзапросом по фильму: соединение с film_genres не размножает их по жанрам
     private static final String GET_DIRECTORS_FILMS_ORDERED_BY_LIKES = """
             SELECT
                 f.film_id AS film_id,
@@ -145,13 +241,11 @@ public class FilmRepository extends BaseRepository<Film> {
             FROM directors AS d
             JOIN film_directors AS fd ON d.director_id = fd.director_id
             JOIN films AS f ON fd.film_id = f.film_id
-            LEFT JOIN film_likes AS fl ON f.film_id = fl.film_id
             LEFT JOIN ratings AS r ON f.rating_id = r.rating_id
             LEFT JOIN film_genres AS fg ON f.film_id = fg.film_id
             LEFT JOIN genres AS g ON fg.genre_id = g.genre_id
-            WHERE d.director_id = ?
-            GROUP BY film_id, genre_id, director_id
-            ORDER BY COUNT(fl.user_id) DESC
+            WHERE d.director_id = ? AND f.deleted_at IS NULL
+            ORDER BY (SELECT COUNT(*) FROM film_likes AS fl WHERE fl.film_id = f.film_id) DESC, f.film_id, g.genre_id
             """;
     private static final String SEARCH_BY_TITLE_OR_DIRECTOR_QUERY = """
             WITH likes AS (
@@ -179,15 +273,11 @@ public class FilmRepository extends BaseRepository<Film> {
             LEFT JOIN film_directors AS fd ON f.film_id  = fd.film_id
             LEFT JOIN directors AS d       ON fd.director_id = d.director_id
             LEFT JOIN likes AS l           ON l.film_id  = f.film_id
-            WHERE ( :titleCond ) OR ( :directorCond )
+            WHERE f.deleted_at IS NULL AND (( :titleCond ) OR ( :directorCond ))
             ORDER BY COALESCE(l.cnt, 0) DESC, f.film_id
             """;
-    private static final String GET_RECOMMENDED_FILMS_QUERY = """
-            WITH user_likes AS (
-                SELECT film_id
-                FROM film_likes
-                WHERE user_id = ?
-            )
+    // Фильмы, которые лайкали пользователи с общими лайками; параметры — id пользователя дважды
+    private static final String RECOMMENDATION_CANDIDATES_FRAGMENT = """
             SELECT f.film_id,
                    f.name AS film_name,
                    f.description AS film_description,
@@ -206,79 +296,284 @@ public class FilmRepository extends BaseRepository<Film> {
             LEFT JOIN genres g ON fg.genre_id = g.genre_id
             LEFT JOIN film_directors fd ON f.film_id = fd.film_id
             LEFT JOIN directors d ON fd.director_id = d.director_id
-            WHERE fl.user_id IN (
+            WHERE f.deleted_at IS NULL AND fl.user_id IN (
                 SELECT l2.user_id
                 FROM film_likes l1
                 JOIN film_likes l2 ON l1.film_id = l2.film_id
                 WHERE l1.user_id = ? AND l2.user_id <> ?
             )
-            AND f.film_id NOT IN (SELECT film_id FROM user_likes)
+            """;
+    private static final String RECOMMENDATION_ORDER_FRAGMENT = """
             GROUP BY f.film_id, r.rating_id, r.name, g.genre_id, g.name, d.director_id, d.name
-            ORDER BY f.film_id;
+            ORDER BY f.film_id
             """;
+    private static final String GET_RECOMMENDED_FILMS_QUERY = """
+            WITH user_likes AS (
+                SELECT film_id
+                FROM film_likes
+                WHERE user_id = ?
+            )
+            """ + RECOMMENDATION_CANDIDATES_FRAGMENT + """
+            AND f.film_id NOT IN (SELECT film_id FROM user_likes)
+            """ + RECOMMENDATION_ORDER_FRAGMENT;
+    // Кандидаты без исключения уже понравившихся фильмов: их отсеивает индекс лайков пользователей
+    private static final String GET_RECOMMENDATION_CANDIDATES_QUERY = RECOMMENDATION_CANDIDATES_FRAGMENT +
+            RECOMMENDATION_ORDER_FRAGMENT;
     private static final String GET_FILMS_ID_BY_USER_ID_QUERY = "SELECT film_id FROM film_likes WHERE user_id = ?";
+    private static final String GET_LIKED_FILM_IDS_QUERY = "SELECT film_id FROM film_likes " +
+            "WHERE user_id = ? AND film_id = ANY(?)";
+    private static final String GET_ALL_LIKES_QUERY = "SELECT film_id, user_id FROM film_likes";
+    private static final String GET_LIKE_TIME_QUERY = "SELECT created_at FROM film_likes " +
+            "WHERE film_id = ? AND user_id = ?";
+    private static final String GET_LIKE_TIMES_BY_USER_ID_QUERY = "SELECT film_id, created_at FROM film_likes " +
+            "WHERE user_id = ?";
+    private static final String GET_DIRECTOR_FILM_ENTRIES_QUERY = """
+            SELECT
+                fd.director_id,
+                f.film_id,
+                f.release_date,
+                (SELECT COUNT(*) FROM film_likes AS fl WHERE fl.film_id = f.film_id) AS likes
+            FROM films AS f
+            JOIN film_directors AS fd ON f.film_id = fd.film_id
+            WHERE f.deleted_at IS NULL
+            """;
+    private static final String GET_DIRECTOR_FILM_ENTRIES_BY_FILM_ID_QUERY = GET_DIRECTOR_FILM_ENTRIES_QUERY +
+            "AND f.film_id = ?";
+    private static final String GET_LIKE_COUNTS_QUERY = "SELECT film_id, COUNT(*) AS likes FROM film_likes " +
+            "GROUP BY film_id";
+    private static final String GET_LIKES_COUNT_QUERY = "SELECT COUNT(*) FROM film_likes WHERE film_id = ?";
+    private static final String GET_LIKE_COUNTS_BY_IDS_QUERY = "SELECT film_id, COUNT(*) AS likes FROM film_likes " +
+            "WHERE film_id = ANY(?) GROUP BY film_id";
+    private static final String GET_LIKE_COUNTS_SINCE_QUERY = "SELECT film_id, COUNT(*) AS likes FROM film_likes " +
+            "WHERE created_at > ? GROUP BY film_id";
     private static final String GET_FILM_GENRES_QUERY = "SELECT genre_id FROM film_genres " +
             "WHERE film_id = ?";
+    private static final String INSERT_FILM_GENRE_QUERY = "INSERT INTO film_genres(film_id, genre_id) VALUES(?, ?)";
+    private static final String DELETE_FILM_GENRE_QUERY = "DELETE FROM film_genres " +
+            "WHERE film_id = ? AND genre_id = ?";
+    private static final String INSERT_FILM_DIRECTOR_QUERY = "INSERT INTO film_directors(film_id, director_id) " +
+            "VALUES(?, ?)";
+    private static final String DELETE_FILM_DIRECTOR_QUERY = "DELETE FROM film_directors " +
+            "WHERE film_id = ? AND director_id = ?";
+    private static final String GET_FILM_IDS_BY_DIRECTOR_ID_QUERY = "SELECT film_id FROM film_directors " +
+            "WHERE director_id = ?";
+    // Проекция film_summary: пересборка строк из исходных таблиц и чтение по одной строке на фильм
+    private static final String REBUILD_SUMMARIES_QUERY = """
+            MERGE INTO film_summary (film_id, name, description, release_date, duration, rating_id, rating_name,
+                genre_ids, genre_names, director_ids, director_names, likes, version)
+            KEY (film_id)
+            SELECT
+                f.film_id,
+                f.name,
+                f.description,
+                f.release_date,
+                f.duration,
+                r.rating_id,
+                r.name,
+                (SELECT ARRAY_AGG(g.genre_id ORDER BY g.genre_id)
+                    FROM film_genres AS fg JOIN genres AS g ON fg.genre_id = g.genre_id
+                    WHERE fg.film_id = f.film_id),
+                (SELECT ARRAY_AGG(g.name ORDER BY g.genre_id)
+                    FROM film_genres AS fg JOIN genres AS g ON fg.genre_id = g.genre_id
+                    WHERE fg.film_id = f.film_id),
+                (SELECT ARRAY_AGG(d.director_id ORDER BY d.director_id)
+                    FROM film_directors AS fd JOIN directors AS d ON fd.director_id = d.director_id
+                    WHERE fd.film_id = f.film_id),
+                (SELECT ARRAY_AGG(d.name ORDER BY d.director_id)
+                    FROM film_directors AS fd JOIN directors AS d ON fd.director_id = d.director_id
+                    WHERE fd.film_id = f.film_id),
+                (SELECT COUNT(*) FROM film_likes AS fl WHERE fl.film_id = f.film_id),
+                f.version
+            FROM films AS f
+            LEFT JOIN ratings AS r ON f.rating_id = r.rating_id
+            WHERE f.deleted_at IS NULL
+            """;
+    private static final String REFRESH_SUMMARIES_QUERY = REBUILD_SUMMARIES_QUERY +
+            "AND f.film_id = ANY(?)";
+    // Счётчик лайков в проекции меняется на число действительно вставленных или удалённых строк
+    private static final String ADJUST_SUMMARY_LIKES_QUERY = "UPDATE film_summary " +
+            "SET likes = likes + ? WHERE film_id = ?";
+    // Версия берётся из films: проверка версии при изменении фильма не должна зависеть от того,
+    // успела ли обновиться строка проекции
+    private static final String SUMMARY_COLUMNS_FRAGMENT = "SELECT s.film_id, s.name, s.description, " +
+            "s.release_date, s.duration, s.rating_id, s.rating_name, s.genre_ids, s.genre_names, s.director_ids, " +
+            "s.director_names, s.likes, f.version FROM film_summary AS s " +
+            "JOIN films AS f ON f.film_id = s.film_id ";
+    // Фильтр по жанру идёт через film_genres, чтобы использовать индекс по genre_id
+    private static final String SUMMARY_BY_GENRE_FRAGMENT = SUMMARY_COLUMNS_FRAGMENT +
+            "JOIN film_genres AS fg ON fg.film_id = s.film_id WHERE fg.genre_id = ? ";
+    private static final String FIND_ALL_SUMMARIES_QUERY = SUMMARY_COLUMNS_FRAGMENT +
+            "ORDER BY s.film_id";
+    private static final String FIND_SUMMARY_BY_ID_QUERY = SUMMARY_COLUMNS_FRAGMENT +
+            "WHERE s.film_id = ?";
+    private static final String FIND_SUMMARIES_BY_IDS_QUERY = SUMMARY_COLUMNS_FRAGMENT +
+            "WHERE s.film_id = ANY(?)";
+    // Фильмы, у которых нет строки проекции (например, записанные в обход приложения)
+    private static final String FIND_ALL_WITHOUT_SUMMARY_QUERY = """
+            SELECT
+                    f.film_id AS film_id,
+                    f.name AS film_name,
+                    f.description AS film_description,
+                    f.release_date AS film_release_date,
+                    f.duration AS film_duration,
+                    r.rating_id AS rating_id,
+                    r.name AS rating_name,
+                    g.genre_id AS genre_id,
+                    g.name AS genre_name,
+                    d.director_id AS director_id,
+                    d.name AS director_name,
+                    f.version AS film_version
+                FROM films AS f
+                LEFT JOIN ratings AS r ON f.rating_id = r.rating_id
+                LEFT JOIN film_genres AS fg ON f.film_id = fg.film_id
+                LEFT JOIN genres AS g ON fg.genre_id = g.genre_id
+                LEFT JOIN film_directors AS fd ON f.film_id = fd.film_id
+                LEFT JOIN directors AS d ON fd.director_id = d.director_id
+                WHERE f.deleted_at IS NULL
+                    AND NOT EXISTS (SELECT 1 FROM film_summary AS s WHERE s.film_id = f.film_id)
+                ORDER BY f.film_id""";
+    private static final String GET_POPULAR_SUMMARIES_QUERY = SUMMARY_COLUMNS_FRAGMENT +
+            "ORDER BY s.likes DESC, s.film_id LIMIT ?";
+    private static final String GET_POPULAR_SUMMARIES_BY_GENRE_QUERY = SUMMARY_BY_GENRE_FRAGMENT +
+            "ORDER BY s.likes DESC, s.film_id LIMIT ?";
+    private static final String GET_POPULAR_SUMMARIES_BY_YEAR_QUERY = SUMMARY_COLUMNS_FRAGMENT +
+            "WHERE s.release_date >= ? AND s.release_date < ? ORDER BY s.likes DESC, s.film_id LIMIT ?";
+    private static final String GET_POPULAR_SUMMARIES_BY_GENRE_AND_YEAR_QUERY = SUMMARY_BY_GENRE_FRAGMENT +
+            "AND s.release_date >= ? AND s.release_date < ? ORDER BY s.likes DESC, s.film_id LIMIT ?";
     // Логгер
     private static final Logger logger = LoggerFactory.getLogger(FilmRepository.class);
     // ResultSetExtractor
     private final FilmResultSetExtractor filmResultSetExtractor;
+    // Выдача идентификаторов новых фильмов
+    private final IdAllocator idAllocator;
+    // Версии ресурсов для HTTP-кэширования
+    private final ResourceVersions resourceVersions;
+    // Читать фильмы из проекции film_summary вместо соединения исходных таблиц. Фильмы без строки
+    // проекции читаются из исходных таблиц
+    private final boolean summaryReads;
+    // Счётчики каталога по жанрам, рейтингам и режиссёрам
+    private final CatalogueCounterRepository catalogueCounterRepository;
 
     @Autowired
     public FilmRepository(JdbcTemplate jdbcTemplate, RowMapper<Film> rowMapper,
-                          FilmResultSetExtractor filmResultSetExtractor) {
+                          FilmResultSetExtractor filmResultSetExtractor, IdAllocator idAllocator,
+                          ResourceVersions resourceVersions,
+                          @Value("${filmorate.film-summary.read-enabled:true}") boolean summaryReads,
+                          CatalogueCounterRepository catalogueCounterRepository) {
         super(jdbcTemplate, rowMapper);
         this.filmResultSetExtractor = filmResultSetExtractor;
+        this.idAllocator = idAllocator;
+        this.resourceVersions = resourceVersions;
+        this.summaryReads = summaryReads;
+        this.catalogueCounterRepository = catalogueCounterRepository;
     }
 
     public List<Film> getAll() {
         logger.debug("Запрос на получение всех строк таблицы films");
+        if (summaryReads) {
+            List<Film> films = findManyMapped(FIND_ALL_SUMMARIES_QUERY, this::mapSummary);
+            List<Film> missing = findMany(FIND_ALL_WITHOUT_SUMMARY_QUERY, filmResultSetExtractor);
+            if (missing.isEmpty()) {
+                return films;
+            }
+            logger.warn("Нет строк film_summary для {} фильмов, они прочитаны из исходных таблиц", missing.size());
+            films.addAll(missing);
+            films.sort(Comparator.comparingInt(Film::getId));
+            return films;
+        }
         return findMany(FIND_ALL_QUERY, filmResultSetExtractor);
     }
 
     public Optional<Film> getById(int filmId) {
         logger.debug("Запрос на получение строки таблицы films с id = {}", filmId);
+        if (summaryReads) {
+            Optional<Film> film = findManyMapped(FIND_SUMMARY_BY_ID_QUERY, this::mapSummary, filmId).stream()
+                    .findFirst();
+            if (film.isPresent()) {
+                return film;
+            }
+            logger.debug("Нет строки film_summary для film_id = {}, чтение из исходных таблиц", filmId);
+        }
         return findOne(FIND_BY_ID_QUERY, filmResultSetExtractor, filmId);
     }
 
+    // Какие из фильмов filmIds существуют
+    public List<Integer> getExistingIds(Collection<Integer> filmIds) {
+        logger.debug("Запрос на проверку существования фильмов: {} шт.", filmIds.size());
+        return findManyInts(FIND_EXISTING_IDS_QUERY, (Object) toArrayParam(filmIds));
+    }
+
+    // Фильмы с указанными id одним запросом; порядок не гарантируется
+    public List<Film> getByIds(Collection<Integer> filmIds) {
+        logger.debug("Запрос на получение строк таблицы films с id = {}", filmIds);
+        if (filmIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        if (summaryReads) {
+            List<Film> films = findManyMapped(FIND_SUMMARIES_BY_IDS_QUERY, this::mapSummary,
+                    (Object) toArrayParam(filmIds));
+            Set<Integer> missing = new HashSet<>(filmIds);
+            films.forEach(film -> missing.remove(film.getId()));
+            if (!missing.isEmpty()) {
+                logger.debug("Нет строк film_summary для film_id = {}, чтение из исходных таблиц", missing);
+                films.addAll(findMany(FIND_BY_IDS_QUERY, filmResultSetExtractor, (Object) toArrayParam(missing)));
+            }
+            return films;
+        }
+        return findMany(FIND_BY_IDS_QUERY, filmResultSetExtractor, (Object) toArrayParam(filmIds));
+    }
+
     public Film create(Film film) {
-        logger.debug("Запрос на вставку в таблицу films");
-        int id = insert(INSERT_FILM_QUERY,
-                film.getName(),
-                film.getDescription(),
-                film.getReleaseDate(),
-                film.getDuration(),
-                film.getRating().getId()
-        );
-        logger.debug("Получен новый id = {}", id);
-        film.setId(id);
-
-        if (!film.getGenres().isEmpty()) {
-            List<String> genreValues = film.getGenres().stream()
-                    .map(genre -> "(" + film.getId() + ", " + genre.getId() + ")")
-                    .toList();
-            insertWithoutKey("INSERT INTO film_genres(film_id, genre_id) VALUES "
-                    + String.join(", ", genreValues));
-            logger.debug("Добавлены строки в таблицу film_genres: film_id = {}, genre_id = {}",
-                    film.getId(), film.getGenres().stream().map(Genre::getId).toList());
+        createAll(List.of(film));
+        return film;
+    }
+
+    // Вставка нескольких фильмов: идентификаторы резервируются заранее, поэтому фильмы и их связи
+    // с жанрами и режиссёрами записываются тремя пакетами независимо от количества фильмов
+    public List<Film> createAll(List<Film> films) {
+        logger.debug("Запрос на вставку {} строк в таблицу films", films.size());
+        if (films.isEmpty()) {
+            return films;
         }
 
-        if (!film.getDirectors().isEmpty()) {
-            List<String> directorValues = film.getDirectors().stream()
-                    .map(director -> "(" + film.getId() + ", " + director.getId() + ")")
-                    .toList();
-            insertWithoutKey("INSERT INTO film_directors(film_id, director_id) VALUES "
-                    + String.join(", ", directorValues));
-            logger.debug("Добавлены строки в таблицу film_genres: film_id = {}, genre_id = {}",
-                    film.getId(), film.getDirectors().stream().map(Director::getId).toList());
+        int[] ids = idAllocator.next(IdAllocator.Sequence.FILMS, films.size());
+        List<Object[]> filmRows = new ArrayList<>();
+        List<Object[]> genreRows = new ArrayList<>();
+        List<Object[]> directorRows = new ArrayList<>();
+        for (int i = 0; i < films.size(); i++) {
+            Film film = films.get(i);
+            film.setId(ids[i]);
+            filmRows.add(new Object[]{
+                    film.getId(),
+                    film.getName(),
+                    film.getDescription(),
+                    film.getReleaseDate(),
+                    film.getDuration(),
+                    film.getRating().getId()
+            });
+            genreRows.addAll(associationRows(film.getId(), genreIds(film)));
+            directorRows.addAll(associationRows(film.getId(), directorIds(film)));
         }
 
-        logger.debug("Добавлена строка в таблицу films с id = {}", id);
-        return film;
+        batchUpdate(INSERT_FILM_QUERY, filmRows);
+        batchUpdate(INSERT_FILM_GENRE_QUERY, genreRows);
+        batchUpdate(INSERT_FILM_DIRECTOR_QUERY, directorRows);
+        refreshSummaries(Arrays.stream(ids).boxed().toList());
+        catalogueCounterRepository.addFilms(Arrays.stream(ids).boxed().toList());
+
+        logger.debug("Добавлены строки в таблицу films с id = {}, в film_genres: {}, в film_directors: {}",
+                Arrays.toString(ids), genreRows.size(), directorRows.size());
+        return films;
     }
 
     public Film update(Film film) {
         logger.debug("Запрос на обновление строки в таблице films с id = {}", film.getId());
+        if (update(BUMP_VERSION_QUERY, film.getId(), film.getVersion()) == 0) {
+            throw new ConflictException("Фильм с id = " + film.getId() + " изменён другим запросом");
+        }
+        film.setVersion(film.getVersion() + 1);
+        // Вклад фильма в счётчики снимается по прежним рейтингу, жанрам и режиссёрам и добавляется по новым
+        catalogueCounterRepository.removeFilm(film.getId());
         update(UPDATE_QUERY,
                 film.getName(),
                 film.getDescription(),
@@ -286,93 +581,159 @@ public class FilmRepository extends BaseRepository<Film> {
                 film.getDuration(),
                 film.getRating().getId(),
                 film.getId());
-        logger.debug("Обновлена строка в таблице films с id = {}", film.getId());
-
-        Map<String, List<Integer>> directorsDiff = findDiff(super.findManyInts(GET_FILM_DIRECTORS_QUERY, film.getId()),
-                film.getDirectors().stream().map(Director::getId).collect(Collectors.toList()));
-
-        if (!directorsDiff.get("removed").isEmpty()) {
-            List<Integer> removed = directorsDiff.get("removed");
-            logger.debug("to remove: {}", removed);
-            String query = "DELETE FROM film_directors WHERE film_id = ? " +
-                    "AND director_id IN (" + createPlaceholders(removed.size()) + ")";
-            logger.debug("query: {}", query);
-            List<Integer> params = new ArrayList<>();
-            params.add(film.getId());
-            params.addAll(removed);
-            logger.debug("params: {}", params);
-            update(query, params.toArray());
-            logger.debug("Удалены строки из таблицы film_directors, где film_id = {} и directors_id = {}",
-                    film.getId(), removed);
-        }
-
-        if (!directorsDiff.get("added").isEmpty()) {
-            List<Integer> added = directorsDiff.get("added");
-            List<String> directorValues = added.stream()
-                    .map(directorId -> "(" + film.getId() + ", " + directorId + ")")
-                    .toList();
-            insertWithoutKey("INSERT INTO film_directors(film_id, director_id) VALUES "
-                    + String.join(", ", directorValues));
-
-            logger.debug("Добавлены строки в таблицу film_directors, где film_id = {} и directors_id = {}",
-                    film.getId(), added);
-        }
-
-        Map<String, List<Integer>> genresDiff = findDiff(super.findManyInts(GET_FILM_GENRES_QUERY, film.getId()),
-                film.getGenres().stream().map(Genre::getId).collect(Collectors.toList()));
-
-        if (!genresDiff.get("removed").isEmpty()) {
-            List<Integer> removed = genresDiff.get("removed");
-            logger.debug("to remove: {}", removed);
-            String query = "DELETE FROM film_genres WHERE film_id = ? " +
-                    "AND genre_id IN (" + createPlaceholders(removed.size()) + ")";
-            logger.debug("query: {}", query);
-            List<Integer> params = new ArrayList<>();
-            params.add(film.getId());
-            params.addAll(removed);
-            logger.debug("params: {}", params);
-            update(query, params.toArray());
-            logger.debug("Удалены строки из таблицы film_genres, где film_id = {} и genre_id = {}",
-                    film.getId(), removed);
-        }
-
-        if (!genresDiff.get("added").isEmpty()) {
-            List<Integer> added = genresDiff.get("added");
-            List<String> addedValues = added.stream()
-                    .map(directorId -> "(" + film.getId() + ", " + directorId + ")")
-                    .toList();
-            insertWithoutKey("INSERT INTO film_genres(film_id, genre_id) VALUES "
-                    + String.join(", ", addedValues));
-
-            logger.debug("Добавлены строки в таблицу film_genres, где film_id = {} и genre_id = {}",
-                    film.getId(), added);
-        }
+        logger.debug("Обновлена строка в таблице films с id = {}, версия {}", film.getId(), film.getVersion());
+
+        // Разница вычисляется на множествах id, а запись идёт пакетами с неизменным текстом запроса
+        BitSet currentDirectors = toBitSet(findManyInts(GET_FILM_DIRECTORS_QUERY, film.getId()));
+        BitSet removedDirectors = difference(currentDirectors, directorIds(film));
+        BitSet addedDirectors = difference(directorIds(film), currentDirectors);
+        batchUpdate(DELETE_FILM_DIRECTOR_QUERY, associationRows(film.getId(), removedDirectors));
+        batchUpdate(INSERT_FILM_DIRECTOR_QUERY, associationRows(film.getId(), addedDirectors));
+        logger.debug("Изменены строки таблицы film_directors для film_id = {}: удалены {}, добавлены {}",
+                film.getId(), removedDirectors, addedDirectors);
+
+        BitSet currentGenres = toBitSet(findManyInts(GET_FILM_GENRES_QUERY, film.getId()));
+        BitSet removedGenres = difference(currentGenres, genreIds(film));
+        BitSet addedGenres = difference(genreIds(film), currentGenres);
+        batchUpdate(DELETE_FILM_GENRE_QUERY, associationRows(film.getId(), removedGenres));
+        batchUpdate(INSERT_FILM_GENRE_QUERY, associationRows(film.getId(), addedGenres));
+        logger.debug("Изменены строки таблицы film_genres для film_id = {}: удалены {}, добавлены {}",
+                film.getId(), removedGenres, addedGenres);
+
+        refreshSummaries(List.of(film.getId()));
+        catalogueCounterRepository.addFilms(List.of(film.getId()));
 
         return film;
     }
 
-    public void putLike(int filmId, int userId) {
+    // Поставить лайк; возвращает false, если пользователь уже поставил лайк фильму
+    public boolean putLike(int filmId, int userId) {
         logger.debug("Запрос на вставку строки в таблицу film_likes");
-        insertWithoutKey(INSERT_FILM_LIKES_QUERY, filmId, userId);
+        if (update(MERGE_FILM_LIKE_QUERY, filmId, userId) == 0) {
+            logger.debug("Лайк уже есть в таблице film_likes: film_id = {}, user_id = {}", filmId, userId);
+            return false;
+        }
+        update(ADJUST_SUMMARY_LIKES_QUERY, 1, filmId);
+        catalogueCounterRepository.adjustLikes(filmId, 1);
+        resourceVersions.bump(ResourceVersions.Resource.LIKES);
         logger.debug("Добавлена строка в таблицу film_likes: film_id = {}, user_id = {}", filmId, userId);
+        return true;
     }
 
     public void removeLike(int filmId, int userId) {
         logger.debug("Запрос на удаление строки из таблицы film_likes");
-        update(DELETE_FROM_FILM_LIKES_QUERY, filmId, userId);
+        int removed = update(DELETE_FROM_FILM_LIKES_QUERY, filmId, userId);
+        if (removed == 0) {
+            logger.debug("Лайка нет в таблице film_likes: film_id = {}, user_id = {}", filmId, userId);
+            return;
+        }
+        update(ADJUST_SUMMARY_LIKES_QUERY, -removed, filmId);
+        catalogueCounterRepository.adjustLikes(filmId, -removed);
+        resourceVersions.bump(ResourceVersions.Resource.LIKES);
         logger.debug("Удалена строка из таблицы film_likes: film_id = {}, user_id = {}", filmId, userId);
     }
 
+    // Пакетная запись лайков из буфера; для каждого лайка возвращает, был ли он добавлен
+    public boolean[] putLikes(List<FilmLike> likes) {
+        logger.debug("Запрос на пакетную вставку {} строк в таблицу film_likes", likes.size());
+        int[] counts = batchUpdate(MERGE_FILM_LIKE_QUERY, likes.stream()
+                .map(like -> new Object[]{like.filmId(), like.userId()})
+                .toList());
+        return applyLikeCounts(likes, counts, 1);
+    }
+
+    // Пакетное удаление лайков из буфера; для каждого лайка возвращает, был ли он удалён
+    public boolean[] removeLikes(List<FilmLike> likes) {
+        logger.debug("Запрос на пакетное удаление {} строк из таблицы film_likes", likes.size());
+        int[] counts = batchUpdate(DELETE_FROM_FILM_LIKES_QUERY, likes.stream()
+                .map(like -> new Object[]{like.filmId(), like.userId()})
+                .toList());
+        return applyLikeCounts(likes, counts, -1);
+    }
+
     public List<Film> getPopular(int count, Integer genreId, Integer year) {
         logger.debug("Запрос на получение первых {} популярных фильмов с фильтрами", count);
-        return findMany(GET_POPULAR_WITH_FILTERS_QUERY, filmResultSetExtractor,
-                genreId, genreId, year, year, count);
+        if (summaryReads) {
+            return getPopularSummaries(count, genreId, year);
+        }
+        if (year == null) {
+            return genreId == null
+                    ? getPopular(count)
+                    : findMany(GET_POPULAR_BY_GENRE_QUERY, filmResultSetExtractor, genreId, count);
+        }
+        // Год задаётся диапазоном дат, чтобы условие могло использовать индекс по release_date
+        LocalDate yearStart = LocalDate.of(year, 1, 1);
+        LocalDate nextYearStart = yearStart.plusYears(1);
+        return genreId == null
+                ? findMany(GET_POPULAR_BY_YEAR_QUERY, filmResultSetExtractor, yearStart, nextYearStart, count)
+                : findMany(GET_POPULAR_BY_GENRE_AND_YEAR_QUERY, filmResultSetExtractor,
+                        genreId, yearStart, nextYearStart, count);
     }
 
     public List<Film> getPopular(int count) {
         logger.debug("Запрос на получение первых {} популярных фильмов", count);
-        return findMany(GET_POPULAR_WITH_FILTERS_QUERY, filmResultSetExtractor,
-                null, null, null, null, count);
+        if (summaryReads) {
+            return getPopularSummaries(count, null, null);
+        }
+        return findMany(GET_POPULAR_QUERY, filmResultSetExtractor, count);
+    }
+
+    // Пересобрать строки film_summary указанных фильмов по исходным таблицам
+    public void refreshSummaries(Collection<Integer> filmIds) {
+        if (filmIds.isEmpty()) {
+            return;
+        }
+        logger.debug("Запрос на пересборку строк film_summary для film_id = {}", filmIds);
+        update(REFRESH_SUMMARIES_QUERY, (Object) toArrayParam(filmIds));
+    }
+
+    // Пересобрать film_summary целиком, например после расхождения с исходными таблицами
+    public void rebuildSummaries() {
+        logger.debug("Запрос на пересборку таблицы film_summary");
+        update(REBUILD_SUMMARIES_QUERY);
+        logger.debug("Таблица film_summary пересобрана");
+    }
+
+    public List<Integer> getFilmIdsByDirectorId(int directorId) {
+        logger.debug("Запрос на получение всех film_id из таблицы film_directors для director_id = {}", directorId);
+        return findManyInts(GET_FILM_IDS_BY_DIRECTOR_ID_QUERY, directorId);
+    }
+
+    // Обновить проекцию и счётчики один раз на фильм по результатам пакетной записи лайков
+    private boolean[] applyLikeCounts(List<FilmLike> likes, int[] counts, int sign) {
+        boolean[] changed = new boolean[likes.size()];
+        Map<Integer, Long> deltas = new HashMap<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                changed[i] = true;
+                deltas.merge(likes.get(i).filmId(), (long) sign, Long::sum);
+            }
+        }
+        deltas.forEach((filmId, delta) -> {
+            update(ADJUST_SUMMARY_LIKES_QUERY, delta, filmId);
+            catalogueCounterRepository.adjustLikes(filmId, delta);
+        });
+        if (!deltas.isEmpty()) {
+            resourceVersions.bump(ResourceVersions.Resource.LIKES);
+        }
+        logger.debug("Изменено лайков в таблице film_likes: {} у фильмов {}", deltas.values().stream()
+                .mapToLong(Math::abs).sum(), deltas.keySet());
+        return changed;
+    }
+
+    private List<Film> getPopularSummaries(int count, Integer genreId, Integer year) {
+        if (year == null) {
+            return genreId == null
+                    ? findManyMapped(GET_POPULAR_SUMMARIES_QUERY, this::mapSummary, count)
+                    : findManyMapped(GET_POPULAR_SUMMARIES_BY_GENRE_QUERY, this::mapSummary, genreId, count);
+        }
+        LocalDate yearStart = LocalDate.of(year, 1, 1);
+        LocalDate nextYearStart = yearStart.plusYears(1);
+        return genreId == null
+                ? findManyMapped(GET_POPULAR_SUMMARIES_BY_YEAR_QUERY, this::mapSummary,
+                        yearStart, nextYearStart, count)
+                : findManyMapped(GET_POPULAR_SUMMARIES_BY_GENRE_AND_YEAR_QUERY, this::mapSummary,
+                        genreId, yearStart, nextYearStart, count);
     }
 
     public List<Integer> getLikesUserId(int filmId) {
@@ -382,10 +743,26 @@ public class FilmRepository extends BaseRepository<Film> {
 
     public void removeFilmById(int filmId) {
         logger.debug("Запрос на удаление фильма из таблицы films для film_id = {}", filmId);
+        catalogueCounterRepository.removeFilm(filmId);
         update(DELETE_FILM_QUERY, filmId);
         logger.debug("Удалена строка из таблицы films: film_id = {}", filmId);
     }
 
+    // Скрыть фильм до фонового удаления: фильм исключается из счётчиков каталога и проекции film_summary,
+    // остальные запросы не читают фильмы с deleted_at
+    public void tombstoneFilm(int filmId) {
+        logger.debug("Запрос на пометку фильма с film_id = {} удалённым", filmId);
+        catalogueCounterRepository.removeFilm(filmId);
+        update(TOMBSTONE_FILM_QUERY, filmId);
+        update(DELETE_SUMMARY_QUERY, filmId);
+    }
+
+    // Удалить строку фильма, помеченного удалённым; счётчики каталога уже не учитывают его
+    public void removeTombstonedFilm(int filmId) {
+        logger.debug("Запрос на удаление помеченного фильма из таблицы films для film_id = {}", filmId);
+        update(DELETE_FILM_QUERY, filmId);
+    }
+
     public List<Film> searchDirectorsFilmsSortedByYear(int directorId) {
         logger.debug("Запрос на получение всех фильмов режиссёра с id = {}, отсортированных по годам", directorId);
         return findMany(GET_DIRECTORS_FILMS_ORDERED_BY_YEAR, filmResultSetExtractor, directorId);
@@ -428,29 +805,174 @@ public class FilmRepository extends BaseRepository<Film> {
         return super.findManyInts(GET_FILMS_ID_BY_USER_ID_QUERY, userId);
     }
 
+    // Время постановки лайка, если он есть
+    public Optional<Instant> getLikeTime(int filmId, int userId) {
+        return findManyMapped(GET_LIKE_TIME_QUERY, (rs, rowNum) -> rs.getTimestamp("created_at").toInstant(),
+                filmId, userId).stream().findFirst();
+    }
+
+    // Количество лайков каждого фильма: film_id -> количество (фильмы без лайков отсутствуют)
+    public Map<Integer, Long> getLikeCounts() {
+        logger.debug("Запрос на получение количества лайков всех фильмов");
+        return findManyMapped(GET_LIKE_COUNTS_QUERY,
+                (rs, rowNum) -> Map.entry(rs.getInt("film_id"), rs.getLong("likes")))
+                .stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+    }
+
+    // Количество лайков фильмов из filmIds одним запросом: film_id -> количество; фильмов без лайков в ответе нет
+    public Map<Integer, Long> getLikeCounts(Collection<Integer> filmIds) {
+        logger.debug("Запрос на получение количества лайков фильмов с film_id = {}", filmIds);
+        if (filmIds.isEmpty()) {
+            return new HashMap<>();
+        }
+        return findManyMapped(GET_LIKE_COUNTS_BY_IDS_QUERY,
+                (rs, rowNum) -> Map.entry(rs.getInt("film_id"), rs.getLong("likes")), toArrayParam(filmIds))
+                .stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+    }
+
+    // Количество лайков фильма
+    public long getLikesCount(int filmId) {
+        logger.debug("Запрос на получение количества лайков фильма с id = {}", filmId);
+        return findManyMapped(GET_LIKES_COUNT_QUERY, (rs, rowNum) -> rs.getLong(1), filmId).getFirst();
+    }
+
+    // Количество лайков каждого фильма, поставленных после since: film_id -> количество
+    public Map<Integer, Long> getLikeCountsSince(Instant since) {
+        logger.debug("Запрос на получение количества лайков фильмов после {}", since);
+        return findManyMapped(GET_LIKE_COUNTS_SINCE_QUERY,
+                (rs, rowNum) -> Map.entry(rs.getInt("film_id"), rs.getLong("likes")), Timestamp.from(since))
+                .stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+    }
+
+    // Связи фильмов с режиссёрами вместе с датой релиза и количеством лайков фильма
+    public List<DirectorFilmEntry> getDirectorFilmEntries() {
+        logger.debug("Запрос на получение фильмографий всех режиссёров");
+        return findManyMapped(GET_DIRECTOR_FILM_ENTRIES_QUERY, this::mapDirectorFilmEntry);
+    }
+
+    public List<DirectorFilmEntry> getDirectorFilmEntries(int filmId) {
+        logger.debug("Запрос на получение режиссёров фильма с id = {}", filmId);
+        return findManyMapped(GET_DIRECTOR_FILM_ENTRIES_BY_FILM_ID_QUERY, this::mapDirectorFilmEntry, filmId);
+    }
+
+    // Лайки пользователя: film_id -> время постановки
+    public Map<Integer, Instant> getLikeTimesByUserId(int userId) {
+        return findManyMapped(GET_LIKE_TIMES_BY_USER_ID_QUERY,
+                (rs, rowNum) -> Map.entry(rs.getInt("film_id"), rs.getTimestamp("created_at").toInstant()), userId)
+                .stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+    }
+
     public List<Film> getRecommendations(int userId) {
         logger.debug("Запросов на получение рекоммендованных фильмов для пользователя с user_id = {}", userId);
         return findMany(GET_RECOMMENDED_FILMS_QUERY, filmResultSetExtractor, userId, userId, userId);
     }
 
-    private String createPlaceholders(int count) {
-        return String.join(",", Collections.nCopies(count, "?"));
+    // Рекомендации без исключения фильмов, которые уже понравились пользователю
+    public List<Film> getRecommendationCandidates(int userId) {
+        logger.debug("Запрос на получение кандидатов в рекомендации для пользователя с user_id = {}", userId);
+        return findMany(GET_RECOMMENDATION_CANDIDATES_QUERY, filmResultSetExtractor, userId, userId);
+    }
+
+    // Фильмы из filmIds, которым пользователь поставил лайк
+    public List<Integer> getLikedFilmIds(int userId, Collection<Integer> filmIds) {
+        logger.debug("Запрос на проверку лайков пользователя с user_id = {} для film_id = {}", userId, filmIds);
+        if (filmIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return findManyInts(GET_LIKED_FILM_IDS_QUERY, userId, toArrayParam(filmIds));
+    }
+
+    public List<FilmLike> getAllLikes() {
+        logger.debug("Запрос на получение всех строк таблицы film_likes");
+        return findManyMapped(GET_ALL_LIKES_QUERY,
+                (rs, rowNum) -> new FilmLike(rs.getInt("film_id"), rs.getInt("user_id")));
+    }
+
+    private DirectorFilmEntry mapDirectorFilmEntry(ResultSet rs, int rowNum) throws SQLException {
+        return new DirectorFilmEntry(
+                rs.getInt("director_id"),
+                rs.getInt("film_id"),
+                rs.getObject("release_date", LocalDate.class),
+                rs.getLong("likes")
+        );
+    }
+
+    // Строка film_summary: жанры и режиссёры хранятся параллельными массивами id и названий
+    private Film mapSummary(ResultSet rs, int rowNum) throws SQLException {
+        Film film = new Film();
+        film.setId(rs.getInt("film_id"));
+        film.setName(rs.getString("name"));
+        film.setDescription(rs.getString("description"));
+        film.setReleaseDate(rs.getObject("release_date", LocalDate.class));
+        film.setDuration(rs.getInt("duration"));
+        film.setVersion(rs.getInt("version"));
+
+        int ratingId = rs.getInt("rating_id");
+        if (!rs.wasNull()) {
+            MpaRating rating = new MpaRating();
+            rating.setId(ratingId);
+            rating.setName(rs.getString("rating_name"));
+            film.setRating(rating);
+        }
+
+        Object[] genreIds = arrayColumn(rs, "genre_ids");
+        Object[] genreNames = arrayColumn(rs, "genre_names");
+        for (int i = 0; i < genreIds.length; i++) {
+            Genre genre = new Genre();
+            genre.setId(((Number) genreIds[i]).intValue());
+            genre.setName((String) genreNames[i]);
+            film.getGenres().add(genre);
+        }
+
+        Object[] directorIds = arrayColumn(rs, "director_ids");
+        Object[] directorNames = arrayColumn(rs, "director_names");
+        for (int i = 0; i < directorIds.length; i++) {
+            Director director = new Director();
+            director.setId(((Number) directorIds[i]).intValue());
+            director.setName((String) directorNames[i]);
+            film.getDirectors().add(director);
+        }
+        return film;
     }
 
-    private static <T> Map<String, List<T>> findDiff(List<T> list1, List<T> list2) {
-        Map<String, List<T>> diff = new HashMap<>();
+    private static Object[] arrayColumn(ResultSet rs, String column) throws SQLException {
+        Array array = rs.getArray(column);
+        return array == null ? new Object[0] : (Object[]) array.getArray();
+    }
+
+    private static BitSet genreIds(Film film) {
+        BitSet ids = new BitSet();
+        film.getGenres().forEach(genre -> ids.set(genre.getId()));
+        return ids;
+    }
 
-        // Добавлено
-        List<T> added = new ArrayList<>(list2);
-        added.removeAll(list1);
+    private static BitSet directorIds(Film film) {
+        BitSet ids = new BitSet();
+        film.getDirectors().forEach(director -> ids.set(director.getId()));
+        return ids;
+    }
 
-        // Удалено
-        List<T> removed = new ArrayList<>(list1);
-        removed.removeAll(list2);
+    private static BitSet toBitSet(List<Integer> ids) {
+        BitSet bitSet = new BitSet();
+        ids.forEach(bitSet::set);
+        return bitSet;
+    }
 
-        diff.put("added", added);
-        diff.put("removed", removed);
+    // Элементы первого множества, отсутствующие во втором
+    private static BitSet difference(BitSet first, BitSet second) {
+        BitSet result = (BitSet) first.clone();
+        result.andNot(second);
+        return result;
+    }
 
-        return diff;
+    // Параметры пакетного запроса: по строке (film_id, id) на каждый id
+    private static List<Object[]> associationRows(int filmId, BitSet ids) {
+        return ids.stream()
+                .mapToObj(id -> new Object[]{filmId, id})
+                .toList();
     }
 }
@@ -8,6 +8,7 @@ import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.model.Genre;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -17,6 +18,7 @@ public class GenreRepository extends BaseRepository<Genre> {
     // Запросы
     private static final String FIND_ALL_QUERY = "SELECT genre_id, name FROM genres";
     private static final String FIND_BY_ID_QUERY = "SELECT genre_id, name FROM genres WHERE genre_id = ?";
+    private static final String FIND_BY_IDS_QUERY = "SELECT genre_id, name FROM genres WHERE genre_id = ANY(?)";
     private static final String FIND_BY_FILM_ID_QUERY = """
             SELECT g.genre_id,
                 g.name
@@ -40,6 +42,11 @@ public class GenreRepository extends BaseRepository<Genre> {
         return findOne(FIND_BY_ID_QUERY, genreId);
     }
 
+    public List<Genre> getByIds(Collection<Integer> genreIds) {
+        logger.debug("Запрос на получение строк таблицы genres с id = {}", genreIds);
+        return findMany(FIND_BY_IDS_QUERY, (Object) toArrayParam(genreIds));
+    }
+
     public List<Genre> getByFilmId(int filmId) {
         logger.debug("Запрос на получение жанров фильма с id = {}", filmId);
         return findMany(FIND_BY_FILM_ID_QUERY, filmId);
@@ -0,0 +1,78 @@
+package ru.yandex.practicum.filmorate.dal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+// Выдаёт идентификаторы новых строк из последовательностей БД.
+// Идентификаторы резервируются блоками одним запросом, поэтому вставка не требует
+// чтения сгенерированного ключа и несколько строк можно записать одним пакетом
+@Component
+public class IdAllocator {
+    private static final Logger logger = LoggerFactory.getLogger(IdAllocator.class);
+    // Один запрос резервирует сразу несколько значений последовательности
+    private static final String RESERVE_QUERY = "SELECT NEXT VALUE FOR %s FROM SYSTEM_RANGE(1, ?)";
+
+    // Последовательности, из которых выдаются идентификаторы
+    public enum Sequence {
+        FILMS("films_seq"),
+        USERS("users_seq"),
+        REVIEWS("reviews_seq"),
+        DIRECTORS("directors_seq");
+
+        private final String sequenceName;
+
+        Sequence(String sequenceName) {
+            this.sequenceName = sequenceName;
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    // Сколько значений резервировать за одно обращение к БД
+    private final int blockSize;
+    // Зарезервированные, но ещё не выданные значения
+    private final Map<Sequence, Deque<Integer>> reserved = new EnumMap<>(Sequence.class);
+
+    @Autowired
+    public IdAllocator(JdbcTemplate jdbcTemplate, @Value("${filmorate.ids.block-size:50}") int blockSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.blockSize = Math.max(blockSize, 1);
+        for (Sequence sequence : Sequence.values()) {
+            reserved.put(sequence, new ArrayDeque<>());
+        }
+    }
+
+    // Выдать один идентификатор
+    public int next(Sequence sequence) {
+        return next(sequence, 1)[0];
+    }
+
+    // Выдать count идентификаторов
+    public int[] next(Sequence sequence, int count) {
+        Deque<Integer> available = reserved.get(sequence);
+        synchronized (available) {
+            if (available.size() < count) {
+                int toReserve = Math.max(blockSize, count - available.size());
+                List<Integer> ids = jdbcTemplate.queryForList(String.format(RESERVE_QUERY, sequence.sequenceName),
+                        Integer.class, toReserve);
+                ids.stream().sorted().forEach(available::addLast);
+                logger.debug("Зарезервировано {} значений последовательности {}", ids.size(), sequence.sequenceName);
+            }
+
+            int[] result = new int[count];
+            for (int i = 0; i < count; i++) {
+                result[i] = available.pollFirst();
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package ru.yandex.practicum.filmorate.dal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.model.LikeBucket;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+// Репозиторий почасовых счётчиков лайков (film_like_buckets)
+@Repository
+public class LikeBucketRepository extends BaseRepository<LikeBucket> {
+    // Запросы
+    private static final String FIND_SINCE_QUERY = "SELECT film_id, bucket_start, likes FROM film_like_buckets " +
+            "WHERE bucket_start >= ?";
+    private static final String FIND_LAST_BUCKET_START_QUERY = "SELECT MAX(bucket_start) FROM film_like_buckets";
+    // Лайки, ещё не сжатые в почасовые счётчики, сгруппированные по минутам
+    private static final String FIND_RAW_SINCE_QUERY = """
+            SELECT
+                film_id,
+                DATE_TRUNC('MINUTE', created_at) AS bucket_start,
+                COUNT(*) AS likes
+            FROM film_likes
+            WHERE created_at >= ?
+            GROUP BY film_id, DATE_TRUNC('MINUTE', created_at)
+            """;
+    // Фильм мог быть удалён после того, как счётчик попал в память: такие строки пропускаются
+    private static final String MERGE_QUERY = "MERGE INTO film_like_buckets(film_id, bucket_start, likes) " +
+            "KEY(film_id, bucket_start) SELECT film_id, ?, ? FROM films WHERE film_id = ? AND deleted_at IS NULL";
+    private static final String DELETE_OLDER_THAN_QUERY = "DELETE FROM film_like_buckets WHERE bucket_start < ?";
+
+    private static final Logger logger = LoggerFactory.getLogger(LikeBucketRepository.class);
+
+    @Autowired
+    public LikeBucketRepository(JdbcTemplate jdbcTemplate, RowMapper<LikeBucket> rowMapper) {
+        super(jdbcTemplate, rowMapper);
+    }
+
+    public List<LikeBucket> getSince(Instant since) {
+        logger.debug("Запрос на получение почасовых счётчиков лайков начиная с {}", since);
+        return findMany(FIND_SINCE_QUERY, Timestamp.from(since));
+    }
+
+    public List<LikeBucket> getRawSince(Instant since) {
+        logger.debug("Запрос на получение поминутных счётчиков лайков начиная с {}", since);
+        return findMany(FIND_RAW_SINCE_QUERY, Timestamp.from(since));
+    }
+
+    // Начало последнего сохранённого часа: все лайки до его конца уже сжаты
+    public Optional<Instant> getLastBucketStart() {
+        return findManyMapped(FIND_LAST_BUCKET_START_QUERY, (rs, rowNum) -> rs.getTimestamp(1)).stream()
+                .filter(Objects::nonNull)
+                .map(Timestamp::toInstant)
+                .findFirst();
+    }
+
+    public void saveAll(List<LikeBucket> buckets) {
+        logger.debug("Запрос на сохранение {} почасовых счётчиков лайков", buckets.size());
+        batchUpdate(MERGE_QUERY, buckets.stream()
+                .map(bucket -> new Object[]{Timestamp.from(bucket.getBucketStart()), bucket.getLikes(),
+                        bucket.getFilmId()})
+                .toList());
+    }
+
+    public void removeOlderThan(Instant threshold) {
+        logger.debug("Запрос на удаление почасовых счётчиков лайков старше {}", threshold);
+        update(DELETE_OLDER_THAN_QUERY, Timestamp.from(threshold));
+    }
+}
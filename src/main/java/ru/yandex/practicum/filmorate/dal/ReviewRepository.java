@@ -1,28 +1,149 @@
 package ru.yandex.practicum.filmorate.dal;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.dal.mappers.ReviewRowMapper;
+import ru.yandex.practicum.filmorate.exception.ConflictException;
 import ru.yandex.practicum.filmorate.model.Review;
+import ru.yandex.practicum.filmorate.model.ReviewReaction;
+import ru.yandex.practicum.filmorate.model.ReviewSort;
+import ru.yandex.practicum.filmorate.model.ReviewView;
+import ru.yandex.practicum.filmorate.util.DeflateUtils;
+import ru.yandex.practicum.filmorate.util.ReviewScore;
 
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Slf4j
 @Repository
 public class ReviewRepository extends BaseRepository<Review> {
+    // Запросы
+    // Длина начала текста для списков; совпадает с размером столбца content_preview
+    public static final int PREVIEW_LENGTH = 200;
 
-    public ReviewRepository(JdbcTemplate jdbcTemplate, ReviewRowMapper rowMapper) {
+    private static final String INSERT_QUERY = "INSERT INTO reviews (review_id, content, content_deflated, " +
+            "content_preview, content_length, is_positive, user_id, film_id, useful, created_at, score) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, 0, ?, ?)";
+    // Столбцы для каждого представления; текст сжатого отзыва распаковывается только в полном
+    private static final String FULL_COLUMNS_FRAGMENT = "review_id, content, content_deflated, content_length, " +
+            "is_positive, user_id, film_id, useful, version";
+    private static final String PREVIEW_COLUMNS_FRAGMENT = "review_id, COALESCE(LEFT(content, " + PREVIEW_LENGTH +
+            "), content_preview) AS content, NULL AS content_deflated, content_length, is_positive, user_id, film_id, " +
+            "useful, version";
+    private static final String SUMMARY_COLUMNS_FRAGMENT = "review_id, NULL AS content, NULL AS content_deflated, " +
+            "content_length, is_positive, user_id, film_id, useful, version";
+    private static final String FIND_BY_ID_QUERY = "SELECT " + FULL_COLUMNS_FRAGMENT +
+            " FROM reviews WHERE review_id = ?";
+    private static final String FIND_ALL_QUERY = "SELECT " + FULL_COLUMNS_FRAGMENT +
+            " FROM reviews ORDER BY useful DESC LIMIT ?";
+    private static final String FIND_ALL_PREVIEWS_QUERY = "SELECT " + PREVIEW_COLUMNS_FRAGMENT +
+            " FROM reviews ORDER BY useful DESC LIMIT ?";
+    private static final String FIND_ALL_SUMMARIES_QUERY = "SELECT " + SUMMARY_COLUMNS_FRAGMENT +
+            " FROM reviews ORDER BY useful DESC LIMIT ?";
+    private static final String FIND_BY_FILM_ID_QUERY = "SELECT " + FULL_COLUMNS_FRAGMENT +
+            " FROM reviews WHERE film_id = ? ORDER BY useful DESC LIMIT ?";
+    private static final String FIND_PREVIEWS_BY_FILM_ID_QUERY = "SELECT " + PREVIEW_COLUMNS_FRAGMENT +
+            " FROM reviews WHERE film_id = ? ORDER BY useful DESC LIMIT ?";
+    private static final String FIND_SUMMARIES_BY_FILM_ID_QUERY = "SELECT " + SUMMARY_COLUMNS_FRAGMENT +
+            " FROM reviews WHERE film_id = ? ORDER BY useful DESC LIMIT ?";
+    // Сортировка best читается по индексам idx_reviews_score и idx_reviews_film_score
+    private static final String FIND_ALL_BEST_QUERY = "SELECT " + FULL_COLUMNS_FRAGMENT +
+            " FROM reviews ORDER BY score DESC LIMIT ?";
+    private static final String FIND_ALL_BEST_PREVIEWS_QUERY = "SELECT " + PREVIEW_COLUMNS_FRAGMENT +
+            " FROM reviews ORDER BY score DESC LIMIT ?";
+    private static final String FIND_ALL_BEST_SUMMARIES_QUERY = "SELECT " + SUMMARY_COLUMNS_FRAGMENT +
+            " FROM reviews ORDER BY score DESC LIMIT ?";
+    private static final String FIND_BEST_BY_FILM_ID_QUERY = "SELECT " + FULL_COLUMNS_FRAGMENT +
+            " FROM reviews WHERE film_id = ? ORDER BY score DESC LIMIT ?";
+    private static final String FIND_BEST_PREVIEWS_BY_FILM_ID_QUERY = "SELECT " + PREVIEW_COLUMNS_FRAGMENT +
+            " FROM reviews WHERE film_id = ? ORDER BY score DESC LIMIT ?";
+    private static final String FIND_BEST_SUMMARIES_BY_FILM_ID_QUERY = "SELECT " + SUMMARY_COLUMNS_FRAGMENT +
+            " FROM reviews WHERE film_id = ? ORDER BY score DESC LIMIT ?";
+    private static final String FIND_EXISTING_IDS_QUERY = "SELECT review_id FROM reviews WHERE review_id = ANY(?)";
+    // Строка изменяется, только если её версия совпадает с прочитанной; иначе не изменяется ни одна строка
+    private static final String UPDATE_QUERY = "UPDATE reviews SET content = ?, content_deflated = ?, " +
+            "content_preview = ?, content_length = ?, is_positive = ?, version = version + 1 " +
+            "WHERE review_id = ? AND version = ?";
+    private static final String DELETE_QUERY = "DELETE FROM reviews WHERE review_id = ?";
+    private static final String FIND_REACTION_QUERY = "SELECT CASE WHEN is_positive THEN 1 ELSE 0 END AS val " +
+            "FROM review_likes WHERE review_id = ? AND user_id = ?";
+    private static final String INSERT_REACTION_QUERY = "INSERT INTO review_likes (review_id, user_id, is_positive) " +
+            "VALUES (?, ?, ?)";
+    private static final String UPDATE_REACTION_QUERY = "UPDATE review_likes SET is_positive = ? " +
+            "WHERE review_id = ? AND user_id = ?";
+    private static final String DELETE_REACTION_QUERY = "DELETE FROM review_likes WHERE review_id = ? AND user_id = ?";
+    private static final String UPDATE_USEFUL_QUERY = "UPDATE reviews SET useful = useful + ? WHERE review_id = ?";
+    private static final String APPEND_REACTION_QUERY = "INSERT INTO review_reactions_log (review_id, user_id, reaction) " +
+            "VALUES (?, ?, ?)";
+    // Сжатие читает журнал с начала пачками
+    private static final String FIND_LOGGED_REACTIONS_QUERY = "SELECT seq, review_id, user_id, reaction " +
+            "FROM review_reactions_log ORDER BY seq LIMIT ?";
+    private static final String DELETE_LOGGED_REACTIONS_QUERY = "DELETE FROM review_reactions_log WHERE seq = ANY(?)";
+    private static final String DELETE_USER_LOGGED_REACTIONS_QUERY = "DELETE FROM review_reactions_log WHERE user_id = ?";
+    private static final String MERGE_REACTION_QUERY = "MERGE INTO review_likes (review_id, user_id, is_positive) " +
+            "KEY (review_id, user_id) VALUES (?, ?, ?)";
+    private static final String USEFUL_FRAGMENT = "(SELECT COALESCE(SUM(CASE WHEN l.is_positive THEN 1 ELSE -1 END), 0) " +
+            "FROM review_likes l WHERE l.review_id = r.review_id)";
+    private static final String RECOMPUTE_USEFUL_QUERY = "UPDATE reviews r SET useful = " + USEFUL_FRAGMENT +
+            " WHERE r.review_id = ?";
+    // Число лайков и дизлайков отзывов для пересчёта оценки
+    private static final String FIND_REACTION_COUNTS_QUERY = """
+            SELECT r.review_id, r.created_at,
+                COUNT(CASE WHEN l.is_positive THEN 1 END) AS likes,
+                COUNT(CASE WHEN NOT l.is_positive THEN 1 END) AS dislikes
+            FROM reviews r
+            LEFT JOIN review_likes l ON l.review_id = r.review_id
+            WHERE r.review_id = ANY(?)
+            GROUP BY r.review_id, r.created_at
+            """;
+    private static final String UPDATE_SCORE_QUERY = "UPDATE reviews SET score = ? WHERE review_id = ?";
+    private static final String FIND_USEFUL_DRIFT_QUERY = "SELECT r.review_id FROM reviews r WHERE r.useful <> " +
+            USEFUL_FRAGMENT;
+    private static final String FIND_USER_REACTED_QUERY = "SELECT review_id FROM review_likes WHERE user_id = ?";
+
+    // Выдача идентификаторов новых отзывов
+    private final IdAllocator idAllocator;
+    // Счётчики каталога по жанрам, рейтингам и режиссёрам
+    private final CatalogueCounterRepository catalogueCounterRepository;
+    // Текст длиннее стольких байт UTF-8 хранится сжатым
+    private final int compressionThreshold;
+    // Период полураспада оценки отзыва для сортировки best
+    private final Duration scoreHalfLife;
+
+    public ReviewRepository(JdbcTemplate jdbcTemplate, ReviewRowMapper rowMapper, IdAllocator idAllocator,
+                            CatalogueCounterRepository catalogueCounterRepository,
+                            @Value("${filmorate.reviews.compression-threshold:1024}") int compressionThreshold,
+                            @Value("${filmorate.reviews.score-half-life-hours:168}") long scoreHalfLifeHours) {
         super(jdbcTemplate, rowMapper);
+        this.idAllocator = idAllocator;
+        this.catalogueCounterRepository = catalogueCounterRepository;
+        this.compressionThreshold = compressionThreshold;
+        this.scoreHalfLife = Duration.ofHours(scoreHalfLifeHours);
     }
 
     // Создание нового отзыва. Поле useful при создании равно 0
     public Review create(Review review) {
         log.debug("Создание отзыва: filmId={}, userId={}", review.getFilmId(), review.getUserId());
-        String sql = "INSERT INTO reviews (content, is_positive, user_id, film_id, useful) VALUES (?, ?, ?, ?, 0)";
-        int id = insert(sql, review.getContent(), review.getIsPositive(), review.getUserId(), review.getFilmId());
+        int id = idAllocator.next(IdAllocator.Sequence.REVIEWS);
+        Object[] content = contentColumns(review.getContent());
+        Instant createdAt = Instant.now();
+        insertWithoutKey(INSERT_QUERY, id, content[0], content[1], content[2], content[3],
+                review.getIsPositive(), review.getUserId(), review.getFilmId(), Timestamp.from(createdAt),
+                ReviewScore.compute(0, 0, createdAt, scoreHalfLife));
+        catalogueCounterRepository.adjustReviews(review.getFilmId(), 1);
         review.setReviewId(id);
+        review.setContentLength(review.getContent().length());
         review.setUseful(0);
         return review;
     }
@@ -30,35 +151,77 @@ public class ReviewRepository extends BaseRepository<Review> {
     // Получение отзыва по идентификатору
     public Optional<Review> findById(int id) {
         log.debug("Запрос на получение строки таблицы reviews с id = {}", id);
-        String sql = "SELECT review_id, content, is_positive, user_id, film_id, useful FROM reviews WHERE review_id = ?";
-        return findOne(sql, id);
+        return findOne(FIND_BY_ID_QUERY, id);
     }
 
     // Получение списка отзывов
     public List<Review> findAllByFilm(Integer filmId, int count) {
-        log.debug("Запрос на получение строк ({}) таблицы reviews для film_id = {}", count, filmId);
-        String base = "SELECT review_id, content, is_positive, user_id, film_id, useful FROM reviews";
+        return findAllByFilm(filmId, count, ReviewView.FULL);
+    }
+
+    // Получение списка отзывов в представлении view: для PREVIEW и SUMMARY полный текст не читается
+    public List<Review> findAllByFilm(Integer filmId, int count, ReviewView view) {
+        return findAllByFilm(filmId, count, view, ReviewSort.USEFUL);
+    }
+
+    public List<Review> findAllByFilm(Integer filmId, int count, ReviewView view, ReviewSort sort) {
+        log.debug("Запрос на получение строк ({}) таблицы reviews для film_id = {}, представление {}, порядок {}",
+                count, filmId, view, sort);
+        if (sort == ReviewSort.BEST) {
+            return findBest(filmId, count, view);
+        }
         if (filmId != null) {
-            base += " WHERE film_id = ? ORDER BY useful DESC LIMIT ?";
-            return findMany(base, filmId, count);
-        } else {
-            base += " ORDER BY useful DESC LIMIT ?";
-            return findMany(base, count);
+            return switch (view) {
+                case FULL -> findMany(FIND_BY_FILM_ID_QUERY, filmId, count);
+                case PREVIEW -> findMany(FIND_PREVIEWS_BY_FILM_ID_QUERY, filmId, count);
+                case SUMMARY -> findMany(FIND_SUMMARIES_BY_FILM_ID_QUERY, filmId, count);
+            };
+        }
+        return switch (view) {
+            case FULL -> findMany(FIND_ALL_QUERY, count);
+            case PREVIEW -> findMany(FIND_ALL_PREVIEWS_QUERY, count);
+            case SUMMARY -> findMany(FIND_ALL_SUMMARIES_QUERY, count);
+        };
+    }
+
+    private List<Review> findBest(Integer filmId, int count, ReviewView view) {
+        if (filmId != null) {
+            return switch (view) {
+                case FULL -> findMany(FIND_BEST_BY_FILM_ID_QUERY, filmId, count);
+                case PREVIEW -> findMany(FIND_BEST_PREVIEWS_BY_FILM_ID_QUERY, filmId, count);
+                case SUMMARY -> findMany(FIND_BEST_SUMMARIES_BY_FILM_ID_QUERY, filmId, count);
+            };
         }
+        return switch (view) {
+            case FULL -> findMany(FIND_ALL_BEST_QUERY, count);
+            case PREVIEW -> findMany(FIND_ALL_BEST_PREVIEWS_QUERY, count);
+            case SUMMARY -> findMany(FIND_ALL_BEST_SUMMARIES_QUERY, count);
+        };
+    }
+
+    // Какие из отзывов reviewIds существуют
+    public List<Integer> findExistingIds(Collection<Integer> reviewIds) {
+        log.debug("Запрос на проверку существования отзывов: {} шт.", reviewIds.size());
+        return findManyInts(FIND_EXISTING_IDS_QUERY, (Object) toArrayParam(reviewIds));
     }
 
     // Обновление содержания и знака отзыва
     public Review update(Review review) {
         log.debug("Обновление отзыва id={}", review.getReviewId());
-        String sql = "UPDATE reviews SET content = ?, is_positive = ? WHERE review_id = ?";
-        update(sql, review.getContent(), review.getIsPositive(), review.getReviewId());
+        Object[] content = contentColumns(review.getContent());
+        int updated = update(UPDATE_QUERY, content[0], content[1], content[2], content[3], review.getIsPositive(),
+                review.getReviewId(), review.getVersion());
+        if (updated == 0) {
+            throw new ConflictException("Отзыв с id = " + review.getReviewId() + " изменён другим запросом");
+        }
         return findById(review.getReviewId()).orElseThrow();
     }
 
     // Удаление отзыва по идентификатору
     public void delete(int id) {
         log.debug("Удаление отзыва id={}", id);
-        update("DELETE FROM reviews WHERE review_id = ?", id);
+        findById(id).ifPresent(review -> catalogueCounterRepository.adjustReviews(review.getFilmId(), -1));
+        update(DELETE_QUERY, id);
     }
 
     // Постановка лайка полезности отзыву
@@ -81,49 +244,163 @@ public class ReviewRepository extends BaseRepository<Review> {
         removeReaction(reviewId, userId, false);
     }
 
+    // Текущая реакция пользователя на отзыв по review_likes: 1 — лайк, -1 — дизлайк, 0 — реакции нет
+    public int getReaction(int reviewId, int userId) {
+        List<Integer> res = findManyInts(FIND_REACTION_QUERY, reviewId, userId);
+        if (res.isEmpty()) {
+            return 0;
+        }
+        return res.getFirst() == 1 ? 1 : -1;
+    }
+
+    // Добавить запись в журнал реакций; возвращает её номер
+    public int appendReaction(int reviewId, int userId, int reaction) {
+        log.debug("Запись в журнал реакций: reviewId={}, userId={}, reaction={}", reviewId, userId, reaction);
+        return insert(APPEND_REACTION_QUERY, reviewId, userId, reaction);
+    }
+
+    // Добавить пачку записей в журнал реакций
+    public void appendReactions(List<ReviewReaction> reactions) {
+        log.debug("Запись в журнал реакций пачки из {} реакций", reactions.size());
+        batchUpdate(APPEND_REACTION_QUERY, reactions.stream()
+                .map(reaction -> new Object[]{reaction.reviewId(), reaction.userId(), reaction.reaction()})
+                .toList());
+    }
+
+    // Сжать до limit первых записей журнала: последнее состояние каждой пары (отзыв, пользователь)
+    // переносится в review_likes, useful затронутых отзывов пересчитывается по review_likes,
+    // перенесённые записи удаляются. Возвращает сжатые записи
+    public List<ReviewReaction> compactReactions(int limit) {
+        List<ReviewReaction> entries = findManyMapped(FIND_LOGGED_REACTIONS_QUERY,
+                (rs, rowNum) -> new ReviewReaction(rs.getInt("seq"), rs.getInt("review_id"),
+                        rs.getInt("user_id"), rs.getInt("reaction")), limit);
+        if (entries.isEmpty()) {
+            return entries;
+        }
+
+        applyReactions(entries);
+        update(DELETE_LOGGED_REACTIONS_QUERY, (Object) toArrayParam(entries.stream().map(ReviewReaction::seq).toList()));
+
+        log.debug("Сжато записей журнала реакций: {}", entries.size());
+        return entries;
+    }
+
+    // Удалить несжатые записи журнала реакций пользователя
+    public int deleteLoggedReactionsByUser(int userId) {
+        log.debug("Запрос на удаление записей журнала реакций пользователя с id = {}", userId);
+        return update(DELETE_USER_LOGGED_REACTIONS_QUERY, userId);
+    }
+
+    // Записать реакции в review_likes пакетными запросами и пересчитать useful и оценку каждого затронутого
+    // отзыва. Реакции применяются по возрастанию seq, для пары остаётся последняя
+    public void applyReactions(List<ReviewReaction> reactions) {
+        log.debug("Применение пачки из {} реакций на отзывы", reactions.size());
+        Map<List<Integer>, Integer> latest = new LinkedHashMap<>();
+        reactions.stream()
+                .sorted(Comparator.comparingInt(ReviewReaction::seq))
+                .forEach(entry -> latest.put(List.of(entry.reviewId(), entry.userId()), entry.reaction()));
+
+        List<Object[]> merged = new ArrayList<>();
+        List<Object[]> removed = new ArrayList<>();
+        latest.forEach((pair, reaction) -> {
+            if (reaction == 0) {
+                removed.add(new Object[]{pair.get(0), pair.get(1)});
+            } else {
+                merged.add(new Object[]{pair.get(0), pair.get(1), reaction > 0});
+            }
+        });
+        batchUpdate(MERGE_REACTION_QUERY, merged);
+        batchUpdate(DELETE_REACTION_QUERY, removed);
+        recompute(latest.keySet().stream()
+                .map(pair -> pair.get(0))
+                .distinct()
+                .toList());
+    }
+
+    // Пересчитать useful и оценку отзывов по review_likes
+    public void recompute(Collection<Integer> reviewIds) {
+        batchUpdate(RECOMPUTE_USEFUL_QUERY, reviewIds.stream()
+                .map(reviewId -> new Object[]{reviewId})
+                .toList());
+        recomputeScores(reviewIds);
+    }
+
+    // Пересчитать оценку отзывов для сортировки best по review_likes
+    public void recomputeScores(Collection<Integer> reviewIds) {
+        if (reviewIds.isEmpty()) {
+            return;
+        }
+        log.debug("Пересчёт оценки отзывов: {} шт.", reviewIds.size());
+        List<Object[]> scores = findManyMapped(FIND_REACTION_COUNTS_QUERY, (rs, rowNum) -> new Object[]{
+                ReviewScore.compute(rs.getLong("likes"), rs.getLong("dislikes"),
+                        rs.getTimestamp("created_at").toInstant(), scoreHalfLife),
+                rs.getInt("review_id")
+        }, (Object) toArrayParam(reviewIds));
+        batchUpdate(UPDATE_SCORE_QUERY, scores);
+    }
+
+    // Пересчитать useful и оценку всех отзывов, расходящихся с review_likes; возвращает число исправленных отзывов
+    public int reconcileUseful() {
+        log.debug("Сверка useful отзывов с review_likes");
+        List<Integer> reviewIds = findManyInts(FIND_USEFUL_DRIFT_QUERY);
+        recompute(reviewIds);
+        return reviewIds.size();
+    }
+
+    // Отзывы, на которые реагировал пользователь
+    public List<Integer> getReactedReviewIds(int userId) {
+        log.debug("Запрос на получение отзывов с реакциями пользователя с id = {}", userId);
+        return findManyInts(FIND_USER_REACTED_QUERY, userId);
+    }
+
+    // Значения content, content_deflated, content_preview и content_length для текста отзыва
+    private Object[] contentColumns(String content) {
+        if (content.getBytes(StandardCharsets.UTF_8).length <= compressionThreshold) {
+            return new Object[]{content, null, null, content.length()};
+        }
+        return new Object[]{null, DeflateUtils.compress(content),
+                content.substring(0, Math.min(content.length(), PREVIEW_LENGTH)), content.length()};
+    }
+
     // Внутренний метод: применяет реакцию пользователя
     private void applyReaction(int reviewId, int userId, boolean positive) {
         // 1 — лайк, 0 — дизлайк
-        String q = "SELECT CASE WHEN is_positive THEN 1 ELSE 0 END AS val " +
-                "FROM review_likes WHERE review_id = ? AND user_id = ?";
-        List<Integer> res = findManyInts(q, reviewId, userId);
+        List<Integer> res = findManyInts(FIND_REACTION_QUERY, reviewId, userId);
         Integer existing = res.isEmpty() ? null : res.get(0);
 
         int delta;
         if (existing == null) {
             // реакции ещё не было — вставляем новую
-            update("INSERT INTO review_likes (review_id, user_id, is_positive) VALUES (?, ?, ?)",
-                    reviewId, userId, positive);
+            update(INSERT_REACTION_QUERY, reviewId, userId, positive);
             delta = positive ? 1 : -1;
         } else if ((existing == 1) == positive) {
             // уже стоит такая же реакция — ничего не меняется
             return;
         } else {
             // меняем реакцию на противоположную
-            update("UPDATE review_likes SET is_positive = ? WHERE review_id = ? AND user_id = ?",
-                    positive, reviewId, userId);
+            update(UPDATE_REACTION_QUERY, positive, reviewId, userId);
             // переключение с -1 на +1 (или обратно) меняет суммарно на 2
             delta = positive ? 2 : -2;
         }
 
-        // Корректируем рейтинг полезности
-        update("UPDATE reviews SET useful = useful + ? WHERE review_id = ?", delta, reviewId);
+        // Корректируем рейтинг полезности и оценку
+        update(UPDATE_USEFUL_QUERY, delta, reviewId);
+        recomputeScores(List.of(reviewId));
     }
 
     // Внутренний метод: удаляет реакцию и откатывает useful
     private void removeReaction(int reviewId, int userId, boolean positive) {
-        String q = "SELECT CASE WHEN is_positive THEN 1 ELSE 0 END AS val " +
-                "FROM review_likes WHERE review_id = ? AND user_id = ?";
-        List<Integer> res = findManyInts(q, reviewId, userId);
+        List<Integer> res = findManyInts(FIND_REACTION_QUERY, reviewId, userId);
         Integer existing = res.isEmpty() ? null : res.get(0);
 
         if (existing == null) {
             return; // нечего удалять
         }
         if ((existing == 1) == positive) {
-            update("DELETE FROM review_likes WHERE review_id = ? AND user_id = ?", reviewId, userId);
+            update(DELETE_REACTION_QUERY, reviewId, userId);
             int delta = positive ? -1 : 1;
-            update("UPDATE reviews SET useful = useful + ? WHERE review_id = ?", delta, reviewId);
+            update(UPDATE_USEFUL_QUERY, delta, reviewId);
+            recomputeScores(List.of(reviewId));
         }
     }
 }
@@ -0,0 +1,39 @@
+package ru.yandex.practicum.filmorate.dal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.model.SketchSnapshot;
+
+import java.sql.Timestamp;
+import java.util.Optional;
+
+// Репозиторий снимков вероятностных структур (sketch_snapshots)
+@Repository
+public class SketchSnapshotRepository extends BaseRepository<SketchSnapshot> {
+    // Запросы
+    private static final String FIND_BY_NAME_QUERY = "SELECT name, created_at, data FROM sketch_snapshots " +
+            "WHERE name = ?";
+    private static final String MERGE_QUERY = "MERGE INTO sketch_snapshots(name, created_at, data) KEY(name) " +
+            "VALUES(?, ?, ?)";
+
+    private static final Logger logger = LoggerFactory.getLogger(SketchSnapshotRepository.class);
+
+    @Autowired
+    public SketchSnapshotRepository(JdbcTemplate jdbcTemplate, RowMapper<SketchSnapshot> rowMapper) {
+        super(jdbcTemplate, rowMapper);
+    }
+
+    public Optional<SketchSnapshot> getByName(String name) {
+        logger.debug("Запрос на получение снимка {}", name);
+        return findOne(FIND_BY_NAME_QUERY, name);
+    }
+
+    public void save(SketchSnapshot snapshot) {
+        logger.debug("Запрос на сохранение снимка {} ({} байт)", snapshot.getName(), snapshot.getData().length);
+        insertWithoutKey(MERGE_QUERY, snapshot.getName(), Timestamp.from(snapshot.getCreatedAt()), snapshot.getData());
+    }
+}
@@ -6,8 +6,10 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.exception.ConflictException;
 import ru.yandex.practicum.filmorate.model.User;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -21,7 +23,9 @@ public class UserRepository extends BaseRepository<User> {
                 login,
                 name,
                 birthday,
+                version
             FROM users
+            WHERE deleted_at IS NULL
             """;
     private static final String FIND_BY_ID_QUERY = """
             SELECT user_id,
@@ -29,40 +33,55 @@ public class UserRepository extends BaseRepository<User> {
                 login,
                 name,
                 birthday,
+                version
             FROM users
-            WHERE user_id = ?
+            WHERE user_id = ? AND deleted_at IS NULL
             """;
+    // Электронная почта удалённого пользователя остаётся занятой, пока его строка не удалена
     private static final String FIND_BY_EMAIL_QUERY = """
             SELECT user_id,
                 email,
                 login,
                 name,
                 birthday,
+                version
             FROM users
             WHERE email = ?
             """;
     private static final String INSERT_QUERY = "INSERT INTO users" +
-            "(email, login, name, birthday) VALUES (?, ?, ?, ?)";
+            "(user_id, email, login, name, birthday) VALUES (?, ?, ?, ?, ?)";
+    // Строка изменяется, только если её версия совпадает с прочитанной; иначе не изменяется ни одна строка
     private static final String UPDATE_QUERY = "UPDATE users " +
-            "SET email = ?, login = ?, name = ?, birthday = ? WHERE user_id = ?";
+            "SET email = ?, login = ?, name = ?, birthday = ?, version = version + 1 " +
+            "WHERE user_id = ? AND version = ? AND deleted_at IS NULL";
     private static final String FIND_FRIENDS_QUERY = """
             SELECT u.user_id,
                 u.email,
                 u.login,
                 u.name,
-                u.birthday
+                u.birthday,
+                u.version
             FROM friendships AS f JOIN users AS u ON f.friend_id = u.user_id
-            WHERE f.user_id = ?
+            WHERE f.user_id = ? AND u.deleted_at IS NULL
             """;
     private static final String INSERT_INTO_FRIENDSHIPS_QUERY = "INSERT INTO friendships(user_id, friend_id, status) " +
             "VALUES(?, ?, true)";
     private static final String DELETE_FROM_FRIENDSHIPS_QUERY = "DELETE FROM friendships " +
             "WHERE user_id = ? AND friend_id = ?";
     private static final String DELETE_USER_QUERY = "DELETE FROM users WHERE user_id = ?";
+    private static final String FIND_EXISTING_IDS_QUERY = "SELECT user_id FROM users " +
+            "WHERE user_id = ANY(?) AND deleted_at IS NULL";
+    // Удалённый пользователь скрывается из чтения сразу, строка удаляется после зависимых строк
+    private static final String TOMBSTONE_USER_QUERY = "UPDATE users SET deleted_at = LOCALTIMESTAMP " +
+            "WHERE user_id = ? AND deleted_at IS NULL";
+
+    // Выдача идентификаторов новых пользователей
+    private final IdAllocator idAllocator;
 
     @Autowired
-    public UserRepository(JdbcTemplate jdbcTemplate, RowMapper<User> rowMapper) {
+    public UserRepository(JdbcTemplate jdbcTemplate, RowMapper<User> rowMapper, IdAllocator idAllocator) {
         super(jdbcTemplate, rowMapper);
+        this.idAllocator = idAllocator;
     }
 
     public List<User> getAll() {
@@ -75,6 +94,12 @@ public class UserRepository extends BaseRepository<User> {
         return findOne(FIND_BY_ID_QUERY, userId);
     }
 
+    // Какие из пользователей userIds существуют
+    public List<Integer> getExistingIds(Collection<Integer> userIds) {
+        logger.debug("Запрос на проверку существования пользователей: {} шт.", userIds.size());
+        return findManyInts(FIND_EXISTING_IDS_QUERY, (Object) toArrayParam(userIds));
+    }
+
     public Optional<User> getByEmail(String email) {
         logger.debug("Запрос на получение строки таблицы users с email = {}", email);
         return findOne(FIND_BY_EMAIL_QUERY, email);
@@ -82,7 +107,9 @@ public class UserRepository extends BaseRepository<User> {
 
     public User create(User user) {
         logger.debug("Запрос на вставку в таблицу users");
-        int id = insert(INSERT_QUERY,
+        int id = idAllocator.next(IdAllocator.Sequence.USERS);
+        insertWithoutKey(INSERT_QUERY,
+                id,
                 user.getEmail(),
                 user.getLogin(),
                 user.getName(),
@@ -97,15 +124,20 @@ public class UserRepository extends BaseRepository<User> {
 
     public User update(User user) {
         logger.debug("Запрос на обновление строки в таблице users с id = {}", user.getId());
-        update(UPDATE_QUERY,
+        int updated = update(UPDATE_QUERY,
                 user.getEmail(),
                 user.getLogin(),
                 user.getName(),
                 user.getBirthday(),
-                user.getId()
+                user.getId(),
+                user.getVersion()
         );
+        if (updated == 0) {
+            throw new ConflictException("Пользователь с id = " + user.getId() + " изменён другим запросом");
+        }
+        user.setVersion(user.getVersion() + 1);
 
-        logger.debug("Обновлена строка в таблице users с id = {}", user.getId());
+        logger.debug("Обновлена строка в таблице users с id = {}, версия {}", user.getId(), user.getVersion());
         return user;
     }
 
@@ -130,4 +162,10 @@ public class UserRepository extends BaseRepository<User> {
         logger.debug("Запрос на удаление пользователя с user_id = {}", userId);
         update(DELETE_USER_QUERY, userId);
     }
+
+    // Скрыть пользователя до фонового удаления
+    public void tombstoneUser(int userId) {
+        logger.debug("Запрос на пометку пользователя с user_id = {} удалённым", userId);
+        update(TOMBSTONE_USER_QUERY, userId);
+    }
 }
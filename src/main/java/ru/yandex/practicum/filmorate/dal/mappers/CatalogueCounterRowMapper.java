@@ -0,0 +1,24 @@
+package ru.yandex.practicum.filmorate.dal.mappers;
+
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.CatalogueCounter;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+// RowMapper для класса CatalogueCounter
+@Component
+public class CatalogueCounterRowMapper implements RowMapper<CatalogueCounter> {
+    @Override
+    public CatalogueCounter mapRow(ResultSet rs, int rowNum) throws SQLException {
+        return new CatalogueCounter(
+                CatalogueCounter.Dimension.valueOf(rs.getString("dimension")),
+                rs.getInt("item_id"),
+                rs.getString("name"),
+                rs.getLong("films"),
+                rs.getLong("likes"),
+                rs.getLong("reviews")
+        );
+    }
+}
@@ -0,0 +1,28 @@
+package ru.yandex.practicum.filmorate.dal.mappers;
+
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.DeletionJob;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+// RowMapper для класса DeletionJob
+@Component
+public class DeletionJobRowMapper implements RowMapper<DeletionJob> {
+    @Override
+    public DeletionJob mapRow(ResultSet rs, int rowNum) throws SQLException {
+        Timestamp finishedAt = rs.getTimestamp("finished_at");
+        return new DeletionJob(
+                rs.getInt("job_id"),
+                DeletionJob.Entity.valueOf(rs.getString("entity")),
+                rs.getInt("entity_id"),
+                DeletionJob.Status.valueOf(rs.getString("status")),
+                rs.getString("step"),
+                rs.getLong("deleted_rows"),
+                rs.getTimestamp("created_at").toInstant(),
+                finishedAt != null ? finishedAt.toInstant() : null
+        );
+    }
+}
@@ -33,6 +33,7 @@ public class FilmResultSetExtractor implements ResultSetExtractor<List<Film>> {
         boolean hasRatingId = columns.contains("rating_id");
         boolean hasRatingName = columns.contains("rating_name");
         boolean hasReleaseDate = columns.contains("film_release_date");
+        boolean hasVersion = columns.contains("film_version");
 
         while (resultSet.next()) {
             Integer filmId = resultSet.getInt("film_id");
@@ -60,6 +61,11 @@ public class FilmResultSetExtractor implements ResultSetExtractor<List<Film>> {
                 } catch (SQLException ignored) {
                 }
 
+                // Версия строки есть не во всех запросах: её читает запрос фильма по id
+                if (hasVersion) {
+                    film.setVersion(resultSet.getInt("film_version"));
+                }
+
                 // Устанавливаем рейтинг, если есть
                 if (hasRatingId) {
                     int ratingId = resultSet.getInt("rating_id");
@@ -0,0 +1,21 @@
+package ru.yandex.practicum.filmorate.dal.mappers;
+
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.LikeBucket;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+// Имплементация RowMapper для LikeBucket
+@Component
+public class LikeBucketRowMapper implements RowMapper<LikeBucket> {
+    @Override
+    public LikeBucket mapRow(ResultSet rs, int rowNum) throws SQLException {
+        return new LikeBucket(
+                rs.getInt("film_id"),
+                rs.getTimestamp("bucket_start").toInstant(),
+                rs.getInt("likes")
+        );
+    }
+}
@@ -3,6 +3,7 @@ package ru.yandex.practicum.filmorate.dal.mappers;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.model.Review;
+import ru.yandex.practicum.filmorate.util.DeflateUtils;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -16,11 +17,15 @@ public class ReviewRowMapper implements RowMapper<Review> {
     public Review mapRow(ResultSet rs, int rowNum) throws SQLException {
         Review review = new Review();
         review.setReviewId(rs.getInt("review_id"));
-        review.setContent(rs.getString("content"));
+        String content = rs.getString("content");
+        byte[] deflated = rs.getBytes("content_deflated");
+        review.setContent(content == null && deflated != null ? DeflateUtils.decompress(deflated) : content);
+        review.setContentLength(rs.getInt("content_length"));
         review.setIsPositive(rs.getBoolean("is_positive"));
         review.setUserId(rs.getInt("user_id"));
         review.setFilmId(rs.getInt("film_id"));
         review.setUseful(rs.getInt("useful"));
+        review.setVersion(rs.getInt("version"));
         return review;
     }
 }
\ No newline at end of file
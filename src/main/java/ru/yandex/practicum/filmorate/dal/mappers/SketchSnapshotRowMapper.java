@@ -0,0 +1,21 @@
+package ru.yandex.practicum.filmorate.dal.mappers;
+
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.SketchSnapshot;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+// Имплементация RowMapper для SketchSnapshot
+@Component
+public class SketchSnapshotRowMapper implements RowMapper<SketchSnapshot> {
+    @Override
+    public SketchSnapshot mapRow(ResultSet rs, int rowNum) throws SQLException {
+        return new SketchSnapshot(
+                rs.getString("name"),
+                rs.getTimestamp("created_at").toInstant(),
+                rs.getBytes("data")
+        );
+    }
+}
@@ -18,6 +18,7 @@ public class UserRowMapper implements RowMapper<User> {
         user.setName(resultSet.getString("name"));
         user.setLogin(resultSet.getString("login"));
         user.setEmail(resultSet.getString("email"));
+        user.setVersion(resultSet.getInt("version"));
 
         Date birthday = resultSet.getDate("birthday");
         if (birthday != null) {
@@ -0,0 +1,13 @@
+package ru.yandex.practicum.filmorate.dto;
+
+import lombok.Data;
+
+// Dto для статистики жанра, рейтинга или режиссёра
+@Data
+public class CatalogueStatsDto {
+    private Integer id;
+    private String name;
+    private long films;
+    private long likes;
+    private long reviews;
+}
@@ -0,0 +1,19 @@
+package ru.yandex.practicum.filmorate.dto;
+
+import lombok.Data;
+import ru.yandex.practicum.filmorate.model.DeletionJob;
+
+import java.time.Instant;
+
+// Dto для задания фонового удаления пользователя или фильма
+@Data
+public class DeletionJobDto {
+    private Integer jobId;
+    private DeletionJob.Entity entity;
+    private Integer entityId;
+    private DeletionJob.Status status;
+    private String step;
+    private long deletedRows;
+    private Instant createdAt;
+    private Instant finishedAt;
+}
@@ -0,0 +1,12 @@
+package ru.yandex.practicum.filmorate.dto;
+
+import lombok.Data;
+
+// Количество фильмов режиссёра и сумма их лайков
+@Data
+public class DirectorLikesDto {
+    private int directorId;
+    private String directorName;
+    private long films;
+    private long likes;
+}
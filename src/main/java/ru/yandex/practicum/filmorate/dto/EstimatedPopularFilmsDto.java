@@ -0,0 +1,18 @@
+package ru.yandex.practicum.filmorate.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Популярные фильмы в приблизительном режиме вместе с границами погрешности оценки
+@Data
+public class EstimatedPopularFilmsDto {
+    private List<FilmDto> films = new ArrayList<>();
+    // Максимальное завышение оценки количества лайков
+    private long errorBound;
+    // Вероятность, с которой выполняется errorBound
+    private double confidence;
+    // Общее число учтённых лайков
+    private long totalLikes;
+}
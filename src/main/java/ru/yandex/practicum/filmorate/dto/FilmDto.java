@@ -1,5 +1,6 @@
 package ru.yandex.practicum.filmorate.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Positive;
@@ -31,4 +32,12 @@ public class FilmDto {
     private MpaRating mpa;
     private Set<Genre> genres = new HashSet<>();
     private Set<Director> directors = new HashSet<>();
+    // Заполняются только по запросу withLikes=true
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long likes;
+    // Поставил ли лайк зритель viewerId
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Boolean liked;
 }
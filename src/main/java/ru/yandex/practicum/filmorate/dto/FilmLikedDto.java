@@ -0,0 +1,10 @@
+package ru.yandex.practicum.filmorate.dto;
+
+import lombok.Data;
+
+// Dto признака "пользователь поставил лайк фильму"
+@Data
+public class FilmLikedDto {
+    private Integer filmId;
+    private boolean liked;
+}
@@ -0,0 +1,13 @@
+package ru.yandex.practicum.filmorate.dto;
+
+import lombok.Data;
+
+// Количество фильмов жанра, вышедших в году, и сумма их лайков
+@Data
+public class GenreYearLikesDto {
+    private int genreId;
+    private String genreName;
+    private int year;
+    private long films;
+    private long likes;
+}
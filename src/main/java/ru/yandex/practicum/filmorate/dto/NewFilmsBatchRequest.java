@@ -0,0 +1,16 @@
+package ru.yandex.practicum.filmorate.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+// Пачка новых фильмов; фильмы создаются в одной транзакции
+@Data
+public class NewFilmsBatchRequest {
+    @NotEmpty(message = "Пачка фильмов не может быть пустой")
+    @Size(max = 1000, message = "В пачке может быть не больше 1000 фильмов")
+    private List<@Valid NewFilmRequest> films;
+}
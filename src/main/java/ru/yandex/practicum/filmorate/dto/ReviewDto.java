@@ -1,13 +1,19 @@
 package ru.yandex.practicum.filmorate.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Data;
 
 @Data
 public class ReviewDto {
     private Integer reviewId;
+    // Не выводится в списке без текста (view=summary)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     private String content;
     private Boolean isPositive;
     private Integer userId; // Пользователь
     private Integer filmId; // Фильм
     private Integer useful; // Рейтинг полезности
+    // Длина полного текста; заполняется в списках с сокращённым текстом (view=preview, view=summary)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer contentLength;
 }
\ No newline at end of file
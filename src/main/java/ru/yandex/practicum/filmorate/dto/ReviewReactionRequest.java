@@ -0,0 +1,24 @@
+package ru.yandex.practicum.filmorate.dto;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+
+// Реакция пользователя на отзыв в пачке: sign = 1 — лайк, -1 — дизлайк, 0 — убрать реакцию
+@Data
+public class ReviewReactionRequest {
+    @NotNull(message = "Не указан id отзыва")
+    @Positive(message = "id отзыва должен быть положительным")
+    private Integer reviewId;
+
+    @NotNull(message = "Не указан id пользователя")
+    @Positive(message = "id пользователя должен быть положительным")
+    private Integer userId;
+
+    @NotNull(message = "Не указана реакция")
+    @Min(value = -1, message = "Реакция должна быть равна 1, -1 или 0")
+    @Max(value = 1, message = "Реакция должна быть равна 1, -1 или 0")
+    private Integer sign;
+}
@@ -0,0 +1,16 @@
+package ru.yandex.practicum.filmorate.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+// Пачка реакций на отзывы; при повторе пары (отзыв, пользователь) действует последняя реакция
+@Data
+public class ReviewReactionsBatchRequest {
+    @NotEmpty(message = "Пачка реакций не может быть пустой")
+    @Size(max = 10000, message = "В пачке может быть не больше 10000 реакций")
+    private List<@Valid ReviewReactionRequest> reactions;
+}
@@ -0,0 +1,8 @@
+package ru.yandex.practicum.filmorate.exception;
+
+// Исключение, возникающее, когда объект изменён другим запросом после чтения (не совпала версия строки)
+public class ConflictException extends RuntimeException {
+    public ConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package ru.yandex.practicum.filmorate.exception;
+
+// Исключение, возникающее, когда запрос временно не может быть принят (например, переполнен буфер записи)
+public class OverloadedException extends RuntimeException {
+    public OverloadedException(String message) {
+        super(message);
+    }
+}
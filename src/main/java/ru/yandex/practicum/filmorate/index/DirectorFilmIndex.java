@@ -0,0 +1,193 @@
+package ru.yandex.practicum.filmorate.index;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.yandex.practicum.filmorate.dal.FilmRepository;
+import ru.yandex.practicum.filmorate.model.DirectorFilmEntry;
+import ru.yandex.practicum.filmorate.model.changes.DirectorChange;
+import ru.yandex.practicum.filmorate.model.changes.FilmChange;
+import ru.yandex.practicum.filmorate.model.changes.LikeChange;
+import ru.yandex.practicum.filmorate.model.events.Operation;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Фильмографии режиссёров, заранее упорядоченные по дате релиза и по количеству лайков.
+// Поддерживается по событиям изменения фильмов, режиссёров и лайков, поэтому запрос
+// GET /films/director/{directorId} не сортирует фильмы и не считает лайки в БД.
+// Отключается настройкой filmorate.director-index.enabled
+@Component
+public class DirectorFilmIndex {
+    private static final Logger logger = LoggerFactory.getLogger(DirectorFilmIndex.class);
+
+    // Ключ фильма в упорядоченных множествах; при изменении полей ключ пересоздаётся
+    private record FilmKey(int filmId, LocalDate releaseDate, long likes) {
+    }
+
+    private static final Comparator<FilmKey> BY_YEAR = Comparator
+            .comparing(FilmKey::releaseDate, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparingInt(FilmKey::filmId);
+    private static final Comparator<FilmKey> BY_LIKES = Comparator.comparingLong(FilmKey::likes).reversed()
+            .thenComparingInt(FilmKey::filmId);
+
+    private final FilmRepository filmRepository;
+    private final boolean enabled;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Текущий ключ каждого фильма, у которого есть режиссёры
+    private final Map<Integer, FilmKey> films = new HashMap<>();
+    // Режиссёры фильма
+    private final Map<Integer, Set<Integer>> filmDirectors = new HashMap<>();
+    // Фильмография режиссёра в двух порядках
+    private final Map<Integer, TreeSet<FilmKey>> byYear = new HashMap<>();
+    private final Map<Integer, TreeSet<FilmKey>> byLikes = new HashMap<>();
+
+    @Autowired
+    public DirectorFilmIndex(FilmRepository filmRepository,
+                             @Value("${filmorate.director-index.enabled:true}") boolean enabled) {
+        this.filmRepository = filmRepository;
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @PostConstruct
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            films.clear();
+            filmDirectors.clear();
+            byYear.clear();
+            byLikes.clear();
+            filmRepository.getDirectorFilmEntries().forEach(this::put);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Индекс фильмографий загружен: режиссёров {}, фильмов {}", byYear.size(), films.size());
+    }
+
+    // Страница фильмографии: id фильмов в порядке sortBy ("year" или "likes")
+    public List<Integer> getPage(int directorId, String sortBy, int offset, int limit) {
+        lock.readLock().lock();
+        try {
+            Map<Integer, TreeSet<FilmKey>> ordered = sortBy.equals("likes") ? byLikes : byYear;
+            return ordered.getOrDefault(directorId, new TreeSet<>(BY_YEAR)).stream()
+                    .skip(offset)
+                    .limit(limit)
+                    .map(FilmKey::filmId)
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLikeChange(LikeChange change) {
+        if (!enabled) {
+            return;
+        }
+        long delta = change.operation() == Operation.REMOVE ? -1 : 1;
+        lock.writeLock().lock();
+        try {
+            FilmKey key = films.get(change.filmId());
+            if (key != null) {
+                replace(key, new FilmKey(key.filmId(), key.releaseDate(), key.likes() + delta));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Новый или изменённый фильм перечитывается из БД: могли измениться дата релиза и режиссёры.
+    // Количество лайков уже известного фильма берётся из индекса — его поддерживают события лайков.
+    // Чтение выполняется под блокировкой записи: иначе обработчик более раннего изменения, прочитавший
+    // фильм до более позднего, мог бы применить устаревшие данные последним
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFilmChange(FilmChange change) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            List<DirectorFilmEntry> entries = change.operation() == Operation.REMOVE
+                    ? List.of()
+                    : filmRepository.getDirectorFilmEntries(change.filmId());
+            FilmKey previous = remove(change.filmId());
+            for (DirectorFilmEntry entry : entries) {
+                if (previous != null) {
+                    entry.setLikes(previous.likes());
+                }
+                put(entry);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDirectorChange(DirectorChange change) {
+        if (!enabled || change.operation() != Operation.REMOVE) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            TreeSet<FilmKey> removed = byYear.remove(change.directorId());
+            byLikes.remove(change.directorId());
+            if (removed != null) {
+                for (FilmKey key : removed) {
+                    Set<Integer> directors = filmDirectors.get(key.filmId());
+                    directors.remove(change.directorId());
+                    if (directors.isEmpty()) {
+                        filmDirectors.remove(key.filmId());
+                        films.remove(key.filmId());
+                    }
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void put(DirectorFilmEntry entry) {
+        FilmKey key = films.computeIfAbsent(entry.getFilmId(),
+                id -> new FilmKey(id, entry.getReleaseDate(), entry.getLikes()));
+        filmDirectors.computeIfAbsent(entry.getFilmId(), id -> new HashSet<>()).add(entry.getDirectorId());
+        byYear.computeIfAbsent(entry.getDirectorId(), id -> new TreeSet<>(BY_YEAR)).add(key);
+        byLikes.computeIfAbsent(entry.getDirectorId(), id -> new TreeSet<>(BY_LIKES)).add(key);
+    }
+
+    private FilmKey remove(int filmId) {
+        FilmKey key = films.remove(filmId);
+        Set<Integer> directors = filmDirectors.remove(filmId);
+        if (key != null && directors != null) {
+            for (int directorId : directors) {
+                byYear.get(directorId).remove(key);
+                byLikes.get(directorId).remove(key);
+            }
+        }
+        return key;
+    }
+
+    private void replace(FilmKey oldKey, FilmKey newKey) {
+        films.put(newKey.filmId(), newKey);
+        for (int directorId : filmDirectors.getOrDefault(newKey.filmId(), Set.of())) {
+            TreeSet<FilmKey> year = byYear.get(directorId);
+            year.remove(oldKey);
+            year.add(newKey);
+            TreeSet<FilmKey> likes = byLikes.get(directorId);
+            likes.remove(oldKey);
+            likes.add(newKey);
+        }
+    }
+}
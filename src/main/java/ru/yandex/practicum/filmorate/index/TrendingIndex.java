@@ -0,0 +1,243 @@
+package ru.yandex.practicum.filmorate.index;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.yandex.practicum.filmorate.dal.LikeBucketRepository;
+import ru.yandex.practicum.filmorate.model.LikeBucket;
+import ru.yandex.practicum.filmorate.model.changes.FilmChange;
+import ru.yandex.practicum.filmorate.model.changes.LikeChange;
+import ru.yandex.practicum.filmorate.model.events.Operation;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+// Счётчики лайков фильмов по времени для трендов. Для каждого фильма хранятся кольцевые буферы:
+// 60 поминутных корзин (окно "час") и 168 почасовых (окна "день" и "неделя").
+// Рейтинг строится по этим корзинам без обращения к истории лайков в БД.
+// Завершённые часы периодически сжимаются в film_like_buckets, откуда восстанавливаются при запуске
+@Component
+public class TrendingIndex {
+    private static final Logger logger = LoggerFactory.getLogger(TrendingIndex.class);
+    private static final int MINUTES = 60;
+    private static final int HOURS = 24 * 7;
+
+    private final LikeBucketRepository likeBucketRepository;
+    private final Clock clock = Clock.systemDefaultZone();
+    private final Map<Integer, FilmBuckets> films = new ConcurrentHashMap<>();
+
+    @Autowired
+    public TrendingIndex(LikeBucketRepository likeBucketRepository) {
+        this.likeBucketRepository = likeBucketRepository;
+    }
+
+    // Восстановление счётчиков: сжатые часы из film_like_buckets и лайки после них из film_likes.
+    // Поминутные корзины последнего часа всегда берутся из film_likes
+    @PostConstruct
+    public void load() {
+        long nowMinute = epochMinute(clock.instant());
+        Instant weekAgo = clock.instant().truncatedTo(ChronoUnit.HOURS).minus(HOURS - 1, ChronoUnit.HOURS);
+        Instant watermark = likeBucketRepository.getLastBucketStart()
+                .map(start -> start.plus(1, ChronoUnit.HOURS))
+                .filter(start -> start.isAfter(weekAgo))
+                .orElse(weekAgo);
+        Instant hourAgo = clock.instant().truncatedTo(ChronoUnit.MINUTES).minus(MINUTES - 1, ChronoUnit.MINUTES);
+        Instant rawSince = watermark.isBefore(hourAgo) ? watermark : hourAgo;
+
+        List<LikeBucket> compacted = likeBucketRepository.getSince(weekAgo);
+        for (LikeBucket bucket : compacted) {
+            update(bucket.getFilmId(), buckets -> buckets.addHour(epochMinute(bucket.getBucketStart()) / MINUTES,
+                    bucket.getLikes(), nowMinute / MINUTES, false));
+        }
+        List<LikeBucket> raw = likeBucketRepository.getRawSince(rawSince);
+        for (LikeBucket bucket : raw) {
+            long minute = epochMinute(bucket.getBucketStart());
+            boolean notCompacted = !bucket.getBucketStart().isBefore(watermark);
+            update(bucket.getFilmId(), buckets -> {
+                buckets.addMinute(minute, bucket.getLikes(), nowMinute);
+                if (notCompacted) {
+                    buckets.addHour(minute / MINUTES, bucket.getLikes(), nowMinute / MINUTES, true);
+                }
+            });
+        }
+        logger.info("Индекс трендов загружен: {} почасовых и {} поминутных счётчиков, фильмов: {}",
+                compacted.size(), raw.size(), films.size());
+    }
+
+    // Изменения применяются после коммита транзакции, в которой они сделаны
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLikeChange(LikeChange change) {
+        int delta = change.operation() == Operation.REMOVE ? -1 : 1;
+        long nowMinute = epochMinute(clock.instant());
+        long minute = epochMinute(change.likedAt());
+        update(change.filmId(), buckets -> {
+            buckets.addMinute(minute, delta, nowMinute);
+            buckets.addHour(minute / MINUTES, delta, nowMinute / MINUTES, true);
+        });
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFilmChange(FilmChange change) {
+        if (change.operation() == Operation.REMOVE) {
+            films.remove(change.filmId());
+        }
+    }
+
+    // Первые count фильмов по количеству лайков в окне; при равенстве — по возрастанию id
+    public List<Integer> getTop(TrendingWindow window, int count) {
+        long nowMinute = epochMinute(clock.instant());
+        // В вершине кучи — худший из отобранных: меньше лайков, при равенстве — больший id
+        Comparator<long[]> order = Comparator.<long[]>comparingLong(entry -> entry[1])
+                .thenComparingLong(entry -> -entry[0]);
+        PriorityQueue<long[]> top = new PriorityQueue<>(order);
+        films.forEach((filmId, buckets) -> {
+            long likes = buckets.sum(window, nowMinute);
+            if (likes <= 0) {
+                return;
+            }
+            top.add(new long[]{filmId, likes});
+            if (top.size() > count) {
+                top.poll();
+            }
+        });
+
+        List<Integer> result = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            result.add((int) top.poll()[0]);
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    // Сохранение завершённых изменённых часов в БД, удаление устаревших счётчиков
+    @Scheduled(fixedDelayString = "${filmorate.trending.compaction-interval-ms:300000}",
+            initialDelayString = "${filmorate.trending.compaction-interval-ms:300000}")
+    public void compact() {
+        long nowMinute = epochMinute(clock.instant());
+        long nowHour = nowMinute / MINUTES;
+        List<LikeBucket> completed = new ArrayList<>();
+        films.forEach((filmId, buckets) -> completed.addAll(buckets.drainCompletedHours(filmId, nowHour)));
+
+        try {
+            likeBucketRepository.saveAll(completed);
+        } catch (RuntimeException e) {
+            logger.warn("Не удалось сохранить счётчики лайков, повтор при следующем сжатии: {}", e.getMessage());
+            completed.forEach(bucket -> update(bucket.getFilmId(),
+                    buckets -> buckets.markDirty(epochMinute(bucket.getBucketStart()) / MINUTES)));
+            return;
+        }
+        likeBucketRepository.removeOlderThan(Instant.ofEpochSecond((nowHour - HOURS + 1) * 3600));
+        // Проверка и удаление выполняются атомарно относительно update()
+        films.keySet().forEach(filmId -> films.computeIfPresent(filmId,
+                (id, buckets) -> buckets.isEmpty(nowMinute) ? null : buckets));
+        logger.debug("Сжато почасовых счётчиков лайков: {}, фильмов в индексе: {}", completed.size(), films.size());
+    }
+
+    // Изменение счётчиков фильма под блокировкой его записи в карте, чтобы не потерять
+    // лайк, пришедший одновременно с удалением пустой записи при сжатии
+    private void update(int filmId, Consumer<FilmBuckets> change) {
+        films.compute(filmId, (id, buckets) -> {
+            FilmBuckets target = buckets != null ? buckets : new FilmBuckets();
+            change.accept(target);
+            return target;
+        });
+    }
+
+    private static long epochMinute(Instant instant) {
+        return instant.getEpochSecond() / 60;
+    }
+
+    // Кольцевые буферы одного фильма. Ячейка помечена номером минуты (часа) от начала эпохи;
+    // ячейка с устаревшей меткой при записи обнуляется
+    private static final class FilmBuckets {
+        private final int[] minuteLikes = new int[MINUTES];
+        private final long[] minuteStamps = new long[MINUTES];
+        private final int[] hourLikes = new int[HOURS];
+        private final long[] hourStamps = new long[HOURS];
+        private final boolean[] hourDirty = new boolean[HOURS];
+
+        synchronized void addMinute(long minute, int delta, long nowMinute) {
+            if (minute <= nowMinute - MINUTES || minute > nowMinute) {
+                return;
+            }
+            int slot = (int) (minute % MINUTES);
+            if (minuteStamps[slot] != minute) {
+                minuteStamps[slot] = minute;
+                minuteLikes[slot] = 0;
+            }
+            minuteLikes[slot] += delta;
+        }
+
+        synchronized void addHour(long hour, int delta, long nowHour, boolean dirty) {
+            if (hour <= nowHour - HOURS || hour > nowHour) {
+                return;
+            }
+            int slot = (int) (hour % HOURS);
+            if (hourStamps[slot] != hour) {
+                hourStamps[slot] = hour;
+                hourLikes[slot] = 0;
+                hourDirty[slot] = false;
+            }
+            hourLikes[slot] += delta;
+            hourDirty[slot] |= dirty;
+        }
+
+        synchronized long sum(TrendingWindow window, long nowMinute) {
+            long sum = 0;
+            if (window == TrendingWindow.HOUR) {
+                for (int slot = 0; slot < MINUTES; slot++) {
+                    if (minuteStamps[slot] > nowMinute - MINUTES) {
+                        sum += minuteLikes[slot];
+                    }
+                }
+                return sum;
+            }
+            long nowHour = nowMinute / MINUTES;
+            int hours = window == TrendingWindow.DAY ? 24 : HOURS;
+            for (int slot = 0; slot < HOURS; slot++) {
+                if (hourStamps[slot] > nowHour - hours) {
+                    sum += hourLikes[slot];
+                }
+            }
+            return sum;
+        }
+
+        // Завершённые часы, изменившиеся после прошлого сжатия; флаг изменения снимается
+        synchronized List<LikeBucket> drainCompletedHours(int filmId, long nowHour) {
+            List<LikeBucket> result = new ArrayList<>();
+            for (int slot = 0; slot < HOURS; slot++) {
+                if (hourDirty[slot] && hourStamps[slot] < nowHour) {
+                    hourDirty[slot] = false;
+                    result.add(new LikeBucket(filmId, Instant.ofEpochSecond(hourStamps[slot] * 3600),
+                            hourLikes[slot]));
+                }
+            }
+            return result;
+        }
+
+        synchronized void markDirty(long hour) {
+            int slot = (int) (hour % HOURS);
+            if (hourStamps[slot] == hour) {
+                hourDirty[slot] = true;
+            }
+        }
+
+        // В окне недели нет лайков и нет несохранённых часов
+        synchronized boolean isEmpty(long nowMinute) {
+            for (boolean dirty : hourDirty) {
+                if (dirty) {
+                    return false;
+                }
+            }
+            return sum(TrendingWindow.WEEK, nowMinute) <= 0;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package ru.yandex.practicum.filmorate.index;
+
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
+import java.util.Arrays;
+
+// Окно, за которое считаются лайки в трендах
+public enum TrendingWindow {
+    HOUR,
+    DAY,
+    WEEK;
+
+    // Разобрать значение параметра запроса (hour, day, week)
+    public static TrendingWindow from(String value) {
+        return Arrays.stream(values())
+                .filter(window -> window.name().equalsIgnoreCase(value))
+                .findFirst()
+                .orElseThrow(() -> new ValidationException("Параметр window должен быть 'hour', 'day' или 'week'"));
+    }
+}
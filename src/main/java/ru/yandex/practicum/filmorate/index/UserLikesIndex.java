@@ -0,0 +1,141 @@
+package ru.yandex.practicum.filmorate.index;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.yandex.practicum.filmorate.dal.FilmRepository;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.changes.LikeChange;
+import ru.yandex.practicum.filmorate.model.events.Operation;
+import ru.yandex.practicum.filmorate.sketch.BloomFilter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Фильтры Блума по фильмам, которым пользователь поставил лайк. Отрицательный ответ точный, поэтому
+// проверка "пользователь лайкал фильм" обращается к БД только при положительном ответе фильтра.
+// Лайк добавляется в фильтр до записи в БД, так что фильтр не отстаёт от таблицы. Удалённые лайки
+// остаются в фильтре до пересборки и дают только лишние обращения к БД.
+// Включается настройкой filmorate.likes-filter.enabled
+@Component
+public class UserLikesIndex {
+    private static final Logger logger = LoggerFactory.getLogger(UserLikesIndex.class);
+
+    private final FilmRepository filmRepository;
+    private final boolean enabled;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Map<Integer, BloomFilter> filters = new HashMap<>();
+    // Лайки, добавленные во время пересборки; переносятся в новые фильтры перед заменой
+    private List<FilmLike> addedDuringRebuild;
+
+    @Autowired
+    public UserLikesIndex(FilmRepository filmRepository,
+                          @Value("${filmorate.likes-filter.enabled:false}") boolean enabled) {
+        this.filmRepository = filmRepository;
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @PostConstruct
+    public void load() {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    // Пересборка по film_likes: убирает из фильтров удалённые лайки
+    @Scheduled(fixedDelayString = "${filmorate.likes-filter.rebuild-interval-ms:3600000}",
+            initialDelayString = "${filmorate.likes-filter.rebuild-interval-ms:3600000}")
+    public synchronized void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            addedDuringRebuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        List<FilmLike> likes = filmRepository.getAllLikes();
+        Map<Integer, Integer> likesPerUser = new HashMap<>();
+        likes.forEach(like -> likesPerUser.merge(like.userId(), 1, Integer::sum));
+        Map<Integer, BloomFilter> rebuilt = new HashMap<>();
+        likes.forEach(like -> add(rebuilt, like, likesPerUser.get(like.userId())));
+
+        lock.writeLock().lock();
+        try {
+            addedDuringRebuild.forEach(like -> add(rebuilt, like, 0));
+            addedDuringRebuild = null;
+            filters = rebuilt;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Индекс лайков пользователей построен: пользователей {}, лайков {}", rebuilt.size(), likes.size());
+    }
+
+    // Учесть лайк; вызывается до записи лайка в БД
+    public void add(int filmId, int userId) {
+        if (!enabled) {
+            return;
+        }
+        FilmLike like = new FilmLike(filmId, userId);
+        // Фильтры меняются под блокировкой записи: BloomFilter не потокобезопасен
+        lock.writeLock().lock();
+        try {
+            add(filters, like, 0);
+            if (addedDuringRebuild != null) {
+                addedDuringRebuild.add(like);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // false — пользователь точно не ставил лайк фильму; true — возможно, ставил
+    public boolean mightHaveLiked(int filmId, int userId) {
+        lock.readLock().lock();
+        try {
+            BloomFilter filter = filters.get(userId);
+            return filter != null && filter.mightContain(filmId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Фильмы, для которых фильтр не исключает лайк; только их нужно проверять в БД
+    public List<Integer> filterCandidates(int userId, Collection<Integer> filmIds) {
+        if (!enabled) {
+            return List.copyOf(filmIds);
+        }
+        return filmIds.stream()
+                .filter(filmId -> mightHaveLiked(filmId, userId))
+                .distinct()
+                .toList();
+    }
+
+    // Лайки, записанные в обход FilmService.putLike, тоже попадают в фильтр
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLikeChange(LikeChange change) {
+        if (change.operation() == Operation.ADD) {
+            add(change.filmId(), change.userId());
+        }
+    }
+
+    private static void add(Map<Integer, BloomFilter> filters, FilmLike like, int expectedLikes) {
+        filters.computeIfAbsent(like.userId(), userId -> new BloomFilter(expectedLikes)).add(like.filmId());
+    }
+}
@@ -0,0 +1,23 @@
+package ru.yandex.practicum.filmorate.mapper;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import ru.yandex.practicum.filmorate.dto.CatalogueStatsDto;
+import ru.yandex.practicum.filmorate.model.CatalogueCounter;
+
+// Маппер для класса CatalogueCounter
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class CatalogueCounterMapper {
+
+    // Преобразовать CatalogueCounter в CatalogueStatsDto
+    public static CatalogueStatsDto mapToCatalogueStatsDto(CatalogueCounter counter) {
+        CatalogueStatsDto dto = new CatalogueStatsDto();
+        dto.setId(counter.getItemId());
+        dto.setName(counter.getName());
+        dto.setFilms(counter.getFilms());
+        dto.setLikes(counter.getLikes());
+        dto.setReviews(counter.getReviews());
+
+        return dto;
+    }
+}
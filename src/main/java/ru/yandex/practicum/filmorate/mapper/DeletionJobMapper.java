@@ -0,0 +1,26 @@
+package ru.yandex.practicum.filmorate.mapper;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import ru.yandex.practicum.filmorate.dto.DeletionJobDto;
+import ru.yandex.practicum.filmorate.model.DeletionJob;
+
+// Маппер для класса DeletionJob
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class DeletionJobMapper {
+
+    // Преобразовать DeletionJob в DeletionJobDto
+    public static DeletionJobDto mapToDeletionJobDto(DeletionJob job) {
+        DeletionJobDto dto = new DeletionJobDto();
+        dto.setJobId(job.getJobId());
+        dto.setEntity(job.getEntity());
+        dto.setEntityId(job.getEntityId());
+        dto.setStatus(job.getStatus());
+        dto.setStep(job.getStep());
+        dto.setDeletedRows(job.getDeletedRows());
+        dto.setCreatedAt(job.getCreatedAt());
+        dto.setFinishedAt(job.getFinishedAt());
+
+        return dto;
+    }
+}
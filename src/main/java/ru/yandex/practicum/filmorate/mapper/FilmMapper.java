@@ -45,6 +45,22 @@ public final class FilmMapper {
         return dto;
     }
 
+    // Копия FilmDto с количеством лайков и признаком лайка зрителя (null — зритель не указан)
+    public static FilmDto withLikes(FilmDto film, long likes, Boolean liked) {
+        FilmDto dto = new FilmDto();
+        dto.setId(film.getId());
+        dto.setName(film.getName());
+        dto.setDescription(film.getDescription());
+        dto.setReleaseDate(film.getReleaseDate());
+        dto.setDuration(film.getDuration());
+        dto.setMpa(film.getMpa());
+        dto.setGenres(film.getGenres());
+        dto.setDirectors(film.getDirectors());
+        dto.setLikes(likes);
+        dto.setLiked(liked);
+        return dto;
+    }
+
     // Преобразовать NewFilmRequest в Film
     public static Film mapToFilm(NewFilmRequest request, MpaRating mpaRating,
                                  Set<Genre> genres, Set<Director> directors) {
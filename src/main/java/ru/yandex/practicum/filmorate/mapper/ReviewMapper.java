@@ -6,6 +6,7 @@ import ru.yandex.practicum.filmorate.dto.NewReviewRequest;
 import ru.yandex.practicum.filmorate.dto.ReviewDto;
 import ru.yandex.practicum.filmorate.dto.UpdateReviewRequest;
 import ru.yandex.practicum.filmorate.model.Review;
+import ru.yandex.practicum.filmorate.model.ReviewView;
 
 // Маппер для преобразования Review и DTO
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
@@ -53,4 +54,13 @@ public final class ReviewMapper {
         dto.setUseful(review.getUseful());
         return dto;
     }
+
+    // Преобразует Review в DTO для списка в представлении view
+    public static ReviewDto mapToReviewDto(Review review, ReviewView view) {
+        ReviewDto dto = mapToReviewDto(review);
+        if (view != ReviewView.FULL) {
+            dto.setContentLength(review.getContentLength());
+        }
+        return dto;
+    }
 }
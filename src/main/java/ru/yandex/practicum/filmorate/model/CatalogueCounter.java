@@ -0,0 +1,25 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Счётчики одного жанра, рейтинга или режиссёра: количество фильмов, лайков и отзывов на эти фильмы
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CatalogueCounter {
+    private Dimension dimension;
+    private int itemId;
+    // Название жанра, рейтинга или имя режиссёра; заполняется только при чтении для ответа
+    private String name;
+    private long films;
+    private long likes;
+    private long reviews;
+
+    public enum Dimension {
+        GENRE,
+        MPA,
+        DIRECTOR
+    }
+}
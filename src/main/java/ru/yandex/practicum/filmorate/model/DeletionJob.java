@@ -0,0 +1,33 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+// Задание фонового удаления пользователя или фильма
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeletionJob {
+    private int jobId;
+    private Entity entity;
+    private int entityId;
+    private Status status;
+    // Таблица, из которой сейчас удаляются зависимые строки
+    private String step;
+    private long deletedRows;
+    private Instant createdAt;
+    private Instant finishedAt;
+
+    public enum Entity {
+        USER,
+        FILM
+    }
+
+    public enum Status {
+        PENDING,
+        DONE
+    }
+}
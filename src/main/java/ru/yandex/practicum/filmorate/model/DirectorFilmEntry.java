@@ -0,0 +1,18 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+// Фильм режиссёра с полями, по которым сортируется фильмография
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DirectorFilmEntry {
+    private int directorId;
+    private int filmId;
+    private LocalDate releaseDate;
+    private long likes;
+}
@@ -12,7 +12,7 @@ import java.util.Set;
 // Модель данных для описания фильма
 @Getter
 @Setter
-@EqualsAndHashCode(exclude = {"id", "description"})
+@EqualsAndHashCode(exclude = {"id", "description", "version"})
 @ToString
 public class Film {
     // Идентификатор
@@ -36,4 +36,6 @@ public class Film {
     private Set<Genre> genres = new HashSet<>();
     // Режиссёры
     private Set<Director> directors = new HashSet<>();
+    // Версия строки, прочитанная вместе с фильмом; изменение записывается, только если она не изменилась
+    private int version;
 }
@@ -0,0 +1,5 @@
+package ru.yandex.practicum.filmorate.model;
+
+// Лайк пользователя userId фильму filmId
+public record FilmLike(int filmId, int userId) {
+}
@@ -0,0 +1,17 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+// Количество лайков фильма, поставленных в течение интервала времени, начинающегося с bucketStart
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LikeBucket {
+    private int filmId;
+    private Instant bucketStart;
+    private int likes;
+}
@@ -6,8 +6,12 @@ import lombok.Data;
 public class Review {
     private Integer reviewId;
     private String content;
+    // Длина полного текста в символах
+    private Integer contentLength;
     private Boolean isPositive;
     private Integer userId;
     private Integer filmId;
     private Integer useful;
+    // Версия строки, прочитанная вместе с отзывом; изменение записывается, только если она не изменилась
+    private int version;
 }
@@ -0,0 +1,6 @@
+package ru.yandex.practicum.filmorate.model;
+
+// Запись журнала реакций на отзывы: состояние реакции пользователя userId на отзыв reviewId после события.
+// reaction: 1 — лайк, -1 — дизлайк, 0 — реакции нет
+public record ReviewReaction(int seq, int reviewId, int userId, int reaction) {
+}
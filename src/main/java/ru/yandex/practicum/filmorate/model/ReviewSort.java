@@ -0,0 +1,7 @@
+package ru.yandex.practicum.filmorate.model;
+
+// Порядок отзывов в списках: USEFUL — по полезности, BEST — по оценке с учётом возраста отзыва
+public enum ReviewSort {
+    USEFUL,
+    BEST
+}
@@ -0,0 +1,8 @@
+package ru.yandex.practicum.filmorate.model;
+
+// Представление отзыва в списках: FULL — полный текст, PREVIEW — начало текста, SUMMARY — без текста
+public enum ReviewView {
+    FULL,
+    PREVIEW,
+    SUMMARY
+}
@@ -0,0 +1,17 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+// Сохранённое состояние вероятностной структуры данных
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SketchSnapshot {
+    private String name;
+    private Instant createdAt;
+    private byte[] data;
+}
@@ -26,4 +26,6 @@ public class User {
     // Дата рождения
     @Past(message = "Дата рождения не может быть в будущем")
     private LocalDate birthday;
+    // Версия строки, прочитанная вместе с пользователем; изменение записывается, только если она не изменилась
+    private int version;
 }
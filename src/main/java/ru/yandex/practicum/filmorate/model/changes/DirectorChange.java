@@ -0,0 +1,7 @@
+package ru.yandex.practicum.filmorate.model.changes;
+
+import ru.yandex.practicum.filmorate.model.events.Operation;
+
+// Изменение режиссёра (создание, изменение, удаление). Публикуется сервисами после записи в БД
+public record DirectorChange(int directorId, Operation operation) {
+}
@@ -0,0 +1,7 @@
+package ru.yandex.practicum.filmorate.model.changes;
+
+import ru.yandex.practicum.filmorate.model.events.Operation;
+
+// Изменение фильма (создание, изменение, удаление). Публикуется сервисами после записи в БД
+public record FilmChange(int filmId, Operation operation) {
+}
@@ -0,0 +1,10 @@
+package ru.yandex.practicum.filmorate.model.changes;
+
+import ru.yandex.practicum.filmorate.model.events.Operation;
+
+import java.time.Instant;
+
+// Изменение лайка фильма. Публикуется сервисами после записи в БД и используется
+// для поддержки in-memory индексов; likedAt — время постановки лайка
+public record LikeChange(int filmId, int userId, Operation operation, Instant likedAt) {
+}
@@ -0,0 +1,12 @@
+package ru.yandex.practicum.filmorate.readmodel;
+
+import ru.yandex.practicum.filmorate.dto.FilmDto;
+
+// Документ модели чтения: фильм со встроенными рейтингом, жанрами и режиссёрами и количеством лайков.
+// sequence — номер чтения из основного хранилища, по нему более старое чтение не затирает более новое.
+// Документ удалённого фильма хранится без film, чтобы запоздавшее обновление не вернуло фильм обратно
+public record FilmDocument(FilmDto film, long likes, long sequence) {
+    public boolean isDeleted() {
+        return film == null;
+    }
+}
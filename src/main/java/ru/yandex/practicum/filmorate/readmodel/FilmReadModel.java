@@ -0,0 +1,185 @@
+package ru.yandex.practicum.filmorate.readmodel;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.yandex.practicum.filmorate.cache.ResourceVersions;
+import ru.yandex.practicum.filmorate.dal.FilmRepository;
+import ru.yandex.practicum.filmorate.dto.FilmDto;
+import ru.yandex.practicum.filmorate.mapper.FilmMapper;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.changes.DirectorChange;
+import ru.yandex.practicum.filmorate.model.changes.FilmChange;
+import ru.yandex.practicum.filmorate.model.changes.LikeChange;
+
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+// Денормализованная модель чтения каталога (CQRS): по документу на фильм.
+// Запись идёт в основное хранилище, сервисы публикуют события изменений, а модель после коммита в фоне
+// перечитывает затронутые фильмы. Чтение getAll/getById/популярных/поиска не обращается к БД,
+// данные отстают от основного хранилища на время фоновой обработки. Пока документ не обновлён,
+// с ним может выдаваться ETag уже новой версии, поэтому после обновления документа версии ресурсов
+// увеличиваются ещё раз: такой ETag перестаёт подтверждать устаревшее тело.
+// Популярные и поиск сортируют весь каталог в памяти, поэтому модель рассчитана на небольшие каталоги.
+// Включается настройкой filmorate.read-model.enabled
+@Component
+public class FilmReadModel {
+    private static final Logger logger = LoggerFactory.getLogger(FilmReadModel.class);
+
+    private static final Comparator<FilmDocument> BY_LIKES = Comparator.comparingLong(FilmDocument::likes).reversed()
+            .thenComparingInt(document -> document.film().getId());
+
+    private final FilmRepository filmRepository;
+    private final ResourceVersions resourceVersions;
+    private final TaskExecutor taskExecutor;
+    private final boolean enabled;
+    // Документы по id фильма, упорядочены по id
+    private final ConcurrentNavigableMap<Integer, FilmDocument> documents = new ConcurrentSkipListMap<>();
+    // Номера чтений из основного хранилища
+    private final AtomicLong sequences = new AtomicLong();
+
+    @Autowired
+    public FilmReadModel(FilmRepository filmRepository, ResourceVersions resourceVersions,
+                         @Qualifier("applicationTaskExecutor") TaskExecutor taskExecutor,
+                         @Value("${filmorate.read-model.enabled:false}") boolean enabled) {
+        this.filmRepository = filmRepository;
+        this.resourceVersions = resourceVersions;
+        this.taskExecutor = taskExecutor;
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @PostConstruct
+    public void load() {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    // Полностью перестроить модель по основному хранилищу
+    public void rebuild() {
+        long sequence = sequences.incrementAndGet();
+        List<Film> films = filmRepository.getAll();
+        Map<Integer, Long> likes = filmRepository.getLikeCounts();
+
+        Set<Integer> filmIds = new HashSet<>();
+        for (Film film : films) {
+            filmIds.add(film.getId());
+            apply(film.getId(), new FilmDocument(FilmMapper.mapToFilmDto(film),
+                    likes.getOrDefault(film.getId(), 0L), sequence));
+        }
+        // Фильмы, которых больше нет в основном хранилище, помечаются удалёнными
+        for (Integer filmId : documents.keySet()) {
+            if (!filmIds.contains(filmId)) {
+                apply(filmId, new FilmDocument(null, 0, sequence));
+            }
+        }
+        resourceVersions.bump(ResourceVersions.Resource.FILMS, ResourceVersions.Resource.LIKES);
+        logger.info("Модель чтения фильмов построена: фильмов {}", films.size());
+    }
+
+    public List<FilmDto> getAll() {
+        return documents.values().stream()
+                .filter(document -> !document.isDeleted())
+                .map(FilmDocument::film)
+                .toList();
+    }
+
+    public Optional<FilmDto> getById(int filmId) {
+        return Optional.ofNullable(documents.get(filmId))
+                .filter(document -> !document.isDeleted())
+                .map(FilmDocument::film);
+    }
+
+    // Первые count фильмов по количеству лайков, фильтры genreId и year необязательны
+    public List<FilmDto> getPopular(int count, Integer genreId, Integer year) {
+        return ranked(film -> (genreId == null || film.getGenres().stream().anyMatch(g -> genreId.equals(g.getId())))
+                && (year == null || film.getReleaseDate() != null && film.getReleaseDate().getYear() == year))
+                .limit(count)
+                .toList();
+    }
+
+    // Поиск подстроки query (в нижнем регистре) в названии и/или именах режиссёров, по убыванию лайков
+    public List<FilmDto> search(String query, boolean byTitle, boolean byDirector) {
+        return ranked(film -> byTitle && film.getName().toLowerCase().contains(query)
+                || byDirector && film.getDirectors().stream()
+                .anyMatch(director -> director.getName().toLowerCase().contains(query)))
+                .toList();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFilmChange(FilmChange change) {
+        if (enabled) {
+            taskExecutor.execute(() -> refresh(change.filmId()));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLikeChange(LikeChange change) {
+        if (enabled) {
+            taskExecutor.execute(() -> refresh(change.filmId()));
+        }
+    }
+
+    // Режиссёр встроен в документы его фильмов: они перечитываются после изменения или удаления режиссёра
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDirectorChange(DirectorChange change) {
+        if (!enabled) {
+            return;
+        }
+        documents.values().stream()
+                .filter(document -> !document.isDeleted())
+                .filter(document -> document.film().getDirectors().stream()
+                        .anyMatch(director -> director.getId() == change.directorId()))
+                .map(document -> document.film().getId())
+                .forEach(filmId -> taskExecutor.execute(() -> refresh(filmId)));
+    }
+
+    // Перечитать фильм из основного хранилища
+    private void refresh(int filmId) {
+        try {
+            long sequence = sequences.incrementAndGet();
+            Optional<Film> film = filmRepository.getById(filmId);
+            FilmDocument document = film
+                    .map(value -> new FilmDocument(FilmMapper.mapToFilmDto(value),
+                            filmRepository.getLikesCount(filmId), sequence))
+                    .orElseGet(() -> new FilmDocument(null, 0, sequence));
+            apply(filmId, document);
+            resourceVersions.bump(ResourceVersions.Resource.FILMS, ResourceVersions.Resource.LIKES);
+        } catch (RuntimeException e) {
+            logger.error("Не удалось обновить фильм с id = {} в модели чтения", filmId, e);
+        }
+    }
+
+    // Документ заменяется, только если прочитан позже сохранённого
+    private void apply(int filmId, FilmDocument document) {
+        documents.merge(filmId, document,
+                (current, candidate) -> candidate.sequence() > current.sequence() ? candidate : current);
+    }
+
+    private Stream<FilmDto> ranked(Predicate<FilmDto> filter) {
+        return documents.values().stream()
+                .filter(document -> !document.isDeleted() && filter.test(document.film()))
+                .sorted(BY_LIKES)
+                .map(FilmDocument::film);
+    }
+}
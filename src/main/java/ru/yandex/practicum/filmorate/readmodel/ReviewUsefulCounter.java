@@ -0,0 +1,267 @@
+package ru.yandex.practicum.filmorate.readmodel;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.dal.ReviewRepository;
+import ru.yandex.practicum.filmorate.model.ReviewReaction;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntUnaryOperator;
+import java.util.function.Predicate;
+
+// Реакции на отзывы через журнал review_reactions_log (event sourcing). Реакция только добавляет запись
+// в журнал, строка отзыва не блокируется, поэтому реакции на популярный отзыв не ждут друг друга.
+// Журнал периодически сжимается в review_likes, а useful отзывов пересчитывается заново, так что
+// итог не зависит от порядка обновлений. До сжатия useful отзыва складывается из значения в БД
+// и вклада несжатых записей, который хранится в памяти.
+// Сверка useful с review_likes выполняется всегда, журнал включается настройкой filmorate.review-reactions.log-enabled
+@Component
+public class ReviewUsefulCounter {
+    private static final Logger logger = LoggerFactory.getLogger(ReviewUsefulCounter.class);
+
+    private static final int STRIPES = 64;
+
+    private final ReviewRepository reviewRepository;
+    // Реакция выполняется своей транзакцией: запись в журнал фиксируется до снятия блокировки пары,
+    // поэтому порядок seq для пары совпадает с порядком фиксации
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int compactionBatch;
+    // Реакции одной пары (отзыв, пользователь) выполняются по очереди
+    private final Object[] stripes = new Object[STRIPES];
+    private final ReentrantLock drainLock = new ReentrantLock();
+
+    // Несжатые записи журнала: seq -> запись и её вклад в useful
+    private final Map<Integer, Pending> pending = new HashMap<>();
+    // seq последней несжатой записи пары
+    private final Map<Pair, Integer> latest = new HashMap<>();
+    // Вклад несжатых записей в useful отзыва
+    private final Map<Integer, Integer> deltas = new HashMap<>();
+
+    @Autowired
+    public ReviewUsefulCounter(ReviewRepository reviewRepository,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${filmorate.review-reactions.log-enabled:false}") boolean enabled,
+                               @Value("${filmorate.review-reactions.compaction-batch:1000}") int compactionBatch) {
+        this.reviewRepository = reviewRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.compactionBatch = compactionBatch;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Object();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Журнал, оставшийся после прошлого запуска, сжимается до начала работы, в том числе при выключенном журнале
+    @PostConstruct
+    public void rebuild() {
+        synchronized (this) {
+            pending.clear();
+            latest.clear();
+            deltas.clear();
+        }
+        drain();
+    }
+
+    // Без журнала реакция, как и раньше, сразу меняет review_likes и useful
+    public void like(int reviewId, int userId) {
+        if (!enabled) {
+            transactionTemplate.executeWithoutResult(status -> reviewRepository.like(reviewId, userId));
+            return;
+        }
+        append(reviewId, userId, current -> 1);
+    }
+
+    public void dislike(int reviewId, int userId) {
+        if (!enabled) {
+            transactionTemplate.executeWithoutResult(status -> reviewRepository.dislike(reviewId, userId));
+            return;
+        }
+        append(reviewId, userId, current -> -1);
+    }
+
+    public void removeLike(int reviewId, int userId) {
+        if (!enabled) {
+            transactionTemplate.executeWithoutResult(status -> reviewRepository.removeLike(reviewId, userId));
+            return;
+        }
+        append(reviewId, userId, current -> current == 1 ? 0 : current);
+    }
+
+    public void removeDislike(int reviewId, int userId) {
+        if (!enabled) {
+            transactionTemplate.executeWithoutResult(status -> reviewRepository.removeDislike(reviewId, userId));
+            return;
+        }
+        append(reviewId, userId, current -> current == -1 ? 0 : current);
+    }
+
+    // Применить пачку реакций; seq задаёт порядок реакций в пачке
+    public void applyBatch(List<ReviewReaction> reactions) {
+        if (!enabled) {
+            transactionTemplate.executeWithoutResult(status -> reviewRepository.applyReactions(reactions));
+            return;
+        }
+        // Пачка идёт через журнал, чтобы несжатые реакции тех же пар не перекрыли её при сжатии,
+        // и сразу сжимается вместе с ними
+        transactionTemplate.executeWithoutResult(status -> reviewRepository.appendReactions(reactions.stream()
+                .sorted(Comparator.comparingInt(ReviewReaction::seq))
+                .toList()));
+        drain();
+    }
+
+    // Вклад несжатых реакций в useful отзыва
+    public synchronized int getPendingDelta(int reviewId) {
+        return deltas.getOrDefault(reviewId, 0);
+    }
+
+    // Сжать журнал
+    @Scheduled(fixedDelayString = "${filmorate.review-reactions.compaction-interval-ms:1000}")
+    public void compact() {
+        if (enabled) {
+            drain();
+        }
+    }
+
+    // Исправить useful, разошедшийся с review_likes (например, после каскадного удаления реакций)
+    @Scheduled(fixedDelayString = "${filmorate.review-reactions.reconcile-interval-ms:3600000}",
+            initialDelayString = "${filmorate.review-reactions.reconcile-interval-ms:3600000}")
+    public void reconcile() {
+        int corrected = reviewRepository.reconcileUseful();
+        if (corrected > 0) {
+            logger.warn("Исправлен useful отзывов: {}", corrected);
+        }
+    }
+
+    // Забыть несжатые реакции удалённого отзыва: его записи журнала удалены каскадно
+    public synchronized void forgetReview(int reviewId) {
+        forget(entry -> entry.pair().reviewId() == reviewId);
+    }
+
+    // Забыть несжатые реакции удалённого пользователя
+    public synchronized void forgetUser(int userId) {
+        forget(entry -> entry.pair().userId() == userId);
+    }
+
+    private void append(int reviewId, int userId, IntUnaryOperator next) {
+        Pair pair = new Pair(reviewId, userId);
+        synchronized (stripes[Math.floorMod(pair.hashCode(), STRIPES)]) {
+            int current = getReaction(pair);
+            int reaction = next.applyAsInt(current);
+            if (reaction == current) {
+                return;
+            }
+            Pending entry = new Pending(pair, reaction, reaction - current);
+            // Запись регистрируется до фиксации: сжатие, которое увидит её после фиксации, найдёт её в pending
+            // и снимет её вклад. Если запись не зафиксировалась, регистрация отменяется
+            int[] registered = new int[1];
+            Integer[] replaced = new Integer[1];
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    int seq = reviewRepository.appendReaction(reviewId, userId, reaction);
+                    synchronized (this) {
+                        pending.put(seq, entry);
+                        replaced[0] = latest.put(pair, seq);
+                        deltas.merge(reviewId, entry.delta(), Integer::sum);
+                    }
+                    registered[0] = seq;
+                });
+            } catch (RuntimeException e) {
+                if (registered[0] != 0) {
+                    unregister(registered[0], entry, replaced[0]);
+                }
+                throw e;
+            }
+        }
+    }
+
+    // Отменить регистрацию записи, которая не попала в журнал
+    private synchronized void unregister(int seq, Pending entry, Integer replaced) {
+        if (pending.remove(seq) == null) {
+            return;
+        }
+        subtract(entry);
+        if (replaced != null && pending.containsKey(replaced)) {
+            latest.put(entry.pair(), replaced);
+        } else {
+            latest.remove(entry.pair(), seq);
+        }
+    }
+
+    // Состояние реакции: последняя несжатая запись журнала, иначе review_likes
+    private int getReaction(Pair pair) {
+        synchronized (this) {
+            Integer seq = latest.get(pair);
+            if (seq != null) {
+                return pending.get(seq).reaction();
+            }
+        }
+        return reviewRepository.getReaction(pair.reviewId(), pair.userId());
+    }
+
+    // Сжатие выполняется одним потоком за раз: иначе более старое состояние пары могло бы
+    // зафиксироваться позже нового
+    private void drain() {
+        drainLock.lock();
+        try {
+            drainBatches();
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    private void drainBatches() {
+        List<ReviewReaction> compacted;
+        do {
+            compacted = transactionTemplate.execute(status -> reviewRepository.compactReactions(compactionBatch));
+            // Вклад снимается только у записей, которые попали в сжатие
+            synchronized (this) {
+                for (ReviewReaction entry : compacted) {
+                    Pending removed = pending.remove(entry.seq());
+                    if (removed != null) {
+                        latest.remove(removed.pair(), entry.seq());
+                        subtract(removed);
+                    }
+                }
+            }
+        } while (compacted.size() == compactionBatch);
+    }
+
+    // Вызывается под блокировкой this
+    private void forget(Predicate<Pending> condition) {
+        pending.entrySet().removeIf(entry -> {
+            if (!condition.test(entry.getValue())) {
+                return false;
+            }
+            latest.remove(entry.getValue().pair(), entry.getKey());
+            subtract(entry.getValue());
+            return true;
+        });
+    }
+
+    private void subtract(Pending entry) {
+        deltas.computeIfPresent(entry.pair().reviewId(), (reviewId, delta) ->
+                delta == entry.delta() ? null : delta - entry.delta());
+    }
+
+    private record Pair(int reviewId, int userId) {
+    }
+
+    private record Pending(Pair pair, int reaction, int delta) {
+    }
+}
@@ -0,0 +1,39 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.ConflictException;
+
+import java.util.function.Supplier;
+
+// Повтор изменения при конфликте версий. Каждая попытка заново читает объект, применяет к нему запрос
+// и записывает с проверкой версии. Повторы идут в той же транзакции: при READ COMMITTED (уровень H2
+// по умолчанию) повторное чтение видит изменение, из-за которого не удалась предыдущая попытка
+@Component
+public class ConflictRetry {
+    private static final Logger logger = LoggerFactory.getLogger(ConflictRetry.class);
+
+    private final int maxAttempts;
+
+    @Autowired
+    public ConflictRetry(@Value("${filmorate.optimistic-lock.max-attempts:3}") int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    public <T> T run(Supplier<T> attempt) {
+        for (int i = 1; ; i++) {
+            try {
+                return attempt.get();
+            } catch (ConflictException e) {
+                if (i >= maxAttempts) {
+                    logger.warn("Конфликт версий не разрешён за {} попыток: {}", i, e.getMessage());
+                    throw e;
+                }
+                logger.debug("Конфликт версий, повтор {} из {}: {}", i, maxAttempts - 1, e.getMessage());
+            }
+        }
+    }
+}
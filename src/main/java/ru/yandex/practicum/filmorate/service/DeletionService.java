@@ -0,0 +1,261 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.cache.ResourceVersions;
+import ru.yandex.practicum.filmorate.dal.CatalogueCounterRepository;
+import ru.yandex.practicum.filmorate.dal.DeletionJobRepository;
+import ru.yandex.practicum.filmorate.dal.FilmRepository;
+import ru.yandex.practicum.filmorate.dal.ReviewRepository;
+import ru.yandex.practicum.filmorate.dal.UserRepository;
+import ru.yandex.practicum.filmorate.dto.DeletionJobDto;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.mapper.DeletionJobMapper;
+import ru.yandex.practicum.filmorate.model.DeletionJob;
+import ru.yandex.practicum.filmorate.model.changes.FilmChange;
+import ru.yandex.practicum.filmorate.model.changes.LikeChange;
+import ru.yandex.practicum.filmorate.model.events.Operation;
+import ru.yandex.practicum.filmorate.readmodel.ReviewUsefulCounter;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntUnaryOperator;
+
+// Фоновое удаление пользователей и фильмов. Удаление помечает сущность (deleted_at), после чего она
+// не читается, и создаёт задание в deletion_jobs. Зависимые строки удаляются частями по chunk-size строк,
+// каждая часть — своей транзакцией с паузой chunk-pause-ms, поэтому удаление активного пользователя
+// не блокирует надолго film_likes, friendships и остальные таблицы. Последней удаляется строка сущности.
+// Задания выполняются в пуле задач, а не в потоке планировщика, чтобы долгое удаление не задерживало
+// остальные задачи по расписанию.
+// Включается настройкой filmorate.deletion.async-enabled; незавершённые задания доделываются всегда
+@Service
+public class DeletionService {
+    private static final Logger logger = LoggerFactory.getLogger(DeletionService.class);
+
+    private final DeletionJobRepository deletionJobRepository;
+    private final UserRepository userRepository;
+    private final FilmRepository filmRepository;
+    private final ReviewRepository reviewRepository;
+    private final CatalogueCounterRepository catalogueCounterRepository;
+    private final ResourceVersions resourceVersions;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ReviewUsefulCounter reviewUsefulCounter;
+    // Каждая часть удаляется своей транзакцией
+    private final TransactionTemplate transactionTemplate;
+    private final TaskExecutor taskExecutor;
+    private final boolean enabled;
+    private final int chunkSize;
+    private final long chunkPauseMs;
+    private final AtomicBoolean purgeScheduled = new AtomicBoolean();
+
+    @Autowired
+    public DeletionService(DeletionJobRepository deletionJobRepository, UserRepository userRepository,
+                           FilmRepository filmRepository, ReviewRepository reviewRepository,
+                           CatalogueCounterRepository catalogueCounterRepository, ResourceVersions resourceVersions,
+                           ApplicationEventPublisher eventPublisher, ReviewUsefulCounter reviewUsefulCounter,
+                           PlatformTransactionManager transactionManager,
+                           @Qualifier("applicationTaskExecutor") TaskExecutor taskExecutor,
+                           @Value("${filmorate.deletion.async-enabled:false}") boolean enabled,
+                           @Value("${filmorate.deletion.chunk-size:500}") int chunkSize,
+                           @Value("${filmorate.deletion.chunk-pause-ms:20}") long chunkPauseMs) {
+        this.deletionJobRepository = deletionJobRepository;
+        this.userRepository = userRepository;
+        this.filmRepository = filmRepository;
+        this.reviewRepository = reviewRepository;
+        this.catalogueCounterRepository = catalogueCounterRepository;
+        this.resourceVersions = resourceVersions;
+        this.eventPublisher = eventPublisher;
+        this.reviewUsefulCounter = reviewUsefulCounter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.taskExecutor = taskExecutor;
+        this.enabled = enabled;
+        this.chunkSize = chunkSize;
+        this.chunkPauseMs = chunkPauseMs;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Пометить пользователя удалённым и поставить его удаление в очередь; существование проверяет вызывающий
+    @Transactional
+    public DeletionJobDto scheduleUserDeletion(int userId) {
+        logger.debug("Запрос на фоновое удаление пользователя с id = {}", userId);
+        userRepository.tombstoneUser(userId);
+        // Несжатые реакции пользователя на отзывы больше не учитываются в useful и не сжимаются в review_likes
+        reviewRepository.deleteLoggedReactionsByUser(userId);
+        reviewUsefulCounter.forgetUser(userId);
+        return DeletionJobMapper.mapToDeletionJobDto(deletionJobRepository.create(DeletionJob.Entity.USER, userId));
+    }
+
+    // Пометить фильм удалённым и поставить его удаление в очередь; существование проверяет вызывающий
+    @Transactional
+    public DeletionJobDto scheduleFilmDeletion(int filmId) {
+        logger.debug("Запрос на фоновое удаление фильма с id = {}", filmId);
+        filmRepository.tombstoneFilm(filmId);
+        resourceVersions.bump(ResourceVersions.Resource.FILMS, ResourceVersions.Resource.LIKES);
+        // Индексы в памяти забывают фильм сразу, его лайки удаляются позже без отдельных событий
+        eventPublisher.publishEvent(new FilmChange(filmId, Operation.REMOVE));
+        return DeletionJobMapper.mapToDeletionJobDto(deletionJobRepository.create(DeletionJob.Entity.FILM, filmId));
+    }
+
+    public DeletionJobDto getJob(int jobId) {
+        logger.debug("Запрос на получение задания удаления с id = {}", jobId);
+        return deletionJobRepository.getById(jobId)
+                .map(DeletionJobMapper::mapToDeletionJobDto)
+                .orElseThrow(() -> {
+                    logger.warn("Задание удаления с id = {} не найдено", jobId);
+                    return new NotFoundException("Задание удаления с id = " + jobId + " не найдено");
+                });
+    }
+
+    public List<DeletionJobDto> getRecentJobs(int count) {
+        logger.debug("Запрос на получение последних заданий удаления: {}", count);
+        return deletionJobRepository.getRecent(count).stream()
+                .map(DeletionJobMapper::mapToDeletionJobDto)
+                .toList();
+    }
+
+    // Передать незавершённые задания в пул задач; пока прошлый запуск не закончен, новый не ставится
+    @Scheduled(fixedDelayString = "${filmorate.deletion.purge-interval-ms:1000}")
+    public void schedulePurge() {
+        if (purgeScheduled.compareAndSet(false, true)) {
+            taskExecutor.execute(() -> {
+                try {
+                    purge();
+                } finally {
+                    purgeScheduled.set(false);
+                }
+            });
+        }
+    }
+
+    // Выполнить незавершённые задания. Части удаляются повторно безопасно, поэтому задание,
+    // прерванное ошибкой или остановкой приложения, продолжается с начала при следующем запуске
+    public synchronized void purge() {
+        for (DeletionJob job : deletionJobRepository.getPending()) {
+            try {
+                if (!purge(job)) {
+                    return;
+                }
+            } catch (RuntimeException e) {
+                logger.error("Не удалось завершить задание удаления с id = {}, повтор при следующем запуске",
+                        job.getJobId(), e);
+            }
+        }
+    }
+
+    // Возвращает false, если удаление прервано остановкой приложения
+    private boolean purge(DeletionJob job) {
+        int entityId = job.getEntityId();
+        for (Step step : steps(job.getEntity(), entityId)) {
+            int deleted;
+            do {
+                Integer rows = transactionTemplate.execute(status -> {
+                    int count = step.chunk().applyAsInt(chunkSize);
+                    if (count > 0) {
+                        deletionJobRepository.addProgress(job.getJobId(), step.table(), count);
+                    }
+                    return count;
+                });
+                deleted = rows != null ? rows : 0;
+                if (deleted >= chunkSize && !pause()) {
+                    return false;
+                }
+            } while (deleted >= chunkSize);
+        }
+
+        // Оставшиеся строки (например, лайки помеченным фильмам) удаляются каскадно вместе с сущностью
+        transactionTemplate.executeWithoutResult(status -> {
+            switch (job.getEntity()) {
+                case USER -> userRepository.removeUserById(entityId);
+                case FILM -> filmRepository.removeTombstonedFilm(entityId);
+            }
+            deletionJobRepository.finish(job.getJobId());
+        });
+        if (job.getEntity() == DeletionJob.Entity.USER) {
+            reviewUsefulCounter.forgetUser(entityId);
+        }
+        logger.info("Завершено задание удаления {} с id = {}", job.getEntity(), entityId);
+        return true;
+    }
+
+    // Зависимые таблицы в порядке удаления
+    private List<Step> steps(DeletionJob.Entity entity, int entityId) {
+        return switch (entity) {
+            case USER -> List.of(
+                    new Step("film_likes", limit -> purgeUserLikes(entityId, limit)),
+                    new Step("review_likes", limit -> purgeUserReactions(entityId, limit)),
+                    new Step("reviews", limit -> purgeReviews(deletionJobRepository.findUserReviews(entityId, limit))),
+                    new Step("friendships", limit -> deletionJobRepository.deleteFriendships(entityId, limit)),
+                    new Step("events", limit -> deletionJobRepository.deleteEvents(entityId, limit))
+            );
+            case FILM -> List.of(
+                    new Step("film_likes", limit -> deletionJobRepository.deleteFilmLikes(entityId, limit)),
+                    new Step("film_like_buckets", limit -> deletionJobRepository.deleteLikeBuckets(entityId)),
+                    new Step("reviews", limit -> purgeReviews(deletionJobRepository.findFilmReviews(entityId, limit))),
+                    new Step("film_genres", limit -> deletionJobRepository.deleteFilmGenres(entityId, limit)),
+                    new Step("film_directors", limit -> deletionJobRepository.deleteFilmDirectors(entityId, limit))
+            );
+        };
+    }
+
+    // Лайки пользователя удаляются так же, как при синхронном удалении: индексы узнают о каждом из них
+    private int purgeUserLikes(int userId, int limit) {
+        Map<Integer, Instant> likeTimes = deletionJobRepository.findUserLikes(userId, limit);
+        if (likeTimes.isEmpty()) {
+            return 0;
+        }
+        deletionJobRepository.deleteUserLikes(userId, likeTimes.keySet());
+        filmRepository.refreshSummaries(likeTimes.keySet());
+        likeTimes.keySet().forEach(filmId -> catalogueCounterRepository.adjustLikes(filmId, -1));
+        resourceVersions.bump(ResourceVersions.Resource.LIKES);
+        likeTimes.forEach((filmId, likedAt) -> eventPublisher.publishEvent(
+                new LikeChange(filmId, userId, Operation.REMOVE, likedAt)));
+        return likeTimes.size();
+    }
+
+    // Снять реакции пользователя и пересчитать useful и оценку затронутых отзывов
+    private int purgeUserReactions(int userId, int limit) {
+        List<Integer> reviewIds = deletionJobRepository.deleteUserReactions(userId, limit);
+        reviewRepository.recompute(reviewIds);
+        return reviewIds.size();
+    }
+
+    private int purgeReviews(List<Integer> reviewIds) {
+        reviewIds.forEach(reviewId -> {
+            reviewRepository.delete(reviewId);
+            reviewUsefulCounter.forgetReview(reviewId);
+        });
+        return reviewIds.size();
+    }
+
+    private boolean pause() {
+        if (chunkPauseMs <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(chunkPauseMs);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    // Таблица и удаление одной части её строк; chunk возвращает число удалённых строк
+    private record Step(String table, IntUnaryOperator chunk) {
+    }
+}
@@ -3,13 +3,19 @@ package ru.yandex.practicum.filmorate.service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.cache.ResourceVersions;
 import ru.yandex.practicum.filmorate.dal.DirectorRepository;
+import ru.yandex.practicum.filmorate.dal.FilmRepository;
 import ru.yandex.practicum.filmorate.dto.NewDirectorRequest;
 import ru.yandex.practicum.filmorate.dto.UpdateDirectorRequest;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.mapper.DirectorMapper;
 import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.changes.DirectorChange;
+import ru.yandex.practicum.filmorate.model.events.Operation;
 
 import java.util.List;
 import java.util.Optional;
@@ -17,11 +23,21 @@ import java.util.Optional;
 @Service
 public class DirectorService {
     private final DirectorRepository directorRepository;
+    // Проекция film_summary содержит имена режиссёров
+    private final FilmRepository filmRepository;
+    // Версии ресурсов для HTTP-кэширования
+    private final ResourceVersions resourceVersions;
+    // Публикация изменений режиссёров для in-memory индексов
+    private final ApplicationEventPublisher eventPublisher;
     private static final Logger logger = LoggerFactory.getLogger(DirectorService.class);
 
     @Autowired
-    public DirectorService(DirectorRepository directorRepository) {
+    public DirectorService(DirectorRepository directorRepository, FilmRepository filmRepository,
+                           ResourceVersions resourceVersions, ApplicationEventPublisher eventPublisher) {
         this.directorRepository = directorRepository;
+        this.filmRepository = filmRepository;
+        this.resourceVersions = resourceVersions;
+        this.eventPublisher = eventPublisher;
     }
 
     public List<Director> getAll() {
@@ -47,11 +63,13 @@ public class DirectorService {
 
         Director director = DirectorMapper.mapToDirector(request);
         director = directorRepository.create(director);
+        resourceVersions.bump(ResourceVersions.Resource.DIRECTORS);
 
         logger.info("Создан режиссёр: {}", director);
         return director;
     }
 
+    @Transactional
     public Director update(UpdateDirectorRequest request) {
         logger.debug("Запрос на изменение режиссёра с id = {}", request.getId());
         logger.debug("Входные данные: {}", request);
@@ -67,11 +85,16 @@ public class DirectorService {
 
         Director updatedDirector = DirectorMapper.updateDirectorFields(director, request);
         updatedDirector = directorRepository.update(updatedDirector);
+        filmRepository.refreshSummaries(filmRepository.getFilmIdsByDirectorId(updatedDirector.getId()));
+        // Режиссёры входят в представление фильмов
+        resourceVersions.bump(ResourceVersions.Resource.DIRECTORS, ResourceVersions.Resource.FILMS);
+        eventPublisher.publishEvent(new DirectorChange(updatedDirector.getId(), Operation.UPDATE));
 
         logger.info("Изменен режиссёр: {}", updatedDirector);
         return updatedDirector;
     }
 
+    @Transactional
     public void removeById(int id) {
         logger.debug("Запрос на удаление режиссёра с id = {}", id);
 
@@ -81,7 +104,12 @@ public class DirectorService {
             throw new NotFoundException("Режиссёр с id = " + id + " не найден");
         }
 
+        // Связи с фильмами удаляются каскадно, поэтому фильмы режиссёра запоминаются до удаления
+        List<Integer> filmIds = filmRepository.getFilmIdsByDirectorId(id);
         directorRepository.removeById(id);
+        filmRepository.refreshSummaries(filmIds);
+        resourceVersions.bump(ResourceVersions.Resource.DIRECTORS, ResourceVersions.Resource.FILMS);
+        eventPublisher.publishEvent(new DirectorChange(id, Operation.REMOVE));
         logger.debug("Удалён режиссёр с id = {}", id);
     }
 }
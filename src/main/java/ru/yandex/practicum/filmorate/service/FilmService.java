@@ -3,24 +3,38 @@ package ru.yandex.practicum.filmorate.service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.dal.*;
 import ru.yandex.practicum.filmorate.dto.*;
 import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.buffer.LikeWriteBuffer;
+import ru.yandex.practicum.filmorate.cache.ResourceVersions;
 import ru.yandex.practicum.filmorate.dal.*;
 import ru.yandex.practicum.filmorate.dto.*;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.index.DirectorFilmIndex;
+import ru.yandex.practicum.filmorate.index.TrendingIndex;
+import ru.yandex.practicum.filmorate.index.TrendingWindow;
+import ru.yandex.practicum.filmorate.index.UserLikesIndex;
 import ru.yandex.practicum.filmorate.mapper.FilmMapper;
 import ru.yandex.practicum.filmorate.model.Director;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.model.changes.FilmChange;
+import ru.yandex.practicum.filmorate.model.changes.LikeChange;
 import ru.yandex.practicum.filmorate.model.events.Event;
 import ru.yandex.practicum.filmorate.model.events.EventType;
 import ru.yandex.practicum.filmorate.model.events.Operation;
+import ru.yandex.practicum.filmorate.readmodel.FilmReadModel;
+import ru.yandex.practicum.filmorate.sketch.PopularityEstimate;
+import ru.yandex.practicum.filmorate.sketch.PopularityEstimator;
 
+import java.time.Instant;
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 // Сервис по работе с фильмами
@@ -42,23 +56,61 @@ public class FilmService {
     private final EventRepository eventRepository;
     // Репозиторий режиссёров
     private final DirectorRepository directorRepository;
+    // Версии ресурсов для HTTP-кэширования
+    private final ResourceVersions resourceVersions;
+    // Публикация изменений фильмов и лайков для in-memory индексов
+    private final ApplicationEventPublisher eventPublisher;
+    // Индекс трендов
+    private final TrendingIndex trendingIndex;
+    // Приблизительная оценка популярности
+    private final PopularityEstimator popularityEstimator;
+    // Индекс фильмографий режиссёров
+    private final DirectorFilmIndex directorFilmIndex;
+    // Денормализованная модель чтения каталога
+    private final FilmReadModel filmReadModel;
+    // Буфер отложенной записи лайков
+    private final LikeWriteBuffer likeWriteBuffer;
+    // Фильтры лайков пользователей
+    private final UserLikesIndex userLikesIndex;
+    // Фоновое удаление фильмов
+    private final DeletionService deletionService;
+    // Повтор изменения при конфликте версий
+    private final ConflictRetry conflictRetry;
     private static final int MIN_RELEASE_YEAR = 1895;
 
     @Autowired
     public FilmService(FilmRepository filmRepository, GenreRepository genreRepository,
                        MpaRepository mpaRepository, UserRepository userRepository,
-                       DirectorRepository directorRepository, EventRepository eventRepository) {
+                       DirectorRepository directorRepository, EventRepository eventRepository,
+                       ResourceVersions resourceVersions, ApplicationEventPublisher eventPublisher,
+                       TrendingIndex trendingIndex, PopularityEstimator popularityEstimator,
+                       DirectorFilmIndex directorFilmIndex, FilmReadModel filmReadModel,
+                       LikeWriteBuffer likeWriteBuffer, UserLikesIndex userLikesIndex,
+                       DeletionService deletionService, ConflictRetry conflictRetry) {
         this.filmRepository = filmRepository;
         this.genreRepository = genreRepository;
         this.mpaRepository = mpaRepository;
         this.userRepository = userRepository;
         this.eventRepository = eventRepository;
         this.directorRepository = directorRepository;
+        this.resourceVersions = resourceVersions;
+        this.eventPublisher = eventPublisher;
+        this.trendingIndex = trendingIndex;
+        this.popularityEstimator = popularityEstimator;
+        this.directorFilmIndex = directorFilmIndex;
+        this.filmReadModel = filmReadModel;
+        this.likeWriteBuffer = likeWriteBuffer;
+        this.userLikesIndex = userLikesIndex;
+        this.deletionService = deletionService;
+        this.conflictRetry = conflictRetry;
     }
 
     // Вернуть все фильмы
     public List<FilmDto> getAll() {
         logger.debug("Запрос на получение всех фильмов");
+        if (filmReadModel.isEnabled()) {
+            return filmReadModel.getAll();
+        }
         return filmRepository.getAll().stream()
                 .map(FilmMapper::mapToFilmDto)
                 .collect(Collectors.toList());
@@ -67,6 +119,13 @@ public class FilmService {
     // Вернуть фильм по id
     public FilmDto getById(int id) {
         logger.debug("Запрос на получение фильма с id = {}", id);
+        if (filmReadModel.isEnabled()) {
+            // Только что созданного фильма может ещё не быть в модели чтения — тогда он читается из БД
+            Optional<FilmDto> maybeDocument = filmReadModel.getById(id);
+            if (maybeDocument.isPresent()) {
+                return maybeDocument.get();
+            }
+        }
         Optional<Film> maybeFilm = filmRepository.getById(id);
         if (maybeFilm.isEmpty()) {
             logger.warn("Фильм с id = {} не найден", id);
@@ -81,92 +140,85 @@ public class FilmService {
         logger.debug("Запрос на создания нового фильма");
         logger.debug("Входные данные: {}", request);
 
-        Optional<MpaRating> maybeRating = mpaRepository.getById(request.getMpa().getId());
-        if (maybeRating.isEmpty()) {
-            logger.warn("Рейтинг с id = {} не найден", request.getMpa().getId());
-            throw new NotFoundException("Рейтинг с id = " + request.getMpa().getId() + " не найден");
-        }
-        MpaRating mpaRating = maybeRating.get();
-
-        Set<Genre> genres = new HashSet<>();
-        if (request.getGenres() != null) {
-            for (GenreIdDto genreIdDto : request.getGenres()) {
-                Optional<Genre> maybeGenre = genreRepository.getById(genreIdDto.getId());
-                if (maybeGenre.isEmpty()) {
-                    logger.warn("Жанр с id = {} не найден", genreIdDto.getId());
-                    throw new NotFoundException("Жанр с id = " + genreIdDto.getId() + " не найден");
-                }
-                genres.add(maybeGenre.get());
-            }
-        }
-
-        Set<Director> directors = new HashSet<>();
-        if (request.getDirectors() != null) {
-            for (DirectorIdDto directorIdDto : request.getDirectors()) {
-                Optional<Director> maybeDirector = directorRepository.getById(directorIdDto.getId());
-                if (maybeDirector.isEmpty()) {
-                    logger.warn("Режиссёр с id = {} не найден", directorIdDto.getId());
-                    throw new NotFoundException("Режиссёр с id = " + directorIdDto.getId() + " не найден");
-                }
-                directors.add(maybeDirector.get());
-            }
-        }
+        // Справочные данные проверяются пакетно: число запросов не зависит от количества жанров и режиссёров
+        MpaRating mpaRating = findMpa(request.getMpa().getId());
+        Set<Genre> genres = findGenres(request.getGenres());
+        Set<Director> directors = findDirectors(request.getDirectors());
 
         Film film = FilmMapper.mapToFilm(request, mpaRating, genres, directors);
         filmRepository.create(film);
+        resourceVersions.bump(ResourceVersions.Resource.FILMS);
+        eventPublisher.publishEvent(new FilmChange(film.getId(), Operation.ADD));
         logger.info("Создан фильм: {}", film);
         return FilmMapper.mapToFilmDto(film);
     }
 
+    // Создать несколько фильмов. Справочные данные всей пачки проверяются тремя запросами,
+    // фильмы и их связи с жанрами и режиссёрами записываются пакетами
+    @Transactional
+    public List<FilmDto> createAll(List<NewFilmRequest> requests) {
+        logger.debug("Запрос на создание {} фильмов", requests.size());
+
+        Map<Integer, MpaRating> ratings = mpaRepository.getAll().stream()
+                .collect(Collectors.toMap(MpaRating::getId, Function.identity()));
+        Map<Integer, Genre> genres = findGenres(requests.stream()
+                .map(NewFilmRequest::getGenres)
+                .filter(Objects::nonNull)
+                .flatMap(Set::stream)
+                .collect(Collectors.toSet())).stream()
+                .collect(Collectors.toMap(Genre::getId, Function.identity()));
+        Map<Integer, Director> directors = findDirectors(requests.stream()
+                .map(NewFilmRequest::getDirectors)
+                .filter(Objects::nonNull)
+                .flatMap(Set::stream)
+                .collect(Collectors.toSet())).stream()
+                .collect(Collectors.toMap(Director::getId, Function.identity()));
+
+        List<Film> films = new ArrayList<>(requests.size());
+        for (NewFilmRequest request : requests) {
+            MpaRating mpaRating = ratings.get(request.getMpa().getId());
+            if (mpaRating == null) {
+                logger.warn("Рейтинг с id = {} не найден", request.getMpa().getId());
+                throw new NotFoundException("Рейтинг с id = " + request.getMpa().getId() + " не найден");
+            }
+            films.add(FilmMapper.mapToFilm(request, mpaRating,
+                    pick(request.getGenres(), GenreIdDto::getId, genres),
+                    pick(request.getDirectors(), DirectorIdDto::getId, directors)));
+        }
+
+        filmRepository.createAll(films);
+        resourceVersions.bump(ResourceVersions.Resource.FILMS);
+        films.forEach(film -> eventPublisher.publishEvent(new FilmChange(film.getId(), Operation.ADD)));
+        logger.info("Создано фильмов: {}", films.size());
+        return films.stream()
+                .map(FilmMapper::mapToFilmDto)
+                .toList();
+    }
+
     // Изменить фильм
     @Transactional
     public FilmDto update(UpdateFilmRequest request) {
         logger.debug("Запрос на изменение фильма с id = {}", request.getId());
         logger.debug("Входные данные: {}", request);
 
-        Optional<Film> maybeFilm = filmRepository.getById(request.getId());
-        if (maybeFilm.isEmpty()) {
-            logger.warn("Фильм с id = {} не найден", request.getId());
-            throw new NotFoundException("Фильм с id = " + request.getId() + " не найден");
-        }
-
-        Set<Director> directors = new HashSet<>();
-        if (request.hasDirectors()) {
-            for (DirectorIdDto directorIdDto : request.getDirectors()) {
-                Optional<Director> maybeDirector = directorRepository.getById(directorIdDto.getId());
-                if (maybeDirector.isEmpty()) {
-                    logger.warn("Режиссёр с id = {} не найден", directorIdDto.getId());
-                    throw new NotFoundException("Режиссёр с id = " + directorIdDto.getId() + " не найден");
-                }
-                directors.add(maybeDirector.get());
+        // Запрос применяется к свежему состоянию фильма, пока запись с проверкой версии не пройдёт
+        Film updatedFilm = conflictRetry.run(() -> {
+            Optional<Film> maybeFilm = filmRepository.getById(request.getId());
+            if (maybeFilm.isEmpty()) {
+                logger.warn("Фильм с id = {} не найден", request.getId());
+                throw new NotFoundException("Фильм с id = " + request.getId() + " не найден");
             }
-        }
 
-        MpaRating mpaRating = null;
-        if (request.hasMpa()) {
-            Optional<MpaRating> maybeRating = mpaRepository.getById(request.getMpa().getId());
-            if (maybeRating.isEmpty()) {
-                logger.warn("Рейтинг с id = {} не найден", request.getMpa().getId());
-                throw new NotFoundException("Рейтинг с id = " + request.getMpa().getId() + " не найден");
-            }
-            mpaRating = maybeRating.get();
-        }
-
-        Set<Genre> genres = new HashSet<>();
-        if (request.hasGenres()) {
-            for (GenreIdDto genreIdDto : request.getGenres()) {
-                Optional<Genre> maybeGenre = genreRepository.getById(genreIdDto.getId());
-                if (maybeGenre.isEmpty()) {
-                    logger.warn("Жанр с id = {} не найден", genreIdDto.getId());
-                    throw new NotFoundException("Жанр с id = " + genreIdDto.getId() + " не найден");
-                }
-                genres.add(maybeGenre.get());
-            }
-        }
+            Set<Director> directors = request.hasDirectors() ? findDirectors(request.getDirectors()) : new HashSet<>();
+            MpaRating mpaRating = request.hasMpa() ? findMpa(request.getMpa().getId()) : null;
+            Set<Genre> genres = request.hasGenres() ? findGenres(request.getGenres()) : new HashSet<>();
 
-        logger.debug("Исходное состояние: {}", maybeFilm.get());
-        Film updatedFilm = FilmMapper.updateFilmFields(maybeFilm.get(), request, directors, mpaRating, genres);
-        updatedFilm = filmRepository.update(updatedFilm);
+            logger.debug("Исходное состояние: {}", maybeFilm.get());
+            return filmRepository.update(
+                    FilmMapper.updateFilmFields(maybeFilm.get(), request, directors, mpaRating, genres));
+        });
+        resourceVersions.bump(ResourceVersions.Resource.FILMS);
+        eventPublisher.publishEvent(new FilmChange(updatedFilm.getId(), Operation.UPDATE));
 
         logger.info("Изменён фильм: {}", updatedFilm);
         return FilmMapper.mapToFilmDto(updatedFilm);
@@ -185,14 +237,24 @@ public class FilmService {
             logger.warn("Пользователь с id = {} не найден", userId);
             throw new NotFoundException("Пользователь с id = " + userId + " не найден");
         }
-        if (filmRepository.getLikesUserId(filmId).contains(userId)) {
+        // Фильтр не должен отставать от таблицы: лишний лайк в нём безопасен, недостающий — нет
+        userLikesIndex.add(filmId, userId);
+        if (likeWriteBuffer.isEnabled()) {
+            // Лайк будет записан вместе с остальными, индексы узнают о нём после записи
+            likeWriteBuffer.accept(filmId, userId, true);
+            logger.info("Лайк пользователя с id = {} фильму с id = {} принят в буфер", userId, filmId);
+            eventRepository.create(new Event(userId, filmId, EventType.LIKE, Operation.ADD));
+            return;
+        }
+        // Проверка повторного лайка выполняется самой вставкой
+        if (!filmRepository.putLike(filmId, userId)) {
             logger.warn("Пользователь с id = {} уже поставил лайк фильму с id = {}", userId, filmId);
             // Повторная попытка тоже должна попадать в события
             eventRepository.create(new Event(userId, filmId, EventType.LIKE, Operation.ADD));
             return;
         }
 
-        filmRepository.putLike(filmId, userId);
+        eventPublisher.publishEvent(new LikeChange(filmId, userId, Operation.ADD, Instant.now()));
         logger.info("Пользователь с id = {} поставил лайк фильму с id = {}", userId, filmId);
 
         eventRepository.create(new Event(userId, filmId, EventType.LIKE, Operation.ADD));
@@ -212,7 +274,17 @@ public class FilmService {
             throw new NotFoundException("Пользователь с id = " + userId + " не найден");
         }
 
+        if (likeWriteBuffer.isEnabled()) {
+            likeWriteBuffer.accept(filmId, userId, false);
+            logger.info("Удаление лайка пользователя с id = {} у фильма с id = {} принято в буфер", userId, filmId);
+            eventRepository.create(new Event(userId, filmId, EventType.LIKE, Operation.REMOVE));
+            return;
+        }
+        // Время лайка нужно индексам, чтобы уменьшить счётчик того интервала, в котором лайк был поставлен
+        Optional<Instant> likedAt = filmRepository.getLikeTime(filmId, userId);
         filmRepository.removeLike(filmId, userId);
+        likedAt.ifPresent(time -> eventPublisher.publishEvent(
+                new LikeChange(filmId, userId, Operation.REMOVE, time)));
         logger.info("Пользователь с id = {} убрал лайк у фильма с id = {}", userId, filmId);
 
         eventRepository.create(new Event(userId, filmId, EventType.LIKE, Operation.REMOVE));
@@ -246,6 +318,12 @@ public class FilmService {
             throw new ValidationException("Жанр с id " + genreId + " не найден");
         }
 
+        if (filmReadModel.isEnabled()) {
+            List<FilmDto> popular = filmReadModel.getPopular(count, genreId, year);
+            logger.info("Популярные фильмы: {}", popular.stream().map(FilmDto::getId).collect(Collectors.toList()));
+            return popular;
+        }
+
         // Репозиторий сам применяет фильтры (если они заданы) и сортирует по лайкам
         List<Film> popular = filmRepository.getPopular(count, genreId, year);
         logger.info("Популярные фильмы: {}", popular.stream().map(Film::getId).collect(Collectors.toList()));
@@ -253,8 +331,62 @@ public class FilmService {
         return popular.stream().map(FilmMapper::mapToFilmDto).collect(Collectors.toList());
     }
 
-    // Удалить фильм по id
-    public void removeFilmById(int filmId) {
+    // Обслуживается ли запрос популярных фильмов приблизительным режимом.
+    // Скетч считает лайки по всем фильмам, поэтому запросы с фильтрами всегда точные
+    public boolean isPopularEstimated(Integer genreId, Integer year) {
+        return popularityEstimator.isEnabled() && genreId == null && year == null;
+    }
+
+    // Получить первые count фильмов по оценке количества лайков (приблизительный режим)
+    public EstimatedPopularFilmsDto getPopularEstimated(int count) {
+        logger.debug("Запрос на получение популярных фильмов по оценке: count={}", count);
+
+        if (count <= 0) {
+            logger.warn("Количество фильмов должно быть положительным числом");
+            throw new ValidationException("Количество фильмов должно быть положительным числом");
+        }
+
+        PopularityEstimate estimate = popularityEstimator.getTop(count);
+        Map<Integer, Film> filmsById = filmRepository.getByIds(estimate.filmIds()).stream()
+                .collect(Collectors.toMap(Film::getId, film -> film));
+        logger.info("Популярные фильмы по оценке: {}, погрешность: {}", estimate.filmIds(), estimate.errorBound());
+
+        EstimatedPopularFilmsDto dto = new EstimatedPopularFilmsDto();
+        dto.setFilms(estimate.filmIds().stream()
+                .map(filmsById::get)
+                .filter(Objects::nonNull)
+                .map(FilmMapper::mapToFilmDto)
+                .collect(Collectors.toList()));
+        dto.setErrorBound(estimate.errorBound());
+        dto.setConfidence(estimate.confidence());
+        dto.setTotalLikes(estimate.totalLikes());
+        return dto;
+    }
+
+    // Получить первые count фильмов по количеству лайков за последний час, день или неделю
+    public List<FilmDto> getTrending(String window, int count) {
+        logger.debug("Запрос на получение трендов: window={}, count={}", window, count);
+
+        if (count <= 0) {
+            logger.warn("Количество фильмов должно быть положительным числом");
+            throw new ValidationException("Количество фильмов должно быть положительным числом");
+        }
+
+        List<Integer> filmIds = trendingIndex.getTop(TrendingWindow.from(window), count);
+        Map<Integer, Film> filmsById = filmRepository.getByIds(filmIds).stream()
+                .collect(Collectors.toMap(Film::getId, film -> film));
+        logger.info("Тренды за окно {}: {}", window, filmIds);
+
+        // Порядок задаёт индекс; фильмы, удалённые после попадания в индекс, пропускаются
+        return filmIds.stream()
+                .map(filmsById::get)
+                .filter(Objects::nonNull)
+                .map(FilmMapper::mapToFilmDto)
+                .collect(Collectors.toList());
+    }
+
+    // Удалить фильм по id. При фоновом удалении возвращается его задание
+    public Optional<DeletionJobDto> removeFilmById(int filmId) {
         logger.debug("Запрос на удаление фильма с id = {}", filmId);
 
         Optional<Film> maybeFilm = filmRepository.getById(filmId);
@@ -263,30 +395,69 @@ public class FilmService {
             throw new NotFoundException("Фильм с id = " + filmId + " не найден");
         }
 
+        // Незаписанные лайки удаляемого фильма не должны попасть в film_likes после удаления
+        likeWriteBuffer.dropFilm(filmId);
+        if (deletionService.isEnabled()) {
+            return Optional.of(deletionService.scheduleFilmDeletion(filmId));
+        }
         filmRepository.removeFilmById(filmId);
+        // Без транзакции версии увеличиваются сразу, поэтому сначала обновляются модели чтения
+        eventPublisher.publishEvent(new FilmChange(filmId, Operation.REMOVE));
+        resourceVersions.bump(ResourceVersions.Resource.FILMS, ResourceVersions.Resource.LIKES);
         logger.debug("Удалён фильм с id = {}", filmId);
+        return Optional.empty();
     }
 
-    // Поиск фильмов режиссёра
-    public List<FilmDto> search(int directorId, String sortBy) {
+    // Пересобрать по исходным таблицам всё, что строится из них при запуске и дальше поддерживается
+    // событиями: проекцию film_summary, индекс фильмографий, оценку популярности и модель чтения
+    // (выключенные пропускаются). Нужно после загрузки данных в обход приложения
+    @Transactional
+    public void rebuildCatalogue() {
+        logger.debug("Запрос на пересборку производных данных каталога");
+        filmRepository.rebuildSummaries();
+        directorFilmIndex.load();
+        popularityEstimator.load();
+        filmReadModel.load();
+        resourceVersions.bump(ResourceVersions.Resource.FILMS, ResourceVersions.Resource.LIKES);
+        logger.info("Производные данные каталога пересобраны");
+    }
+
+    // Поиск фильмов режиссёра: offset фильмов пропускается, возвращается не больше limit (null — все)
+    public List<FilmDto> search(int directorId, String sortBy, int offset, Integer limit) {
         Optional<Director> maybeDirector = directorRepository.getById(directorId);
         if (maybeDirector.isEmpty()) {
             logger.warn("Режиссёр с id = {} не найден", directorId);
             throw new NotFoundException("Режиссёр с id = " + directorId + " не найден");
         }
-
-        List<Film> searchResult;
-        if (sortBy.equals("year")) {
-            searchResult = filmRepository.searchDirectorsFilmsSortedByYear(directorId);
-        } else if (sortBy.equals("likes")) {
-            searchResult = filmRepository.searchDirectorsFilmsSortedByLikes(directorId);
-        } else {
+        if (!sortBy.equals("year") && !sortBy.equals("likes")) {
             logger.warn("Переданный параметр сортировки sortBy = {} не поддерживается", sortBy);
             throw new NotFoundException("Переданный параметр сортировки sortBy = " + sortBy + " не поддерживается");
         }
+        int pageSize = limit != null ? limit : Integer.MAX_VALUE;
+
+        if (directorFilmIndex.isEnabled()) {
+            // Порядок и страница берутся из индекса, из БД загружаются только фильмы страницы
+            List<Integer> filmIds = directorFilmIndex.getPage(directorId, sortBy, offset, pageSize);
+            Map<Integer, Film> filmsById = filmRepository.getByIds(filmIds).stream()
+                    .collect(Collectors.toMap(Film::getId, film -> film));
+            logger.info("Найденные фильмы: {}", filmIds);
+            return filmIds.stream()
+                    .map(filmsById::get)
+                    .filter(Objects::nonNull)
+                    .map(FilmMapper::mapToFilmDto)
+                    .collect(Collectors.toList());
+        }
+
+        List<Film> searchResult = sortBy.equals("year")
+                ? filmRepository.searchDirectorsFilmsSortedByYear(directorId)
+                : filmRepository.searchDirectorsFilmsSortedByLikes(directorId);
 
         logger.info("Найденные фильмы: {}", searchResult.stream().map(Film::getId).collect(Collectors.toList()));
-        return searchResult.stream().map(FilmMapper::mapToFilmDto).collect(Collectors.toList());
+        return searchResult.stream()
+                .skip(offset)
+                .limit(pageSize)
+                .map(FilmMapper::mapToFilmDto)
+                .collect(Collectors.toList());
     }
 
     // Поиск по подстроке (title/director/director,title), сортировка по популярности
@@ -308,6 +479,12 @@ public class FilmService {
 
         boolean byTitle = bySet.contains("title");
         boolean byDirector = bySet.contains("director");
+        if (filmReadModel.isEnabled()) {
+            List<FilmDto> found = filmReadModel.search(query.toLowerCase(), byTitle, byDirector);
+            logger.info("Найдено фильмов по поиску: {}", found.size());
+            return found;
+        }
+
         String like = "%" + query.toLowerCase() + "%";
 
         // Репозиторий вернёт отсортированный по популярности список
@@ -317,6 +494,37 @@ public class FilmService {
         return films.stream().map(FilmMapper::mapToFilmDto).collect(Collectors.toList());
     }
 
+    // Дополнить страницу фильмов количеством лайков и, если указан viewerId, признаком лайка зрителя.
+    // Количества читаются одним запросом на страницу, признаки — одним запросом по фильмам, которые
+    // не исключил фильтр лайков. Возвращаются копии: модель чтения отдаёт общие экземпляры FilmDto
+    public List<FilmDto> withLikes(List<FilmDto> films, Integer viewerId) {
+        logger.debug("Запрос на дополнение {} фильмов лайками, зритель: {}", films.size(), viewerId);
+
+        if (viewerId != null && userRepository.getById(viewerId).isEmpty()) {
+            logger.warn("Пользователь с id = {} не найден", viewerId);
+            throw new NotFoundException("Пользователь с id = " + viewerId + " не найден");
+        }
+
+        List<Integer> filmIds = films.stream().map(FilmDto::getId).toList();
+        Map<Integer, Long> likes = filmRepository.getLikeCounts(filmIds);
+        Set<Integer> liked = viewerId == null
+                ? Set.of()
+                : new HashSet<>(filmRepository.getLikedFilmIds(viewerId,
+                        userLikesIndex.filterCandidates(viewerId, filmIds)));
+
+        return films.stream()
+                .map(film -> {
+                    Boolean viewerLiked = null;
+                    if (viewerId != null) {
+                        // Незаписанное изменение из буфера новее состояния БД
+                        viewerLiked = likeWriteBuffer.getPending(film.getId(), viewerId)
+                                .orElse(liked.contains(film.getId()));
+                    }
+                    return FilmMapper.withLikes(film, likes.getOrDefault(film.getId(), 0L), viewerLiked);
+                })
+                .collect(Collectors.toList());
+    }
+
     public List<FilmDto> getCommon(int userId, int friendId) {
         logger.debug("Запрос на получение общих фильмов друзей с id = {} и id = {}",
                 userId, friendId);
@@ -331,8 +539,10 @@ public class FilmService {
             throw new NotFoundException("Пользователь с id = " + friendId + " не найден");
         }
 
-        List<Integer> userFilmsIds = filmRepository.getFilmLikesByUserId(userId);
-        List<Integer> friendsFilmsIds = filmRepository.getFilmLikesByUserId(friendId);
+        // Лайки из буфера, ещё не записанные в БД, тоже учитываются
+        List<Integer> userFilmsIds = likeWriteBuffer.applyPending(userId, filmRepository.getFilmLikesByUserId(userId));
+        List<Integer> friendsFilmsIds = likeWriteBuffer.applyPending(friendId,
+                filmRepository.getFilmLikesByUserId(friendId));
 
         return userFilmsIds.stream()
                 .filter(friendsFilmsIds::contains)
@@ -345,6 +555,60 @@ public class FilmService {
                 .collect(Collectors.toList());
     }
 
+    // Найти рейтинг по id
+    private MpaRating findMpa(int mpaId) {
+        Optional<MpaRating> maybeRating = mpaRepository.getById(mpaId);
+        if (maybeRating.isEmpty()) {
+            logger.warn("Рейтинг с id = {} не найден", mpaId);
+            throw new NotFoundException("Рейтинг с id = " + mpaId + " не найден");
+        }
+        return maybeRating.get();
+    }
+
+    // Найти все жанры одним запросом, первый отсутствующий id приводит к NotFoundException
+    private Set<Genre> findGenres(Set<GenreIdDto> genreIdDtos) {
+        if (genreIdDtos == null || genreIdDtos.isEmpty()) {
+            return new HashSet<>();
+        }
+
+        Set<Integer> ids = genreIdDtos.stream().map(GenreIdDto::getId).collect(Collectors.toSet());
+        Set<Genre> genres = new HashSet<>(genreRepository.getByIds(ids));
+        if (genres.size() < ids.size()) {
+            Set<Integer> foundIds = genres.stream().map(Genre::getId).collect(Collectors.toSet());
+            int missingId = ids.stream().filter(id -> !foundIds.contains(id)).findFirst().orElseThrow();
+            logger.warn("Жанр с id = {} не найден", missingId);
+            throw new NotFoundException("Жанр с id = " + missingId + " не найден");
+        }
+        return genres;
+    }
+
+    // Найти всех режиссёров одним запросом, первый отсутствующий id приводит к NotFoundException
+    private Set<Director> findDirectors(Set<DirectorIdDto> directorIdDtos) {
+        if (directorIdDtos == null || directorIdDtos.isEmpty()) {
+            return new HashSet<>();
+        }
+
+        Set<Integer> ids = directorIdDtos.stream().map(DirectorIdDto::getId).collect(Collectors.toSet());
+        Set<Director> directors = new HashSet<>(directorRepository.getByIds(ids));
+        if (directors.size() < ids.size()) {
+            Set<Integer> foundIds = directors.stream().map(Director::getId).collect(Collectors.toSet());
+            int missingId = ids.stream().filter(id -> !foundIds.contains(id)).findFirst().orElseThrow();
+            logger.warn("Режиссёр с id = {} не найден", missingId);
+            throw new NotFoundException("Режиссёр с id = " + missingId + " не найден");
+        }
+        return directors;
+    }
+
+    // Элементы, найденные для ссылок фильма из пачки
+    private static <D, T> Set<T> pick(Set<D> dtos, Function<D, Integer> id, Map<Integer, T> found) {
+        if (dtos == null) {
+            return new HashSet<>();
+        }
+        return dtos.stream()
+                .map(dto -> found.get(id.apply(dto)))
+                .collect(Collectors.toSet());
+    }
+
     // Разбор и нормализация значения by
     private Set<String> parseBy(String by) {
         return Arrays.stream(by.split(","))
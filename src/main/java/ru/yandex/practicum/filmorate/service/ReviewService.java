@@ -8,16 +8,27 @@ import ru.yandex.practicum.filmorate.dal.EventRepository;
 import ru.yandex.practicum.filmorate.dal.FilmRepository;
 import ru.yandex.practicum.filmorate.dal.ReviewRepository;
 import ru.yandex.practicum.filmorate.dal.UserRepository;
+import ru.yandex.practicum.filmorate.dto.ReviewReactionRequest;
 import ru.yandex.practicum.filmorate.dto.UpdateReviewRequest;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.mapper.ReviewMapper;
 import ru.yandex.practicum.filmorate.model.Review;
+import ru.yandex.practicum.filmorate.model.ReviewReaction;
+import ru.yandex.practicum.filmorate.model.ReviewSort;
+import ru.yandex.practicum.filmorate.model.ReviewView;
 import ru.yandex.practicum.filmorate.model.events.Event;
 import ru.yandex.practicum.filmorate.model.events.EventType;
 import ru.yandex.practicum.filmorate.model.events.Operation;
+import ru.yandex.practicum.filmorate.readmodel.ReviewUsefulCounter;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
@@ -28,6 +39,8 @@ public class ReviewService {
     private final FilmRepository filmRepository;
     private final UserRepository userRepository;
     private final EventRepository eventRepository;
+    private final ReviewUsefulCounter reviewUsefulCounter;
+    private final ConflictRetry conflictRetry;
 
     // Создание нового отзыва
     @Transactional
@@ -55,15 +68,18 @@ public class ReviewService {
         if (request.getReviewId() == null) {
             throw new NotFoundException("Отзыв с id = null не найден");
         }
-        Review existing = reviewRepository.findById(request.getReviewId())
-                .orElseThrow(() -> new NotFoundException("Отзыв с id = " + request.getReviewId() + " не найден"));
-
-        ReviewMapper.updateReviewFields(existing, request);
-
-        eventRepository.create(new Event(existing.getUserId(), existing.getReviewId(),
+        // Запрос применяется к свежему состоянию отзыва, пока запись с проверкой версии не пройдёт
+        Review updated = conflictRetry.run(() -> {
+            Review existing = reviewRepository.findById(request.getReviewId())
+                    .orElseThrow(() -> new NotFoundException("Отзыв с id = " + request.getReviewId() + " не найден"));
+            ReviewMapper.updateReviewFields(existing, request);
+            return reviewRepository.update(existing);
+        });
+
+        eventRepository.create(new Event(updated.getUserId(), updated.getReviewId(),
                 EventType.REVIEW, Operation.UPDATE));
 
-        return reviewRepository.update(existing);
+        return updated;
     }
 
     // Удаление отзыва
@@ -83,52 +99,130 @@ public class ReviewService {
                 EventType.REVIEW, Operation.REMOVE));
 
         reviewRepository.delete(id);
+        reviewUsefulCounter.forgetReview(id);
     }
 
     // Получение одного отзыва
     public Review getById(int id) {
         log.debug("Запрос на получение отзыва id={}", id);
         return reviewRepository.findById(id)
+                .map(this::withPendingUseful)
                 .orElseThrow(() -> new NotFoundException("Отзыв с id = " + id + " не найден"));
     }
 
     // Получение списка отзывов
     public List<Review> getAllByFilm(Integer filmId, int count) {
-        log.debug("Запрос на получение отзывов: filmId={}, count={}", filmId, count);
+        return getAllByFilm(filmId, count, ReviewView.FULL);
+    }
+
+    // Получение списка отзывов в представлении view
+    public List<Review> getAllByFilm(Integer filmId, int count, ReviewView view) {
+        return getAllByFilm(filmId, count, view, ReviewSort.USEFUL);
+    }
+
+    // Получение списка отзывов в представлении view в порядке sort
+    public List<Review> getAllByFilm(Integer filmId, int count, ReviewView view, ReviewSort sort) {
+        log.debug("Запрос на получение отзывов: filmId={}, count={}, view={}, sort={}", filmId, count, view, sort);
         if (filmId != null) {
             filmRepository.getById(filmId)
                     .orElseThrow(() -> new NotFoundException("Фильм с id = " + filmId + " не найден"));
         }
-        return reviewRepository.findAllByFilm(filmId, count);
+        List<Review> reviews = reviewRepository.findAllByFilm(filmId, count, view, sort);
+        if (!reviewUsefulCounter.isEnabled()) {
+            return reviews;
+        }
+        // Оценка best пересчитывается при сжатии журнала, порядок по ней не меняется
+        if (sort == ReviewSort.BEST) {
+            return reviews.stream()
+                    .map(this::withPendingUseful)
+                    .collect(Collectors.toList());
+        }
+        // Несжатые реакции могут изменить порядок отзывов
+        return reviews.stream()
+                .map(this::withPendingUseful)
+                .sorted(Comparator.comparingInt(Review::getUseful).reversed())
+                .collect(Collectors.toList());
     }
 
-    // Реакции
-    @Transactional
+    // Разбор параметра view (full, preview или summary)
+    public static ReviewView parseView(String view) {
+        try {
+            return ReviewView.valueOf(view.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            log.warn("Неизвестное представление отзывов: {}", view);
+            throw new ValidationException("Параметр view должен быть равен full, preview или summary");
+        }
+    }
+
+    // Разбор параметра sort (useful или best)
+    public static ReviewSort parseSort(String sort) {
+        try {
+            return ReviewSort.valueOf(sort.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            log.warn("Неизвестный порядок отзывов: {}", sort);
+            throw new ValidationException("Параметр sort должен быть равен useful или best");
+        }
+    }
+
+    // Добавить к useful вклад реакций, ещё не сжатых из журнала
+    private Review withPendingUseful(Review review) {
+        review.setUseful(review.getUseful() + reviewUsefulCounter.getPendingDelta(review.getReviewId()));
+        return review;
+    }
+
+    // Реакции. Транзакцию открывает ReviewUsefulCounter: запись в журнал реакций должна быть
+    // зафиксирована до того, как следующая реакция той же пары прочитает её состояние
     public void putLike(int reviewId, int userId) {
         log.debug("Запрос на установку лайка: reviewId={}, userId={}", reviewId, userId);
         ensureReviewAndUserExist(reviewId, userId);
-        reviewRepository.like(reviewId, userId);
+        reviewUsefulCounter.like(reviewId, userId);
     }
 
-    @Transactional
     public void putDislike(int reviewId, int userId) {
         log.debug("Запрос на установку дизлайка: reviewId={}, userId={}", reviewId, userId);
         ensureReviewAndUserExist(reviewId, userId);
-        reviewRepository.dislike(reviewId, userId);
+        reviewUsefulCounter.dislike(reviewId, userId);
     }
 
-    @Transactional
     public void removeLike(int reviewId, int userId) {
         log.debug("Запрос на удаление лайка: reviewId={}, userId={}", reviewId, userId);
         ensureReviewAndUserExist(reviewId, userId);
-        reviewRepository.removeLike(reviewId, userId);
+        reviewUsefulCounter.removeLike(reviewId, userId);
     }
 
-    @Transactional
     public void removeDislike(int reviewId, int userId) {
         log.debug("Запрос на удаление дизлайка: reviewId={}, userId={}", reviewId, userId);
         ensureReviewAndUserExist(reviewId, userId);
-        reviewRepository.removeDislike(reviewId, userId);
+        reviewUsefulCounter.removeDislike(reviewId, userId);
+    }
+
+    // Применить пачку реакций. Существование отзывов и пользователей проверяется двумя запросами на всю пачку
+    public void applyReactions(List<ReviewReactionRequest> requests) {
+        log.debug("Запрос на применение пачки из {} реакций на отзывы", requests.size());
+
+        Set<Integer> reviewIds = requests.stream().map(ReviewReactionRequest::getReviewId).collect(Collectors.toSet());
+        Set<Integer> missingReviews = new TreeSet<>(reviewIds);
+        reviewRepository.findExistingIds(reviewIds).forEach(missingReviews::remove);
+        if (!missingReviews.isEmpty()) {
+            log.warn("Отзывы не найдены: {}", missingReviews);
+            throw new NotFoundException("Отзывы с id = " + missingReviews + " не найдены");
+        }
+
+        Set<Integer> userIds = requests.stream().map(ReviewReactionRequest::getUserId).collect(Collectors.toSet());
+        Set<Integer> missingUsers = new TreeSet<>(userIds);
+        userRepository.getExistingIds(userIds).forEach(missingUsers::remove);
+        if (!missingUsers.isEmpty()) {
+            log.warn("Пользователи не найдены: {}", missingUsers);
+            throw new NotFoundException("Пользователи с id = " + missingUsers + " не найдены");
+        }
+
+        // Номер реакции в пачке задаёт её порядок
+        List<ReviewReaction> reactions = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            ReviewReactionRequest request = requests.get(i);
+            reactions.add(new ReviewReaction(i, request.getReviewId(), request.getUserId(), request.getSign()));
+        }
+        reviewUsefulCounter.applyBatch(reactions);
     }
 
     // Проверка существования сущностей
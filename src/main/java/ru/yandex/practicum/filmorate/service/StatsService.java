@@ -0,0 +1,87 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.dal.CatalogueCounterRepository;
+import ru.yandex.practicum.filmorate.dto.CatalogueStatsDto;
+import ru.yandex.practicum.filmorate.dto.DirectorLikesDto;
+import ru.yandex.practicum.filmorate.dto.GenreYearLikesDto;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.mapper.CatalogueCounterMapper;
+import ru.yandex.practicum.filmorate.model.CatalogueCounter;
+import ru.yandex.practicum.filmorate.stats.ColumnarFilmStore;
+
+import java.util.List;
+
+// Статистика каталога: счётчики по жанрам, рейтингам и режиссёрам из catalogue_counters
+// и аналитические запросы по колоночному снимку в памяти
+@Service
+public class StatsService {
+    private final ColumnarFilmStore columnarFilmStore;
+    private final CatalogueCounterRepository catalogueCounterRepository;
+    private static final Logger logger = LoggerFactory.getLogger(StatsService.class);
+
+    @Autowired
+    public StatsService(ColumnarFilmStore columnarFilmStore, CatalogueCounterRepository catalogueCounterRepository) {
+        this.columnarFilmStore = columnarFilmStore;
+        this.catalogueCounterRepository = catalogueCounterRepository;
+    }
+
+    // Количество фильмов, лайков и отзывов по жанрам
+    public List<CatalogueStatsDto> getGenreStats() {
+        logger.debug("Запрос на получение статистики по жанрам");
+        return getStats(CatalogueCounter.Dimension.GENRE);
+    }
+
+    // Количество фильмов, лайков и отзывов по рейтингам MPA
+    public List<CatalogueStatsDto> getMpaStats() {
+        logger.debug("Запрос на получение статистики по рейтингам");
+        return getStats(CatalogueCounter.Dimension.MPA);
+    }
+
+    // Количество фильмов, лайков и отзывов по режиссёрам
+    public List<CatalogueStatsDto> getDirectorStats() {
+        logger.debug("Запрос на получение статистики по режиссёрам");
+        return getStats(CatalogueCounter.Dimension.DIRECTOR);
+    }
+
+    // Сверка счётчиков с исходными таблицами: исправляет расхождения после загрузки данных
+    // в обход приложения или потерянных обновлений
+    @Scheduled(fixedDelayString = "${filmorate.stats.reconcile-interval-ms:600000}",
+            initialDelayString = "${filmorate.stats.reconcile-interval-ms:600000}")
+    @Transactional
+    public void reconcileCounters() {
+        int corrected = catalogueCounterRepository.reconcile();
+        if (corrected > 0) {
+            logger.warn("Исправлено счётчиков каталога при сверке: {}", corrected);
+        } else {
+            logger.debug("Счётчики каталога совпадают с таблицами");
+        }
+    }
+
+    // Количество фильмов и лайков по жанрам и годам релиза
+    public List<GenreYearLikesDto> getLikesByGenreAndYear() {
+        logger.debug("Запрос на получение лайков по жанрам и годам");
+        return columnarFilmStore.getLikesByGenreAndYear();
+    }
+
+    // Первые count режиссёров по сумме лайков
+    public List<DirectorLikesDto> getTopDirectors(int count) {
+        logger.debug("Запрос на получение первых {} режиссёров по лайкам", count);
+        if (count <= 0) {
+            logger.warn("Количество режиссёров должно быть положительным числом");
+            throw new ValidationException("Количество режиссёров должно быть положительным числом");
+        }
+        return columnarFilmStore.getTopDirectors(count);
+    }
+
+    private List<CatalogueStatsDto> getStats(CatalogueCounter.Dimension dimension) {
+        return catalogueCounterRepository.getByDimension(dimension).stream()
+                .map(CatalogueCounterMapper::mapToCatalogueStatsDto)
+                .toList();
+    }
+}
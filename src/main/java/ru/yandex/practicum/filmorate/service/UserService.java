@@ -3,27 +3,39 @@ package ru.yandex.practicum.filmorate.service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.buffer.LikeWriteBuffer;
+import ru.yandex.practicum.filmorate.cache.ResourceVersions;
+import ru.yandex.practicum.filmorate.dal.CatalogueCounterRepository;
 import ru.yandex.practicum.filmorate.dal.EventRepository;
 import ru.yandex.practicum.filmorate.dal.FilmRepository;
+import ru.yandex.practicum.filmorate.dal.ReviewRepository;
 import ru.yandex.practicum.filmorate.dal.UserRepository;
 import ru.yandex.practicum.filmorate.dto.*;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.index.UserLikesIndex;
 import ru.yandex.practicum.filmorate.mapper.EventMapper;
 import ru.yandex.practicum.filmorate.mapper.FilmMapper;
 import ru.yandex.practicum.filmorate.mapper.UserMapper;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.changes.LikeChange;
 import ru.yandex.practicum.filmorate.model.events.Event;
 import ru.yandex.practicum.filmorate.model.events.EventType;
 import ru.yandex.practicum.filmorate.model.events.Operation;
+import ru.yandex.practicum.filmorate.readmodel.ReviewUsefulCounter;
 import ru.yandex.practicum.filmorate.util.StringUtils;
 
+import java.time.Instant;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 // Сервис по работе с пользователями
@@ -36,12 +48,46 @@ public class UserService {
     // Логгер
     private static final Logger logger = LoggerFactory.getLogger(UserService.class);
     private final FilmRepository filmRepository;
+    // Версии ресурсов для HTTP-кэширования
+    private final ResourceVersions resourceVersions;
+    // Публикация изменений лайков для in-memory индексов
+    private final ApplicationEventPublisher eventPublisher;
+    // Счётчики каталога по жанрам, рейтингам и режиссёрам
+    private final CatalogueCounterRepository catalogueCounterRepository;
+    // Фильтры лайков пользователей
+    private final UserLikesIndex userLikesIndex;
+    // Буфер отложенной записи лайков
+    private final LikeWriteBuffer likeWriteBuffer;
+    // Журнал реакций на отзывы
+    private final ReviewUsefulCounter reviewUsefulCounter;
+    // Репозиторий отзывов
+    private final ReviewRepository reviewRepository;
+    // Фоновое удаление пользователей
+    private final DeletionService deletionService;
+    // Повтор изменения при конфликте версий
+    private final ConflictRetry conflictRetry;
+    // Максимальное количество фильмов в одном запросе признаков лайка
+    private static final int MAX_LIKED_FLAGS = 100;
 
     @Autowired
-    public UserService(UserRepository userRepository, EventRepository eventRepository, FilmRepository filmRepository) {
+    public UserService(UserRepository userRepository, EventRepository eventRepository, FilmRepository filmRepository,
+                       ResourceVersions resourceVersions, ApplicationEventPublisher eventPublisher,
+                       CatalogueCounterRepository catalogueCounterRepository, UserLikesIndex userLikesIndex,
+                       LikeWriteBuffer likeWriteBuffer, ReviewUsefulCounter reviewUsefulCounter,
+                       ReviewRepository reviewRepository, DeletionService deletionService,
+                       ConflictRetry conflictRetry) {
         this.userRepository = userRepository;
         this.eventRepository = eventRepository;
         this.filmRepository = filmRepository;
+        this.resourceVersions = resourceVersions;
+        this.eventPublisher = eventPublisher;
+        this.catalogueCounterRepository = catalogueCounterRepository;
+        this.userLikesIndex = userLikesIndex;
+        this.likeWriteBuffer = likeWriteBuffer;
+        this.reviewUsefulCounter = reviewUsefulCounter;
+        this.reviewRepository = reviewRepository;
+        this.deletionService = deletionService;
+        this.conflictRetry = conflictRetry;
     }
 
     // Вернуть всех пользователей
@@ -100,24 +146,26 @@ public class UserService {
             throw new NotFoundException("Не указан id");
         }
 
-        Optional<User> maybeUser = userRepository.getById(request.getId());
+        // Запрос применяется к свежему состоянию пользователя, пока запись с проверкой версии не пройдёт
+        User updatedUser = conflictRetry.run(() -> {
+            Optional<User> maybeUser = userRepository.getById(request.getId());
 
-        if (maybeUser.isEmpty()) {
-            logger.warn("Пользователь с id = {} не найден", request.getId());
-            throw new NotFoundException("Пользователь с id = " + request.getId() + " не найден");
-        }
+            if (maybeUser.isEmpty()) {
+                logger.warn("Пользователь с id = {} не найден", request.getId());
+                throw new NotFoundException("Пользователь с id = " + request.getId() + " не найден");
+            }
 
-        User user = maybeUser.get();
-        logger.debug("Исходное состояние: {}", user);
+            User user = maybeUser.get();
+            logger.debug("Исходное состояние: {}", user);
 
-        if (request.getEmail() != null && !user.getEmail().equals(request.getEmail())
-                && userRepository.getByEmail(request.getEmail()).isPresent()) {
-            logger.warn("Этот email уже используется");
-            throw new ValidationException("Этот email уже используется");
-        }
+            if (request.getEmail() != null && !user.getEmail().equals(request.getEmail())
+                    && userRepository.getByEmail(request.getEmail()).isPresent()) {
+                logger.warn("Этот email уже используется");
+                throw new ValidationException("Этот email уже используется");
+            }
 
-        User updatedUser = UserMapper.updateUserFields(user, request);
-        updatedUser = userRepository.update(updatedUser);
+            return userRepository.update(UserMapper.updateUserFields(user, request));
+        });
 
         logger.info("Изменен пользователь: {}", updatedUser);
         return UserMapper.mapToUserDto(updatedUser);
@@ -233,13 +281,51 @@ public class UserService {
             throw new NotFoundException("Пользователь с id = " + userId + " не найден");
         }
 
-        List<Film> films = filmRepository.getRecommendations(userId);
+        // С фильтрами лайков уже понравившиеся фильмы отсеиваются в памяти, а не подзапросом
+        List<Film> films = userLikesIndex.isEnabled()
+                ? excludeLiked(userId, filmRepository.getRecommendationCandidates(userId))
+                : filmRepository.getRecommendations(userId);
         return films.stream()
                 .filter(Objects::nonNull)
                 .map(FilmMapper::mapToFilmDto)
                 .collect(Collectors.toList());
     }
 
+    // Признаки лайка пользователя для страницы фильмов, в порядке filmIds
+    public List<FilmLikedDto> getLikedFlags(int userId, List<Integer> filmIds) {
+        logger.debug("Запрос на получение признаков лайка пользователя с id = {} для фильмов {}", userId, filmIds);
+
+        if (filmIds.size() > MAX_LIKED_FLAGS) {
+            logger.warn("Запрошено больше {} фильмов", MAX_LIKED_FLAGS);
+            throw new ValidationException("Можно запросить не больше " + MAX_LIKED_FLAGS + " фильмов");
+        }
+        if (userRepository.getById(userId).isEmpty()) {
+            logger.warn("Пользователь с id = {} не найден", userId);
+            throw new NotFoundException("Пользователь с id = " + userId + " не найден");
+        }
+
+        Set<Integer> liked = new HashSet<>(filmRepository.getLikedFilmIds(userId,
+                userLikesIndex.filterCandidates(userId, filmIds)));
+        return filmIds.stream()
+                .map(filmId -> {
+                    FilmLikedDto dto = new FilmLikedDto();
+                    dto.setFilmId(filmId);
+                    // Незаписанное изменение из буфера новее состояния БД
+                    dto.setLiked(likeWriteBuffer.getPending(filmId, userId).orElse(liked.contains(filmId)));
+                    return dto;
+                })
+                .collect(Collectors.toList());
+    }
+
+    // Убрать фильмы, которым пользователь уже поставил лайк
+    private List<Film> excludeLiked(int userId, List<Film> films) {
+        Set<Integer> liked = new HashSet<>(filmRepository.getLikedFilmIds(userId,
+                userLikesIndex.filterCandidates(userId, films.stream().map(Film::getId).toList())));
+        return films.stream()
+                .filter(film -> !liked.contains(film.getId()))
+                .collect(Collectors.toList());
+    }
+
     // Получить ленту событий пользователя
     public List<EventDto> getFeed(int id) {
         logger.debug("Запрос на получение ленты событий пользователя с id = {}", id);
@@ -256,7 +342,9 @@ public class UserService {
                 .toList();
     }
 
-    public void removeUserById(int userId) {
+    // Удалить пользователя по id. При фоновом удалении возвращается его задание
+    @Transactional
+    public Optional<DeletionJobDto> removeUserById(int userId) {
         logger.debug("Запрос на удаление пользователя с id = {}", userId);
 
         Optional<User> maybeUser = userRepository.getById(userId);
@@ -265,7 +353,24 @@ public class UserService {
             throw new NotFoundException("Пользователь с id = " + userId + " не найден");
         }
 
+        // Незаписанные лайки удаляемого пользователя не должны попасть в film_likes после удаления
+        likeWriteBuffer.dropUser(userId);
+        if (deletionService.isEnabled()) {
+            return Optional.of(deletionService.scheduleUserDeletion(userId));
+        }
+        // Вместе с пользователем каскадно удаляются его лайки: индексы узнают о каждом из них
+        Map<Integer, Instant> likeTimes = filmRepository.getLikeTimesByUserId(userId);
+        List<Integer> reactedReviewIds = reviewRepository.getReactedReviewIds(userId);
         userRepository.removeUserById(userId);
+        filmRepository.refreshSummaries(likeTimes.keySet());
+        likeTimes.keySet().forEach(filmId -> catalogueCounterRepository.adjustLikes(filmId, -1));
+        resourceVersions.bump(ResourceVersions.Resource.LIKES);
+        likeTimes.forEach((filmId, likedAt) -> eventPublisher.publishEvent(
+                new LikeChange(filmId, userId, Operation.REMOVE, likedAt)));
+        // Реакции пользователя на отзывы удалены каскадно: useful и оценка этих отзывов пересчитываются
+        reviewRepository.recompute(reactedReviewIds);
+        reviewUsefulCounter.forgetUser(userId);
         logger.debug("Удалён пользователь с id = {}", userId);
+        return Optional.empty();
     }
 }
\ No newline at end of file
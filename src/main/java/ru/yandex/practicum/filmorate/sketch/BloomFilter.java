@@ -0,0 +1,87 @@
+package ru.yandex.practicum.filmorate.sketch;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Фильтр Блума для множества целых чисел. Ответ "нет" точный, ответ "да" ложен с вероятностью около 1%
+// (10 бит и 7 хэш-функций на элемент). Когда добавлено больше элементов, чем рассчитан слой,
+// добавляется новый слой вдвое большей ёмкости, поэтому вероятность ошибки не растёт вместе с множеством.
+// Удаление не поддерживается. Класс не потокобезопасен
+public class BloomFilter {
+    private static final int BITS_PER_ELEMENT = 10;
+    private static final int HASHES = 7;
+    private static final int MIN_CAPACITY = 16;
+
+    private final List<Layer> layers = new ArrayList<>();
+
+    public BloomFilter(int expectedElements) {
+        layers.add(new Layer(Math.max(expectedElements, MIN_CAPACITY)));
+    }
+
+    public void add(int value) {
+        if (mightContain(value)) {
+            return;
+        }
+        Layer last = layers.getLast();
+        if (last.size >= last.capacity) {
+            last = new Layer(last.capacity * 2);
+            layers.add(last);
+        }
+        last.add(value);
+    }
+
+    public boolean mightContain(int value) {
+        for (Layer layer : layers) {
+            if (layer.mightContain(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class Layer {
+        private final int capacity;
+        private final int bitCount;
+        private final long[] bits;
+        private int size;
+
+        private Layer(int capacity) {
+            this.capacity = capacity;
+            this.bitCount = capacity * BITS_PER_ELEMENT;
+            this.bits = new long[(bitCount + Long.SIZE - 1) / Long.SIZE];
+        }
+
+        private void add(int value) {
+            int first = mix(value);
+            int second = mix(value ^ 0x9E3779B9) | 1;
+            for (int i = 0; i < HASHES; i++) {
+                int bit = Math.floorMod(first + i * second, bitCount);
+                bits[bit >>> 6] |= 1L << bit;
+            }
+            size++;
+        }
+
+        private boolean mightContain(int value) {
+            int first = mix(value);
+            int second = mix(value ^ 0x9E3779B9) | 1;
+            for (int i = 0; i < HASHES; i++) {
+                int bit = Math.floorMod(first + i * second, bitCount);
+                if ((bits[bit >>> 6] & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    // Перемешивание ключа (финализатор MurmurHash3); позиции битов — двойное хэширование
+    private static int mix(int value) {
+        int hash = value;
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        hash *= 0xC2B2AE35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+}
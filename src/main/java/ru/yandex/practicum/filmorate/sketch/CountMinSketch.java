@@ -0,0 +1,98 @@
+package ru.yandex.practicum.filmorate.sketch;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+// Count-Min Sketch: оценка количества лайков фильма в памяти фиксированного размера.
+// Оценка не меньше истинного значения и превышает его не более чем на errorBound()
+// с вероятностью не ниже confidence(). Поддерживает уменьшение счётчиков (удаление лайков),
+// пока истинные значения остаются неотрицательными. Класс не потокобезопасен
+public class CountMinSketch {
+    private final int width;
+    private final int depth;
+    private final long[][] counts;
+    private final int[] seeds;
+    // Сумма всех счётчиков (N в оценке погрешности)
+    private long total;
+
+    public CountMinSketch(int width, int depth) {
+        this.width = width;
+        this.depth = depth;
+        this.counts = new long[depth][width];
+        this.seeds = new int[depth];
+        for (int row = 0; row < depth; row++) {
+            seeds[row] = 0x9E3779B9 * (row + 1);
+        }
+    }
+
+    public void add(int key, long delta) {
+        for (int row = 0; row < depth; row++) {
+            counts[row][index(key, row)] += delta;
+        }
+        total += delta;
+    }
+
+    public long estimate(int key) {
+        long min = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            min = Math.min(min, counts[row][index(key, row)]);
+        }
+        return Math.max(min, 0);
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    // Максимальное завышение оценки: e / width * N
+    public long errorBound() {
+        return (long) Math.ceil(Math.E / width * total);
+    }
+
+    // Вероятность, с которой выполняется errorBound(): 1 - e^(-depth)
+    public double confidence() {
+        return 1 - Math.exp(-depth);
+    }
+
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(width);
+        out.writeInt(depth);
+        out.writeLong(total);
+        for (long[] row : counts) {
+            for (long count : row) {
+                out.writeLong(count);
+            }
+        }
+    }
+
+    public static CountMinSketch readFrom(DataInput in) throws IOException {
+        CountMinSketch sketch = new CountMinSketch(in.readInt(), in.readInt());
+        sketch.total = in.readLong();
+        for (long[] row : sketch.counts) {
+            for (int column = 0; column < row.length; column++) {
+                row[column] = in.readLong();
+            }
+        }
+        return sketch;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    // Хэш-функция строки: перемешивание ключа с зерном строки (финализатор MurmurHash3)
+    private int index(int key, int row) {
+        int hash = key ^ seeds[row];
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        hash *= 0xC2B2AE35;
+        hash ^= hash >>> 16;
+        return Math.floorMod(hash, width);
+    }
+}
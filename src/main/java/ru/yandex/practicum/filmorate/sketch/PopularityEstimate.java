@@ -0,0 +1,8 @@
+package ru.yandex.practicum.filmorate.sketch;
+
+import java.util.List;
+
+// Результат приблизительного ранжирования: фильмы по убыванию оценки количества лайков,
+// максимальное завышение оценки, вероятность этой границы и общее число учтённых лайков
+public record PopularityEstimate(List<Integer> filmIds, long errorBound, double confidence, long totalLikes) {
+}
@@ -0,0 +1,162 @@
+package ru.yandex.practicum.filmorate.sketch;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.yandex.practicum.filmorate.dal.FilmRepository;
+import ru.yandex.practicum.filmorate.dal.SketchSnapshotRepository;
+import ru.yandex.practicum.filmorate.model.SketchSnapshot;
+import ru.yandex.practicum.filmorate.model.changes.FilmChange;
+import ru.yandex.practicum.filmorate.model.changes.LikeChange;
+import ru.yandex.practicum.filmorate.model.events.Operation;
+
+import java.io.*;
+import java.time.Instant;
+import java.util.*;
+
+// Приблизительный режим популярности (filmorate.popularity.mode = approximate).
+// Количество лайков оценивается Count-Min Sketch, кандидаты в лидеры отслеживаются Space-Saving,
+// поэтому ранжирование не выполняет COUNT(*) GROUP BY по film_likes.
+// Состояние периодически сохраняется в sketch_snapshots; при запуске к снимку добавляются лайки,
+// поставленные после него. Удаления лайков между снимком и остановкой при этом теряются
+@Component
+public class PopularityEstimator {
+    private static final Logger logger = LoggerFactory.getLogger(PopularityEstimator.class);
+    private static final String SNAPSHOT_NAME = "popularity";
+
+    private final FilmRepository filmRepository;
+    private final SketchSnapshotRepository sketchSnapshotRepository;
+    private final boolean enabled;
+    private final int width;
+    private final int depth;
+    private final int topK;
+
+    private CountMinSketch sketch;
+    private SpaceSaving summary;
+    private final Set<Integer> removedFilms = new HashSet<>();
+
+    @Autowired
+    public PopularityEstimator(FilmRepository filmRepository, SketchSnapshotRepository sketchSnapshotRepository,
+                               @Value("${filmorate.popularity.mode:exact}") String mode,
+                               @Value("${filmorate.popularity.sketch.width:2048}") int width,
+                               @Value("${filmorate.popularity.sketch.depth:5}") int depth,
+                               @Value("${filmorate.popularity.sketch.top-k:200}") int topK) {
+        this.filmRepository = filmRepository;
+        this.sketchSnapshotRepository = sketchSnapshotRepository;
+        this.enabled = "approximate".equalsIgnoreCase(mode);
+        this.width = width;
+        this.depth = depth;
+        this.topK = topK;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @PostConstruct
+    public synchronized void load() {
+        if (!enabled) {
+            return;
+        }
+        sketch = new CountMinSketch(width, depth);
+        summary = new SpaceSaving(topK);
+        removedFilms.clear();
+        Instant since = Instant.EPOCH;
+
+        SketchSnapshot snapshot = sketchSnapshotRepository.getByName(SNAPSHOT_NAME).orElse(null);
+        if (snapshot != null) {
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(snapshot.getData()))) {
+                CountMinSketch restoredSketch = CountMinSketch.readFrom(in);
+                SpaceSaving restoredSummary = SpaceSaving.readFrom(in);
+                // Снимок с другими параметрами не используется: оценки в нём несопоставимы
+                if (restoredSketch.getWidth() == width && restoredSketch.getDepth() == depth
+                        && restoredSummary.getCapacity() == topK) {
+                    sketch = restoredSketch;
+                    summary = restoredSummary;
+                    since = snapshot.getCreatedAt();
+                }
+            } catch (IOException e) {
+                logger.warn("Не удалось прочитать снимок {}, состояние будет построено заново", SNAPSHOT_NAME, e);
+            }
+        }
+
+        Map<Integer, Long> likeCounts = filmRepository.getLikeCountsSince(since);
+        likeCounts.forEach(this::add);
+        // Множество удалённых фильмов в снимок не входит и к тому же теряет удаления после снимка,
+        // поэтому восстанавливается по таблице films: кандидаты, которых больше нет, исключаются из выдачи.
+        // Новые лайки удалённому фильму не поступают, так что проверки кандидатов при загрузке достаточно
+        Set<Integer> candidates = new HashSet<>(summary.candidates());
+        if (!candidates.isEmpty()) {
+            filmRepository.getExistingIds(candidates).forEach(candidates::remove);
+            removedFilms.addAll(candidates);
+        }
+        logger.info("Оценка популярности загружена: снимок от {}, добавлено лайков по {} фильмам, всего лайков {}, " +
+                "удалённых кандидатов {}", since, likeCounts.size(), sketch.getTotal(), removedFilms.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onLikeChange(LikeChange change) {
+        if (enabled) {
+            add(change.filmId(), change.operation() == Operation.REMOVE ? -1 : 1);
+        }
+    }
+
+    // Лайки удалённого фильма не вычитаются из скетча: вычитание оценки (а не точного значения)
+    // занизило бы счётчики других фильмов. Вместо этого фильм исключается из выдачи;
+    // id фильмов не переиспользуются, поэтому множество только растёт на число удалений
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onFilmChange(FilmChange change) {
+        if (enabled && change.operation() == Operation.REMOVE) {
+            removedFilms.add(change.filmId());
+        }
+    }
+
+    // Первые count фильмов по оценке количества лайков
+    public synchronized PopularityEstimate getTop(int count) {
+        List<Integer> filmIds = summary.candidates().stream()
+                .filter(filmId -> !removedFilms.contains(filmId))
+                .map(filmId -> Map.entry(filmId, sketch.estimate(filmId)))
+                .filter(entry -> entry.getValue() > 0)
+                .sorted(Map.Entry.<Integer, Long>comparingByValue(Comparator.reverseOrder())
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(count)
+                .map(Map.Entry::getKey)
+                .toList();
+        return new PopularityEstimate(filmIds, sketch.errorBound(), sketch.confidence(), sketch.getTotal());
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.popularity.snapshot-interval-ms:60000}",
+            initialDelayString = "${filmorate.popularity.snapshot-interval-ms:60000}")
+    @PreDestroy
+    public void saveSnapshot() {
+        if (!enabled) {
+            return;
+        }
+        byte[] data;
+        Instant createdAt;
+        synchronized (this) {
+            createdAt = Instant.now();
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                sketch.writeTo(out);
+                summary.writeTo(out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            data = bytes.toByteArray();
+        }
+        sketchSnapshotRepository.save(new SketchSnapshot(SNAPSHOT_NAME, createdAt, data));
+        logger.debug("Сохранён снимок {}: {} байт", SNAPSHOT_NAME, data.length);
+    }
+
+    private void add(int filmId, long delta) {
+        sketch.add(filmId, delta);
+        summary.add(filmId, delta);
+    }
+}
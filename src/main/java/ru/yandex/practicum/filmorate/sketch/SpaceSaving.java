@@ -0,0 +1,90 @@
+package ru.yandex.practicum.filmorate.sketch;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.*;
+
+// Space-Saving: отслеживание кандидатов в top-k при фиксированном числе счётчиков.
+// Любой фильм, набравший больше N / capacity лайков, гарантированно присутствует среди кандидатов.
+// При вытеснении новый фильм наследует счётчик вытесненного, а его завышение запоминается в error.
+// Уменьшение счётчика поддерживается только для отслеживаемых фильмов. Класс не потокобезопасен
+public class SpaceSaving {
+    private static final Comparator<Counter> ORDER = Comparator.<Counter>comparingLong(counter -> counter.count)
+            .thenComparingInt(counter -> counter.key);
+
+    private final int capacity;
+    private final Map<Integer, Counter> counters = new HashMap<>();
+    // Счётчики по возрастанию: первый — кандидат на вытеснение
+    private final TreeSet<Counter> ordered = new TreeSet<>(ORDER);
+
+    public SpaceSaving(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public void add(int key, long delta) {
+        Counter counter = counters.get(key);
+        if (counter != null) {
+            ordered.remove(counter);
+            counter.count = Math.max(counter.count + delta, 0);
+            counter.error = Math.min(counter.error, counter.count);
+            ordered.add(counter);
+            return;
+        }
+        if (delta <= 0) {
+            return;
+        }
+        if (counters.size() < capacity) {
+            put(new Counter(key, delta, 0));
+            return;
+        }
+        Counter evicted = ordered.pollFirst();
+        counters.remove(evicted.key);
+        put(new Counter(key, evicted.count + delta, evicted.count));
+    }
+
+    // Отслеживаемые фильмы
+    public Set<Integer> candidates() {
+        return Collections.unmodifiableSet(counters.keySet());
+    }
+
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(capacity);
+        out.writeInt(counters.size());
+        for (Counter counter : counters.values()) {
+            out.writeInt(counter.key);
+            out.writeLong(counter.count);
+            out.writeLong(counter.error);
+        }
+    }
+
+    public static SpaceSaving readFrom(DataInput in) throws IOException {
+        SpaceSaving summary = new SpaceSaving(in.readInt());
+        int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            summary.put(new Counter(in.readInt(), in.readLong(), in.readLong()));
+        }
+        return summary;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    private void put(Counter counter) {
+        counters.put(counter.key, counter);
+        ordered.add(counter);
+    }
+
+    private static final class Counter {
+        private final int key;
+        private long count;
+        private long error;
+
+        private Counter(int key, long count, long error) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,321 @@
+package ru.yandex.practicum.filmorate.stats;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.yandex.practicum.filmorate.dal.FilmRepository;
+import ru.yandex.practicum.filmorate.dto.DirectorLikesDto;
+import ru.yandex.practicum.filmorate.dto.GenreYearLikesDto;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.changes.DirectorChange;
+import ru.yandex.practicum.filmorate.model.changes.FilmChange;
+import ru.yandex.practicum.filmorate.model.changes.LikeChange;
+import ru.yandex.practicum.filmorate.model.events.Operation;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Колоночный снимок каталога для аналитических запросов (/stats).
+// Каждый атрибут фильма хранится отдельным массивом примитивов, строка i описывает один фильм,
+// поэтому группировки считаются одним проходом по массивам без обращения к БД.
+// Снимок строится при старте и поддерживается по событиям изменения фильмов, режиссёров и лайков
+@Component
+public class ColumnarFilmStore {
+    private static final Logger logger = LoggerFactory.getLogger(ColumnarFilmStore.class);
+
+    private static final int INITIAL_CAPACITY = 1024;
+    // Год для фильмов без даты релиза
+    private static final int NO_YEAR = 0;
+    // Жанры хранятся битовой маской, поэтому id жанра должен быть меньше 64
+    private static final int MAX_GENRE_ID = Long.SIZE - 1;
+    private static final int[] NO_DIRECTORS = new int[0];
+
+    private final FilmRepository filmRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Колонки; удалённый фильм помечается в alive и не учитывается
+    private int size;
+    private int[] filmIds = new int[INITIAL_CAPACITY];
+    private boolean[] alive = new boolean[INITIAL_CAPACITY];
+    private int[] years = new int[INITIAL_CAPACITY];
+    private long[] genreMasks = new long[INITIAL_CAPACITY];
+    private int[][] directorIds = new int[INITIAL_CAPACITY][];
+    private long[] likes = new long[INITIAL_CAPACITY];
+    // Номер строки фильма
+    private final Map<Integer, Integer> rows = new HashMap<>();
+    // Названия для ответов
+    private final Map<Integer, String> genreNames = new HashMap<>();
+    private final Map<Integer, String> directorNames = new HashMap<>();
+    // Лайки фильмов, строк которых ещё нет: событие лайка нового фильма может прийти раньше события
+    // о самом фильме (обработчики транзакций выполняются в разных потоках)
+    private final Map<Integer, Long> pendingLikes = new HashMap<>();
+
+    @Autowired
+    public ColumnarFilmStore(FilmRepository filmRepository) {
+        this.filmRepository = filmRepository;
+    }
+
+    @PostConstruct
+    public void load() {
+        rebuild();
+    }
+
+    // Построить снимок заново по БД
+    public void rebuild() {
+        List<Film> films = filmRepository.getAll();
+        Map<Integer, Long> likeCounts = filmRepository.getLikeCounts();
+        lock.writeLock().lock();
+        try {
+            size = 0;
+            rows.clear();
+            pendingLikes.clear();
+            genreNames.clear();
+            directorNames.clear();
+            for (Film film : films) {
+                put(film, likeCounts.getOrDefault(film.getId(), 0L));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Колоночный снимок каталога построен: фильмов {}", films.size());
+    }
+
+    // Количество фильмов и лайков для каждой пары (жанр, год релиза)
+    public List<GenreYearLikesDto> getLikesByGenreAndYear() {
+        lock.readLock().lock();
+        try {
+            int minYear = Integer.MAX_VALUE;
+            int maxYear = Integer.MIN_VALUE;
+            for (int i = 0; i < size; i++) {
+                if (alive[i] && years[i] != NO_YEAR) {
+                    minYear = Math.min(minYear, years[i]);
+                    maxYear = Math.max(maxYear, years[i]);
+                }
+            }
+            if (minYear > maxYear) {
+                return new ArrayList<>();
+            }
+
+            int span = maxYear - minYear + 1;
+            long[] filmCounts = new long[(MAX_GENRE_ID + 1) * span];
+            long[] likeSums = new long[(MAX_GENRE_ID + 1) * span];
+            for (int i = 0; i < size; i++) {
+                if (!alive[i] || years[i] == NO_YEAR) {
+                    continue;
+                }
+                int yearOffset = years[i] - minYear;
+                for (long mask = genreMasks[i]; mask != 0; mask &= mask - 1) {
+                    int cell = Long.numberOfTrailingZeros(mask) * span + yearOffset;
+                    filmCounts[cell]++;
+                    likeSums[cell] += likes[i];
+                }
+            }
+
+            List<GenreYearLikesDto> result = new ArrayList<>();
+            for (int cell = 0; cell < filmCounts.length; cell++) {
+                if (filmCounts[cell] == 0) {
+                    continue;
+                }
+                GenreYearLikesDto dto = new GenreYearLikesDto();
+                dto.setGenreId(cell / span);
+                dto.setGenreName(genreNames.get(cell / span));
+                dto.setYear(minYear + cell % span);
+                dto.setFilms(filmCounts[cell]);
+                dto.setLikes(likeSums[cell]);
+                result.add(dto);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Первые count режиссёров по сумме лайков их фильмов
+    public List<DirectorLikesDto> getTopDirectors(int count) {
+        lock.readLock().lock();
+        try {
+            int maxDirectorId = 0;
+            for (int i = 0; i < size; i++) {
+                for (int directorId : directorIds[i]) {
+                    maxDirectorId = Math.max(maxDirectorId, directorId);
+                }
+            }
+
+            long[] filmCounts = new long[maxDirectorId + 1];
+            long[] likeSums = new long[maxDirectorId + 1];
+            for (int i = 0; i < size; i++) {
+                if (!alive[i]) {
+                    continue;
+                }
+                for (int directorId : directorIds[i]) {
+                    filmCounts[directorId]++;
+                    likeSums[directorId] += likes[i];
+                }
+            }
+
+            List<DirectorLikesDto> result = new ArrayList<>();
+            for (int directorId = 0; directorId <= maxDirectorId; directorId++) {
+                if (filmCounts[directorId] == 0) {
+                    continue;
+                }
+                DirectorLikesDto dto = new DirectorLikesDto();
+                dto.setDirectorId(directorId);
+                dto.setDirectorName(directorNames.get(directorId));
+                dto.setFilms(filmCounts[directorId]);
+                dto.setLikes(likeSums[directorId]);
+                result.add(dto);
+            }
+            result.sort(Comparator.comparingLong(DirectorLikesDto::getLikes).reversed()
+                    .thenComparingInt(DirectorLikesDto::getDirectorId));
+            return result.size() > count ? new ArrayList<>(result.subList(0, count)) : result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLikeChange(LikeChange change) {
+        long delta = change.operation() == Operation.REMOVE ? -1 : 1;
+        lock.writeLock().lock();
+        try {
+            Integer row = rows.get(change.filmId());
+            if (row != null) {
+                likes[row] += delta;
+            } else {
+                pendingLikes.merge(change.filmId(), delta, Long::sum);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Новый или изменённый фильм перечитывается из БД, количество лайков известного фильма
+    // поддерживается событиями лайков; новый фильм получает лайки, пришедшие раньше него.
+    // Чтение идёт под блокировкой записи, иначе устаревшая строка параллельного события
+    // может перезаписать более свежую
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFilmChange(FilmChange change) {
+        lock.writeLock().lock();
+        try {
+            Optional<Film> film = change.operation() == Operation.REMOVE
+                    ? Optional.empty()
+                    : filmRepository.getById(change.filmId());
+            Integer row = rows.remove(change.filmId());
+            Long pending = pendingLikes.remove(change.filmId());
+            long filmLikes = pending == null ? 0 : pending;
+            if (row != null) {
+                alive[row] = false;
+                filmLikes += likes[row];
+            }
+            long currentLikes = filmLikes;
+            film.ifPresent(value -> put(value, currentLikes));
+            compactIfSparse();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Изменение или удаление режиссёра меняет его фильмы: они перечитываются из БД
+    // под той же блокировкой записи
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDirectorChange(DirectorChange change) {
+        lock.writeLock().lock();
+        try {
+            List<Integer> affected = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                if (alive[i] && Arrays.stream(directorIds[i]).anyMatch(id -> id == change.directorId())) {
+                    affected.add(filmIds[i]);
+                }
+            }
+            List<Film> films = filmRepository.getByIds(affected);
+            if (change.operation() == Operation.REMOVE) {
+                directorNames.remove(change.directorId());
+            }
+            for (Film film : films) {
+                Integer row = rows.get(film.getId());
+                if (row != null) {
+                    alive[row] = false;
+                    put(film, likes[row]);
+                }
+            }
+            compactIfSparse();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Добавить строку фильма; вызывается под блокировкой записи
+    private void put(Film film, long filmLikes) {
+        if (size == filmIds.length) {
+            grow();
+        }
+        int row = size++;
+        filmIds[row] = film.getId();
+        alive[row] = true;
+        years[row] = film.getReleaseDate() == null ? NO_YEAR : film.getReleaseDate().getYear();
+        likes[row] = filmLikes;
+
+        long mask = 0;
+        for (Genre genre : film.getGenres()) {
+            if (genre.getId() > MAX_GENRE_ID) {
+                logger.warn("Жанр с id = {} не помещается в колоночный снимок и не учитывается", genre.getId());
+                continue;
+            }
+            mask |= 1L << genre.getId();
+            genreNames.put(genre.getId(), genre.getName());
+        }
+        genreMasks[row] = mask;
+
+        int[] directors = film.getDirectors().isEmpty() ? NO_DIRECTORS : new int[film.getDirectors().size()];
+        int index = 0;
+        for (Director director : film.getDirectors()) {
+            directors[index++] = director.getId();
+            directorNames.put(director.getId(), director.getName());
+        }
+        directorIds[row] = directors;
+        rows.put(film.getId(), row);
+    }
+
+    // Изменённый фильм получает новую строку, старая остаётся удалённой. Когда удалённых строк
+    // становится больше живых, живые сдвигаются к началу массивов
+    private void compactIfSparse() {
+        if (rows.size() * 2 >= size) {
+            return;
+        }
+        int target = 0;
+        for (int i = 0; i < size; i++) {
+            if (!alive[i]) {
+                continue;
+            }
+            filmIds[target] = filmIds[i];
+            alive[target] = true;
+            years[target] = years[i];
+            genreMasks[target] = genreMasks[i];
+            directorIds[target] = directorIds[i];
+            likes[target] = likes[i];
+            rows.put(filmIds[target], target);
+            target++;
+        }
+        for (int i = target; i < size; i++) {
+            alive[i] = false;
+            directorIds[i] = null;
+        }
+        size = target;
+    }
+
+    private void grow() {
+        int capacity = filmIds.length * 2;
+        filmIds = Arrays.copyOf(filmIds, capacity);
+        alive = Arrays.copyOf(alive, capacity);
+        years = Arrays.copyOf(years, capacity);
+        genreMasks = Arrays.copyOf(genreMasks, capacity);
+        directorIds = Arrays.copyOf(directorIds, capacity);
+        likes = Arrays.copyOf(likes, capacity);
+    }
+}
@@ -0,0 +1,36 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.time.Duration;
+import java.time.Instant;
+
+// Оценка отзыва для сортировки best: нижняя граница Уилсона доли лайков, убывающая вдвое за каждый период
+// полураспада с момента создания отзыва. Хранится логарифм оценки со сдвигом на одинаковую для всех отзывов
+// величину: ln(PRIOR + wilson) + ln 2 * created / halfLife. Порядок отзывов по такой оценке совпадает
+// с порядком по (PRIOR + wilson) * 2^(-age / halfLife) и не меняется со временем, поэтому оценку
+// нужно пересчитывать только при изменении реакций
+public final class ReviewScore {
+    // Квантиль нормального распределения для доверительной вероятности 95%
+    private static final double Z = 1.96;
+    // Оценка отзыва без реакций: новые отзывы без реакций не опускаются ниже всех старых
+    private static final double PRIOR = 0.05;
+
+    private ReviewScore() {
+    }
+
+    public static double compute(long likes, long dislikes, Instant createdAt, Duration halfLife) {
+        double periods = (double) createdAt.getEpochSecond() / halfLife.toSeconds();
+        return Math.log(PRIOR + wilsonLowerBound(likes, dislikes)) + Math.log(2) * periods;
+    }
+
+    // Нижняя граница доверительного интервала Уилсона для доли лайков
+    private static double wilsonLowerBound(long likes, long dislikes) {
+        long total = likes + dislikes;
+        if (total == 0) {
+            return 0;
+        }
+        double n = total;
+        double p = likes / n;
+        double z2 = Z * Z;
+        return (p + z2 / (2 * n) - Z * Math.sqrt((p * (1 - p) + z2 / (4 * n)) / n)) / (1 + z2 / n);
+    }
+}
@@ -1,10 +1,16 @@
 DELETE FROM events;
+DELETE FROM deletion_jobs;
+DELETE FROM review_reactions_log;
 DELETE FROM review_likes;
 DELETE FROM reviews;
 DELETE FROM friendships;
 DELETE FROM film_likes;
+DELETE FROM film_like_buckets;
+DELETE FROM sketch_snapshots;
 DELETE FROM film_genres;
 DELETE FROM film_directors;
+DELETE FROM film_summary;
+DELETE FROM catalogue_counters;
 DELETE FROM films;
 DELETE FROM users;
 DELETE FROM genres;
@@ -12,8 +18,10 @@ DELETE FROM ratings;
 DELETE FROM directors;
 
 ALTER TABLE events ALTER COLUMN event_id RESTART WITH 1;
+ALTER TABLE deletion_jobs ALTER COLUMN job_id RESTART WITH 1;
 ALTER TABLE review_likes ALTER COLUMN id RESTART WITH 1;
-ALTER TABLE reviews ALTER COLUMN review_id RESTART WITH 1;
+ALTER TABLE review_reactions_log ALTER COLUMN seq RESTART WITH 1;
+ALTER SEQUENCE reviews_seq RESTART WITH 1;
 ALTER TABLE friendships ALTER COLUMN id RESTART WITH 1;
 
 -- ALTER TABLE film_likes ALTER COLUMN id RESTART WITH 1;
@@ -21,11 +29,11 @@ ALTER TABLE friendships ALTER COLUMN id RESTART WITH 1;
 
 ALTER TABLE film_directors ALTER COLUMN id RESTART WITH 1;
 
-ALTER TABLE films ALTER COLUMN film_id RESTART WITH 1;
-ALTER TABLE users ALTER COLUMN user_id RESTART WITH 1;
+ALTER SEQUENCE films_seq RESTART WITH 1;
+ALTER SEQUENCE users_seq RESTART WITH 1;
 ALTER TABLE genres ALTER COLUMN genre_id RESTART WITH 1;
 ALTER TABLE ratings ALTER COLUMN rating_id RESTART WITH 1;
-ALTER TABLE directors ALTER COLUMN director_id RESTART WITH 1;
+ALTER SEQUENCE directors_seq RESTART WITH 1;
 
 INSERT INTO genres(name) VALUES('Комедия');
 INSERT INTO genres(name) VALUES('Драма');
@@ -1,20 +1,38 @@
+-- Последовательности для идентификаторов, которые приложение резервирует заранее (см. IdAllocator)
+CREATE SEQUENCE IF NOT EXISTS films_seq;
+CREATE SEQUENCE IF NOT EXISTS users_seq;
+CREATE SEQUENCE IF NOT EXISTS directors_seq;
+CREATE SEQUENCE IF NOT EXISTS reviews_seq;
+
 CREATE TABLE IF NOT EXISTS ratings (
 	rating_id INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
 	name varchar NOT NULL
 );
 
 CREATE TABLE IF NOT EXISTS films (
-	film_id INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+	film_id INTEGER DEFAULT NEXT VALUE FOR films_seq PRIMARY KEY,
 	name varchar NOT NULL,
 	description varchar(200) NOT NULL,
 	release_date date,
 	duration INTEGER NOT NULL,
 	rating_id INTEGER REFERENCES ratings,
+	-- Версия строки для изменения с проверкой версии (UPDATE ... WHERE version = ?)
+	version INTEGER NOT NULL DEFAULT 0,
+	-- Время удаления: фильм скрыт и ожидает удаления зависимых строк (см. deletion_jobs)
+	deleted_at TIMESTAMP,
 	CONSTRAINT positive_duration CHECK (duration > 0),
 	CONSTRAINT description_not_blank CHECK (TRIM(description) <> ''),
 	CONSTRAINT min_release_date CHECK (release_date >= '1895-12-28')
 );
 
+-- CREATE TABLE IF NOT EXISTS не меняет таблицу, созданную прежней версией схемы в файле БД, поэтому
+-- новые столбцы и значения по умолчанию добавляются отдельно; на новой БД эти команды ничего не меняют
+ALTER TABLE films ALTER COLUMN film_id SET DEFAULT NEXT VALUE FOR films_seq;
+ALTER TABLE films ADD COLUMN IF NOT EXISTS version INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE films ADD COLUMN IF NOT EXISTS deleted_at TIMESTAMP;
+
+CREATE INDEX IF NOT EXISTS idx_films_release_date ON films(release_date);
+
 CREATE TABLE IF NOT EXISTS genres (
 	genre_id INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
 	name varchar NOT NULL
@@ -27,23 +45,48 @@ CREATE TABLE IF NOT EXISTS film_genres (
     CONSTRAINT unique_film_genre UNIQUE (film_id, genre_id)
 );
 
+CREATE INDEX IF NOT EXISTS idx_film_genres_genre_id ON film_genres(genre_id);
+
 CREATE TABLE IF NOT EXISTS users (
-	user_id INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+	user_id INTEGER DEFAULT NEXT VALUE FOR users_seq PRIMARY KEY,
 	email varchar NOT NULL UNIQUE,
 	login varchar NOT NULL,
 	name varchar,
 	birthday date,
+	-- Версия строки для изменения с проверкой версии (UPDATE ... WHERE version = ?)
+	version INTEGER NOT NULL DEFAULT 0,
+	-- Время удаления: пользователь скрыт и ожидает удаления зависимых строк (см. deletion_jobs)
+	deleted_at TIMESTAMP,
 	CONSTRAINT email_not_blank CHECK (TRIM(email) <> ''),
 	CONSTRAINT login_not_blank CHECK (TRIM(login) <> ''),
 	CONSTRAINT login_no_whitespace CHECK (login NOT LIKE '% %')
 );
 
+ALTER TABLE users ALTER COLUMN user_id SET DEFAULT NEXT VALUE FOR users_seq;
+ALTER TABLE users ADD COLUMN IF NOT EXISTS version INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE users ADD COLUMN IF NOT EXISTS deleted_at TIMESTAMP;
+
 CREATE TABLE IF NOT EXISTS film_likes (
     film_id INTEGER REFERENCES films(film_id) ON DELETE CASCADE,
     user_id INTEGER REFERENCES users(user_id) ON DELETE CASCADE,
+    created_at TIMESTAMP NOT NULL DEFAULT LOCALTIMESTAMP,
     CONSTRAINT unique_film_like UNIQUE (film_id, user_id)
 );
 
+ALTER TABLE film_likes ADD COLUMN IF NOT EXISTS created_at TIMESTAMP NOT NULL DEFAULT LOCALTIMESTAMP;
+
+-- Лайки пользователя (рекомендации, удаление пользователя) и лайки за период (тренды, догрузка скетчей)
+CREATE INDEX IF NOT EXISTS idx_film_likes_user_id ON film_likes(user_id);
+CREATE INDEX IF NOT EXISTS idx_film_likes_created_at ON film_likes(created_at);
+
+-- Почасовые счётчики лайков для трендов: сюда периодически сжимаются корзины TrendingIndex
+CREATE TABLE IF NOT EXISTS film_like_buckets (
+    film_id INTEGER REFERENCES films(film_id) ON DELETE CASCADE,
+    bucket_start TIMESTAMP NOT NULL,
+    likes INTEGER NOT NULL,
+    PRIMARY KEY (film_id, bucket_start)
+);
+
 CREATE TABLE IF NOT EXISTS friendships (
 	id INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
     user_id INTEGER REFERENCES users(user_id) ON DELETE CASCADE,
@@ -52,11 +95,17 @@ CREATE TABLE IF NOT EXISTS friendships (
 	CONSTRAINT no_self_friendship CHECK (user_id <> friend_id)
 );
 
+CREATE INDEX IF NOT EXISTS idx_friendships_user_friend ON friendships(user_id, friend_id);
+-- Дружбы, в которых пользователь указан другом (удаление пользователя частями)
+CREATE INDEX IF NOT EXISTS idx_friendships_friend_id ON friendships(friend_id);
+
 CREATE TABLE IF NOT EXISTS directors (
-    director_id INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    director_id INTEGER DEFAULT NEXT VALUE FOR directors_seq PRIMARY KEY,
     name varchar NOT NULL
 );
 
+ALTER TABLE directors ALTER COLUMN director_id SET DEFAULT NEXT VALUE FOR directors_seq;
+
 CREATE TABLE IF NOT EXISTS film_directors (
     id INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
     film_id INTEGER REFERENCES films ON DELETE CASCADE,
@@ -64,16 +113,75 @@ CREATE TABLE IF NOT EXISTS film_directors (
     CONSTRAINT unique_film_director UNIQUE (film_id, director_id)
 );
 
+CREATE INDEX IF NOT EXISTS idx_film_directors_director_id ON film_directors(director_id);
+
+-- Проекция фильма одной строкой: базовые поля, рейтинг, жанры, режиссёры и количество лайков.
+-- Поддерживается FilmRepository в тех же транзакциях, что и исходные таблицы
+CREATE TABLE IF NOT EXISTS film_summary (
+    film_id INTEGER PRIMARY KEY REFERENCES films(film_id) ON DELETE CASCADE,
+    name varchar NOT NULL,
+    description varchar(200) NOT NULL,
+    release_date date,
+    duration INTEGER NOT NULL,
+    rating_id INTEGER,
+    rating_name varchar,
+    genre_ids INTEGER ARRAY,
+    genre_names varchar ARRAY,
+    director_ids INTEGER ARRAY,
+    director_names varchar ARRAY,
+    likes INTEGER NOT NULL DEFAULT 0,
+    -- Версия строки films, по которой собрана строка проекции
+    version INTEGER NOT NULL DEFAULT 0
+);
+
+ALTER TABLE film_summary ADD COLUMN IF NOT EXISTS version INTEGER NOT NULL DEFAULT 0;
+
+CREATE INDEX IF NOT EXISTS idx_film_summary_release_date ON film_summary(release_date);
+CREATE INDEX IF NOT EXISTS idx_film_summary_likes ON film_summary(likes);
+
+-- Счётчики каталога по жанрам (GENRE), рейтингам (MPA) и режиссёрам (DIRECTOR): количество фильмов,
+-- лайков и отзывов. Поддерживаются репозиториями в тех же транзакциях, что и исходные таблицы
+CREATE TABLE IF NOT EXISTS catalogue_counters (
+    dimension varchar(16) NOT NULL,
+    item_id INTEGER NOT NULL,
+    films BIGINT NOT NULL DEFAULT 0,
+    likes BIGINT NOT NULL DEFAULT 0,
+    reviews BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (dimension, item_id)
+);
+
+-- Текст длиннее порога хранится сжатым (Deflate) в content_deflated, тогда content пуст,
+-- а для списков хранится начало текста в content_preview
 CREATE TABLE IF NOT EXISTS reviews (
-	review_id INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
-	content varchar NOT NULL,
+	review_id INTEGER DEFAULT NEXT VALUE FOR reviews_seq PRIMARY KEY,
+	content varchar,
+	content_deflated VARBINARY,
+	content_preview varchar(200),
+	content_length INTEGER NOT NULL DEFAULT 0,
 	is_positive boolean NOT NULL,
 	user_id INTEGER REFERENCES users,
 	film_id INTEGER REFERENCES films,
 	useful INTEGER NOT NULL DEFAULT 0,
+	created_at TIMESTAMP NOT NULL DEFAULT LOCALTIMESTAMP,
+	-- Оценка для сортировки best, см. ReviewScore
+	score DOUBLE PRECISION NOT NULL DEFAULT 0,
+	-- Версия редактируемых полей (content, is_positive); реакции версию не меняют
+	version INTEGER NOT NULL DEFAULT 0,
+	CONSTRAINT content_present CHECK (content IS NOT NULL OR content_deflated IS NOT NULL),
 	CONSTRAINT content_not_blank CHECK (TRIM(content) <> '')
 );
 
+ALTER TABLE reviews ALTER COLUMN review_id SET DEFAULT NEXT VALUE FOR reviews_seq;
+ALTER TABLE reviews ALTER COLUMN content SET NULL;
+ALTER TABLE reviews ADD COLUMN IF NOT EXISTS content_deflated VARBINARY;
+ALTER TABLE reviews ADD COLUMN IF NOT EXISTS content_preview varchar(200);
+ALTER TABLE reviews ADD COLUMN IF NOT EXISTS content_length INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE reviews ADD COLUMN IF NOT EXISTS created_at TIMESTAMP NOT NULL DEFAULT LOCALTIMESTAMP;
+ALTER TABLE reviews ADD COLUMN IF NOT EXISTS score DOUBLE PRECISION NOT NULL DEFAULT 0;
+ALTER TABLE reviews ADD COLUMN IF NOT EXISTS version INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE reviews ADD CONSTRAINT IF NOT EXISTS content_present
+    CHECK (content IS NOT NULL OR content_deflated IS NOT NULL);
+
 CREATE TABLE IF NOT EXISTS review_likes (
 	id INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
 	review_id INTEGER REFERENCES reviews ON DELETE CASCADE,
@@ -82,8 +190,23 @@ CREATE TABLE IF NOT EXISTS review_likes (
 	CONSTRAINT unique_review_user UNIQUE (review_id, user_id)
 );
 
+-- Журнал реакций на отзывы, только добавление. reaction — состояние после события: 1 — лайк, -1 — дизлайк,
+-- 0 — реакции нет. Журнал периодически сжимается в review_likes, useful отзывов пересчитывается
+CREATE TABLE IF NOT EXISTS review_reactions_log (
+    seq INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    review_id INTEGER REFERENCES reviews ON DELETE CASCADE,
+    user_id INTEGER REFERENCES users ON DELETE CASCADE,
+    reaction SMALLINT NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT LOCALTIMESTAMP
+);
+
 CREATE INDEX IF NOT EXISTS idx_reviews_film_id ON reviews(film_id);
+-- Отзывы и реакции пользователя (удаление пользователя частями)
+CREATE INDEX IF NOT EXISTS idx_reviews_user_id ON reviews(user_id);
+CREATE INDEX IF NOT EXISTS idx_review_likes_user_id ON review_likes(user_id);
 CREATE INDEX IF NOT EXISTS idx_reviews_useful ON reviews(useful);
+CREATE INDEX IF NOT EXISTS idx_reviews_film_score ON reviews(film_id, score DESC);
+CREATE INDEX IF NOT EXISTS idx_reviews_score ON reviews(score DESC);
 
 CREATE TABLE IF NOT EXISTS events (
     event_id INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
@@ -93,3 +216,29 @@ CREATE TABLE IF NOT EXISTS events (
     type varchar(6) NOT NULL,
     operation varchar(6) NOT NULL
 );
+
+-- Лента пользователя читается по user_id в порядке timestamp
+CREATE INDEX IF NOT EXISTS idx_events_user_timestamp ON events(user_id, timestamp);
+
+-- Задания фонового удаления пользователей (USER) и фильмов (FILM). step — таблица, из которой сейчас
+-- удаляются строки, deleted_rows — сколько зависимых строк уже удалено
+CREATE TABLE IF NOT EXISTS deletion_jobs (
+    job_id INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    entity varchar(8) NOT NULL,
+    entity_id INTEGER NOT NULL,
+    status varchar(8) NOT NULL,
+    step varchar(32),
+    deleted_rows BIGINT NOT NULL DEFAULT 0,
+    created_at TIMESTAMP NOT NULL DEFAULT LOCALTIMESTAMP,
+    finished_at TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_deletion_jobs_status ON deletion_jobs(status);
+
+-- Снимки вероятностных структур (приблизительный режим популярности)
+CREATE TABLE IF NOT EXISTS sketch_snapshots (
+    name varchar(64) PRIMARY KEY,
+    created_at TIMESTAMP NOT NULL,
+    data BLOB NOT NULL
+);
+
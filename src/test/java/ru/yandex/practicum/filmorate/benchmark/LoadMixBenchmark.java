@@ -0,0 +1,123 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Нагрузочный сценарий, общий для сравниваемых режимов обработки запросов.
+// Запускается только в профиле benchmark: mvn test -Pbenchmark
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "logging.level.ru.yandex.practicum.filmorate=WARN",
+        "logging.level.org.zalando.logbook=WARN"
+})
+@Sql(scripts = {"/schema.sql", "/data.sql", "/test-data.sql"})
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+abstract class LoadMixBenchmark {
+    // Количество одновременных клиентов
+    private static final int CLIENTS = 2000;
+    // Количество запросов от одного клиента
+    private static final int REQUESTS_PER_CLIENT = 20;
+    // Смесь запросов: чтения каталога, тяжёлые выборки и запись
+    private static final List<String> READ_PATHS = List.of(
+            "/films",
+            "/films/1",
+            "/films/popular?count=10",
+            "/films/search?query=film&by=title",
+            "/genres",
+            "/users/1/friends"
+    );
+
+    @LocalServerPort
+    private int port;
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+    // Название режима для отчёта
+    protected abstract String mode();
+
+    // Данные скриптов вставлены в обход приложения: проекция и индексы пересобираются штатным способом
+    @BeforeEach
+    void rebuildCatalogue() throws Exception {
+        HttpResponse<Void> response = client.send(HttpRequest.newBuilder(uri("/films/rebuild"))
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .build(), HttpResponse.BodyHandlers.discarding());
+        assertEquals(204, response.statusCode());
+    }
+
+    @Test
+    void runLoadMix() throws Exception {
+        AtomicInteger failures = new AtomicInteger();
+        long[] latencies = new long[CLIENTS * REQUESTS_PER_CLIENT];
+        AtomicInteger cursor = new AtomicInteger();
+
+        long started = System.nanoTime();
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int clientId = 0; clientId < CLIENTS; clientId++) {
+                int userId = clientId % 5 + 1;
+                futures.add(clients.submit(() -> {
+                    for (int i = 0; i < REQUESTS_PER_CLIENT; i++) {
+                        HttpRequest request = i % 10 == 9
+                                ? HttpRequest.newBuilder(uri("/films/" + (i % 5 + 1) + "/like/" + userId))
+                                .PUT(HttpRequest.BodyPublishers.noBody())
+                                .build()
+                                : HttpRequest.newBuilder(uri(READ_PATHS.get(i % READ_PATHS.size()))).GET().build();
+
+                        long begin = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() >= 500) {
+                                failures.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            failures.incrementAndGet();
+                        }
+                        latencies[cursor.getAndIncrement()] = System.nanoTime() - begin;
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        long elapsed = System.nanoTime() - started;
+
+        Arrays.sort(latencies);
+        System.out.printf("[%s] запросов: %d, ошибок: %d, время: %d мс, RPS: %.0f, p50: %d мс, p99: %d мс%n",
+                mode(),
+                latencies.length,
+                failures.get(),
+                Duration.ofNanos(elapsed).toMillis(),
+                latencies.length / (elapsed / 1e9),
+                Duration.ofNanos(latencies[latencies.length / 2]).toMillis(),
+                Duration.ofNanos(latencies[(int) (latencies.length * 0.99)]).toMillis());
+
+        assertEquals(0, failures.get(), "Часть запросов завершилась ошибкой");
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+}
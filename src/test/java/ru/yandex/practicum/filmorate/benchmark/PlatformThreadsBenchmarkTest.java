@@ -0,0 +1,12 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.springframework.test.context.TestPropertySource;
+
+// Базовый режим: пул платформенных потоков Tomcat
+@TestPropertySource(properties = "spring.threads.virtual.enabled=false")
+class PlatformThreadsBenchmarkTest extends LoadMixBenchmark {
+    @Override
+    protected String mode() {
+        return "platform threads";
+    }
+}
@@ -0,0 +1,12 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.springframework.test.context.TestPropertySource;
+
+// Виртуальные потоки и ограничитель соединений перед пулом
+@TestPropertySource(properties = "spring.threads.virtual.enabled=true")
+class VirtualThreadsBenchmarkTest extends LoadMixBenchmark {
+    @Override
+    protected String mode() {
+        return "virtual threads";
+    }
+}
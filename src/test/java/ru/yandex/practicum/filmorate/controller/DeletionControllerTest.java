@@ -0,0 +1,144 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.service.DeletionService;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Тестовый класс для фонового удаления пользователей и фильмов
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+@Sql(scripts = { "/schema.sql", "/data.sql", "/test-data.sql" })
+@TestPropertySource(properties = {
+        "filmorate.deletion.async-enabled=true",
+        // Маленькие части, чтобы каждая таблица удалялась в несколько транзакций
+        "filmorate.deletion.chunk-size=2",
+        "filmorate.deletion.chunk-pause-ms=0",
+        // Удаление запускается только явными вызовами из тестов
+        "filmorate.deletion.purge-interval-ms=3600000"
+})
+class DeletionControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ObjectMapper om;
+    @Autowired
+    private JdbcTemplate jdbc;
+    @Autowired
+    private DeletionService deletionService;
+
+    @Test
+    void shouldHideUserAndPurgeInBackground() throws Exception {
+        like(1, 1);
+        like(2, 1);
+        like(3, 1);
+        like(1, 2);
+        mockMvc.perform(put("/users/1/friends/2")).andExpect(status().isOk());
+        mockMvc.perform(put("/users/2/friends/1")).andExpect(status().isOk());
+        mockMvc.perform(post("/reviews")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"content\":\"X\",\"isPositive\":true,\"userId\":1,\"filmId\":1}"))
+                .andExpect(status().isCreated());
+
+        String response = mockMvc.perform(delete("/users/1"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.entity").value("USER"))
+                .andExpect(jsonPath("$.entityId").value(1))
+                .andExpect(jsonPath("$.status").value("PENDING"))
+                .andReturn().getResponse().getContentAsString();
+        int jobId = om.readTree(response).get("jobId").asInt();
+
+        // Пользователь скрыт сразу, его строки удаляются позже
+        mockMvc.perform(get("/users/1")).andExpect(status().isNotFound());
+        mockMvc.perform(get("/users/2/friends"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0));
+        assertEquals(3, count("SELECT COUNT(*) FROM film_likes WHERE user_id = 1"));
+
+        deletionService.purge();
+
+        mockMvc.perform(get("/deletions/{jobId}", jobId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("DONE"))
+                .andExpect(jsonPath("$.finishedAt").exists());
+        assertEquals(0, count("SELECT COUNT(*) FROM users WHERE user_id = 1"));
+        assertEquals(0, count("SELECT COUNT(*) FROM film_likes WHERE user_id = 1"));
+        assertEquals(0, count("SELECT COUNT(*) FROM reviews WHERE user_id = 1"));
+        assertEquals(0, count("SELECT COUNT(*) FROM friendships WHERE user_id = 1 OR friend_id = 1"));
+        // Лайк другого пользователя не затронут
+        assertEquals(1, count("SELECT COUNT(*) FROM film_likes WHERE film_id = 1"));
+    }
+
+    @Test
+    void shouldHideFilmAndPurgeInBackground() throws Exception {
+        like(1, 1);
+        like(1, 2);
+        like(1, 3);
+
+        mockMvc.perform(delete("/films/1"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.entity").value("FILM"));
+
+        mockMvc.perform(get("/films/1")).andExpect(status().isNotFound());
+        mockMvc.perform(get("/films"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(4));
+        mockMvc.perform(put("/films/1/like/4")).andExpect(status().isNotFound());
+
+        deletionService.purge();
+
+        mockMvc.perform(get("/deletions"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].entity").value("FILM"))
+                .andExpect(jsonPath("$[0].status").value("DONE"))
+                .andExpect(jsonPath("$[0].deletedRows").value(3));
+        assertEquals(0, count("SELECT COUNT(*) FROM films WHERE film_id = 1"));
+        assertEquals(0, count("SELECT COUNT(*) FROM film_likes WHERE film_id = 1"));
+    }
+
+    // Несжатые реакции пользователя удаляются вместе с пометкой: сжатие не вернёт их в review_likes
+    @Test
+    void shouldDropLoggedReactionsWhenUserIsHidden() throws Exception {
+        String response = mockMvc.perform(post("/reviews")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"content\":\"X\",\"isPositive\":true,\"userId\":1,\"filmId\":1}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        int reviewId = om.readTree(response).get("reviewId").asInt();
+        jdbc.update("INSERT INTO review_reactions_log (review_id, user_id, reaction) VALUES (?, 2, 1)", reviewId);
+        jdbc.update("INSERT INTO review_reactions_log (review_id, user_id, reaction) VALUES (?, 3, 1)", reviewId);
+
+        mockMvc.perform(delete("/users/2")).andExpect(status().isAccepted());
+
+        assertEquals(0, count("SELECT COUNT(*) FROM review_reactions_log WHERE user_id = 2"));
+        assertEquals(1, count("SELECT COUNT(*) FROM review_reactions_log WHERE user_id = 3"));
+    }
+
+    @Test
+    void shouldReturnNotFoundForUnknownJob() throws Exception {
+        mockMvc.perform(get("/deletions/100")).andExpect(status().isNotFound());
+    }
+
+    private void like(int filmId, int userId) throws Exception {
+        mockMvc.perform(put("/films/" + filmId + "/like/" + userId))
+                .andExpect(status().isOk());
+    }
+
+    private int count(String query) {
+        return jdbc.queryForObject(query, Integer.class);
+    }
+}
@@ -0,0 +1,87 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.sketch.PopularityEstimator;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// Тестовый класс для GET /films/popular в приблизительном режиме популярности
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+@Sql(scripts = { "/schema.sql", "/data.sql", "/test-data.sql" })
+@TestPropertySource(properties = "filmorate.popularity.mode=approximate")
+class FilmControllerApproximatePopularTest {
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private PopularityEstimator popularityEstimator;
+
+    // Путь
+    private static final String FILMS_URL = "/films";
+
+    // Оценка накоплена по лайкам предыдущих тестов и строится заново по данным скриптов
+    @BeforeEach
+    void loadEstimator() {
+        popularityEstimator.load();
+    }
+
+    // Проверяет ранжирование по оценке, заголовки с погрешностью и точный режим для запросов с фильтрами
+    @Test
+    void shouldRankByEstimateAndExposeErrorBound() throws Exception {
+        mockMvc.perform(put(FILMS_URL + "/3/like/1"))
+                .andExpect(status().isOk());
+        mockMvc.perform(put(FILMS_URL + "/3/like/2"))
+                .andExpect(status().isOk());
+        mockMvc.perform(put(FILMS_URL + "/5/like/1"))
+                .andExpect(status().isOk());
+        mockMvc.perform(put(FILMS_URL + "/1/like/1"))
+                .andExpect(status().isOk());
+        mockMvc.perform(delete(FILMS_URL + "/1/like/1"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get(FILMS_URL + "/popular"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Popularity-Mode", "approximate"))
+                .andExpect(header().exists("X-Popularity-Error-Bound"))
+                .andExpect(header().string("X-Popularity-Total-Likes", "3"))
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].id").value(3))
+                .andExpect(jsonPath("$[1].id").value(5));
+
+        mockMvc.perform(get(FILMS_URL + "/popular").param("year", "2020"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("X-Popularity-Mode"));
+    }
+
+    // Проверяет, что после перезапуска (сохранение снимка и повторная загрузка) удалённый фильм
+    // не возвращается в выдачу, хотя его лайки остались в скетче
+    @Test
+    void shouldNotReturnRemovedFilmAfterReload() throws Exception {
+        mockMvc.perform(put(FILMS_URL + "/2/like/1"))
+                .andExpect(status().isOk());
+        mockMvc.perform(put(FILMS_URL + "/2/like/2"))
+                .andExpect(status().isOk());
+        mockMvc.perform(put(FILMS_URL + "/4/like/1"))
+                .andExpect(status().isOk());
+        mockMvc.perform(delete(FILMS_URL + "/2"))
+                .andExpect(status().is2xxSuccessful());
+
+        popularityEstimator.saveSnapshot();
+        popularityEstimator.load();
+
+        mockMvc.perform(get(FILMS_URL + "/popular").param("count", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(4));
+    }
+}
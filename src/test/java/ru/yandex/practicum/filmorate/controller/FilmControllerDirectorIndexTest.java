@@ -0,0 +1,92 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.index.DirectorFilmIndex;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Тестовый класс для GET /films/director/{directorId} из индекса фильмографий
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+@Sql(scripts = { "/schema.sql", "/data.sql", "/test-data.sql" })
+class FilmControllerDirectorIndexTest {
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private DirectorFilmIndex directorFilmIndex;
+
+    // Путь
+    private static final String FILMS_URL = "/films";
+
+    // Индекс построен по данным предыдущих тестов и строится заново по данным скриптов
+    @BeforeEach
+    void loadIndex() {
+        directorFilmIndex.load();
+    }
+
+    // Проверяет порядок по году и по лайкам, его обновление после лайков и изменения фильма, пагинацию
+    @Test
+    void shouldServeDirectorFilmsFromIndex() throws Exception {
+        mockMvc.perform(post("/directors")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\": \"Indexed director\"}"))
+                .andExpect(status().isCreated());
+
+        // Фильмы 6, 7, 8 режиссёра 1
+        createFilm("old", "1990-01-01");
+        createFilm("new", "2010-01-01");
+        createFilm("middle", "2000-01-01");
+
+        mockMvc.perform(get(FILMS_URL + "/director/1").param("sortBy", "year"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[0].id").value(6))
+                .andExpect(jsonPath("$[1].id").value(8))
+                .andExpect(jsonPath("$[2].id").value(7));
+
+        mockMvc.perform(put(FILMS_URL + "/7/like/1"))
+                .andExpect(status().isOk());
+        mockMvc.perform(put(FILMS_URL + "/7/like/2"))
+                .andExpect(status().isOk());
+        mockMvc.perform(put(FILMS_URL + "/8/like/1"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get(FILMS_URL + "/director/1").param("sortBy", "likes").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].id").value(7))
+                .andExpect(jsonPath("$[1].id").value(8));
+
+        // Фильм 6 переносится в 2020 год: порядок по году меняется, лайки остаются
+        mockMvc.perform(put(FILMS_URL)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"id\": 6, \"name\": \"old\", \"description\": \"old\", \"releaseDate\": \"2020-01-01\", "
+                                + "\"duration\": 100, \"mpa\": {\"id\": 1}, \"directors\": [{\"id\": 1}]}"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get(FILMS_URL + "/director/1").param("sortBy", "year").param("offset", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].id").value(7))
+                .andExpect(jsonPath("$[1].id").value(6));
+    }
+
+    private void createFilm(String name, String releaseDate) throws Exception {
+        mockMvc.perform(post(FILMS_URL)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\": \"" + name + "\", \"description\": \"" + name + "\", \"releaseDate\": \""
+                                + releaseDate + "\", \"duration\": 100, \"mpa\": {\"id\": 1}, \"directors\": [{\"id\": 1}]}"))
+                .andExpect(status().isCreated());
+    }
+}
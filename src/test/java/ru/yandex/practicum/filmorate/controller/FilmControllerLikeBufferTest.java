@@ -0,0 +1,127 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.buffer.LikeWriteBuffer;
+import ru.yandex.practicum.filmorate.service.FilmService;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Тестовый класс для лайков с отложенной записью. Запись по расписанию отключена большим интервалом,
+// буфер записывается вызовом flush()
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+@Sql(scripts = { "/schema.sql", "/data.sql", "/test-data.sql" })
+@TestPropertySource(properties = {
+        "filmorate.like-buffer.enabled=true",
+        "filmorate.like-buffer.flush-interval-ms=3600000"
+})
+class FilmControllerLikeBufferTest {
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private LikeWriteBuffer likeWriteBuffer;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private FilmService filmService;
+
+    // Путь
+    private static final String FILMS_URL = "/films";
+
+    // Тестовые данные вставляются в БД напрямую, минуя события: производные данные каталога
+    // пересобираются так же, как после загрузки данных в работающее приложение
+    @BeforeEach
+    void rebuildCatalogue() {
+        filmService.rebuildCatalogue();
+    }
+
+    // Проверяет схлопывание лайка и его отмены, чтение своих незаписанных лайков и пакетную запись
+    @Test
+    void shouldBufferAndFlushLikes() throws Exception {
+        mockMvc.perform(put(FILMS_URL + "/1/like/1"))
+                .andExpect(status().isOk());
+        mockMvc.perform(delete(FILMS_URL + "/1/like/1"))
+                .andExpect(status().isOk());
+        mockMvc.perform(put(FILMS_URL + "/3/like/1"))
+                .andExpect(status().isOk());
+        mockMvc.perform(put(FILMS_URL + "/3/like/2"))
+                .andExpect(status().isOk());
+
+        assertEquals(0, countLikes());
+        mockMvc.perform(get(FILMS_URL + "/common").param("userId", "1").param("friendId", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(3));
+
+        likeWriteBuffer.flush();
+
+        assertEquals(2, countLikes());
+        mockMvc.perform(get(FILMS_URL + "/popular").param("count", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(3));
+        mockMvc.perform(get("/users/1/feed"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3));
+    }
+
+    // Проверяет, что лайк фильма, удалённого в обход буфера, отбрасывается и не срывает запись остальных
+    @Test
+    void shouldDropLikesOfMissingFilmsWhenFlushFails() throws Exception {
+        mockMvc.perform(put(FILMS_URL + "/2/like/1"))
+                .andExpect(status().isOk());
+        mockMvc.perform(put(FILMS_URL + "/3/like/2"))
+                .andExpect(status().isOk());
+        jdbcTemplate.update("DELETE FROM films WHERE film_id = 2");
+
+        likeWriteBuffer.flush();
+
+        assertEquals(1, countLikes());
+        assertEquals(Optional.empty(), likeWriteBuffer.getPending(2, 1));
+
+        mockMvc.perform(put(FILMS_URL + "/4/like/2"))
+                .andExpect(status().isOk());
+        likeWriteBuffer.flush();
+
+        assertEquals(2, countLikes());
+    }
+
+    // Проверяет, что при удалении фильма и пользователя их незаписанные лайки забываются
+    @Test
+    void shouldDropPendingLikesOnDeletion() throws Exception {
+        mockMvc.perform(put(FILMS_URL + "/2/like/1"))
+                .andExpect(status().isOk());
+        mockMvc.perform(put(FILMS_URL + "/3/like/4"))
+                .andExpect(status().isOk());
+        mockMvc.perform(put(FILMS_URL + "/3/like/5"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(delete(FILMS_URL + "/2"))
+                .andExpect(status().is2xxSuccessful());
+        mockMvc.perform(delete("/users/4"))
+                .andExpect(status().is2xxSuccessful());
+
+        assertEquals(Optional.empty(), likeWriteBuffer.getPending(2, 1));
+        assertEquals(Optional.empty(), likeWriteBuffer.getPending(3, 4));
+        likeWriteBuffer.flush();
+        assertEquals(1, countLikes());
+    }
+
+    private int countLikes() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM film_likes", Integer.class);
+    }
+}
@@ -0,0 +1,69 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import ru.yandex.practicum.filmorate.service.FilmService;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// Тестовый класс для GET /films/popular с включённым кэшем сериализованных ответов
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+@Sql(scripts = { "/schema.sql", "/data.sql", "/test-data.sql" })
+// Ответ проверяется сразу после записи, поэтому устаревший ответ не отдаётся
+// (в работе это допустимо в пределах max-staleness-ms)
+@TestPropertySource(properties = {
+        "filmorate.popular-cache.enabled=true",
+        "filmorate.popular-cache.max-staleness-ms=0"
+})
+class FilmControllerPopularCacheTest {
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private FilmService filmService;
+
+    // Путь
+    private static final String POPULAR_URL = "/films/popular";
+
+    // Тестовые данные вставляются в БД напрямую, минуя события: пересборка заполняет film_summary
+    // и увеличивает версии, поэтому ответы, закэшированные по данным предыдущего теста, не отдаются
+    @BeforeEach
+    void rebuildCatalogue() {
+        filmService.rebuildCatalogue();
+    }
+
+    // Проверяет, что кэшированный ответ совпадает по формату с обычным и обновляется после лайка
+    @Test
+    void shouldServeCachedPopularFilmsAndRefreshAfterLike() throws Exception {
+        MvcResult first = mockMvc.perform(get(POPULAR_URL))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.length()").value(5))
+                .andExpect(jsonPath("$[0].mpa.id").exists())
+                .andReturn();
+        String eTag = first.getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get(POPULAR_URL).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(put("/films/3/like/1"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get(POPULAR_URL).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(3));
+    }
+}
@@ -0,0 +1,114 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import ru.yandex.practicum.filmorate.readmodel.FilmReadModel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Тестовый класс для чтения каталога из модели чтения
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+@Sql(scripts = { "/schema.sql", "/data.sql", "/test-data.sql" })
+@TestPropertySource(properties = "filmorate.read-model.enabled=true")
+class FilmControllerReadModelTest {
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private FilmReadModel filmReadModel;
+
+    // Путь
+    private static final String FILMS_URL = "/films";
+
+    // Тестовые данные вставляются в БД напрямую, минуя события
+    @BeforeEach
+    void rebuildReadModel() {
+        filmReadModel.rebuild();
+    }
+
+    // Проверяет, что модель чтения отдаёт каталог и догоняет основное хранилище после записи
+    @Test
+    void shouldServeCatalogueFromReadModel() throws Exception {
+        mockMvc.perform(get(FILMS_URL))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(5));
+
+        mockMvc.perform(put(FILMS_URL + "/4/like/1"))
+                .andExpect(status().isOk());
+        awaitJson(get(FILMS_URL + "/popular").param("count", "1"), "$[0].id", 4);
+
+        mockMvc.perform(post(FILMS_URL)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\": \"read model film\", \"description\": \"description\", "
+                                + "\"releaseDate\": \"2001-01-01\", \"duration\": 100, \"mpa\": {\"id\": 1}}"))
+                .andExpect(status().isCreated());
+        awaitJson(get(FILMS_URL + "/search").param("query", "MODEL").param("by", "title"), "$.length()", 1);
+
+        mockMvc.perform(get(FILMS_URL + "/6"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("read model film"));
+    }
+
+    // Проверяет, что ETag прежней версии не подтверждает изменённый фильм, а после обновления документа
+    // ETag нового тела подтверждается ответом 304
+    @Test
+    void shouldConfirmETagOfUpdatedFilmOnceReadModelCatchesUp() throws Exception {
+        String oldETag = mockMvc.perform(get(FILMS_URL + "/2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("film2"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(put(FILMS_URL)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"id\": 2, \"name\": \"film2 renamed\"}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get(FILMS_URL + "/2").header(HttpHeaders.IF_NONE_MATCH, oldETag))
+                .andExpect(status().isOk());
+        awaitJson(get(FILMS_URL + "/2"), "$.name", "film2 renamed");
+
+        // Версии увеличиваются ещё раз сразу после обновления документа, поэтому проверка повторяется
+        for (int attempt = 0; attempt < 50; attempt++) {
+            MockHttpServletResponse response = mockMvc.perform(get(FILMS_URL + "/2")).andReturn().getResponse();
+            int code = mockMvc.perform(get(FILMS_URL + "/2")
+                            .header(HttpHeaders.IF_NONE_MATCH, response.getHeader(HttpHeaders.ETAG)))
+                    .andReturn().getResponse().getStatus();
+            if (code == 304) {
+                assertEquals("film2 renamed", JsonPath.read(response.getContentAsString(), "$.name"));
+                return;
+            }
+            Thread.sleep(100);
+        }
+        fail("ETag обновлённого фильма не подтверждается ответом 304");
+    }
+
+    // Модель обновляется в фоне, поэтому ответ проверяется несколько раз
+    private void awaitJson(MockHttpServletRequestBuilder request, String path, Object expected) throws Exception {
+        Object actual = null;
+        for (int attempt = 0; attempt < 50; attempt++) {
+            String body = mockMvc.perform(request).andReturn().getResponse().getContentAsString();
+            actual = JsonPath.read(body, path);
+            if (expected.equals(actual)) {
+                return;
+            }
+            Thread.sleep(100);
+        }
+        assertEquals(expected, actual);
+    }
+}
@@ -0,0 +1,93 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.service.FilmService;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Тестовый класс для чтения фильмов из проекции film_summary
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+@Sql(scripts = { "/schema.sql", "/data.sql", "/test-data.sql" })
+class FilmControllerSummaryTest {
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private FilmService filmService;
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    // Путь
+    private static final String FILMS_URL = "/films";
+
+    // Фильмы скриптов вставлены без строк проекции
+    @BeforeEach
+    void rebuildCatalogue() {
+        filmService.rebuildCatalogue();
+    }
+
+    @Test
+    void shouldServeFilmsFromSummary() throws Exception {
+        mockMvc.perform(get(FILMS_URL))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(5))
+                .andExpect(jsonPath("$[1].mpa.name").value("PG"));
+
+        mockMvc.perform(get(FILMS_URL + "/3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("film3"));
+    }
+
+    @Test
+    void shouldUpdatePopularFromSummaryAfterLikes() throws Exception {
+        mockMvc.perform(put(FILMS_URL + "/5/like/1"))
+                .andExpect(status().isOk());
+        mockMvc.perform(put(FILMS_URL + "/5/like/2"))
+                .andExpect(status().isOk());
+        mockMvc.perform(put(FILMS_URL + "/2/like/1"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get(FILMS_URL + "/popular").param("count", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].id").value(5))
+                .andExpect(jsonPath("$[1].id").value(2));
+
+        mockMvc.perform(get(FILMS_URL + "/popular").param("year", "2020").param("count", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(5));
+    }
+
+    // Проверяет, что фильм и лайки, записанные в обход приложения, попадают в популярные после пересборки
+    @Test
+    void shouldServeExternallyLoadedFilmAfterRebuild() throws Exception {
+        jdbc.update("INSERT INTO films(name, description, release_date, duration, rating_id) " +
+                "VALUES ('loaded', 'loaded', '2001-01-01', 100, 1)");
+        jdbc.update("INSERT INTO film_likes(film_id, user_id) VALUES (6, 1)");
+
+        mockMvc.perform(get(FILMS_URL + "/6"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("loaded"));
+        mockMvc.perform(get(FILMS_URL + "/popular").param("count", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(1));
+
+        mockMvc.perform(post(FILMS_URL + "/rebuild"))
+                .andExpect(status().isNoContent());
+
+        mockMvc.perform(get(FILMS_URL + "/popular").param("count", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(6));
+    }
+}
@@ -8,6 +8,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.jdbc.Sql;
@@ -20,6 +21,7 @@ import ru.yandex.practicum.filmorate.dto.MpaIdDto;
 import ru.yandex.practicum.filmorate.dto.NewFilmRequest;
 import ru.yandex.practicum.filmorate.dto.UpdateFilmRequest;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.FilmService;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -27,6 +29,7 @@ import java.util.List;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -43,6 +46,9 @@ class FilmControllerTest {
     @Autowired
     private JdbcTemplate jdbc;
 
+    @Autowired
+    private FilmService filmService;
+
     // Gson
     private final Gson gson = new GsonBuilder()
             .registerTypeAdapter(LocalDate.class, new LocalDateAdapter())
@@ -50,6 +56,13 @@ class FilmControllerTest {
     // Путь
     private static final String FILMS_URL = "/films";
 
+    // Тестовые данные вставляются в БД напрямую, минуя события: производные данные каталога
+    // пересобираются так же, как после загрузки данных в работающее приложение
+    @BeforeEach
+    void rebuildCatalogue() {
+        filmService.rebuildCatalogue();
+    }
+
     // Проверяет добавление нового фильма
     @Test
     @Order(6)
@@ -80,6 +93,42 @@ class FilmControllerTest {
         assertEquals(request.getDuration(), filmDto.getDuration(), "Не совпадают продолжительности");
     }
 
+    // Проверяет создание нескольких фильмов одним запросом и отказ для пачки с неизвестным жанром
+    @Test
+    void shouldAddFilmsInBatch() throws Exception {
+        mockMvc.perform(post(FILMS_URL + "/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"films\": ["
+                                + "{\"name\": \"batch1\", \"description\": \"d\", \"releaseDate\": \"2001-01-01\", "
+                                + "\"duration\": 100, \"mpa\": {\"id\": 1}, \"genres\": [{\"id\": 1}, {\"id\": 2}]}, "
+                                + "{\"name\": \"batch2\", \"description\": \"d\", \"releaseDate\": \"2002-01-01\", "
+                                + "\"duration\": 90, \"mpa\": {\"id\": 2}, \"genres\": [{\"id\": 2}]}]}"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].id").value(6))
+                .andExpect(jsonPath("$[1].id").value(7));
+
+        mockMvc.perform(get(FILMS_URL + "/7"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("batch2"))
+                .andExpect(jsonPath("$.mpa.id").value(2))
+                .andExpect(jsonPath("$.genres.length()").value(1));
+
+        mockMvc.perform(post(FILMS_URL + "/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"films\": [{\"name\": \"batch3\", \"description\": \"d\", "
+                                + "\"releaseDate\": \"2003-01-01\", \"duration\": 100, \"mpa\": {\"id\": 1}, "
+                                + "\"genres\": [{\"id\": 100}]}]}"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(post(FILMS_URL + "/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"films\": []}"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get(FILMS_URL))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(7));
+    }
+
     // Проверяет попытку добавления нового фильма с некорректным именем
     @Test
     @Order(2)
@@ -338,6 +387,36 @@ class FilmControllerTest {
         assertEquals(5, popularFilms.size());
     }
 
+    // Проверяет, что год вне допустимого диапазона отклоняется проверкой параметра, а не ошибкой сервера
+    @Test
+    void shouldRejectPopularFilmsWithOutOfRangeYear() throws Exception {
+        mockMvc.perform(get(FILMS_URL + "/popular").param("year", "1000000000"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get(FILMS_URL + "/popular").param("year", "1800"))
+                .andExpect(status().isNotFound());
+    }
+
+    // Проверяет условный запрос популярных фильмов: 304 до изменения лайков и 200 после
+    @Test
+    void shouldReturnNotModifiedPopularFilmsUntilLikesChange() throws Exception {
+        MvcResult first = mockMvc.perform(get(FILMS_URL + "/popular"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andExpect(header().exists(HttpHeaders.CACHE_CONTROL))
+                .andReturn();
+        String eTag = first.getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get(FILMS_URL + "/popular").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag));
+
+        mockMvc.perform(put(FILMS_URL + "/1/like/1"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get(FILMS_URL + "/popular").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk());
+    }
+
     // helper: получить id фильма по имени
     private int getFilmIdByName(String name) {
         return jdbc.queryForObject("SELECT film_id FROM films WHERE name = ?", Integer.class, name);
@@ -530,4 +609,52 @@ class FilmControllerTest {
                         .param("by", "foo"))
                 .andExpect(status().isBadRequest());
     }
+
+    @Test
+    void shouldAddLikesToFilmLists() throws Exception {
+        mockMvc.perform(put(FILMS_URL + "/2/like/1"))
+                .andExpect(status().isOk());
+        mockMvc.perform(put(FILMS_URL + "/2/like/3"))
+                .andExpect(status().isOk());
+        mockMvc.perform(put(FILMS_URL + "/4/like/3"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get(FILMS_URL).param("withLikes", "true").param("viewerId", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[1].likes").value(2))
+                .andExpect(jsonPath("$[1].liked").value(true))
+                .andExpect(jsonPath("$[3].likes").value(1))
+                .andExpect(jsonPath("$[3].liked").value(false))
+                .andExpect(jsonPath("$[0].likes").value(0));
+
+        mockMvc.perform(get(FILMS_URL + "/popular").param("count", "2").param("withLikes", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(2))
+                .andExpect(jsonPath("$[0].likes").value(2))
+                .andExpect(jsonPath("$[0].liked").doesNotExist());
+
+        mockMvc.perform(get(FILMS_URL + "/search")
+                        .param("query", "film4")
+                        .param("by", "title")
+                        .param("withLikes", "true")
+                        .param("viewerId", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].likes").value(1))
+                .andExpect(jsonPath("$[0].liked").value(true));
+
+        // Без withLikes ответ прежнего формата
+        mockMvc.perform(get(FILMS_URL))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[1].likes").doesNotExist())
+                .andExpect(jsonPath("$[1].liked").doesNotExist());
+    }
+
+    @Test
+    void shouldRejectViewerWithoutLikes() throws Exception {
+        mockMvc.perform(get(FILMS_URL).param("viewerId", "1"))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(get(FILMS_URL + "/popular").param("withLikes", "true").param("viewerId", "999"))
+                .andExpect(status().isNotFound());
+    }
 }
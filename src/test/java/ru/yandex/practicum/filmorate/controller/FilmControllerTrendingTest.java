@@ -0,0 +1,59 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Тестовый класс для GET /films/trending. Индекс трендов живёт в памяти контекста,
+// поэтому контекст создаётся заново, без лайков из других тестовых классов
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_CLASS)
+@Sql(scripts = { "/schema.sql", "/data.sql", "/test-data.sql" })
+class FilmControllerTrendingTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    // Путь
+    private static final String FILMS_URL = "/films";
+
+    // Проверяет порядок трендов и его изменение после удаления лайков
+    @Test
+    void shouldRankFilmsByRecentLikes() throws Exception {
+        mockMvc.perform(put(FILMS_URL + "/2/like/1"))
+                .andExpect(status().isOk());
+        mockMvc.perform(put(FILMS_URL + "/2/like/2"))
+                .andExpect(status().isOk());
+        mockMvc.perform(put(FILMS_URL + "/4/like/1"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get(FILMS_URL + "/trending").param("window", "hour"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].id").value(2))
+                .andExpect(jsonPath("$[1].id").value(4));
+
+        mockMvc.perform(delete(FILMS_URL + "/2/like/1"))
+                .andExpect(status().isOk());
+        mockMvc.perform(delete(FILMS_URL + "/2/like/2"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get(FILMS_URL + "/trending").param("window", "week").param("count", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(4));
+
+        mockMvc.perform(get(FILMS_URL + "/trending").param("window", "month"))
+                .andExpect(status().isBadRequest());
+    }
+}
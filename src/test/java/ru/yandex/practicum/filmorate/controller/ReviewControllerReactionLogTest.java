@@ -0,0 +1,170 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.readmodel.ReviewUsefulCounter;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Тестовый класс для реакций на отзывы через журнал review_reactions_log
+@SpringBootTest
+@AutoConfigureMockMvc
+@Sql(statements = {
+        "DELETE FROM review_reactions_log",
+        "DELETE FROM review_likes",
+        "DELETE FROM reviews",
+        "DELETE FROM film_genres",
+        "DELETE FROM films",
+        "DELETE FROM users",
+        "INSERT INTO users(user_id, email, login, name, birthday) VALUES (1,'u1@mail','u1','User1','1990-01-01')",
+        "INSERT INTO users(user_id, email, login, name, birthday) VALUES (2,'u2@mail','u2','User2','1990-01-01')",
+        "INSERT INTO users(user_id, email, login, name, birthday) VALUES (3,'u3@mail','u3','User3','1990-01-01')",
+        "INSERT INTO films(film_id, name, description, release_date, duration, rating_id) " +
+                "VALUES (1,'Film #1','Desc','2000-01-01',120,1)"
+}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+@TestPropertySource(properties = {
+        "filmorate.review-reactions.log-enabled=true",
+        // Журнал сжимается только явными вызовами из тестов
+        "filmorate.review-reactions.compaction-interval-ms=3600000"
+})
+class ReviewControllerReactionLogTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper om;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private ReviewUsefulCounter reviewUsefulCounter;
+
+    // Таблицы очищаются напрямую, поэтому состояние в памяти сбрасывается перед каждым тестом
+    @BeforeEach
+    void resetCounter() {
+        reviewUsefulCounter.rebuild();
+    }
+
+    @Test
+    void shouldServeUsefulBeforeAndAfterCompaction() throws Exception {
+        int id = createReview("{\"content\":\"X\",\"isPositive\":true,\"userId\":1,\"filmId\":1}");
+
+        mockMvc.perform(put("/reviews/{id}/like/{userId}", id, 1)).andExpect(status().isOk());
+        mockMvc.perform(put("/reviews/{id}/like/{userId}", id, 2)).andExpect(status().isOk());
+        mockMvc.perform(put("/reviews/{id}/dislike/{userId}", id, 3)).andExpect(status().isOk());
+        mockMvc.perform(put("/reviews/{id}/dislike/{userId}", id, 2)).andExpect(status().isOk());
+        // Повторная реакция и удаление чужой реакции ничего не меняют
+        mockMvc.perform(put("/reviews/{id}/like/{userId}", id, 1)).andExpect(status().isOk());
+        mockMvc.perform(delete("/reviews/{id}/like/{userId}", id, 3)).andExpect(status().isOk());
+
+        // До сжатия строка отзыва не меняется, useful складывается из БД и журнала
+        assertEquals(0, jdbc.queryForObject("SELECT useful FROM reviews WHERE review_id = ?", Integer.class, id));
+        mockMvc.perform(get("/reviews/{id}", id))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.useful", is(-1)));
+
+        reviewUsefulCounter.compact();
+
+        assertEquals(-1, jdbc.queryForObject("SELECT useful FROM reviews WHERE review_id = ?", Integer.class, id));
+        assertEquals(0, jdbc.queryForObject("SELECT COUNT(*) FROM review_reactions_log", Integer.class));
+        assertEquals(3, jdbc.queryForObject("SELECT COUNT(*) FROM review_likes WHERE review_id = ?", Integer.class, id));
+        mockMvc.perform(get("/reviews/{id}", id))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.useful", is(-1)));
+
+        // Удаление после сжатия снова идёт через журнал
+        mockMvc.perform(delete("/reviews/{id}/dislike/{userId}", id, 3)).andExpect(status().isOk());
+        mockMvc.perform(get("/reviews/{id}", id))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.useful", is(0)));
+    }
+
+    @Test
+    void shouldSortByUsefulWithPendingReactions() throws Exception {
+        int r1 = createReview("{\"content\":\"A\",\"isPositive\":true,\"userId\":1,\"filmId\":1}");
+        int r2 = createReview("{\"content\":\"B\",\"isPositive\":false,\"userId\":2,\"filmId\":1}");
+
+        mockMvc.perform(put("/reviews/{id}/dislike/{userId}", r1, 2)).andExpect(status().isOk());
+        mockMvc.perform(put("/reviews/{id}/like/{userId}", r2, 1)).andExpect(status().isOk());
+
+        mockMvc.perform(get("/reviews").param("filmId", "1").param("count", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].reviewId", is(r2)))
+                .andExpect(jsonPath("$[0].useful", is(1)))
+                .andExpect(jsonPath("$[1].reviewId", is(r1)))
+                .andExpect(jsonPath("$[1].useful", is(-1)));
+    }
+
+    @Test
+    void shouldReplayLogLeftAfterRestart() throws Exception {
+        int id = createReview("{\"content\":\"X\",\"isPositive\":true,\"userId\":1,\"filmId\":1}");
+        // Записи журнала, не сжатые до остановки приложения
+        jdbc.update("INSERT INTO review_reactions_log (review_id, user_id, reaction) VALUES (?, 1, 1)", id);
+        jdbc.update("INSERT INTO review_reactions_log (review_id, user_id, reaction) VALUES (?, 2, -1)", id);
+        jdbc.update("INSERT INTO review_reactions_log (review_id, user_id, reaction) VALUES (?, 2, 1)", id);
+        jdbc.update("INSERT INTO review_reactions_log (review_id, user_id, reaction) VALUES (?, 3, 1)", id);
+        jdbc.update("INSERT INTO review_reactions_log (review_id, user_id, reaction) VALUES (?, 3, 0)", id);
+
+        reviewUsefulCounter.rebuild();
+
+        mockMvc.perform(get("/reviews/{id}", id))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.useful", is(2)));
+        assertEquals(2, jdbc.queryForObject("SELECT COUNT(*) FROM review_likes WHERE review_id = ?", Integer.class, id));
+    }
+
+    @Test
+    void shouldReconcileDriftedUseful() throws Exception {
+        int id = createReview("{\"content\":\"X\",\"isPositive\":true,\"userId\":1,\"filmId\":1}");
+        mockMvc.perform(put("/reviews/{id}/like/{userId}", id, 2)).andExpect(status().isOk());
+        reviewUsefulCounter.compact();
+
+        jdbc.update("UPDATE reviews SET useful = 7 WHERE review_id = ?", id);
+        reviewUsefulCounter.reconcile();
+
+        mockMvc.perform(get("/reviews/{id}", id))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.useful", is(1)));
+    }
+
+    @Test
+    void shouldApplyBatchAfterPendingReactions() throws Exception {
+        int id = createReview("{\"content\":\"X\",\"isPositive\":true,\"userId\":1,\"filmId\":1}");
+        // Несжатая реакция той же пары не должна перекрыть более позднюю реакцию из пачки
+        mockMvc.perform(put("/reviews/{id}/like/{userId}", id, 1)).andExpect(status().isOk());
+
+        mockMvc.perform(post("/reviews/reactions/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"reactions\":[{\"reviewId\":" + id + ",\"userId\":1,\"sign\":-1},"
+                                + "{\"reviewId\":" + id + ",\"userId\":2,\"sign\":-1}]}"))
+                .andExpect(status().isNoContent());
+        reviewUsefulCounter.compact();
+
+        mockMvc.perform(get("/reviews/{id}", id))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.useful", is(-2)));
+    }
+
+    private int createReview(String body) throws Exception {
+        String created = mockMvc.perform(post("/reviews")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return om.readTree(created).get("reviewId").asInt();
+    }
+}
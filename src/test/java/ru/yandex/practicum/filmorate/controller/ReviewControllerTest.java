@@ -7,6 +7,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.jdbc.Sql;
 import org.springframework.test.web.servlet.MockMvc;
 
@@ -17,7 +18,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 @SpringBootTest
 @AutoConfigureMockMvc
 @Sql(statements = {
-        // Чистим и подготавливаем минимальные данные: 2 пользователя и 1 фильм
+        // Чистим и подготавливаем минимальные данные: 3 пользователя и 1 фильм
         "DELETE FROM review_likes",
         "DELETE FROM reviews",
         "DELETE FROM film_genres",
@@ -25,6 +26,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
         "DELETE FROM users",
         "INSERT INTO users(user_id, email, login, name, birthday) VALUES (1,'u1@mail','u1','User1','1990-01-01')",
         "INSERT INTO users(user_id, email, login, name, birthday) VALUES (2,'u2@mail','u2','User2','1990-01-01')",
+        "INSERT INTO users(user_id, email, login, name, birthday) VALUES (3,'u3@mail','u3','User3','1990-01-01')",
         "INSERT INTO films(film_id, name, description, release_date, duration, rating_id) " +
                 "VALUES (1,'Film #1','Desc','2000-01-01',120,1)"
 }, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
@@ -36,6 +38,9 @@ class ReviewControllerTest {
     @Autowired
     ObjectMapper om;
 
+    @Autowired
+    JdbcTemplate jdbc;
+
     @Test
     @DisplayName("POST /reviews — создаёт отзыв с useful=0 и возвращает 201")
     void createReview_returns201() throws Exception {
@@ -149,4 +154,169 @@ class ReviewControllerTest {
                         .content("{\"content\":\"  \",\"isPositive\":true,\"userId\":1,\"filmId\":1}"))
                 .andExpect(status().isBadRequest());
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("POST /reviews/reactions/batch — применяет пачку реакций, для повторной пары действует последняя")
+    void reactionsBatch_appliesLastReactionPerPair() throws Exception {
+        int r1 = om.readTree(mockMvc.perform(post("/reviews")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"content\":\"A\",\"isPositive\":true,\"userId\":1,\"filmId\":1}"))
+                        .andExpect(status().isCreated())
+                        .andReturn().getResponse().getContentAsString())
+                .get("reviewId").asInt();
+        int r2 = om.readTree(mockMvc.perform(post("/reviews")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"content\":\"B\",\"isPositive\":true,\"userId\":2,\"filmId\":1}"))
+                        .andExpect(status().isCreated())
+                        .andReturn().getResponse().getContentAsString())
+                .get("reviewId").asInt();
+        mockMvc.perform(put("/reviews/{id}/like/{userId}", r2, 1)).andExpect(status().isOk());
+
+        String batch = "{\"reactions\":["
+                + "{\"reviewId\":" + r1 + ",\"userId\":1,\"sign\":1},"
+                + "{\"reviewId\":" + r1 + ",\"userId\":2,\"sign\":1},"
+                + "{\"reviewId\":" + r1 + ",\"userId\":1,\"sign\":-1},"
+                + "{\"reviewId\":" + r2 + ",\"userId\":1,\"sign\":0},"
+                + "{\"reviewId\":" + r2 + ",\"userId\":2,\"sign\":-1}"
+                + "]}";
+        mockMvc.perform(post("/reviews/reactions/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(batch))
+                .andExpect(status().isNoContent());
+
+        mockMvc.perform(get("/reviews/{id}", r1))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.useful", is(0)));
+        mockMvc.perform(get("/reviews/{id}", r2))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.useful", is(-1)));
+
+        // Одиночные реакции продолжают работать поверх пачки
+        mockMvc.perform(delete("/reviews/{id}/dislike/{userId}", r1, 1)).andExpect(status().isOk());
+        mockMvc.perform(get("/reviews/{id}", r1))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.useful", is(1)));
+    }
+
+    @Test
+    @DisplayName("POST /reviews/reactions/batch — 404 для несуществующих id, 400 для неверной реакции")
+    void reactionsBatch_validatesIds() throws Exception {
+        int id = om.readTree(mockMvc.perform(post("/reviews")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"content\":\"A\",\"isPositive\":true,\"userId\":1,\"filmId\":1}"))
+                        .andExpect(status().isCreated())
+                        .andReturn().getResponse().getContentAsString())
+                .get("reviewId").asInt();
+
+        mockMvc.perform(post("/reviews/reactions/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"reactions\":[{\"reviewId\":" + id + ",\"userId\":1,\"sign\":1},"
+                                + "{\"reviewId\":" + id + ",\"userId\":999,\"sign\":1}]}"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(post("/reviews/reactions/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"reactions\":[{\"reviewId\":" + id + ",\"userId\":1,\"sign\":2}]}"))
+                .andExpect(status().isBadRequest());
+
+        // Пачка с ошибкой не применяется частично
+        mockMvc.perform(get("/reviews/{id}", id))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.useful", is(0)));
+    }
+
+    @Test
+    @DisplayName("GET /reviews?view=summary|preview — список без текста или с его началом")
+    void listViews_omitOrTruncateContent() throws Exception {
+        String text = "x".repeat(500);
+        int id = om.readTree(mockMvc.perform(post("/reviews")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"content\":\"" + text + "\",\"isPositive\":true,\"userId\":1,\"filmId\":1}"))
+                        .andExpect(status().isCreated())
+                        .andReturn().getResponse().getContentAsString())
+                .get("reviewId").asInt();
+
+        mockMvc.perform(get("/reviews").param("filmId", "1").param("view", "summary"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].reviewId", is(id)))
+                .andExpect(jsonPath("$[0].content").doesNotExist())
+                .andExpect(jsonPath("$[0].contentLength", is(500)));
+        mockMvc.perform(get("/reviews").param("filmId", "1").param("view", "preview"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].content", hasLength(200)))
+                .andExpect(jsonPath("$[0].contentLength", is(500)));
+        mockMvc.perform(get("/reviews").param("filmId", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].content", is(text)))
+                .andExpect(jsonPath("$[0].contentLength").doesNotExist());
+        mockMvc.perform(get("/reviews").param("view", "compact"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("GET /reviews?sort=best — лайкнутый отзыв опускается ниже свежего, когда оценка пересчитана с учётом возраста")
+    void bestSort_blendsUsefulAndAge() throws Exception {
+        int old = createReview("Old", 1);
+        int fresh = createReview("Fresh", 2);
+        mockMvc.perform(put("/reviews/{id}/like/{userId}", old, 2)).andExpect(status().isOk());
+
+        mockMvc.perform(get("/reviews").param("filmId", "1").param("sort", "best"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].reviewId", is(old)))
+                .andExpect(jsonPath("$[1].reviewId", is(fresh)));
+
+        // Первый отзыв написан два месяца назад. Оценка хранится в reviews и до пересчёта не меняется
+        jdbc.update("UPDATE reviews SET created_at = DATEADD('DAY', -60, created_at) WHERE review_id = ?", old);
+        mockMvc.perform(get("/reviews").param("filmId", "1").param("sort", "best"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].reviewId", is(old)));
+
+        // Ещё один лайк пересчитывает оценку: двух лайков не хватает, чтобы перевесить возраст
+        mockMvc.perform(put("/reviews/{id}/like/{userId}", old, 3)).andExpect(status().isOk());
+
+        mockMvc.perform(get("/reviews").param("filmId", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].reviewId", is(old)))
+                .andExpect(jsonPath("$[1].reviewId", is(fresh)));
+        mockMvc.perform(get("/reviews").param("filmId", "1").param("sort", "best"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].reviewId", is(fresh)))
+                .andExpect(jsonPath("$[1].reviewId", is(old)))
+                .andExpect(jsonPath("$[1].useful", is(2)));
+        mockMvc.perform(get("/reviews").param("sort", "newest"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("DELETE /users/{id} — useful и оценка отзывов, на которые реагировал пользователь, пересчитываются")
+    void deleteUser_recomputesReactedReviews() throws Exception {
+        int old = createReview("Old", 1);
+        int fresh = createReview("Fresh", 2);
+        // Первый отзыв написан днём раньше: без реакций он ниже второго
+        jdbc.update("UPDATE reviews SET created_at = DATEADD('DAY', -1, created_at) WHERE review_id = ?", old);
+        mockMvc.perform(put("/reviews/{id}/like/{userId}", old, 3)).andExpect(status().isOk());
+
+        mockMvc.perform(get("/reviews").param("filmId", "1").param("sort", "best"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].reviewId", is(old)));
+
+        mockMvc.perform(delete("/users/{id}", 3)).andExpect(status().is2xxSuccessful());
+
+        mockMvc.perform(get("/reviews/{id}", old))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.useful", is(0)));
+        mockMvc.perform(get("/reviews").param("filmId", "1").param("sort", "best"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].reviewId", is(fresh)))
+                .andExpect(jsonPath("$[1].reviewId", is(old)));
+    }
+
+    private int createReview(String content, int userId) throws Exception {
+        return om.readTree(mockMvc.perform(post("/reviews")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"content\":\"" + content + "\",\"isPositive\":true,\"userId\":"
+                                        + userId + ",\"filmId\":1}"))
+                        .andExpect(status().isCreated())
+                        .andReturn().getResponse().getContentAsString())
+                .get("reviewId").asInt();
+    }
+}
@@ -0,0 +1,202 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.model.changes.FilmChange;
+import ru.yandex.practicum.filmorate.model.changes.LikeChange;
+import ru.yandex.practicum.filmorate.model.events.Operation;
+import ru.yandex.practicum.filmorate.service.StatsService;
+import ru.yandex.practicum.filmorate.stats.ColumnarFilmStore;
+
+import java.time.Instant;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Тестовый класс для StatsController
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+@Sql(scripts = { "/schema.sql", "/data.sql", "/test-data.sql" })
+class StatsControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ColumnarFilmStore columnarFilmStore;
+    @Autowired
+    private StatsService statsService;
+
+    // Путь
+    private static final String STATS_URL = "/stats";
+
+    // Тестовые данные вставляются в БД напрямую, минуя события
+    @BeforeEach
+    void rebuildStore() {
+        columnarFilmStore.rebuild();
+        statsService.reconcileCounters();
+    }
+
+    // Проверяет, что счётчики меняются вместе с фильмами, лайками, отзывами и режиссёрами
+    @Test
+    void shouldMaintainCatalogueCounters() throws Exception {
+        mockMvc.perform(get(STATS_URL + "/mpa"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(5))
+                .andExpect(jsonPath("$[0].name").value("G"))
+                .andExpect(jsonPath("$[0].films").value(1))
+                .andExpect(jsonPath("$[0].likes").value(0));
+
+        mockMvc.perform(put("/films/1/like/1"))
+                .andExpect(status().isOk());
+        mockMvc.perform(put("/films/1/like/2"))
+                .andExpect(status().isOk());
+
+        int directorId = createDirector("director");
+        // Фильм с рейтингом G, жанром 2 и режиссёром
+        int filmId = createFilm("2000-01-01", "[{\"id\": 2}]", directorId);
+        mockMvc.perform(post("/reviews")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"content\": \"review\", \"isPositive\": true, \"userId\": 1, \"filmId\": "
+                                + filmId + "}"))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(get(STATS_URL + "/mpa"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].films").value(2))
+                .andExpect(jsonPath("$[0].likes").value(2))
+                .andExpect(jsonPath("$[0].reviews").value(1));
+        mockMvc.perform(get(STATS_URL + "/directors"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].films").value(1))
+                .andExpect(jsonPath("$[0].reviews").value(1));
+
+        // Фильм переносится в жанр 3 вместе с отзывом
+        mockMvc.perform(put("/films")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"id\": " + filmId + ", \"name\": \"film\", \"description\": \"film\", "
+                                + "\"releaseDate\": \"2000-01-01\", \"duration\": 100, \"mpa\": {\"id\": 1}, "
+                                + "\"genres\": [{\"id\": 3}], \"directors\": [{\"id\": " + directorId + "}]}"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get(STATS_URL + "/genres"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(6))
+                .andExpect(jsonPath("$[1].films").value(0))
+                .andExpect(jsonPath("$[1].reviews").value(0))
+                .andExpect(jsonPath("$[2].films").value(1))
+                .andExpect(jsonPath("$[2].reviews").value(1));
+
+        mockMvc.perform(delete("/directors/" + directorId))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(get(STATS_URL + "/directors"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0));
+    }
+
+    // Проверяет группировки после добавления фильмов и лайков через API
+    @Test
+    void shouldAggregateLikesByGenreYearAndDirector() throws Exception {
+        int firstDirectorId = createDirector("first");
+        int secondDirectorId = createDirector("second");
+
+        int oldFilmId = createFilm("1999-01-01", "[{\"id\": 1}, {\"id\": 2}]", firstDirectorId);
+        int sameYearFilmId = createFilm("1999-06-01", "[{\"id\": 1}]", secondDirectorId);
+        int newFilmId = createFilm("2005-01-01", "[{\"id\": 1}]", secondDirectorId);
+
+        mockMvc.perform(put("/films/" + oldFilmId + "/like/1"))
+                .andExpect(status().isOk());
+        mockMvc.perform(put("/films/" + sameYearFilmId + "/like/1"))
+                .andExpect(status().isOk());
+        mockMvc.perform(put("/films/" + sameYearFilmId + "/like/2"))
+                .andExpect(status().isOk());
+        mockMvc.perform(put("/films/" + newFilmId + "/like/3"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get(STATS_URL + "/genres/likes-by-year"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[0].genreId").value(1))
+                .andExpect(jsonPath("$[0].genreName").value("Комедия"))
+                .andExpect(jsonPath("$[0].year").value(1999))
+                .andExpect(jsonPath("$[0].films").value(2))
+                .andExpect(jsonPath("$[0].likes").value(3))
+                .andExpect(jsonPath("$[1].year").value(2005))
+                .andExpect(jsonPath("$[1].likes").value(1))
+                .andExpect(jsonPath("$[2].genreId").value(2))
+                .andExpect(jsonPath("$[2].likes").value(1));
+
+        mockMvc.perform(get(STATS_URL + "/directors/top"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].directorId").value(secondDirectorId))
+                .andExpect(jsonPath("$[0].directorName").value("second"))
+                .andExpect(jsonPath("$[0].films").value(2))
+                .andExpect(jsonPath("$[0].likes").value(4))
+                .andExpect(jsonPath("$[1].directorId").value(firstDirectorId));
+
+        // Один лайк удаляется, фильм 2005 года удаляется
+        mockMvc.perform(delete("/films/" + sameYearFilmId + "/like/2"))
+                .andExpect(status().isOk());
+        mockMvc.perform(delete("/films/" + newFilmId))
+                .andExpect(status().isNoContent());
+
+        mockMvc.perform(get(STATS_URL + "/directors/top").param("count", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].directorId").value(firstDirectorId))
+                .andExpect(jsonPath("$[0].likes").value(1));
+    }
+
+    // Проверяет, что лайк нового фильма, пришедший раньше события о самом фильме, не теряется
+    @Test
+    void shouldKeepLikeArrivingBeforeFilm() throws Exception {
+        int directorId = createDirector("early");
+        int filmId = createFilm("2010-01-01", "[{\"id\": 4}]", directorId);
+
+        // Снимок забывает фильм, затем события приходят в обратном порядке
+        columnarFilmStore.onFilmChange(new FilmChange(filmId, Operation.REMOVE));
+        columnarFilmStore.onLikeChange(new LikeChange(filmId, 1, Operation.ADD, Instant.now()));
+        columnarFilmStore.onFilmChange(new FilmChange(filmId, Operation.ADD));
+
+        mockMvc.perform(get(STATS_URL + "/directors/top"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].directorId").value(directorId))
+                .andExpect(jsonPath("$[0].likes").value(1));
+    }
+
+    @Test
+    void shouldNotGetTopDirectorsWithNonPositiveCount() throws Exception {
+        mockMvc.perform(get(STATS_URL + "/directors/top").param("count", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private int createDirector(String name) throws Exception {
+        String body = mockMvc.perform(post("/directors")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\": \"" + name + "\"}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return JsonPath.read(body, "$.id");
+    }
+
+    private int createFilm(String releaseDate, String genres, int directorId) throws Exception {
+        String body = mockMvc.perform(post("/films")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\": \"film\", \"description\": \"film\", \"releaseDate\": \"" + releaseDate
+                                + "\", \"duration\": 100, \"mpa\": {\"id\": 1}, \"genres\": " + genres
+                                + ", \"directors\": [{\"id\": " + directorId + "}]}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return JsonPath.read(body, "$.id");
+    }
+}
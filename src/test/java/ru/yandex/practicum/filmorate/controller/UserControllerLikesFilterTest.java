@@ -0,0 +1,72 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.index.UserLikesIndex;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Тестовый класс для признаков лайка и рекомендаций с включёнными фильтрами лайков пользователей
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+@Sql(scripts = { "/schema.sql", "/data.sql", "/test-data.sql" })
+@TestPropertySource(properties = "filmorate.likes-filter.enabled=true")
+class UserControllerLikesFilterTest {
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private UserLikesIndex userLikesIndex;
+
+    // Путь
+    private static final String USERS_URL = "/users";
+
+    // Тестовые данные вставляются в БД напрямую, минуя FilmService
+    @BeforeEach
+    void rebuildIndex() {
+        userLikesIndex.rebuild();
+    }
+
+    @Test
+    void shouldReturnLikedFlagsAndRecommendations() throws Exception {
+        like(1, 1);
+        like(2, 1);
+        like(1, 2);
+        like(2, 2);
+        like(3, 2);
+
+        mockMvc.perform(get(USERS_URL + "/1/likes").param("filmIds", "1", "3", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[0].filmId").value(1))
+                .andExpect(jsonPath("$[0].liked").value(true))
+                .andExpect(jsonPath("$[1].liked").value(false))
+                .andExpect(jsonPath("$[2].liked").value(false));
+
+        mockMvc.perform(get(USERS_URL + "/1/recommendations"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(3));
+
+        // Удалённый лайк остаётся в фильтре, ответ уточняется по БД
+        mockMvc.perform(delete("/films/1/like/1"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get(USERS_URL + "/1/likes").param("filmIds", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].liked").value(false));
+    }
+
+    private void like(int filmId, int userId) throws Exception {
+        mockMvc.perform(put("/films/" + filmId + "/like/" + userId))
+                .andExpect(status().isOk());
+    }
+}
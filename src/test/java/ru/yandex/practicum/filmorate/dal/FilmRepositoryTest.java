@@ -1,6 +1,7 @@
 package ru.yandex.practicum.filmorate.dal;
 
 import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.MethodOrderer;
 import org.junit.jupiter.api.Order;
 import org.junit.jupiter.api.Test;
@@ -11,14 +12,19 @@ import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.jdbc.Sql;
+import ru.yandex.practicum.filmorate.cache.ResourceVersions;
+import ru.yandex.practicum.filmorate.dal.mappers.CatalogueCounterRowMapper;
 import ru.yandex.practicum.filmorate.dal.mappers.FilmResultSetExtractor;
 import ru.yandex.practicum.filmorate.dal.mappers.FilmRowMapper;
 import ru.yandex.practicum.filmorate.dal.mappers.GenreRowMapper;
+import ru.yandex.practicum.filmorate.exception.ConflictException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.MpaRating;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
@@ -32,7 +38,8 @@ import static org.junit.jupiter.api.Assertions.*;
 @Sql(scripts = {"/schema.sql", "/data.sql", "/test-data.sql"})
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
 @ContextConfiguration(classes = {FilmRowMapper.class, FilmRepository.class,
-        GenreRowMapper.class, GenreRepository.class, FilmResultSetExtractor.class})
+        GenreRowMapper.class, GenreRepository.class, FilmResultSetExtractor.class, IdAllocator.class,
+        ResourceVersions.class, CatalogueCounterRepository.class, CatalogueCounterRowMapper.class})
 @TestMethodOrder(MethodOrderer.OrderAnnotation.class)
 class FilmRepositoryTest {
     private final FilmRepository filmRepository;
@@ -41,6 +48,12 @@ class FilmRepositoryTest {
     @Autowired
     private JdbcTemplate jdbc;
 
+    // Фильмы скриптов вставлены без строк проекции film_summary
+    @BeforeEach
+    void rebuildSummaries() {
+        filmRepository.rebuildSummaries();
+    }
+
     @Test
     void shouldFindFilmById() {
         Optional<Film> maybeFilm = filmRepository.getById(1);
@@ -139,11 +152,65 @@ class FilmRepositoryTest {
         assertEquals(0, filmGenres.size());
     }
 
+    @Test
+    void shouldRejectUpdateWithStaleVersion() {
+        Film first = filmRepository.getById(1).orElseThrow();
+        Film second = filmRepository.getById(1).orElseThrow();
+
+        first.setName("first");
+        filmRepository.update(first);
+        second.setName("second");
+        second.getRating().setId(2);
+
+        // Второе изменение прочитано до первого и не должно его перезаписать
+        assertThrows(ConflictException.class, () -> filmRepository.update(second));
+        Film stored = filmRepository.getById(1).orElseThrow();
+        assertEquals("first", stored.getName());
+        assertEquals(1, stored.getRating().getId());
+        assertEquals(1, stored.getVersion());
+    }
+
     @Test
     void shouldPutLike() {
         filmRepository.putLike(1, 1);
     }
 
+    @Test
+    void shouldPutLikeOnlyOnce() {
+        assertTrue(filmRepository.putLike(1, 3));
+        assertFalse(filmRepository.putLike(1, 3));
+
+        assertEquals(List.of(3), filmRepository.getLikesUserId(1));
+    }
+
+    // Уже существующий лайк в пачке не срывает запись остальных
+    @Test
+    void shouldPutLikesSkippingExisting() {
+        filmRepository.putLike(1, 3);
+
+        boolean[] added = filmRepository.putLikes(List.of(new FilmLike(1, 3), new FilmLike(2, 3)));
+
+        assertArrayEquals(new boolean[]{false, true}, added);
+        assertEquals(List.of(3), filmRepository.getLikesUserId(1));
+        assertEquals(List.of(3), filmRepository.getLikesUserId(2));
+    }
+
+    // Лайки фильма с несколькими жанрами считаются один раз, а сам фильм не повторяется
+    @Test
+    void shouldSortDirectorFilmsByLikes() {
+        jdbc.update("INSERT INTO directors(director_id, name) VALUES (1, 'director')");
+        jdbc.update("INSERT INTO film_directors(film_id, director_id) VALUES (1, 1), (2, 1)");
+        jdbc.update("INSERT INTO film_genres(film_id, genre_id) VALUES (1, 1), (1, 2), (1, 3)");
+        filmRepository.putLike(1, 1);
+        filmRepository.putLike(2, 1);
+        filmRepository.putLike(2, 2);
+
+        List<Film> films = filmRepository.searchDirectorsFilmsSortedByLikes(1);
+
+        assertEquals(List.of(2, 1), films.stream().map(Film::getId).toList());
+        assertEquals(3, films.get(1).getGenres().size());
+    }
+
     @Test
     void shouldRemoveLike() {
         filmRepository.putLike(1, 2);
@@ -381,4 +448,115 @@ class FilmRepositoryTest {
 
         assertThat(popular.stream().map(Film::getId)).contains(created.getId());
     }
+
+    @Test
+    void shouldGetPopularWithYearBoundaries() {
+        MpaRating mpa = new MpaRating();
+        mpa.setId(1);
+
+        List<Film> films = new ArrayList<>();
+        for (LocalDate releaseDate : List.of(LocalDate.of(1969, 12, 31), LocalDate.of(1970, 1, 1),
+                LocalDate.of(1970, 12, 31), LocalDate.of(1971, 1, 1))) {
+            Film film = new Film();
+            film.setName("boundary-film");
+            film.setDescription("boundary-film");
+            film.setReleaseDate(releaseDate);
+            film.setDuration(100);
+            film.setRating(mpa);
+            films.add(film);
+        }
+        List<Film> created = filmRepository.createAll(films);
+
+        List<Film> popular = filmRepository.getPopular(10, null, 1970);
+
+        assertThat(popular.stream().map(Film::getId))
+                .containsExactlyInAnyOrder(created.get(1).getId(), created.get(2).getId());
+    }
+
+    @Test
+    void shouldMaintainFilmSummary() {
+        MpaRating mpa = new MpaRating();
+        mpa.setId(2);
+
+        Genre genre = new Genre();
+        genre.setId(3);
+
+        Film film = new Film();
+        film.setName("summary-film");
+        film.setDescription("summary-film");
+        film.setReleaseDate(LocalDate.of(2001, 1, 1));
+        film.setDuration(100);
+        film.setRating(mpa);
+        film.setGenres(Set.of(genre));
+
+        Film created = filmRepository.create(film);
+        filmRepository.putLike(created.getId(), 1);
+        filmRepository.putLike(created.getId(), 2);
+        filmRepository.removeLike(created.getId(), 1);
+
+        assertEquals(1, jdbc.queryForObject("SELECT likes FROM film_summary WHERE film_id = ?",
+                Integer.class, created.getId()));
+        assertEquals("PG", jdbc.queryForObject("SELECT rating_name FROM film_summary WHERE film_id = ?",
+                String.class, created.getId()));
+        assertEquals(3, jdbc.queryForObject("SELECT ARRAY_GET(genre_ids, 1) FROM film_summary WHERE film_id = ?",
+                Integer.class, created.getId()));
+    }
+
+    @Test
+    void shouldRebuildFilmSummary() {
+        // Лайк вставлен в обход репозитория, поэтому проекция о нём не знает
+        jdbc.update("INSERT INTO film_likes(film_id, user_id) VALUES (1, 1)");
+        assertEquals(0, jdbc.queryForObject("SELECT likes FROM film_summary WHERE film_id = 1", Integer.class));
+
+        filmRepository.rebuildSummaries();
+
+        assertEquals(5, jdbc.queryForObject("SELECT COUNT(*) FROM film_summary", Integer.class));
+        assertEquals(1, jdbc.queryForObject("SELECT likes FROM film_summary WHERE film_id = 1", Integer.class));
+    }
+
+    @Test
+    void shouldReadFilmsWithoutSummaryRowsFromBaseTables() {
+        // Строка проекции удалена, а версия фильма изменена в обход репозитория
+        jdbc.update("DELETE FROM film_summary WHERE film_id = 1");
+        jdbc.update("UPDATE films SET version = 3 WHERE film_id = 2");
+
+        assertThat(filmRepository.getById(1))
+                .hasValueSatisfying(film -> assertEquals("film1", film.getName()));
+        assertEquals(3, filmRepository.getById(2).orElseThrow().getVersion());
+        assertEquals(List.of(1, 2, 3, 4, 5), filmRepository.getAll().stream().map(Film::getId).toList());
+        assertEquals(2, filmRepository.getByIds(List.of(1, 2)).size());
+    }
+
+    @Test
+    void shouldCreateSeveralFilmsInOneBatch() {
+        MpaRating mpa = new MpaRating();
+        mpa.setId(1);
+
+        Genre genre = new Genre();
+        genre.setId(2);
+
+        Film first = new Film();
+        first.setName("batch-1");
+        first.setDescription("batch-1");
+        first.setReleaseDate(LocalDate.of(2001, 1, 1));
+        first.setDuration(90);
+        first.setRating(mpa);
+        first.setGenres(Set.of(genre));
+
+        Film second = new Film();
+        second.setName("batch-2");
+        second.setDescription("batch-2");
+        second.setReleaseDate(LocalDate.of(2002, 2, 2));
+        second.setDuration(95);
+        second.setRating(mpa);
+
+        List<Film> created = filmRepository.createAll(List.of(first, second));
+
+        assertThat(created).extracting(Film::getId).doesNotContainNull().doesNotHaveDuplicates();
+        Optional<Film> firstFromDB = filmRepository.getById(first.getId());
+        assertThat(firstFromDB).isPresent();
+        assertThat(firstFromDB.get().getGenres()).extracting(Genre::getId).containsExactly(2);
+        assertThat(filmRepository.getById(second.getId())).isPresent()
+                .hasValueSatisfying(film -> assertThat(film.getGenres()).isEmpty());
+    }
 }
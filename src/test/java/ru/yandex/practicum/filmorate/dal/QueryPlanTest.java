@@ -0,0 +1,130 @@
+package ru.yandex.practicum.filmorate.dal;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Проверяет планы всех запросов репозиториев: ни один запрос не должен читать таблицу целиком,
+// кроме запросов, которые по смыслу возвращают всю таблицу
+@JdbcTest
+@AutoConfigureTestDatabase
+@Sql(scripts = {"/schema.sql", "/data.sql", "/test-data.sql"})
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class QueryPlanTest {
+    private final JdbcTemplate jdbcTemplate;
+
+    // Репозитории, запросы которых проверяются
+    private static final List<Class<?>> REPOSITORIES = List.of(
+            FilmRepository.class,
+            UserRepository.class,
+            ReviewRepository.class,
+            EventRepository.class,
+            DeletionJobRepository.class
+    );
+    // Запросы, которые читают всю таблицу намеренно (полные списки и начальная загрузка индексов)
+    private static final Set<String> FULL_SCAN_QUERIES = Set.of(
+            "FilmRepository.FIND_ALL_QUERY",
+            "FilmRepository.GET_POPULAR_QUERY",
+            "FilmRepository.SEARCH_BY_TITLE_OR_DIRECTOR_QUERY",
+            "FilmRepository.GET_DIRECTOR_FILM_ENTRIES_QUERY",
+            "FilmRepository.GET_LIKE_COUNTS_QUERY",
+            "FilmRepository.GET_ALL_LIKES_QUERY",
+            "FilmRepository.REBUILD_SUMMARIES_QUERY",
+            "FilmRepository.FIND_ALL_SUMMARIES_QUERY",
+            "FilmRepository.GET_POPULAR_SUMMARIES_QUERY",
+            "UserRepository.FIND_ALL_QUERY",
+            "ReviewRepository.FIND_ALL_QUERY",
+            "ReviewRepository.FIND_ALL_PREVIEWS_QUERY",
+            "ReviewRepository.FIND_ALL_SUMMARIES_QUERY",
+            "ReviewRepository.FIND_LOGGED_REACTIONS_QUERY",
+            "ReviewRepository.FIND_USEFUL_DRIFT_QUERY",
+            "DeletionJobRepository.FIND_RECENT_QUERY"
+    );
+    // Полный просмотр таблицы в плане H2 выглядит как /* PUBLIC.FILMS.tableScan */
+    private static final Pattern TABLE_SCAN = Pattern.compile("(\\w+)\\.tableScan");
+    // Именованные подстановки (:titleCond и т.п.), которые репозиторий заменяет условиями перед выполнением
+    private static final Pattern NAMED_PLACEHOLDER = Pattern.compile(":[a-zA-Z]+");
+
+    // Заполняет базу так, чтобы планировщик выбирал план по реалистичной статистике
+    @BeforeEach
+    void seed() {
+        jdbcTemplate.update("INSERT INTO users(email, login, name, birthday) " +
+                "SELECT 'seed' || X || '@example.com', 'seed' || X, 'seed', DATE '2000-01-01' " +
+                "FROM SYSTEM_RANGE(1, 1000)");
+        jdbcTemplate.update("INSERT INTO films(name, description, release_date, duration, rating_id) " +
+                "SELECT 'seed' || X, 'seed', DATEADD('DAY', X, DATE '1990-01-01'), 100, MOD(X, 5) + 1 " +
+                "FROM SYSTEM_RANGE(1, 500)");
+        jdbcTemplate.update("INSERT INTO directors(name) SELECT 'seed' || X FROM SYSTEM_RANGE(1, 20)");
+        jdbcTemplate.update("INSERT INTO film_genres(film_id, genre_id) SELECT film_id, MOD(film_id, 6) + 1 FROM films");
+        jdbcTemplate.update("INSERT INTO film_directors(film_id, director_id) " +
+                "SELECT film_id, MOD(film_id, 20) + 1 FROM films");
+        jdbcTemplate.update("INSERT INTO film_likes(film_id, user_id) " +
+                "SELECT f.film_id, u.user_id FROM films AS f JOIN users AS u ON MOD(f.film_id + u.user_id, 50) = 0");
+        jdbcTemplate.update("INSERT INTO friendships(user_id, friend_id, status) " +
+                "SELECT user_id, MOD(user_id, 1000) + 1, true FROM users");
+        jdbcTemplate.update("INSERT INTO events(user_id, timestamp, entity_id, type, operation) " +
+                "SELECT user_id, LOCALTIMESTAMP, 1, 'LIKE', 'ADD' FROM users");
+        jdbcTemplate.update("INSERT INTO reviews(content, is_positive, user_id, film_id) " +
+                "SELECT 'seed', true, MOD(X, 1000) + 1, MOD(X, 500) + 1 FROM SYSTEM_RANGE(1, 2000)");
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @Test
+    void shouldNotScanWholeTables() throws IllegalAccessException {
+        List<String> failures = new ArrayList<>();
+
+        for (Class<?> repository : REPOSITORIES) {
+            for (Field field : repository.getDeclaredFields()) {
+                if (!isQueryConstant(field)) {
+                    continue;
+                }
+                field.setAccessible(true);
+                String name = repository.getSimpleName() + "." + field.getName();
+                String sql = NAMED_PLACEHOLDER.matcher((String) field.get(null)).replaceAll("TRUE");
+                String plan = explain(sql);
+
+                Matcher matcher = TABLE_SCAN.matcher(plan);
+                if (matcher.find() && !FULL_SCAN_QUERIES.contains(name)) {
+                    failures.add(name + " читает таблицу " + matcher.group(1) + " целиком:\n" + plan);
+                }
+            }
+        }
+
+        assertThat(failures).isEmpty();
+    }
+
+    // Запросы — строковые константы репозитория; части запросов (*_FRAGMENT) отдельно не выполняются
+    private static boolean isQueryConstant(Field field) {
+        int modifiers = field.getModifiers();
+        return Modifier.isStatic(modifiers) && Modifier.isFinal(modifiers) && field.getType() == String.class
+                && !field.getName().endsWith("_FRAGMENT");
+    }
+
+    private String explain(String sql) {
+        return jdbcTemplate.execute((ConnectionCallback<String>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql);
+                 ResultSet resultSet = statement.executeQuery()) {
+                resultSet.next();
+                return resultSet.getString(1);
+            }
+        });
+    }
+}
@@ -6,18 +6,23 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.context.annotation.Import;
 import org.springframework.test.context.jdbc.Sql;
+import ru.yandex.practicum.filmorate.dal.mappers.CatalogueCounterRowMapper;
 import ru.yandex.practicum.filmorate.dal.mappers.ReviewRowMapper;
+import ru.yandex.practicum.filmorate.exception.ConflictException;
 import ru.yandex.practicum.filmorate.model.Review;
+import ru.yandex.practicum.filmorate.model.ReviewView;
 
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 /**
  * JDBC-тесты ReviewRepository на H2, без веб-слоя.
  */
 @JdbcTest
-@Import({ReviewRepository.class, ReviewRowMapper.class})
+@Import({ReviewRepository.class, ReviewRowMapper.class, IdAllocator.class, CatalogueCounterRepository.class,
+        CatalogueCounterRowMapper.class})
 @Sql(statements = {
         // Минимальная подготовка
         "DELETE FROM review_likes",
@@ -92,4 +97,55 @@ class ReviewRepositoryTest {
         assertThat(updated.getContent()).isEqualTo("B");
         assertThat(updated.getIsPositive()).isFalse();
     }
+
+    @Test
+    @DisplayName("update — не перезаписывает изменение, сделанное после чтения отзыва")
+    void updateRejectsStaleVersion() {
+        Review r = new Review();
+        r.setContent("A");
+        r.setIsPositive(true);
+        r.setUserId(1);
+        r.setFilmId(1);
+        int id = reviewRepository.create(r).getReviewId();
+
+        Review first = reviewRepository.findById(id).orElseThrow();
+        Review second = reviewRepository.findById(id).orElseThrow();
+        first.setContent("B");
+        reviewRepository.update(first);
+        second.setContent("C");
+
+        assertThatThrownBy(() -> reviewRepository.update(second)).isInstanceOf(ConflictException.class);
+        Review stored = reviewRepository.findById(id).orElseThrow();
+        assertThat(stored.getContent()).isEqualTo("B");
+        assertThat(stored.getVersion()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("длинный текст хранится сжатым, списки читают начало текста или обходятся без него")
+    void compressesLongContent() {
+        String longText = "Очень длинный отзыв. ".repeat(200);
+        Review r = new Review();
+        r.setContent(longText);
+        r.setIsPositive(true);
+        r.setUserId(1);
+        r.setFilmId(1);
+        int id = reviewRepository.create(r).getReviewId();
+
+        assertThat(reviewRepository.findById(id).orElseThrow().getContent()).isEqualTo(longText);
+
+        Review preview = reviewRepository.findAllByFilm(1, 10, ReviewView.PREVIEW).getFirst();
+        assertThat(preview.getContent()).isEqualTo(longText.substring(0, ReviewRepository.PREVIEW_LENGTH));
+        assertThat(preview.getContentLength()).isEqualTo(longText.length());
+
+        Review summary = reviewRepository.findAllByFilm(1, 10, ReviewView.SUMMARY).getFirst();
+        assertThat(summary.getContent()).isNull();
+        assertThat(summary.getContentLength()).isEqualTo(longText.length());
+
+        // После сокращения текст снова хранится несжатым
+        Review stored = reviewRepository.findById(id).orElseThrow();
+        stored.setContent("Short");
+        assertThat(reviewRepository.update(stored).getContent()).isEqualTo("Short");
+        assertThat(reviewRepository.findAllByFilm(1, 10, ReviewView.PREVIEW).getFirst().getContent())
+                .isEqualTo("Short");
+    }
 }
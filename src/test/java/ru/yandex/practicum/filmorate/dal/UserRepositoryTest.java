@@ -8,6 +8,7 @@ import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.jdbc.Sql;
 import ru.yandex.practicum.filmorate.dal.mappers.UserRowMapper;
+import ru.yandex.practicum.filmorate.exception.ConflictException;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.time.LocalDate;
@@ -21,7 +22,7 @@ import static org.junit.jupiter.api.Assertions.*;
 @AutoConfigureTestDatabase
 @Sql(scripts = {"/schema.sql", "/data.sql", "/test-data.sql"})
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
-@ContextConfiguration(classes = {UserRowMapper.class, UserRepository.class})
+@ContextConfiguration(classes = {UserRowMapper.class, UserRepository.class, IdAllocator.class})
 @TestMethodOrder(MethodOrderer.OrderAnnotation.class)
 class UserRepositoryTest {
     private final UserRepository userRepository;
@@ -111,6 +112,22 @@ class UserRepositoryTest {
                         assertThat(user).hasFieldOrPropertyWithValue("birthday", updatedUser.getBirthday()));
     }
 
+    @Test
+    void shouldRejectUpdateWithStaleVersion() {
+        User first = userRepository.getById(2).orElseThrow();
+        User second = userRepository.getById(2).orElseThrow();
+
+        first.setName("first");
+        userRepository.update(first);
+        second.setName("second");
+
+        // Второе изменение прочитано до первого и не должно его перезаписать
+        assertThrows(ConflictException.class, () -> userRepository.update(second));
+        User stored = userRepository.getById(2).orElseThrow();
+        assertEquals("first", stored.getName());
+        assertEquals(1, stored.getVersion());
+    }
+
     @Test
     void shouldAddFriend() {
         List<User> friends = userRepository.getFriends(1);
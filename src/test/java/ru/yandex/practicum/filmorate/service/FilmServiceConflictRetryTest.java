@@ -0,0 +1,63 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.context.jdbc.Sql;
+import ru.yandex.practicum.filmorate.dal.FilmRepository;
+import ru.yandex.practicum.filmorate.dto.FilmDto;
+import ru.yandex.practicum.filmorate.dto.UpdateFilmRequest;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verify;
+
+// Тестовый класс для повтора изменения фильма при конфликте версий
+@SpringBootTest
+@AutoConfigureTestDatabase
+@Sql(scripts = { "/schema.sql", "/data.sql", "/test-data.sql" })
+class FilmServiceConflictRetryTest {
+    @Autowired
+    private FilmService filmService;
+    @SpyBean
+    private FilmRepository filmRepository;
+
+    // Проверяет, что изменение, прочитавшее фильм до чужой записи, повторяется на свежей версии
+    // и сохраняет обе правки
+    @Test
+    void shouldReapplyPartialUpdateAfterConflict() {
+        AtomicBoolean interfered = new AtomicBoolean();
+        doAnswer(invocation -> {
+            @SuppressWarnings("unchecked")
+            Optional<Film> read = (Optional<Film>) invocation.callRealMethod();
+            // Сразу после первого чтения фильм меняет другой запрос
+            if (interfered.compareAndSet(false, true)) {
+                Film concurrent = filmRepository.getById(1).orElseThrow();
+                concurrent.setDescription("concurrent description");
+                filmRepository.update(concurrent);
+            }
+            return read;
+        }).when(filmRepository).getById(anyInt());
+
+        UpdateFilmRequest request = new UpdateFilmRequest();
+        request.setId(1);
+        request.setName("renamed");
+        FilmDto updated = filmService.update(request);
+
+        verify(filmRepository, atLeast(3)).getById(1);
+        assertEquals("renamed", updated.getName());
+        assertEquals("concurrent description", updated.getDescription());
+        Film stored = filmRepository.getById(1).orElseThrow();
+        assertEquals("renamed", stored.getName());
+        assertEquals("concurrent description", stored.getDescription());
+        assertEquals(2, stored.getVersion());
+    }
+}